@@ -9,7 +9,6 @@ import android.os.Build;
 import android.provider.Settings;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.io7m.jfunctional.Option;
 import com.io7m.jfunctional.OptionType;
@@ -32,6 +31,7 @@ import org.nypl.drm.core.AdobeAdeptResourceProviderType;
 import org.nypl.drm.core.DRMException;
 import org.nypl.drm.core.DRMUnsupportedException;
 import org.nypl.simplified.books.core.LogUtilities;
+import org.nypl.simplified.json.core.JSONMappers;
 import org.nypl.simplified.json.core.JSONParserUtilities;
 import org.nypl.simplified.multilibrary.Account;
 import org.slf4j.Logger;
@@ -405,8 +405,7 @@ public final class AdobeDRMServices
     throws DRMUnsupportedException
   {
     try {
-      final ObjectMapper jom = new ObjectMapper();
-      final JsonNode json = jom.readTree(r);
+      final JsonNode json = JSONMappers.treeReader().readTree(r);
       final ObjectNode o = JSONParserUtilities.checkObject(null, json);
       final String appid = JSONParserUtilities.getString(o, "appid");
 
@@ -13,6 +13,7 @@ import android.util.DisplayMetrics;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.io7m.jfunctional.FunctionType;
+import com.io7m.jfunctional.Option;
 import com.io7m.jfunctional.OptionType;
 import com.io7m.jfunctional.Some;
 import com.io7m.jfunctional.Unit;
@@ -33,10 +34,14 @@ import org.nypl.simplified.assertions.Assertions;
 import org.nypl.simplified.books.accounts.AccountProviderCollection;
 import org.nypl.simplified.books.accounts.AccountProvidersJSON;
 import org.nypl.simplified.books.accounts.AccountsDatabases;
+import org.nypl.simplified.books.book_database.BookDatabases;
 import org.nypl.simplified.books.analytics.AnalyticsLogger;
+import org.nypl.simplified.books.analytics.CirculationAnalyticsDispatcher;
 import org.nypl.simplified.books.book_registry.BookRegistry;
 import org.nypl.simplified.books.book_registry.BookRegistryReadableType;
 import org.nypl.simplified.books.book_registry.BookRegistryType;
+import org.nypl.simplified.books.book_registry.BookStatusEventBus;
+import org.nypl.simplified.books.book_registry.BookStatusEventBusType;
 import org.nypl.simplified.books.bundled_content.BundledContentResolverType;
 import org.nypl.simplified.books.controller.AnalyticsControllerType;
 import org.nypl.simplified.books.controller.Controller;
@@ -50,6 +55,7 @@ import org.nypl.simplified.books.core.DocumentStoreBuilderType;
 import org.nypl.simplified.books.core.DocumentStoreType;
 import org.nypl.simplified.books.feeds.FeedHTTPTransport;
 import org.nypl.simplified.books.feeds.FeedLoader;
+import org.nypl.simplified.books.feeds.FeedLoaderConfiguration;
 import org.nypl.simplified.books.feeds.FeedLoaderType;
 import org.nypl.simplified.books.core.LogUtilities;
 import org.nypl.simplified.books.profiles.ProfileDatabaseException;
@@ -57,16 +63,20 @@ import org.nypl.simplified.books.profiles.ProfilesDatabase;
 import org.nypl.simplified.books.profiles.ProfilesDatabaseType;
 import org.nypl.simplified.bugsnag.IfBugsnag;
 import org.nypl.simplified.cardcreator.CardCreator;
+import org.nypl.simplified.downloader.core.DownloaderConfiguration;
 import org.nypl.simplified.downloader.core.DownloaderHTTP;
 import org.nypl.simplified.downloader.core.DownloaderType;
 import org.nypl.simplified.files.DirectoryUtilities;
 import org.nypl.simplified.http.core.HTTP;
 import org.nypl.simplified.http.core.HTTPAuthType;
+import org.nypl.simplified.http.core.HTTPCache;
+import org.nypl.simplified.http.core.HTTPPoolConfiguration;
+import org.nypl.simplified.http.core.HTTPPooled;
 import org.nypl.simplified.http.core.HTTPType;
 import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntryParser;
 import org.nypl.simplified.opds.core.OPDSAuthenticationDocumentParser;
 import org.nypl.simplified.opds.core.OPDSAuthenticationDocumentParserType;
-import org.nypl.simplified.opds.core.OPDSFeedParser;
+import org.nypl.simplified.opds.core.OPDSFeedStreamingParser;
 import org.nypl.simplified.opds.core.OPDSFeedParserType;
 import org.nypl.simplified.opds.core.OPDSFeedTransportType;
 import org.nypl.simplified.opds.core.OPDSSearchParser;
@@ -82,7 +92,9 @@ import java.net.ServerSocket;
 import java.net.URI;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Global application state.
@@ -99,6 +111,7 @@ public final class Simplified extends Application {
   private ExecutorService exec_downloader;
   private ExecutorService exec_books;
   private ExecutorService exec_epub;
+  private ExecutorService exec_book_database;
   private ScreenSizeInformation screen;
   private File directory_base;
   private File directory_documents;
@@ -106,6 +119,7 @@ public final class Simplified extends Application {
   private File directory_profiles;
   private File directory_analytics;
   private AnalyticsLogger analytics_logger;
+  private CirculationAnalyticsDispatcher circulation_analytics;
   private OptionType<AdobeAdeptExecutorType> adobe_drm;
   private CatalogBookCoverGenerator cover_generator;
   private HTTPType http;
@@ -125,9 +139,14 @@ public final class Simplified extends Application {
   private AccountProviderCollection account_providers;
   private NetworkConnectivity network_connectivity;
   private BookRegistryType book_registry;
+  private BookStatusEventBusType book_status_events;
   private Controller book_controller;
   private ListeningExecutorService exec_background;
   private ExecutorService exec_profile_timer;
+  private ScheduledExecutorService exec_profile_writes;
+  private ScheduledExecutorService exec_book_events;
+  private ScheduledExecutorService exec_analytics;
+  private ScheduledExecutorService exec_analytics_upload;
   private BundledContentResolverType bundled_content_resolver;
 
   /**
@@ -228,6 +247,15 @@ public final class Simplified extends Application {
     return i.book_controller;
   }
 
+  /**
+   * @return The dispatcher through which circulation analytics events are sent
+   */
+
+  public static CirculationAnalyticsDispatcher getCirculationAnalytics() {
+    final Simplified i = Simplified.checkInitialized();
+    return i.circulation_analytics;
+  }
+
   /**
    * @return The books controller
    */
@@ -255,6 +283,15 @@ public final class Simplified extends Application {
     return i.book_registry;
   }
 
+  /**
+   * @return A bus delivering coalesced book status events
+   */
+
+  public static BookStatusEventBusType getBookStatusEvents() {
+    final Simplified i = Simplified.checkInitialized();
+    return i.book_status_events;
+  }
+
   /**
    * @return The feed loader
    */
@@ -328,10 +365,17 @@ public final class Simplified extends Application {
       final int priority) {
 
     LOG.debug("creating named thread pool: {} ({} threads at priority {})", base, count, priority);
+    final ThreadFactory named = Simplified.createNamedThreadFactory(base, priority);
+    return NullCheck.notNull(Executors.newFixedThreadPool(count, named));
+  }
+
+  private static ThreadFactory createNamedThreadFactory(
+      final String base,
+      final int priority) {
 
     final ThreadFactory tf = Executors.defaultThreadFactory();
 
-    final ThreadFactory named = new ThreadFactory() {
+    return new ThreadFactory() {
       private int id;
 
       @Override
@@ -356,8 +400,6 @@ public final class Simplified extends Application {
         return t;
       }
     };
-
-    return NullCheck.notNull(Executors.newFixedThreadPool(count, named));
   }
 
   public static int getCurrentTheme(final WantActionBar bar) {
@@ -397,9 +439,19 @@ public final class Simplified extends Application {
   private static ProfilesDatabaseType createProfileDatabase(
       final Resources resources,
       final AccountProviderCollection account_providers,
+      final ExecutorService exec_book_database,
       final File directory)
       throws ProfileDatabaseException {
 
+    /*
+     * Book databases are opened from their index files, and the entries are parsed in parallel
+     * when an index has to be rebuilt.
+     */
+
+    final AccountsDatabases accounts_databases =
+        AccountsDatabases.withBookDatabases(
+            BookDatabases.withExecutor(exec_book_database).withIndex());
+
     /*
      * If profiles are enabled, then disable the anonymous profile.
      */
@@ -410,14 +462,14 @@ public final class Simplified extends Application {
       LOG.debug("opening profile database with anonymous profile");
       return ProfilesDatabase.openWithAnonymousAccountEnabled(
           account_providers,
-          AccountsDatabases.get(),
+          accounts_databases,
           account_providers.providerDefault(),
           directory);
     }
 
     LOG.debug("opening profile database without anonymous profile");
     return ProfilesDatabase.openWithAnonymousAccountDisabled(
-        account_providers, AccountsDatabases.get(), directory);
+        account_providers, accounts_databases, directory);
   }
 
   private static BookCoverProviderType createCoverProvider(
@@ -433,9 +485,59 @@ public final class Simplified extends Application {
         in_exec_covers);
   }
 
+  /**
+   * Create the HTTP interface used to fetch feeds. Feeds are cached on disk and revalidated with
+   * conditional requests, so that a cold start does not have to fetch every feed in full. If the
+   * given interface is pooled, the cache is layered over it so that feeds share its connections
+   * and per-host limits. If the cache cannot be opened, feeds are fetched without it.
+   */
+
+  private static HTTPType createFeedHTTP(
+      final File directory,
+      final HTTPType http) {
+    try {
+      final HTTPCache cache = HTTPCache.open(directory, 32L * 1024L * 1024L);
+      if (http instanceof HTTPPooled) {
+        return ((HTTPPooled) http).withCache(cache);
+      }
+      return HTTP.newHTTPWithCache(cache);
+    } catch (final IOException e) {
+      LOG.error("could not open feed cache, feeds will not be cached: ", e);
+      return http;
+    }
+  }
+
+  /**
+   * Create an HTTP interface, using a connection pool with the given configuration if one is
+   * given.
+   */
+
+  private static HTTPType createHTTP(final OptionType<HTTPPoolConfiguration> pool) {
+    if (pool.isSome()) {
+      return HTTPPooled.newHTTP(((Some<HTTPPoolConfiguration>) pool).get());
+    }
+    return HTTP.newHTTP();
+  }
+
+  /**
+   * @return The connection pool configuration, if pooled HTTP is enabled
+   */
+
+  private static OptionType<HTTPPoolConfiguration> createHTTPPoolConfiguration(
+      final Resources resources) {
+    if (!resources.getBoolean(R.bool.feature_http_pooled)) {
+      return Option.none();
+    }
+    return Option.some(
+        HTTPPoolConfiguration.builder()
+            .setMaximumConnectionsPerHost(
+                resources.getInteger(R.integer.feature_http_pooled_connections_per_host))
+            .build());
+  }
+
   @NonNull
   private static OPDSFeedParserType createFeedParser() {
-    return OPDSFeedParser.newParser(OPDSAcquisitionFeedEntryParser.newParser());
+    return OPDSFeedStreamingParser.newParser(OPDSAcquisitionFeedEntryParser.newParser());
   }
 
   /**
@@ -533,6 +635,48 @@ public final class Simplified extends Application {
     }
   }
 
+  /**
+   * The process may be killed at any point after the application's UI is hidden, so queued
+   * analytics events and any deferred profile writes are saved as soon as it is.
+   */
+
+  @Override
+  public void onTrimMemory(final int level) {
+    super.onTrimMemory(level);
+
+    if (level >= TRIM_MEMORY_UI_HIDDEN && this.circulation_analytics != null) {
+      LOG.debug("onTrimMemory: {}: saving queued analytics events", level);
+      this.circulation_analytics.flush();
+    }
+
+    if (level >= TRIM_MEMORY_UI_HIDDEN && this.profiles != null) {
+      LOG.debug("onTrimMemory: {}: writing deferred profile changes", level);
+      final ProfilesDatabaseType current_profiles = this.profiles;
+      this.exec_profile_writes.execute(() -> {
+        try {
+          current_profiles.flush();
+        } catch (final IOException e) {
+          LOG.error("could not write deferred profile changes: ", e);
+        }
+      });
+    }
+
+    /*
+     * Loaded EPUBs hold native memory, so all but the one being read are closed when the system
+     * is short of memory.
+     */
+
+    final boolean memory_low =
+        level == TRIM_MEMORY_RUNNING_LOW
+            || level == TRIM_MEMORY_RUNNING_CRITICAL
+            || level >= TRIM_MEMORY_BACKGROUND;
+
+    if (memory_low && this.epub_loader != null) {
+      LOG.debug("onTrimMemory: {}: closing unused EPUBs", level);
+      this.epub_loader.trim();
+    }
+  }
+
   @Override
   public void onCreate() {
     super.onCreate();
@@ -554,11 +698,28 @@ public final class Simplified extends Application {
         Simplified.createNamedThreadPool(1, "books", 19);
     this.exec_epub =
         Simplified.createNamedThreadPool(1, "epub", 19);
+    this.exec_book_database =
+        Simplified.createNamedThreadPool(
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())),
+            "book-database",
+            19);
     this.exec_background =
         MoreExecutors.listeningDecorator(
             Simplified.createNamedThreadPool(1, "background", 19));
     this.exec_profile_timer =
         Simplified.createNamedThreadPool(1, "profile-timer", 19);
+    this.exec_profile_writes =
+        Executors.newSingleThreadScheduledExecutor(
+            Simplified.createNamedThreadFactory("profile-writes", 19));
+    this.exec_book_events =
+        Executors.newSingleThreadScheduledExecutor(
+            Simplified.createNamedThreadFactory("book-events", 19));
+    this.exec_analytics =
+        Executors.newSingleThreadScheduledExecutor(
+            Simplified.createNamedThreadFactory("analytics", 19));
+    this.exec_analytics_upload =
+        Executors.newSingleThreadScheduledExecutor(
+            Simplified.createNamedThreadFactory("analytics-upload", 19));
 
     LOG.debug("initializing Bugsnag");
     this.initBugsnag(Bugsnag.getApiToken(asset_manager));
@@ -593,19 +754,46 @@ public final class Simplified extends Application {
       DirectoryUtilities.directoryCreate(this.directory_documents);
       DirectoryUtilities.directoryCreate(this.directory_profiles);
       DirectoryUtilities.directoryCreate(this.directory_analytics);
+      DirectoryUtilities.directoryCreate(new File(this.directory_analytics, "circulation"));
     } catch (final IOException e) {
       LOG.error("could not create directories: {}", e.getMessage(), e);
       throw new IllegalStateException(e);
     }
 
     LOG.debug("initializing downloader");
-    this.http = HTTP.newHTTP();
-    this.downloader = DownloaderHTTP.newDownloader(
-        this.exec_books, this.directory_downloads, this.http);
+    final OptionType<HTTPPoolConfiguration> http_pool = createHTTPPoolConfiguration(resources);
+    LOG.debug("HTTP connection pool: {}", http_pool);
+    this.http = createHTTP(http_pool);
+
+    /*
+     * Book downloads run on a dedicated pool owned by the downloader, so that a large download
+     * never holds up the borrowing, revoking, and syncing tasks running on the books executor.
+     */
+
+    final DownloaderConfiguration downloader_config =
+        DownloaderConfiguration.builder()
+            .setMaximumConcurrentDownloads(3)
+            .setMaximumConcurrentDownloadsPerHost(2)
+            .setThreadFactory(Simplified.createNamedThreadFactory("book-downloader", 19))
+            .build();
+
+    this.downloader = DownloaderHTTP.newDownloaderWithConfiguration(
+        downloader_config, this.directory_downloads, this.http);
 
     LOG.debug("initializing book registry");
     this.book_registry = BookRegistry.create();
 
+    /*
+     * Views subscribe to book status events through a bus that coalesces the bursts of events
+     * published during downloads, so that a view is updated at most once per frame per book.
+     */
+
+    this.book_status_events = BookStatusEventBus.create(
+        this.book_registry.bookEvents(),
+        this.exec_book_events,
+        BookStatusEventBus.FRAME_WINDOW_MILLISECONDS,
+        TimeUnit.MILLISECONDS);
+
     LOG.debug("initializing cover generator");
     final TenPrintGeneratorType ten_print = TenPrintGenerator.newGenerator();
     this.cover_generator = new CatalogBookCoverGenerator(ten_print);
@@ -640,32 +828,62 @@ public final class Simplified extends Application {
     try {
       LOG.debug("initializing profiles and accounts");
       this.profiles = createProfileDatabase(
-          resources, this.account_providers, this.directory_profiles);
+          resources, this.account_providers, this.exec_book_database, this.directory_profiles);
     } catch (final ProfileDatabaseException e) {
       throw new IllegalStateException("Could not initialize profile database", e);
     }
 
+    /*
+     * Page turns update bookmarks many times a minute; coalesce the resulting writes.
+     */
+
+    this.profiles.enableWriteBehind(this.exec_profile_writes, 5L, TimeUnit.SECONDS);
+
+    /*
+     * Profile accounts are opened lazily; open them in the background so that the first screen
+     * does not wait for them.
+     */
+
+    this.profiles.prewarm(this.exec_background);
+
     try {
       LOG.debug("initializing analytics log");
-      analytics_logger = AnalyticsLogger.create(this.directory_analytics);
+      analytics_logger =
+          AnalyticsLogger.create(
+              this.directory_analytics,
+              this.http,
+              this.exec_analytics,
+              this.exec_analytics_upload);
     } catch (Exception e) {
       LOG.debug("Ignoring exception: AnalyticsLogger.create raised: ", e);
     }
 
+    LOG.debug("initializing circulation analytics");
+    this.circulation_analytics = CirculationAnalyticsDispatcher.create(
+        this.http,
+        this.exec_analytics_upload,
+        new File(this.directory_analytics, "circulation"));
+
     LOG.debug("initializing bundled content");
     this.bundled_content_resolver = BundledContentResolver.create(this.getAssets());
 
     LOG.debug("initializing feed loader");
     this.feed_parser = createFeedParser();
     this.feed_search_parser = OPDSSearchParser.newParser();
-    this.feed_transport = FeedHTTPTransport.newTransport(this.http);
+    this.feed_transport =
+        FeedHTTPTransport.newTransport(
+            createFeedHTTP(new File(this.directory_base, "feed-cache"), this.http));
     this.feed_loader = FeedLoader.newFeedLoader(
         this.exec_catalog_feeds,
         this.book_registry,
         this.bundled_content_resolver,
         this.feed_parser,
         this.feed_transport,
-        this.feed_search_parser);
+        this.feed_search_parser,
+        FeedLoaderConfiguration.builder()
+            .setSoftTTLMilliseconds(TimeUnit.MINUTES.toMillis(5L))
+            .setHardTTLMilliseconds(TimeUnit.HOURS.toMillis(1L))
+            .build());
 
     LOG.debug("initializing book controller");
     this.book_controller = Controller.create(
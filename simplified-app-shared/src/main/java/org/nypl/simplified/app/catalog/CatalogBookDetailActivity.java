@@ -15,7 +15,6 @@ import org.nypl.simplified.app.R;
 import org.nypl.simplified.app.Simplified;
 import org.nypl.simplified.books.accounts.AccountType;
 import org.nypl.simplified.books.accounts.AccountsDatabaseNonexistentException;
-import org.nypl.simplified.books.book_registry.BookRegistryReadableType;
 import org.nypl.simplified.books.book_registry.BookStatusEvent;
 import org.nypl.simplified.books.controller.ProfilesControllerType;
 import org.nypl.simplified.books.feeds.FeedEntryOPDS;
@@ -111,8 +110,6 @@ public final class CatalogBookDetailActivity extends CatalogActivity {
   protected void onCreate(final @Nullable Bundle state) {
     super.onCreate(state);
 
-    final BookRegistryReadableType book_registry =
-        Simplified.getBooksRegistry();
     final ProfilesControllerType profiles =
         Simplified.getProfilesController();
 
@@ -146,12 +143,12 @@ public final class CatalogBookDetailActivity extends CatalogActivity {
     content_area.requestLayout();
 
     /*
-     * Subscribe the detail view to book events.
+     * Subscribe the detail view to events for the book it displays.
      */
 
     this.book_subscription =
-        book_registry.bookEvents()
-            .subscribe(detail_view::onBookEvent);
+        Simplified.getBookStatusEvents()
+            .subscribe(entry.getBookID(), detail_view::onBookEvent);
   }
 
   @Override
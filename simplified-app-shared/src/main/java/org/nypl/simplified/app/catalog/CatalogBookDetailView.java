@@ -30,6 +30,7 @@ import org.nypl.simplified.app.BookCoverProviderType;
 import org.nypl.simplified.app.R;
 import org.nypl.simplified.app.ScreenSizeInformationType;
 import org.nypl.simplified.app.Simplified;
+import org.nypl.simplified.app.reader.ReaderReadiumEPUBLoadRequest;
 import org.nypl.simplified.app.utilities.UIThread;
 import org.nypl.simplified.assertions.Assertions;
 import org.nypl.simplified.books.accounts.AccountType;
@@ -38,6 +39,8 @@ import org.nypl.simplified.books.book_registry.BookRegistryReadableType;
 import org.nypl.simplified.books.book_registry.BookWithStatus;
 import org.nypl.simplified.books.controller.BooksControllerType;
 import org.nypl.simplified.books.controller.ProfilesControllerType;
+import org.nypl.simplified.books.book_database.Book;
+import org.nypl.simplified.books.book_database.BookDatabaseException;
 import org.nypl.simplified.books.book_database.BookID;
 import org.nypl.simplified.books.book_registry.BookStatusDownloadFailed;
 import org.nypl.simplified.books.book_registry.BookStatusDownloadInProgress;
@@ -68,6 +71,7 @@ import org.nypl.simplified.opds.core.OPDSCategory;
 import org.nypl.simplified.stack.ImmutableStack;
 import org.slf4j.Logger;
 
+import java.io.File;
 import java.net.URI;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
@@ -449,6 +453,26 @@ public final class CatalogBookDetailView
     buffer.append(String.format(rr.getString(R.string.catalog_book_distribution), e.getDistribution()));
   }
 
+  /**
+   * A downloaded book is likely to be opened from its detail page, so it is loaded in the
+   * background ahead of time.
+   */
+
+  private void preloadEPUB(final BookID id) {
+    try {
+      final Book book = this.account.bookDatabase().entry(id).book();
+      final OptionType<File> file_opt = book.file();
+      if (file_opt.isSome()) {
+        Simplified.getReadiumEPUBLoader().preloadEPUB(
+            ReaderReadiumEPUBLoadRequest.builder(((Some<File>) file_opt).get())
+                .setAdobeRightsFile(book.adobeRightsFile())
+                .build());
+      }
+    } catch (final BookDatabaseException e) {
+      LOG.error("could not preload book {}: ", id.brief(), e);
+    }
+  }
+
   /**
    * @return The scrolling view containing the book details
    */
@@ -475,6 +499,8 @@ public final class CatalogBookDetailView
             d.getID()),
         0);
 
+    this.preloadEPUB(d.getID());
+
     if (d.isReturnable()) {
       final CatalogBookRevokeButton revoke =
           new CatalogBookRevokeButton(
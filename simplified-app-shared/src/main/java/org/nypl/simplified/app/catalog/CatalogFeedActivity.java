@@ -52,7 +52,8 @@ import org.nypl.simplified.books.feeds.FeedFacetPseudo;
 import org.nypl.simplified.books.feeds.FeedFacetType;
 import org.nypl.simplified.books.feeds.FeedGroup;
 import org.nypl.simplified.books.feeds.FeedLoaderAuthenticationListenerType;
-import org.nypl.simplified.books.feeds.FeedLoaderListenerType;
+import org.nypl.simplified.books.feeds.FeedEntryType;
+import org.nypl.simplified.books.feeds.FeedLoaderStreamingListenerType;
 import org.nypl.simplified.books.feeds.FeedLoaderType;
 import org.nypl.simplified.books.feeds.FeedMatcherType;
 import org.nypl.simplified.books.feeds.FeedSearchLocal;
@@ -91,7 +92,7 @@ import static org.nypl.simplified.books.feeds.FeedFacetPseudo.FacetType.SORT_BY_
 public abstract class CatalogFeedActivity extends CatalogActivity
     implements
     FeedMatcherType<Unit, UnreachableCodeException>,
-    FeedLoaderListenerType {
+    FeedLoaderStreamingListenerType {
 
   private static final String CATALOG_ARGS =
       "org.nypl.simplified.app.CatalogFeedActivity.arguments";
@@ -110,6 +111,8 @@ public abstract class CatalogFeedActivity extends CatalogActivity
   private SearchView search_view;
   private ObservableSubscriptionType<ProfileEvent> profile_event_subscription;
   private ObservableSubscriptionType<BookStatusEvent> book_event_subscription;
+  private @Nullable FeedWithoutGroups streaming_header;
+  private @Nullable CatalogFeedWithoutGroups streaming_view;
 
   /**
    * @return The specific logger instance provided by subclasses
@@ -417,7 +420,7 @@ public abstract class CatalogFeedActivity extends CatalogActivity
 
     this.log().debug("loading feed: {}", u);
     final OptionType<HTTPAuthType> none = Option.none();
-    this.loading = feed_loader.fromURIWithBookRegistryEntries(u, none, this);
+    this.loading = feed_loader.fromURIWithBookRegistryEntriesStreaming(u, none, this);
   }
 
   @Override
@@ -645,6 +648,8 @@ public abstract class CatalogFeedActivity extends CatalogActivity
 
     this.log().info("Failed to get feed: ", e);
     this.invalidateOptionsMenu();
+    this.streaming_header = null;
+    this.streaming_view = null;
 
     final FrameLayout content_area = this.getContentFrame();
     final ViewGroup progress = NullCheck.notNull(this.progress_layout);
@@ -662,6 +667,45 @@ public abstract class CatalogFeedActivity extends CatalogActivity
     retry.setOnClickListener(v -> this.retryFeed());
   }
 
+  @Override
+  public void onFeedLoadHeader(
+      final URI feed_uri,
+      final FeedWithoutGroups header) {
+
+    this.log().debug("onFeedLoadHeader: received header for {}", feed_uri);
+    UIThread.runOnUIThread(() -> this.streaming_header = header);
+  }
+
+  @Override
+  public void onFeedLoadEntries(
+      final URI feed_uri,
+      final List<FeedEntryType> entries) {
+
+    this.log().debug("onFeedLoadEntries: received {} entries for {}", entries.size(), feed_uri);
+    UIThread.runOnUIThread(() -> this.onFeedLoadEntriesUI(entries));
+  }
+
+  /**
+   * Display entries as they arrive. The first batch of entries creates the
+   * feed view; later batches, and the complete feed, are appended to it.
+   */
+
+  private void onFeedLoadEntriesUI(final List<FeedEntryType> entries) {
+    UIThread.checkIsUIThread();
+
+    final CatalogFeedWithoutGroups view = this.streaming_view;
+    if (view != null) {
+      view.addEntries(entries);
+      return;
+    }
+
+    final FeedWithoutGroups header = this.streaming_header;
+    if (header != null && !entries.isEmpty()) {
+      header.addAll(entries);
+      this.onFeedWithoutGroupsNonEmptyUI(header);
+    }
+  }
+
   @Override
   public void onFeedLoadSuccess(
       final URI feed_uri,
@@ -679,6 +723,32 @@ public abstract class CatalogFeedActivity extends CatalogActivity
     feed_result.matchFeed(this);
   }
 
+  /**
+   * A feed that was displayed from the cache has changed. A feed without groups that is already
+   * displayed has the entries of the refreshed page replaced in place; any other feed is
+   * displayed as if it had just been loaded.
+   */
+
+  @Override
+  public void onFeedLoadRevalidated(
+      final URI feed_uri,
+      final FeedType feed_result) {
+
+    this.log().debug("onFeedLoadRevalidated: received changed feed for {}", feed_uri);
+
+    UIThread.runOnUIThread(() -> {
+      final CatalogFeedWithoutGroups view = this.streaming_view;
+      if (view != null && feed_result instanceof FeedWithoutGroups) {
+        synchronized (this.feed_lock) {
+          this.feed = feed_result;
+        }
+        view.onFeedWithoutGroupsRevalidated((FeedWithoutGroups) feed_result);
+        return;
+      }
+      this.onFeedLoadSuccess(feed_uri, feed_result);
+    });
+  }
+
   @Override
   public Unit onFeedWithGroups(final FeedWithGroups feed) {
     this.log().debug("onFeedWithGroups: received: {}", feed.getFeedURI());
@@ -862,21 +932,34 @@ public abstract class CatalogFeedActivity extends CatalogActivity
 
     grid_view.setAdapter(without);
     grid_view.setOnScrollListener(without);
+    this.streaming_view = without;
 
     /*
      * Subscribe the grid view to book events. This will allow individual cells to be
-     * updated whenever the status of a book changes.
+     * updated whenever the status of a book changes. The events are coalesced, and the view
+     * refreshes the grid once for all of the books updated in a frame, so any number of
+     * downloads update the grid at most once per frame.
      */
 
     this.book_event_subscription =
-        Simplified.getBooksRegistry()
-            .bookEvents()
-            .subscribe(without::onBookEvent);
+        Simplified.getBookStatusEvents()
+            .subscribeAll(without::onBookEvent);
   }
 
   private void onFeedWithoutGroupsUI(final FeedWithoutGroups f) {
     UIThread.checkIsUIThread();
 
+    /*
+     * If the first entries of the feed were already displayed as they
+     * arrived, add whatever remains to the existing view.
+     */
+
+    final CatalogFeedWithoutGroups view = this.streaming_view;
+    if (view != null) {
+      view.onFeedWithoutGroups(f);
+      return;
+    }
+
     if (f.isEmpty()) {
       this.onFeedWithoutGroupsEmptyUI(f);
       return;
@@ -28,7 +28,7 @@ import org.nypl.simplified.books.controller.BooksControllerType;
 import org.nypl.simplified.books.controller.ProfilesControllerType;
 import org.nypl.simplified.books.feeds.FeedEntryType;
 import org.nypl.simplified.books.feeds.FeedLoaderAuthenticationListenerType;
-import org.nypl.simplified.books.feeds.FeedLoaderListenerType;
+import org.nypl.simplified.books.feeds.FeedLoaderStreamingListenerType;
 import org.nypl.simplified.books.feeds.FeedLoaderType;
 import org.nypl.simplified.books.feeds.FeedMatcherType;
 import org.nypl.simplified.books.feeds.FeedType;
@@ -39,8 +39,13 @@ import org.nypl.simplified.http.core.HTTPAuthType;
 import org.slf4j.Logger;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -50,7 +55,7 @@ import java.util.concurrent.atomic.AtomicReference;
 public final class CatalogFeedWithoutGroups
     implements ListAdapter,
     OnScrollListener,
-    FeedLoaderListenerType,
+    FeedLoaderStreamingListenerType,
     FeedMatcherType<Unit, UnreachableCodeException> {
 
   private static final Logger LOG;
@@ -71,6 +76,14 @@ public final class CatalogFeedWithoutGroups
   private final BooksControllerType books_controller;
   private final ProfilesControllerType profiles_controller;
   private final AccountType account;
+  private final AtomicBoolean refresh_pending;
+
+  /*
+   * The entries of each page of the feed that has been displayed, in the order in which the pages
+   * were loaded, keyed by the URI of the page. Only accessed from the UI thread.
+   */
+
+  private final LinkedHashMap<URI, List<FeedEntryType>> pages;
 
   /**
    * Construct a view.
@@ -109,6 +122,9 @@ public final class CatalogFeedWithoutGroups
     this.uri_next = new AtomicReference<>(in_feed.getFeedNext());
     this.adapter = new ArrayAdapter<>(this.activity, 0, this.feed);
     this.loading = new AtomicReference<>();
+    this.refresh_pending = new AtomicBoolean(false);
+    this.pages = new LinkedHashMap<>();
+    this.pages.put(in_feed.getFeedURI(), new ArrayList<>(in_feed));
   }
 
   /**
@@ -120,7 +136,19 @@ public final class CatalogFeedWithoutGroups
   public void onBookEvent(final BookStatusEvent event) {
     if (this.feed.containsID(event.book())) {
       LOG.debug("update: updated feed entry");
-      UIThread.runOnUIThread(adapter::notifyDataSetChanged);
+
+      /*
+       * The bus delivers one event per book at the end of each coalescing window. Events for
+       * any number of books that arrive before the UI thread refreshes the grid are handled by
+       * that single refresh.
+       */
+
+      if (this.refresh_pending.compareAndSet(false, true)) {
+        UIThread.runOnUIThread(() -> {
+          this.refresh_pending.set(false);
+          this.adapter.notifyDataSetChanged();
+        });
+      }
     }
   }
 
@@ -238,7 +266,7 @@ public final class CatalogFeedWithoutGroups
     LOG.debug("loading: {}", next);
     final OptionType<HTTPAuthType> none = Option.none();
     final ListenableFuture<FeedType> r =
-        this.feed_loader.fromURIWithBookRegistryEntries(next, none, this);
+        this.feed_loader.fromURIWithBookRegistryEntriesStreaming(next, none, this);
     this.loading.set(Pair.pair(r, next));
     return r;
   }
@@ -254,6 +282,36 @@ public final class CatalogFeedWithoutGroups
     LOG.error("failed to load feed: ", e);
   }
 
+  /**
+   * Add the given entries to the end of the feed. Entries that are already
+   * present in the feed are ignored. Must be called on the UI thread.
+   *
+   * @param entries The entries
+   */
+
+  public void addEntries(final List<FeedEntryType> entries) {
+    UIThread.checkIsUIThread();
+
+    this.feed.addAll(entries);
+    this.adapter.notifyDataSetChanged();
+    LOG.debug("current feed size: {}", this.feed.size());
+  }
+
+  @Override
+  public void onFeedLoadHeader(
+      final URI u,
+      final FeedWithoutGroups header) {
+    LOG.debug("received feed header: {}", u);
+  }
+
+  @Override
+  public void onFeedLoadEntries(
+      final URI u,
+      final List<FeedEntryType> entries) {
+    LOG.debug("received {} entries: {}", entries.size(), u);
+    UIThread.runOnUIThread(() -> this.addEntries(entries));
+  }
+
   @Override
   public void onFeedLoadSuccess(
       final URI u,
@@ -261,6 +319,57 @@ public final class CatalogFeedWithoutGroups
     f.matchFeed(this);
   }
 
+  /**
+   * A page of the feed that is already displayed was refreshed in the background and has
+   * changed. The entries of that page are replaced with the refreshed entries, in place, and the
+   * link to the next page is only taken from the refreshed page if it is the last page loaded.
+   */
+
+  @Override
+  public void onFeedLoadRevalidated(
+      final URI u,
+      final FeedType f) {
+    if (f instanceof FeedWithoutGroups) {
+      UIThread.runOnUIThread(() -> this.onFeedWithoutGroupsRevalidated((FeedWithoutGroups) f));
+    } else {
+      LOG.error("received revalidated feed with groups: {}", f.getFeedID());
+    }
+  }
+
+  /**
+   * Replace the entries of the page of the feed with the same URI as the given page. Must be
+   * called on the UI thread.
+   *
+   * @param f The refreshed page
+   */
+
+  public void onFeedWithoutGroupsRevalidated(final FeedWithoutGroups f) {
+    UIThread.checkIsUIThread();
+
+    final URI page_uri = f.getFeedURI();
+    if (!this.pages.containsKey(page_uri)) {
+      LOG.debug("ignoring revalidated page that is not displayed: {}", page_uri);
+      return;
+    }
+
+    LOG.debug("replacing revalidated page: {}", page_uri);
+    this.pages.put(page_uri, new ArrayList<>(f));
+
+    this.feed.clear();
+    URI last = page_uri;
+    for (final Map.Entry<URI, List<FeedEntryType>> page : this.pages.entrySet()) {
+      this.feed.addAll(page.getValue());
+      last = page.getKey();
+    }
+
+    if (last.equals(page_uri)) {
+      this.uri_next.set(f.getFeedNext());
+    }
+
+    this.adapter.notifyDataSetChanged();
+    LOG.debug("current feed size: {}", this.feed.size());
+  }
+
   @Override
   public void onFeedRequiresAuthentication(
       final URI u,
@@ -289,10 +398,11 @@ public final class CatalogFeedWithoutGroups
       final FeedWithoutGroups f) {
     LOG.debug("received feed without groups: {}", f.getFeedID());
 
-    this.feed.addAll(f);
     this.uri_next.set(f.getFeedNext());
-
-    LOG.debug("current feed size: {}", this.feed.size());
+    UIThread.runOnUIThread(() -> {
+      this.pages.put(f.getFeedURI(), new ArrayList<>(f));
+      this.addEntries(f);
+    });
     return Unit.unit();
   }
 
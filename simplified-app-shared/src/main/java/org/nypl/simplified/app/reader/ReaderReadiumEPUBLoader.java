@@ -29,21 +29,54 @@ import org.slf4j.Logger;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.GuardedBy;
 
 /**
- * The default implementation of the {@link ReaderReadiumEPUBLoaderType}
- * interface.
+ * <p>The default implementation of the {@link ReaderReadiumEPUBLoaderType}
+ * interface.</p>
+ *
+ * <p>Loaded containers are kept so that reopening a recently read book is
+ * immediate. At most {@link #MAXIMUM_CONTAINERS} containers are kept, and
+ * at most {@link #MAXIMUM_WEIGHT_BYTES} bytes of EPUB files, as a proxy for
+ * the native memory that Readium holds for each; the least recently used
+ * containers are closed first. The container most recently passed to a
+ * reader is never closed by the loader.</p>
  */
 
 public final class ReaderReadiumEPUBLoader implements ReaderReadiumEPUBLoaderType {
 
   private static final Logger LOG = LogUtilities.getLog(ReaderReadiumEPUBLoader.class);
 
-  private final ConcurrentHashMap<File, Container> containers;
+  /**
+   * The maximum number of containers that will be kept open.
+   */
+
+  public static final int MAXIMUM_CONTAINERS = 3;
+
+  /**
+   * The maximum total size of the EPUB files of the containers that will be kept open.
+   */
+
+  public static final long MAXIMUM_WEIGHT_BYTES = 64L * 1024L * 1024L;
+
   private final ExecutorService exec;
   private final Context context;
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+
+  private final Object containers_lock;
+  private final @GuardedBy("containers_lock") LinkedHashMap<File, CachedContainer> containers;
+  private @GuardedBy("containers_lock") long containers_weight;
+  private @GuardedBy("containers_lock") @Nullable File current;
+  private final @GuardedBy("containers_lock") List<CachedContainer> retired;
 
   private ReaderReadiumEPUBLoader(
       final Context in_context,
@@ -51,7 +84,13 @@ public final class ReaderReadiumEPUBLoader implements ReaderReadiumEPUBLoaderTyp
 
     this.exec = NullCheck.notNull(in_exec);
     this.context = NullCheck.notNull(in_context);
-    this.containers = new ConcurrentHashMap<>();
+    this.hits = new AtomicLong(0L);
+    this.misses = new AtomicLong(0L);
+    this.containers_lock = new Object();
+    this.containers = new LinkedHashMap<>(8, 0.75f, true);
+    this.containers_weight = 0L;
+    this.current = null;
+    this.retired = new ArrayList<>(1);
   }
 
   private static Container loadFromFile(
@@ -189,23 +228,9 @@ public final class ReaderReadiumEPUBLoader implements ReaderReadiumEPUBLoaderTyp
     NullCheck.notNull(request);
     NullCheck.notNull(l);
 
-    /*
-     * This loader caches references to loaded containers. It's not actually
-     * expected that there will be more than one container for the lifetime of
-     * the process.
-     */
-
-    final ConcurrentHashMap<File, Container> cs = this.containers;
     this.exec.submit(() -> {
       try {
-        final Container c;
-        if (cs.containsKey(request.epubFile())) {
-          c = NullCheck.notNull(cs.get(request.epubFile()));
-        } else {
-          c = ReaderReadiumEPUBLoader.loadFromFile(this.context, request);
-          cs.put(request.epubFile(), c);
-        }
-
+        final Container c = this.containerFor(request, true);
         l.onEPUBLoadSucceeded(c);
       } catch (final Throwable x0) {
         try {
@@ -217,6 +242,180 @@ public final class ReaderReadiumEPUBLoader implements ReaderReadiumEPUBLoaderTyp
     });
   }
 
+  @Override
+  public void preloadEPUB(
+      final ReaderReadiumEPUBLoadRequest request) {
+
+    NullCheck.notNull(request);
+
+    this.exec.submit(() -> {
+      try {
+        this.containerFor(request, false);
+      } catch (final Throwable x) {
+        LOG.error("could not preload {}: ", request.epubFile(), x);
+      }
+    });
+  }
+
+  @Override
+  public void trim() {
+    this.exec.submit(() -> {
+      final List<CachedContainer> evicted = new ArrayList<>(MAXIMUM_CONTAINERS);
+      synchronized (this.containers_lock) {
+        this.evict(0, 0L, evicted);
+      }
+      closeAll(evicted);
+    });
+  }
+
+  @Override
+  public long cacheHits() {
+    return this.hits.get();
+  }
+
+  @Override
+  public long cacheMisses() {
+    return this.misses.get();
+  }
+
+  /**
+   * Return a loaded container for the given request, loading it if necessary.
+   *
+   * @param request The request
+   * @param reading {@code true} iff the container is about to be given to a reader
+   */
+
+  private Container containerFor(
+      final ReaderReadiumEPUBLoadRequest request,
+      final boolean reading)
+      throws IOException {
+
+    final File file = request.epubFile();
+    final List<CachedContainer> evicted = new ArrayList<>(MAXIMUM_CONTAINERS);
+
+    /*
+     * Containers are loaded with the lock held: Readium's error and content
+     * filter handlers are global, so books cannot be opened concurrently in
+     * any case.
+     */
+
+    final Container container;
+    synchronized (this.containers_lock) {
+      final CachedContainer cached = this.containers.get(file);
+      final boolean reused = cached != null
+          && cached.length == file.length()
+          && cached.last_modified == file.lastModified();
+
+      if (reused) {
+        this.hits.incrementAndGet();
+        container = cached.container;
+      } else {
+        this.misses.incrementAndGet();
+
+        /*
+         * A cached container for a file that has since changed (because the
+         * book was downloaded again, for example) is discarded. If a reader
+         * may still be using it, it is retired, and is closed once the
+         * current book changes.
+         */
+
+        if (cached != null) {
+          this.containers.remove(file);
+          this.containers_weight -= cached.length;
+          if (file.equals(this.current)) {
+            this.retired.add(cached);
+          } else {
+            evicted.add(cached);
+          }
+        }
+
+        container = ReaderReadiumEPUBLoader.loadFromFile(this.context, request);
+        final CachedContainer loaded =
+            new CachedContainer(container, file.length(), file.lastModified());
+        this.containers.put(file, loaded);
+        this.containers_weight += loaded.length;
+      }
+
+      if (reading) {
+        if (!file.equals(this.current)) {
+          evicted.addAll(this.retired);
+          this.retired.clear();
+        }
+        this.current = file;
+      }
+
+      this.evict(MAXIMUM_CONTAINERS, MAXIMUM_WEIGHT_BYTES, evicted);
+      LOG.debug(
+          "{} {}: {} containers, {} bytes, {} hits, {} misses",
+          reused ? "reused" : "loaded",
+          file,
+          this.containers.size(),
+          this.containers_weight,
+          this.hits.get(),
+          this.misses.get());
+    }
+
+    closeAll(evicted);
+    return container;
+  }
+
+  /**
+   * Remove the least recently used containers, other than the current one,
+   * until the given limits are met.
+   */
+
+  @GuardedBy("containers_lock")
+  private void evict(
+      final int maximum_count,
+      final long maximum_weight,
+      final List<CachedContainer> evicted) {
+
+    final Iterator<Map.Entry<File, CachedContainer>> iter =
+        this.containers.entrySet().iterator();
+
+    while (iter.hasNext()) {
+      if (this.containers.size() <= maximum_count && this.containers_weight <= maximum_weight) {
+        return;
+      }
+
+      final Map.Entry<File, CachedContainer> entry = iter.next();
+      if (entry.getKey().equals(this.current)) {
+        continue;
+      }
+
+      LOG.debug("evicting {}", entry.getKey());
+      iter.remove();
+      this.containers_weight -= entry.getValue().length;
+      evicted.add(entry.getValue());
+    }
+  }
+
+  private static void closeAll(
+      final List<CachedContainer> evicted) {
+    for (final CachedContainer cached : evicted) {
+      try {
+        EPub3.closeBook(cached.container);
+      } catch (final Throwable x) {
+        LOG.error("could not close container: ", x);
+      }
+    }
+  }
+
+  private static final class CachedContainer {
+    private final Container container;
+    private final long length;
+    private final long last_modified;
+
+    CachedContainer(
+        final Container in_container,
+        final long in_length,
+        final long in_last_modified) {
+      this.container = NullCheck.notNull(in_container);
+      this.length = in_length;
+      this.last_modified = in_last_modified;
+    }
+  }
+
   private static abstract class ReaderReadiumRuntimeException extends Exception {
     ReaderReadiumRuntimeException(final String in_message) {
       super(in_message);
@@ -1,7 +1,5 @@
 package org.nypl.simplified.app.reader;
 
-import java.io.File;
-
 /**
  * The type of asynchronous EPUB loaders.
  */
@@ -18,4 +16,32 @@ public interface ReaderReadiumEPUBLoaderType {
   void loadEPUB(
       ReaderReadiumEPUBLoadRequest request,
       ReaderReadiumEPUBLoadListenerType l);
+
+  /**
+   * Load an EPUB in the background so that a later call to {@link #loadEPUB} for the same file
+   * completes immediately. Failures are logged and otherwise ignored.
+   *
+   * @param request The loading request
+   */
+
+  void preloadEPUB(
+      ReaderReadiumEPUBLoadRequest request);
+
+  /**
+   * Close all loaded EPUBs except the one most recently requested with {@link #loadEPUB}.
+   */
+
+  void trim();
+
+  /**
+   * @return The number of load requests that were satisfied by an already loaded EPUB
+   */
+
+  long cacheHits();
+
+  /**
+   * @return The number of load requests that required an EPUB to be loaded
+   */
+
+  long cacheMisses();
 }
@@ -22,6 +22,7 @@ import org.nypl.simplified.books.reader.ReaderBookLocation;
 import org.nypl.simplified.books.reader.ReaderBookLocationJSON;
 import org.nypl.simplified.books.reader.ReaderColorScheme;
 import org.nypl.simplified.books.reader.ReaderPreferences;
+import org.nypl.simplified.json.core.JSONMappers;
 import org.slf4j.Logger;
 
 /**
@@ -40,7 +41,7 @@ public final class ReaderReadiumJavaScriptAPI implements ReaderReadiumJavaScript
     final WebView wv)
   {
     this.web_view = NullCheck.notNull(wv);
-    this.object_mapper = new ObjectMapper();
+    this.object_mapper = JSONMappers.mapper();
   }
 
   /**
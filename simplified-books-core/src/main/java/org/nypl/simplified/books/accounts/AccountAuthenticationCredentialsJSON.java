@@ -14,6 +14,7 @@ import org.nypl.drm.core.AdobeDeviceID;
 import org.nypl.drm.core.AdobeUserID;
 import org.nypl.drm.core.AdobeVendorID;
 import org.nypl.simplified.http.core.HTTPOAuthToken;
+import org.nypl.simplified.json.core.JSONMappers;
 import org.nypl.simplified.json.core.JSONParseException;
 import org.nypl.simplified.json.core.JSONParserUtilities;
 import org.nypl.simplified.json.core.JSONSerializerUtilities;
@@ -61,7 +62,7 @@ public final class AccountAuthenticationCredentialsJSON {
       final AccountAuthenticationCredentials credentials) {
     NullCheck.notNull(credentials, "Credentials");
 
-    final ObjectMapper jom = new ObjectMapper();
+    final ObjectMapper jom = JSONMappers.mapper();
     final ObjectNode jo = jom.createObjectNode();
     jo.put("username", credentials.barcode().value());
     jo.put("password", credentials.pin().value());
@@ -128,8 +129,8 @@ public final class AccountAuthenticationCredentialsJSON {
   public static AccountAuthenticationCredentials deserializeFromText(final String text)
       throws IOException {
     NullCheck.notNull(text);
-    final ObjectMapper jom = new ObjectMapper();
-    return AccountAuthenticationCredentialsJSON.deserializeFromJSON(jom.readTree(text));
+    return AccountAuthenticationCredentialsJSON.deserializeFromJSON(
+        JSONMappers.treeReader().readTree(text));
   }
 
   /**
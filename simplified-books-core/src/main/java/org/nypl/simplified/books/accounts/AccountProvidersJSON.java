@@ -6,6 +6,7 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.io7m.jnull.NullCheck;
 
+import org.nypl.simplified.json.core.JSONMappers;
 import org.nypl.simplified.json.core.JSONParseException;
 import org.nypl.simplified.json.core.JSONParserUtilities;
 
@@ -153,7 +154,7 @@ public final class AccountProvidersJSON {
       throws IOException {
     NullCheck.notNull(text, "Text");
 
-    final ObjectMapper jom = new ObjectMapper();
+    final ObjectMapper jom = JSONMappers.mapper();
     final JsonNode node = jom.readTree(text);
     return deserializeFromJSONArray(jom, JSONParserUtilities.checkArray(null, node));
   }
@@ -171,7 +172,7 @@ public final class AccountProvidersJSON {
       throws IOException {
     NullCheck.notNull(stream, "Stream");
 
-    final ObjectMapper jom = new ObjectMapper();
+    final ObjectMapper jom = JSONMappers.mapper();
     final JsonNode node = jom.readTree(stream);
     return deserializeFromJSONArray(jom, JSONParserUtilities.checkArray(null, node));
   }
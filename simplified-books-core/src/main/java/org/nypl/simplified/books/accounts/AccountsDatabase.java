@@ -13,6 +13,7 @@ import org.nypl.simplified.books.core.LogUtilities;
 import org.nypl.simplified.files.DirectoryUtilities;
 import org.nypl.simplified.files.FileLocking;
 import org.nypl.simplified.files.FileUtilities;
+import org.nypl.simplified.json.core.JSONMappers;
 import org.slf4j.Logger;
 
 import java.io.File;
@@ -86,7 +87,7 @@ public final class AccountsDatabase implements AccountsDatabaseType {
 
     final SortedMap<AccountID, Account> accounts = new ConcurrentSkipListMap<>();
     final SortedMap<URI, Account> accounts_by_provider = new ConcurrentSkipListMap<>();
-    final ObjectMapper jom = new ObjectMapper();
+    final ObjectMapper jom = JSONMappers.mapper();
 
     final List<Exception> errors = new ArrayList<>();
     if (!directory.exists()) {
@@ -317,7 +318,7 @@ public final class AccountsDatabase implements AccountsDatabaseType {
           FileUtilities.fileWriteUTF8Atomically(
               account_file,
               account_file_tmp,
-              AccountDescriptionJSON.serializeToString(new ObjectMapper(), desc));
+              AccountDescriptionJSON.serializeToString(JSONMappers.mapper(), desc));
           return Unit.unit();
         });
   }
@@ -1,5 +1,7 @@
 package org.nypl.simplified.books.accounts;
 
+import com.io7m.jnull.NullCheck;
+
 import org.nypl.simplified.books.book_database.BookDatabaseFactoryType;
 import org.nypl.simplified.books.book_database.BookDatabases;
 
@@ -7,14 +9,25 @@ import java.io.File;
 
 public final class AccountsDatabases implements AccountsDatabaseFactoryType {
 
-  private static final AccountsDatabases INSTANCE = new AccountsDatabases();
+  private static final AccountsDatabases INSTANCE = new AccountsDatabases(BookDatabases.get());
+
+  private final BookDatabaseFactoryType book_databases;
 
   public static AccountsDatabases get() {
     return INSTANCE;
   }
 
-  private AccountsDatabases() {
+  /**
+   * @param book_databases A provider of book databases
+   * @return A factory that uses {@code book_databases} when no other provider is specified
+   */
+
+  public static AccountsDatabases withBookDatabases(final BookDatabaseFactoryType book_databases) {
+    return new AccountsDatabases(book_databases);
+  }
 
+  private AccountsDatabases(final BookDatabaseFactoryType book_databases) {
+    this.book_databases = NullCheck.notNull(book_databases, "Book databases");
   }
 
   @Override
@@ -31,6 +44,6 @@ public final class AccountsDatabases implements AccountsDatabaseFactoryType {
       final AccountProviderCollectionType account_providers,
       final File directory)
       throws AccountsDatabaseException {
-    return AccountsDatabase.open(BookDatabases.get(), account_providers, directory);
+    return AccountsDatabase.open(this.book_databases, account_providers, directory);
   }
 }
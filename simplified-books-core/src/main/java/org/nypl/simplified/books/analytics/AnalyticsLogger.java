@@ -2,11 +2,10 @@ package org.nypl.simplified.books.analytics;
 
 import com.io7m.jfunctional.Option;
 import com.io7m.jfunctional.OptionType;
-import com.io7m.jfunctional.Unit;
 import com.io7m.jnull.NullCheck;
 
 import org.nypl.simplified.books.core.LogUtilities;
-import org.nypl.simplified.http.core.HTTP;
+import org.nypl.simplified.files.FileUtilities;
 import org.nypl.simplified.http.core.HTTPAuthBasic;
 import org.nypl.simplified.http.core.HTTPAuthType;
 import org.nypl.simplified.http.core.HTTPResultError;
@@ -15,23 +14,31 @@ import org.nypl.simplified.http.core.HTTPResultMatcherType;
 import org.nypl.simplified.http.core.HTTPResultOKType;
 import org.nypl.simplified.http.core.HTTPResultType;
 import org.nypl.simplified.http.core.HTTPType;
-import org.nypl.simplified.json.core.JSONSerializerUtilities;
 import org.slf4j.Logger;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PrintWriter;
-import java.net.URI;
-import java.nio.CharBuffer;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.concurrent.GuardedBy;
 
 /**
  * Created by Skullbonez on 3/11/2018.
@@ -41,162 +48,493 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * to be a "best effort" logger - it is not to
  * crash the app!
  *
+ * Events are placed in a fixed-size ring buffer and written from the
+ * given executor, in batches, to the current segment file. Segments are
+ * closed when they reach a size limit, and closed segments are uploaded one
+ * at a time, from a separate executor, and deleted once the server has
+ * accepted them. An upload may wait a long time for the server, so it must
+ * not share a thread with the writer: logging carries on into the current
+ * segment while an upload is in progress.
+ *
+ * A current segment left by an older version of the application may be far
+ * larger than the segment size limit; it is split into closed segments
+ * before it is first written or uploaded.
  */
 
 public class AnalyticsLogger {
 
   private static final Logger LOG = LogUtilities.getLog(AnalyticsLogger.class);
 
-  private final String analytics_server_uri = "http://ec2-18-217-127-216.us-east-2.compute.amazonaws.com:8080/upload.log";
-  private final String log_file_name = "analytics_log.txt";
-  private final int log_file_size_limit =  1024 * 1024 * 10;
-  private final int log_file_push_limit = 1024 * 2;
-  private BufferedWriter analytics_output = null;
-  private File directory_analytics = null;
-  private boolean log_size_limit_reached = false;
-  private AtomicBoolean is_logging_paused = new AtomicBoolean(false);
+  private static final String SEGMENT_CURRENT = "analytics_log.txt";
+  private static final String SEGMENT_PREFIX = "analytics_log.";
+  private static final String SEGMENT_SUFFIX = ".txt";
+
+  private final AnalyticsLoggerConfiguration configuration;
+  private final HTTPType http;
+  private final ExecutorService executor;
+  private final ExecutorService executor_upload;
+  private final File directory_analytics;
+  private final ArrayBlockingQueue<Event> buffer;
+  private final AtomicBoolean write_scheduled;
+  private final AtomicBoolean upload_running;
+  private final AtomicReference<String> upload_forced;
+  private final AtomicLong dropped;
+  private final AtomicLong uploaded;
+  private final Object writer_lock;
+  private @GuardedBy("writer_lock") BufferedWriter writer;
+  private @GuardedBy("writer_lock") long writer_size;
+  private @GuardedBy("writer_lock") long segment_next;
+  private @GuardedBy("writer_lock") boolean current_checked;
+  private final @GuardedBy("writer_lock") SimpleDateFormat date_format;
+  private final @GuardedBy("writer_lock") Date date;
 
   private AnalyticsLogger(
-      File in_directory_analytics)
-  {
-    directory_analytics = NullCheck.notNull(in_directory_analytics, "analytics");
-    init();
+      final AnalyticsLoggerConfiguration in_configuration,
+      final HTTPType in_http,
+      final ExecutorService in_executor,
+      final ExecutorService in_executor_upload,
+      final File in_directory_analytics) {
+
+    this.configuration = NullCheck.notNull(in_configuration, "Configuration");
+    this.http = NullCheck.notNull(in_http, "HTTP");
+    this.executor = NullCheck.notNull(in_executor, "Executor");
+    this.executor_upload = NullCheck.notNull(in_executor_upload, "Upload executor");
+    this.directory_analytics = NullCheck.notNull(in_directory_analytics, "analytics");
+    this.buffer = new ArrayBlockingQueue<>(in_configuration.bufferCapacity());
+    this.write_scheduled = new AtomicBoolean(false);
+    this.upload_running = new AtomicBoolean(false);
+    this.upload_forced = new AtomicReference<>(null);
+    this.dropped = new AtomicLong(0L);
+    this.uploaded = new AtomicLong(0L);
+    this.writer_lock = new Object();
+    this.date_format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,", Locale.US);
+    this.date = new Date();
+
+    synchronized (this.writer_lock) {
+      this.segment_next = 0L;
+      this.current_checked = false;
+      for (final File segment : this.closedSegments()) {
+        this.segment_next = Math.max(this.segment_next, segmentNumber(segment) + 1L);
+      }
+    }
   }
 
+  /**
+   * Create a logger with the default configuration.
+   *
+   * @param directory_analytics The directory holding the log segments
+   * @param http                The HTTP interface used to upload segments
+   * @param executor            The executor on which segments are written
+   * @param executor_upload     The executor on which segments are uploaded
+   * @return A new logger
+   */
+
   public static AnalyticsLogger create(
-      final File directory_analytics)
-  {
-    return new AnalyticsLogger(directory_analytics);
+      final File directory_analytics,
+      final HTTPType http,
+      final ExecutorService executor,
+      final ExecutorService executor_upload) {
+    return create(
+        AnalyticsLoggerConfiguration.builder().build(),
+        directory_analytics,
+        http,
+        executor,
+        executor_upload);
   }
 
-  private void init() {
-    if ( log_size_limit_reached ) {
-      // Don't bother trying to re-init if the log is full.
-      return;
-    }
+  /**
+   * Create a logger.
+   *
+   * @param configuration       The logger configuration
+   * @param directory_analytics The directory holding the log segments
+   * @param http                The HTTP interface used to upload segments
+   * @param executor            The executor on which segments are written
+   * @param executor_upload     The executor on which segments are uploaded
+   * @return A new logger
+   */
+
+  public static AnalyticsLogger create(
+      final AnalyticsLoggerConfiguration configuration,
+      final File directory_analytics,
+      final HTTPType http,
+      final ExecutorService executor,
+      final ExecutorService executor_upload) {
+    return new AnalyticsLogger(
+        configuration, http, executor, executor_upload, directory_analytics);
+  }
+
+  /**
+   * @return The number of events dropped because the buffer was full or could not be written
+   */
+
+  public long dropped() {
+    return this.dropped.get();
+  }
+
+  /**
+   * @return The number of segments uploaded
+   */
+
+  public long segmentsUploaded() {
+    return this.uploaded.get();
+  }
+
+  /**
+   * Log a message. The message is timestamped and buffered; it is written from the executor.
+   * This method does not block.
+   *
+   * @param message The message
+   */
+
+  public void logToAnalytics(String message) {
     try {
-      File log_file = new File(directory_analytics, log_file_name);
-      // Stop logging after 10MB (future releases will transmit then delete this file)
-      if (log_file.length() < log_file_size_limit) {
-        FileWriter logWriter = new FileWriter(log_file, true);
-        analytics_output = new BufferedWriter(logWriter);
-      } else {
-        log_size_limit_reached = true;
+      final Event event = new Event(System.currentTimeMillis(), NullCheck.notNull(message));
+      while (!this.buffer.offer(event)) {
+        if (this.buffer.poll() != null) {
+          this.dropped.incrementAndGet();
+        }
+      }
+
+      if (this.write_scheduled.compareAndSet(false, true)) {
+        this.executor.execute(() -> {
+          this.write_scheduled.set(false);
+          synchronized (this.writer_lock) {
+            this.writeBuffered();
+          }
+        });
       }
     } catch (Exception e) {
-      LOG.debug("Ignoring exception: init raised: ", e);
+      LOG.debug("Ignoring exception: logToAnalytics raised: ", e);
     }
   }
 
-  private String readLogFile(String file) throws IOException {
-    BufferedReader reader;
-    reader = new BufferedReader(new FileReader(file));
-    String line = null;
-    StringBuilder stringBuilder = new StringBuilder();
-    String ls = System.getProperty("line.separator");
+  /**
+   * Upload the logged events if enough have been logged. Only one upload runs at a time.
+   *
+   * @param deviceId The device ID used to authenticate to the analytics server
+   */
+
+  public void attemptToPushAnalytics(String deviceId) {
+    this.scheduleUpload(deviceId, false);
+  }
+
+  /**
+   * Upload all of the logged events, regardless of how many have been logged. Only one upload
+   * runs at a time; if an upload is already running, another upload of all of the logged events
+   * is run when it finishes.
+   *
+   * @param deviceId The device ID used to authenticate to the analytics server
+   */
+
+  public void writeToAnalyticsServer(String deviceId) {
+    this.scheduleUpload(deviceId, true);
+  }
+
+  private void scheduleUpload(
+      final String deviceId,
+      final boolean force) {
+
+    try {
+      if (force) {
+        this.upload_forced.set(deviceId);
+      }
+
+      if (this.upload_running.compareAndSet(false, true)) {
+        this.executor_upload.execute(() -> {
+          try {
+            final String forced = this.upload_forced.getAndSet(null);
+            if (forced != null) {
+              this.upload(forced, true);
+            } else {
+              this.upload(deviceId, false);
+            }
+          } finally {
+            this.upload_running.set(false);
+          }
+
+          /*
+           * A forced upload requested while this upload was running was not scheduled, and is
+           * run now instead.
+           */
+
+          if (this.upload_forced.get() != null) {
+            this.scheduleUpload(deviceId, false);
+          }
+        });
+      }
+    } catch (Exception e) {
+      this.upload_running.set(false);
+      LOG.debug("Ignoring exception: scheduleUpload raised: ", e);
+    }
+  }
 
+  @GuardedBy("writer_lock")
+  private void writeBuffered() {
     try {
-      while ((line = reader.readLine()) != null) {
-        stringBuilder.append(line);
-        stringBuilder.append(ls);
+      while (true) {
+        final Event event = this.buffer.poll();
+        if (event == null) {
+          break;
+        }
+
+        if (this.writer == null) {
+          this.checkCurrentSegment();
+          final File current = new File(this.directory_analytics, SEGMENT_CURRENT);
+          this.writer = new BufferedWriter(
+              new OutputStreamWriter(new FileOutputStream(current, true), StandardCharsets.UTF_8));
+          this.writer_size = current.length();
+        }
+
+        this.date.setTime(event.time);
+        final String line = this.date_format.format(this.date) + event.message + "\n";
+        this.writer.write(line);
+        this.writer_size += line.getBytes(StandardCharsets.UTF_8).length;
+
+        if (this.writer_size >= this.configuration.segmentSizeLimitBytes()) {
+          this.closeSegment();
+        }
       }
 
-      return stringBuilder.toString();
-    } catch ( Exception e ) {
-        LOG.debug("Ignoring exception: readLogFile raised: ", e);
-    } finally {
-      reader.close();
+      if (this.writer != null) {
+        this.writer.flush();
+      }
+    } catch (Exception e) {
+      LOG.debug("Ignoring exception: writeBuffered raised: ", e);
+      this.dropped.addAndGet(this.buffer.size());
+      this.buffer.clear();
+      this.closeWriter();
+    }
+  }
+
+  /**
+   * Close the current segment, if it is not empty, and delete the oldest closed segments if the
+   * total size limit has been exceeded.
+   */
+
+  @GuardedBy("writer_lock")
+  private void closeSegment() throws IOException {
+    this.closeWriter();
+
+    final File current = new File(this.directory_analytics, SEGMENT_CURRENT);
+    if (current.length() == 0L) {
+      return;
     }
 
-    return "";
+    final String name = String.format(
+        "%s%010d%s", SEGMENT_PREFIX, Long.valueOf(this.segment_next), SEGMENT_SUFFIX);
+    FileUtilities.fileRename(current, new File(this.directory_analytics, name));
+    ++this.segment_next;
+    this.trimSegments();
   }
 
-  private void clearLogFile(String file) throws FileNotFoundException {
-    PrintWriter writer = new PrintWriter(file);
-    writer.print("");
-    writer.close();
+  /**
+   * Delete the oldest closed segments if the total size limit has been exceeded.
+   */
+
+  @GuardedBy("writer_lock")
+  private void trimSegments() throws IOException {
+    final List<File> segments = this.closedSegments();
+    long total = 0L;
+    for (final File segment : segments) {
+      total += segment.length();
+    }
+    for (final File segment : segments) {
+      if (total <= this.configuration.totalSizeLimitBytes()) {
+        break;
+      }
+      total -= segment.length();
+      LOG.debug("deleting segment {} to stay within the size limit", segment);
+      FileUtilities.fileDelete(segment);
+    }
   }
 
-  public void writeToAnalyticsServer(String deviceId) {
+  /**
+   * Split the current segment into closed segments, at line boundaries, if it exceeds the
+   * segment size limit. This is only checked once, as the current segment cannot grow beyond the
+   * limit once this logger is writing it.
+   */
+
+  @GuardedBy("writer_lock")
+  private void checkCurrentSegment() throws IOException {
+    if (this.current_checked) {
+      return;
+    }
+    this.current_checked = true;
+
+    final File current = new File(this.directory_analytics, SEGMENT_CURRENT);
+    final long limit = this.configuration.segmentSizeLimitBytes();
+    if (current.length() <= limit) {
+      return;
+    }
 
-    Thread t = new Thread(new Runnable() {
-      @Override
-      public void run() {
-        is_logging_paused.set(true);
+    LOG.debug("splitting oversized segment {} ({} bytes)", current, current.length());
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(new FileInputStream(current), StandardCharsets.UTF_8))) {
+      BufferedWriter segment_writer = null;
+      long segment_size = 0L;
+      try {
+        while (true) {
+          final String line = reader.readLine();
+          if (line == null) {
+            break;
+          }
 
-        final HTTPType http = HTTP.newHTTP();
-        final OptionType<HTTPAuthType> auth =
-            Option.some((HTTPAuthType) HTTPAuthBasic.create(deviceId, ".S23gLhfW/n:#CPD"));
+          if (segment_writer == null) {
+            final String name = String.format(
+                "%s%010d%s", SEGMENT_PREFIX, Long.valueOf(this.segment_next), SEGMENT_SUFFIX);
+            ++this.segment_next;
+            segment_writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(this.directory_analytics, name)),
+                StandardCharsets.UTF_8));
+            segment_size = 0L;
+          }
 
-        final HTTPResultType<InputStream> result;
+          segment_writer.write(line);
+          segment_writer.write('\n');
+          segment_size += line.getBytes(StandardCharsets.UTF_8).length + 1L;
 
-        try {
-          String logFile = readLogFile(directory_analytics + "/" + log_file_name);
-          if ( logFile.length() > 0 ) {
-            result = http.post(auth, new URI(analytics_server_uri), logFile.getBytes(), "application/json");
-            result.matchResult(
-
-                new HTTPResultMatcherType<InputStream, Unit, Exception>() {
-                  @Override
-                  public Unit onHTTPError(final HTTPResultError<InputStream> error) throws Exception {
-                    return Unit.unit();
-                  }
-
-                  @Override
-                  public Unit onHTTPException(final HTTPResultException<InputStream> exception) throws Exception {
-                    return Unit.unit();
-                  }
-
-                  @Override
-                  public Unit onHTTPOK(final HTTPResultOKType<InputStream> result) throws Exception {
-                    // Clear the log file.  Start logging from scratch.
-                    clearLogFile(directory_analytics + "/" + log_file_name);
-                    return Unit.unit();
-                  }
-                }
-            );
+          if (segment_size >= limit) {
+            segment_writer.close();
+            segment_writer = null;
           }
-        } catch (Exception e) {
-          e.printStackTrace();
-        } finally {
-          is_logging_paused.set(false);
+        }
+      } finally {
+        if (segment_writer != null) {
+          segment_writer.close();
         }
       }
-    });
+    }
 
-    t.start();
+    FileUtilities.fileDelete(current);
+    this.trimSegments();
   }
 
-  public void attemptToPushAnalytics(String deviceId) {
-    if ( analytics_output == null ) {
-      init();
-    }
-    if ( analytics_output != null && !is_logging_paused.get() ) {
+  @GuardedBy("writer_lock")
+  private void closeWriter() {
+    if (this.writer != null) {
       try {
-        File log_file = new File(directory_analytics, log_file_name);
-        long len = log_file.length();
-        // If over 50kb, push log file
-        if (len > log_file_push_limit) {
-          writeToAnalyticsServer(deviceId);
-        }
+        this.writer.close();
       } catch (Exception e) {
-        LOG.debug("Ignoring exception: attemptToPushAnalytics raised: ", e);
+        LOG.debug("Ignoring exception: close raised: ", e);
       }
+      this.writer = null;
+      this.writer_size = 0L;
     }
   }
 
-  public void logToAnalytics(String message) {
-    if ( analytics_output == null ) {
-      init();
+  /**
+   * @return The closed segments, oldest first
+   */
+
+  private List<File> closedSegments() {
+    final File[] files = this.directory_analytics.listFiles();
+    if (files == null) {
+      return Collections.emptyList();
+    }
+
+    final List<File> segments = new ArrayList<>(files.length);
+    for (final File file : files) {
+      if (segmentNumber(file) >= 0L) {
+        segments.add(file);
+      }
     }
-    if ( analytics_output != null && !is_logging_paused.get() ) {
+    Collections.sort(segments, (f0, f1) -> Long.compare(segmentNumber(f0), segmentNumber(f1)));
+    return segments;
+  }
+
+  private static long segmentNumber(final File file) {
+    final String name = file.getName();
+    if (name.length() > SEGMENT_PREFIX.length() + SEGMENT_SUFFIX.length()
+        && name.startsWith(SEGMENT_PREFIX)
+        && name.endsWith(SEGMENT_SUFFIX)) {
       try {
-        String date_str = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,").format(new Date());
-        analytics_output.write(date_str + message + "\n");
-        analytics_output.flush();  // Make small synchronous additions for now
-      } catch (Exception e) {
-        LOG.debug("Ignoring exception: logToAnalytics raised: ", e);
+        return Long.parseLong(
+            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+      } catch (final NumberFormatException e) {
+        return -1L;
+      }
+    }
+    return -1L;
+  }
+
+  private void upload(
+      final String deviceId,
+      final boolean force) {
+
+    try {
+      synchronized (this.writer_lock) {
+        this.checkCurrentSegment();
+        this.writeBuffered();
+        final File current = new File(this.directory_analytics, SEGMENT_CURRENT);
+        final long size = current.length();
+        if (size > 0L && (force || size > this.configuration.pushSizeLimitBytes())) {
+          this.closeSegment();
+        }
+      }
+
+      final OptionType<HTTPAuthType> auth =
+          Option.some((HTTPAuthType) HTTPAuthBasic.create(deviceId, ".S23gLhfW/n:#CPD"));
+
+      /*
+       * Closed segments are never written again, so they can be read and uploaded while new
+       * events are written to the current segment. Each segment is bounded in size, so reading
+       * one into memory is cheap.
+       */
+
+      for (final File segment : this.closedSegments()) {
+        final byte[] data;
+        try {
+          data = FileUtilities.fileReadBytes(segment);
+        } catch (final IOException e) {
+          LOG.debug("segment {} disappeared before upload", segment);
+          continue;
+        }
+
+        final HTTPResultType<InputStream> result =
+            this.http.post(auth, this.configuration.serverURI(), data, "application/json");
+        final boolean accepted = result.matchResult(
+            new HTTPResultMatcherType<InputStream, Boolean, IOException>() {
+              @Override
+              public Boolean onHTTPError(final HTTPResultError<InputStream> error)
+                  throws IOException {
+                error.getData().close();
+                return Boolean.FALSE;
+              }
+
+              @Override
+              public Boolean onHTTPException(final HTTPResultException<InputStream> exception) {
+                return Boolean.FALSE;
+              }
+
+              @Override
+              public Boolean onHTTPOK(final HTTPResultOKType<InputStream> ok) throws IOException {
+                ok.getValue().close();
+                return Boolean.TRUE;
+              }
+            }).booleanValue();
+
+        if (!accepted) {
+          LOG.debug("upload of segment {} failed; will retry later", segment);
+          return;
+        }
+
+        FileUtilities.fileDelete(segment);
+        this.uploaded.incrementAndGet();
       }
+    } catch (Exception e) {
+      LOG.debug("Ignoring exception: upload raised: ", e);
+    }
+  }
+
+  private static final class Event {
+    private final long time;
+    private final String message;
+
+    Event(
+        final long in_time,
+        final String in_message) {
+      this.time = in_time;
+      this.message = in_message;
     }
   }
 }
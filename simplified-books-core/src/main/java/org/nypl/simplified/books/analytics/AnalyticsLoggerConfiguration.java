@@ -0,0 +1,157 @@
+package org.nypl.simplified.books.analytics;
+
+import com.google.auto.value.AutoValue;
+
+import java.net.URI;
+
+/**
+ * The configuration of an analytics logger.
+ *
+ * @see AnalyticsLogger
+ */
+
+@AutoValue
+public abstract class AnalyticsLoggerConfiguration {
+
+  AnalyticsLoggerConfiguration() {
+
+  }
+
+  /**
+   * @return The URI to which segments are uploaded
+   */
+
+  public abstract URI serverURI();
+
+  /**
+   * @return The number of events that may be waiting to be written; when the buffer is full, the
+   * oldest waiting events are dropped
+   */
+
+  public abstract int bufferCapacity();
+
+  /**
+   * @return The size in bytes at which a segment file is closed and a new one started
+   */
+
+  public abstract long segmentSizeLimitBytes();
+
+  /**
+   * @return The total size in bytes of the closed segments kept for upload; when exceeded, the
+   * oldest segments are deleted
+   */
+
+  public abstract long totalSizeLimitBytes();
+
+  /**
+   * @return The size in bytes that the current segment must exceed before it is closed early so
+   * that it can be uploaded
+   */
+
+  public abstract long pushSizeLimitBytes();
+
+  /**
+   * @return The current value as a mutable builder
+   */
+
+  public abstract Builder toBuilder();
+
+  /**
+   * A mutable builder for the type.
+   */
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+
+    Builder() {
+
+    }
+
+    /**
+     * @param uri The server URI
+     * @return The current builder
+     * @see #serverURI()
+     */
+
+    public abstract Builder setServerURI(
+        URI uri);
+
+    /**
+     * @param capacity The number of events
+     * @return The current builder
+     * @see #bufferCapacity()
+     */
+
+    public abstract Builder setBufferCapacity(
+        int capacity);
+
+    /**
+     * @param size The size in bytes
+     * @return The current builder
+     * @see #segmentSizeLimitBytes()
+     */
+
+    public abstract Builder setSegmentSizeLimitBytes(
+        long size);
+
+    /**
+     * @param size The size in bytes
+     * @return The current builder
+     * @see #totalSizeLimitBytes()
+     */
+
+    public abstract Builder setTotalSizeLimitBytes(
+        long size);
+
+    /**
+     * @param size The size in bytes
+     * @return The current builder
+     * @see #pushSizeLimitBytes()
+     */
+
+    public abstract Builder setPushSizeLimitBytes(
+        long size);
+
+    abstract AnalyticsLoggerConfiguration autoBuild();
+
+    /**
+     * @return A configuration based on the given parameters
+     * @throws IllegalArgumentException If any of the parameters are out of range
+     */
+
+    public final AnalyticsLoggerConfiguration build() {
+      final AnalyticsLoggerConfiguration c = this.autoBuild();
+      if (c.bufferCapacity() < 1) {
+        throw new IllegalArgumentException("The buffer must hold at least one event");
+      }
+      if (c.segmentSizeLimitBytes() < 1L) {
+        throw new IllegalArgumentException("The segment size limit must be positive");
+      }
+      if (c.totalSizeLimitBytes() < c.segmentSizeLimitBytes()) {
+        throw new IllegalArgumentException(
+            "The total size limit must not be less than the segment size limit");
+      }
+      if (c.pushSizeLimitBytes() < 0L) {
+        throw new IllegalArgumentException("The push size limit must be non-negative");
+      }
+      return c;
+    }
+  }
+
+  /**
+   * The default configuration buffers up to 1024 events, writes segments of up to 64KiB, keeps
+   * up to 10MiB of segments, and uploads once at least 2KiB of events have been written.
+   *
+   * @return A mutable builder, initialized with the default configuration
+   */
+
+  public static AnalyticsLoggerConfiguration.Builder builder() {
+    return new AutoValue_AnalyticsLoggerConfiguration.Builder()
+        .setServerURI(URI.create(
+            "http://ec2-18-217-127-216.us-east-2.compute.amazonaws.com:8080/upload.log"))
+        .setBufferCapacity(1024)
+        .setSegmentSizeLimitBytes(64L * 1024L)
+        .setTotalSizeLimitBytes(10L * 1024L * 1024L)
+        .setPushSizeLimitBytes(2L * 1024L);
+  }
+}
@@ -0,0 +1,554 @@
+package org.nypl.simplified.books.analytics;
+
+import com.io7m.jfunctional.Option;
+import com.io7m.jfunctional.OptionType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+
+import org.nypl.simplified.books.core.LogUtilities;
+import org.nypl.simplified.files.FileUtilities;
+import org.nypl.simplified.http.core.HTTPAuthOrigins;
+import org.nypl.simplified.http.core.HTTPAuthType;
+import org.nypl.simplified.http.core.HTTPResultError;
+import org.nypl.simplified.http.core.HTTPResultException;
+import org.nypl.simplified.http.core.HTTPResultMatcherType;
+import org.nypl.simplified.http.core.HTTPResultOKType;
+import org.nypl.simplified.http.core.HTTPResultType;
+import org.nypl.simplified.http.core.HTTPType;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * <p>A process-wide dispatcher for circulation analytics events.</p>
+ *
+ * <p>Posting an event only queues it; events are sent from the given executor, grouped by the
+ * account that posted them and the origin of their analytics endpoint, so that the events for one
+ * library are sent together over the same connection. Events that cannot be delivered are kept
+ * and retried with exponential backoff, and the queue is written to disk so that it survives the
+ * process being killed.</p>
+ *
+ * <p>Each event is sent with the credentials that were given when it was posted. Credentials are
+ * only ever held in memory: events read back from disk are sent once another event has been
+ * posted for the same account and origin, using the credentials given with that event.</p>
+ */
+
+public final class CirculationAnalyticsDispatcher {
+
+  private static final Logger LOG = LogUtilities.getLog(CirculationAnalyticsDispatcher.class);
+
+  /**
+   * The maximum number of events held. When the queue is full, the oldest events are dropped,
+   * regardless of the account or origin to which they belong.
+   */
+
+  public static final int MAXIMUM_PENDING = 500;
+
+  /**
+   * The age after which undelivered events are dropped.
+   */
+
+  public static final long MAXIMUM_AGE_MILLISECONDS = TimeUnit.DAYS.toMillis(7L);
+
+  private static final long BACKOFF_INITIAL_MILLISECONDS = TimeUnit.SECONDS.toMillis(30L);
+  private static final long BACKOFF_MAXIMUM_MILLISECONDS = TimeUnit.HOURS.toMillis(1L);
+
+  private final HTTPType http;
+  private final ScheduledExecutorService executor;
+  private final File file;
+  private final File file_tmp;
+  private final Object lock;
+  private final Object dispatch_lock;
+  private final @GuardedBy("lock") LinkedHashMap<String, Endpoint> endpoints;
+  private @GuardedBy("lock") int pending;
+  private @GuardedBy("lock") boolean dirty;
+  private @GuardedBy("lock") long dispatch_next;
+  private @GuardedBy("lock") long sequence;
+  private final AtomicLong delivered;
+  private final AtomicLong dropped;
+
+  private CirculationAnalyticsDispatcher(
+      final HTTPType in_http,
+      final ScheduledExecutorService in_executor,
+      final File in_directory) {
+
+    this.http = NullCheck.notNull(in_http, "HTTP");
+    this.executor = NullCheck.notNull(in_executor, "Executor");
+    NullCheck.notNull(in_directory, "Directory");
+    this.file = new File(in_directory, "circulation_events.txt");
+    this.file_tmp = new File(in_directory, "circulation_events.txt.tmp");
+    this.lock = new Object();
+    this.dispatch_lock = new Object();
+    this.endpoints = new LinkedHashMap<>();
+    this.pending = 0;
+    this.dirty = false;
+    this.dispatch_next = Long.MAX_VALUE;
+    this.sequence = 0L;
+    this.delivered = new AtomicLong(0L);
+    this.dropped = new AtomicLong(0L);
+  }
+
+  /**
+   * Create a dispatcher. Any events saved in {@code directory} by a previous dispatcher are read
+   * back on the executor.
+   *
+   * @param http      The HTTP interface used to send events
+   * @param executor  The executor on which events are sent and saved
+   * @param directory The directory in which undelivered events are saved
+   * @return A new dispatcher
+   */
+
+  public static CirculationAnalyticsDispatcher create(
+      final HTTPType http,
+      final ScheduledExecutorService executor,
+      final File directory) {
+
+    final CirculationAnalyticsDispatcher dispatcher =
+        new CirculationAnalyticsDispatcher(http, executor, directory);
+    executor.execute(dispatcher::load);
+    return dispatcher;
+  }
+
+  /**
+   * Queue an event for delivery. The event is sent as a {@code GET} request to
+   * {@code endpoint/event}, with the given credentials. This method does not block.
+   *
+   * @param account     A key that identifies the account posting the event. The key is saved
+   *                    along with the event, and must not contain line breaks.
+   * @param endpoint    The analytics endpoint of a book
+   * @param event       The event, such as {@code open_book}
+   * @param credentials The credentials for the endpoint, if any
+   */
+
+  public void post(
+      final String account,
+      final URI endpoint,
+      final String event,
+      final OptionType<HTTPAuthType> credentials) {
+
+    NullCheck.notNull(account, "Account");
+    NullCheck.notNull(endpoint, "Endpoint");
+    NullCheck.notNull(event, "Event");
+    NullCheck.notNull(credentials, "Credentials");
+
+    if (account.indexOf('\n') >= 0 || account.indexOf('\r') >= 0) {
+      throw new IllegalArgumentException("Account keys must not contain line breaks");
+    }
+
+    final URI target = URI.create(endpoint.toString() + "/" + event);
+    synchronized (this.lock) {
+      final Endpoint e = this.endpointFor(account, target);
+      e.credentials = credentials;
+      e.credentials_known = true;
+      this.enqueue(e, new Event(account, target, System.currentTimeMillis(), credentials));
+    }
+
+    LOG.debug("queued {}", target);
+    this.scheduleDispatch(0L);
+  }
+
+  /**
+   * Save the queued events on the executor, without waiting for the next attempt to send them.
+   * This method does not block; the events are saved after any send that is already in progress.
+   */
+
+  public void flush() {
+    this.executor.execute(this::save);
+  }
+
+  /**
+   * @return The number of events delivered
+   */
+
+  public long delivered() {
+    return this.delivered.get();
+  }
+
+  /**
+   * @return The number of events dropped, either because the queue was full, the events were too
+   * old, or the server rejected them
+   */
+
+  public long dropped() {
+    return this.dropped.get();
+  }
+
+  /**
+   * @return The number of events waiting to be delivered
+   */
+
+  public int pending() {
+    synchronized (this.lock) {
+      return this.pending;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "[CirculationAnalyticsDispatcher delivered=%d dropped=%d pending=%d]",
+        Long.valueOf(this.delivered()),
+        Long.valueOf(this.dropped()),
+        Integer.valueOf(this.pending()));
+  }
+
+  @GuardedBy("lock")
+  private Endpoint endpointFor(
+      final String account,
+      final URI target) {
+
+    final String key = account + "\n" + HTTPAuthOrigins.origin(target);
+    Endpoint e = this.endpoints.get(key);
+    if (e == null) {
+      e = new Endpoint();
+      this.endpoints.put(key, e);
+    }
+    return e;
+  }
+
+  @GuardedBy("lock")
+  private void enqueue(
+      final Endpoint endpoint,
+      final Event event) {
+
+    if (this.pending >= MAXIMUM_PENDING) {
+      Endpoint oldest = null;
+      for (final Endpoint e : this.endpoints.values()) {
+        final Event first = e.events.peekFirst();
+        if (first != null
+            && (oldest == null || first.sequence < oldest.events.peekFirst().sequence)) {
+          oldest = e;
+        }
+      }
+      if (oldest != null) {
+        final Event dropped_event = oldest.events.removeFirst();
+        --this.pending;
+        this.dropped.incrementAndGet();
+        LOG.debug("queue full: dropped {}", dropped_event.uri);
+      }
+    }
+
+    event.sequence = this.sequence;
+    ++this.sequence;
+    endpoint.events.addLast(event);
+    ++this.pending;
+    this.dirty = true;
+  }
+
+  private void scheduleDispatch(final long delay_ms) {
+    final long time = System.currentTimeMillis() + delay_ms;
+    synchronized (this.lock) {
+      if (time >= this.dispatch_next) {
+        return;
+      }
+      this.dispatch_next = time;
+    }
+    this.executor.schedule(this::dispatch, delay_ms, TimeUnit.MILLISECONDS);
+  }
+
+  private void load() {
+    try {
+      if (!this.file.isFile()) {
+        return;
+      }
+
+      final String text =
+          new String(FileUtilities.fileReadBytes(this.file), StandardCharsets.UTF_8);
+      int loaded = 0;
+      synchronized (this.lock) {
+        for (final String line : text.split("\n")) {
+          final int space0 = line.indexOf(' ');
+          final int space1 = line.indexOf(' ', space0 + 1);
+          if (space0 <= 0 || space1 <= space0) {
+            LOG.debug("ignoring malformed saved event: {}", line);
+            continue;
+          }
+          try {
+            final long time = Long.parseLong(line.substring(0, space0));
+            final URI target = new URI(line.substring(space0 + 1, space1));
+            final String account = line.substring(space1 + 1);
+            this.enqueue(
+                this.endpointFor(account, target), new Event(account, target, time, null));
+            ++loaded;
+          } catch (final Exception e) {
+            LOG.debug("ignoring malformed saved event: {}", line);
+          }
+        }
+      }
+
+      LOG.debug("loaded {} saved events", loaded);
+      this.scheduleDispatch(0L);
+    } catch (final Exception e) {
+      LOG.error("could not load saved events: ", e);
+    }
+  }
+
+  private void save() {
+    final List<Event> events = new ArrayList<>();
+    synchronized (this.lock) {
+      if (!this.dirty) {
+        return;
+      }
+      this.dirty = false;
+      for (final Endpoint e : this.endpoints.values()) {
+        events.addAll(e.events);
+      }
+    }
+
+    /*
+     * The events are saved in the order in which they were queued, so that the oldest events are
+     * still the first to be dropped after they have been read back.
+     */
+
+    Collections.sort(events, (x, y) -> Long.compare(x.sequence, y.sequence));
+
+    final StringBuilder text = new StringBuilder(256);
+    for (final Event event : events) {
+      text.append(event.time);
+      text.append(' ');
+      text.append(event.uri);
+      text.append(' ');
+      text.append(event.account);
+      text.append('\n');
+    }
+
+    try {
+      FileUtilities.fileWriteUTF8Atomically(this.file, this.file_tmp, text.toString());
+    } catch (final IOException e) {
+      LOG.error("could not save events: ", e);
+    }
+  }
+
+  private void dispatch() {
+    synchronized (this.dispatch_lock) {
+      try {
+        synchronized (this.lock) {
+          this.dispatch_next = Long.MAX_VALUE;
+        }
+
+        this.save();
+
+        final List<Endpoint> ready = new ArrayList<>();
+        final long now = System.currentTimeMillis();
+        synchronized (this.lock) {
+          for (final Endpoint e : this.endpoints.values()) {
+            if (e.retry_time <= now) {
+              ready.add(e);
+            }
+          }
+        }
+
+        for (final Endpoint e : ready) {
+          this.dispatchEndpoint(e, now);
+        }
+
+        this.save();
+        this.scheduleRetry();
+      } catch (final Exception e) {
+        LOG.error("could not dispatch events: ", e);
+      }
+    }
+  }
+
+  /**
+   * Send the events queued for one account and origin, in order, stopping at the first one that fails.
+   */
+
+  private void dispatchEndpoint(
+      final Endpoint endpoint,
+      final long now) {
+
+    while (true) {
+      final Event event;
+      final OptionType<HTTPAuthType> credentials;
+      synchronized (this.lock) {
+        event = endpoint.events.peekFirst();
+        if (event == null) {
+          return;
+        }
+
+        if (now - event.time > MAXIMUM_AGE_MILLISECONDS) {
+          this.remove(endpoint, event);
+          this.dropped.incrementAndGet();
+          LOG.debug("expired: dropped {}", event.uri);
+          continue;
+        }
+
+        /*
+         * The credentials for events read back from disk are not known until another event is
+         * posted for the same account and origin.
+         */
+
+        if (event.credentials != null) {
+          credentials = event.credentials;
+        } else if (endpoint.credentials_known) {
+          credentials = endpoint.credentials;
+        } else {
+          return;
+        }
+      }
+
+      final Outcome outcome = this.send(event, credentials);
+      synchronized (this.lock) {
+        switch (outcome) {
+          case DELIVERED: {
+            if (this.remove(endpoint, event)) {
+              this.delivered.incrementAndGet();
+            }
+            endpoint.failures = 0;
+            break;
+          }
+          case REJECTED: {
+            if (this.remove(endpoint, event)) {
+              this.dropped.incrementAndGet();
+            }
+            break;
+          }
+          case FAILED: {
+            endpoint.failures = Math.min(endpoint.failures + 1, 16);
+            final long backoff = Math.min(
+                BACKOFF_MAXIMUM_MILLISECONDS,
+                BACKOFF_INITIAL_MILLISECONDS << (endpoint.failures - 1));
+            endpoint.retry_time = System.currentTimeMillis() + backoff;
+            LOG.debug("retrying {} in {}ms", event.uri, backoff);
+            return;
+          }
+        }
+      }
+    }
+  }
+
+  @GuardedBy("lock")
+  private boolean remove(
+      final Endpoint endpoint,
+      final Event event) {
+
+    if (endpoint.events.removeFirstOccurrence(event)) {
+      --this.pending;
+      this.dirty = true;
+      return true;
+    }
+    return false;
+  }
+
+  private void scheduleRetry() {
+    long earliest = Long.MAX_VALUE;
+    synchronized (this.lock) {
+      for (final Endpoint e : this.endpoints.values()) {
+        if (!e.events.isEmpty() && e.credentials_known) {
+          earliest = Math.min(earliest, e.retry_time);
+        }
+      }
+    }
+
+    if (earliest != Long.MAX_VALUE) {
+      this.scheduleDispatch(Math.max(0L, earliest - System.currentTimeMillis()));
+    }
+  }
+
+  private Outcome send(
+      final Event event,
+      final OptionType<HTTPAuthType> credentials) {
+
+    try {
+      final HTTPResultType<InputStream> result = this.http.get(credentials, event.uri, 0L);
+      return result.matchResult(
+          new HTTPResultMatcherType<InputStream, Outcome, IOException>() {
+            @Override
+            public Outcome onHTTPError(final HTTPResultError<InputStream> e) throws IOException {
+              e.getData().close();
+              final int status = e.getStatus();
+              LOG.debug("{}: {}", event.uri, Integer.valueOf(status));
+
+              /*
+               * A client error other than a timeout or throttling will not succeed on retry.
+               */
+
+              if (status >= 400 && status < 500
+                  && status != HttpURLConnection.HTTP_CLIENT_TIMEOUT
+                  && status != 429) {
+                return Outcome.REJECTED;
+              }
+              return Outcome.FAILED;
+            }
+
+            @Override
+            public Outcome onHTTPException(final HTTPResultException<InputStream> e) {
+              LOG.debug("{}: ", event.uri, e.getError());
+              return Outcome.FAILED;
+            }
+
+            @Override
+            public Outcome onHTTPOK(final HTTPResultOKType<InputStream> e) throws IOException {
+              e.getValue().close();
+              return Outcome.DELIVERED;
+            }
+          });
+    } catch (final Exception e) {
+      LOG.debug("{}: ", event.uri, e);
+      return Outcome.FAILED;
+    }
+  }
+
+  private enum Outcome {
+    DELIVERED,
+    REJECTED,
+    FAILED
+  }
+
+  private static final class Event {
+    private final String account;
+    private final URI uri;
+    private final long time;
+    private final @Nullable OptionType<HTTPAuthType> credentials;
+    private long sequence;
+
+    /**
+     * @param in_credentials The credentials given when the event was posted, or {@code null} if
+     *                       the event was read back from disk
+     */
+
+    Event(
+        final String in_account,
+        final URI in_uri,
+        final long in_time,
+        final @Nullable OptionType<HTTPAuthType> in_credentials) {
+      this.account = NullCheck.notNull(in_account, "Account");
+      this.uri = NullCheck.notNull(in_uri, "URI");
+      this.time = in_time;
+      this.credentials = in_credentials;
+      this.sequence = 0L;
+    }
+  }
+
+  private static final class Endpoint {
+    private final ArrayDeque<Event> events;
+    private OptionType<HTTPAuthType> credentials;
+    private boolean credentials_known;
+    private int failures;
+    private long retry_time;
+
+    Endpoint() {
+      this.events = new ArrayDeque<>();
+      this.credentials = Option.none();
+      this.credentials_known = false;
+      this.failures = 0;
+      this.retry_time = 0L;
+    }
+  }
+}
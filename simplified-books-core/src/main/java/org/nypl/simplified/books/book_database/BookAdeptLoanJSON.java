@@ -6,6 +6,7 @@ import com.io7m.jnull.NullCheck;
 
 import org.nypl.drm.core.AdobeAdeptLoan;
 import org.nypl.drm.core.AdobeLoanID;
+import org.nypl.simplified.json.core.JSONMappers;
 import org.nypl.simplified.json.core.JSONParseException;
 import org.nypl.simplified.json.core.JSONParserUtilities;
 import org.nypl.simplified.json.core.JSONSerializerUtilities;
@@ -24,7 +25,7 @@ public final class BookAdeptLoanJSON {
       final AdobeAdeptLoan loan) {
 
     NullCheck.notNull(loan, "Loan");
-    final ObjectMapper jom = new ObjectMapper();
+    final ObjectMapper jom = JSONMappers.mapper();
     final ObjectNode o = jom.createObjectNode();
     o.put("loan-id", loan.getID().getValue());
     o.put("returnable", loan.isReturnable());
@@ -1,7 +1,9 @@
 package org.nypl.simplified.books.book_database;
 
 import com.io7m.jfunctional.Option;
+import com.io7m.jfunctional.OptionType;
 import com.io7m.jfunctional.ProcedureType;
+import com.io7m.jfunctional.Some;
 import com.io7m.jnull.NullCheck;
 import com.io7m.jnull.Nullable;
 
@@ -10,6 +12,7 @@ import org.nypl.simplified.assertions.Assertions;
 import org.nypl.simplified.books.accounts.AccountID;
 import org.nypl.simplified.books.core.LogUtilities;
 import org.nypl.simplified.files.DirectoryUtilities;
+import org.nypl.simplified.files.FileSyncPolicy;
 import org.nypl.simplified.files.FileUtilities;
 import org.nypl.simplified.json.core.JSONSerializerUtilities;
 import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntry;
@@ -24,9 +27,14 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.annotation.concurrent.GuardedBy;
 
@@ -42,6 +50,7 @@ public final class BookDatabase implements BookDatabaseType {
   private final File directory;
   private final OPDSJSONSerializerType serializer;
   private final BookMaps maps;
+  private final OptionType<BookDatabaseIndex> index;
 
   private static final class BookMaps {
 
@@ -90,7 +99,8 @@ public final class BookDatabase implements BookDatabaseType {
       final AccountID in_owner,
       final File in_directory,
       final BookMaps in_maps,
-      final OPDSJSONSerializerType serializer)
+      final OPDSJSONSerializerType serializer,
+      final OptionType<BookDatabaseIndex> in_index)
   {
     this.owner =
         NullCheck.notNull(in_owner, "Owner");
@@ -100,32 +110,237 @@ public final class BookDatabase implements BookDatabaseType {
         NullCheck.notNull(in_maps, "Maps");
     this.serializer =
         NullCheck.notNull(serializer, "Serializer");
+    this.index =
+        NullCheck.notNull(in_index, "Index");
   }
 
+  /**
+   * Open a book database, parsing the entries one at a time on the calling thread.
+   *
+   * @param parser     A JSON parser for OPDS entries
+   * @param serializer A JSON serializer for OPDS entries
+   * @param owner      The account that owns the database
+   * @param directory  The database directory
+   * @return A book database
+   * @throws BookDatabaseException If any entries could not be opened
+   */
+
   public static BookDatabaseType open(
       final OPDSJSONParserType parser,
       final OPDSJSONSerializerType serializer,
       final AccountID owner,
       final File directory)
       throws BookDatabaseException {
+    return openInternal(parser, serializer, owner, directory, Option.none(), false);
+  }
+
+  /**
+   * Open a book database, parsing the entries in parallel on the given executor. The calling
+   * thread waits for all entries to be parsed, so this method must not be called from a thread
+   * belonging to {@code exec}. Errors are aggregated in exactly the same manner as for
+   * {@link #open(OPDSJSONParserType, OPDSJSONSerializerType, AccountID, File)}.
+   *
+   * @param parser     A JSON parser for OPDS entries
+   * @param serializer A JSON serializer for OPDS entries
+   * @param owner      The account that owns the database
+   * @param directory  The database directory
+   * @param exec       An executor on which to parse entries
+   * @return A book database
+   * @throws BookDatabaseException If any entries could not be opened
+   */
+
+  public static BookDatabaseType openInParallel(
+      final OPDSJSONParserType parser,
+      final OPDSJSONSerializerType serializer,
+      final AccountID owner,
+      final File directory,
+      final ExecutorService exec)
+      throws BookDatabaseException {
+    return openInternal(parser, serializer, owner, directory, Option.some(exec), false);
+  }
+
+  /**
+   * Open a book database using the index file in the database directory (see
+   * {@link BookDatabaseIndex}), so that the entries are read with a single sequential read
+   * instead of one read per book directory. If the index is missing, or does not match the book
+   * directories, the database is opened from the book directories as usual (in parallel, if an
+   * executor is given) and the index is rebuilt. The index is kept up to date as the database
+   * is modified.
+   *
+   * The book directories are written exactly as they are for databases opened without an index,
+   * and opening a database without an index discards any index that it may have.
+   *
+   * @param parser     A JSON parser for OPDS entries
+   * @param serializer A JSON serializer for OPDS entries
+   * @param owner      The account that owns the database
+   * @param directory  The database directory
+   * @param exec       An optional executor on which to parse entries if the index is rebuilt
+   * @return A book database
+   * @throws BookDatabaseException If any entries could not be opened
+   */
+
+  public static BookDatabaseType openIndexed(
+      final OPDSJSONParserType parser,
+      final OPDSJSONSerializerType serializer,
+      final AccountID owner,
+      final File directory,
+      final OptionType<ExecutorService> exec)
+      throws BookDatabaseException {
+    return openInternal(parser, serializer, owner, directory, exec, true);
+  }
+
+  private static BookDatabaseType openInternal(
+      final OPDSJSONParserType parser,
+      final OPDSJSONSerializerType serializer,
+      final AccountID owner,
+      final File directory,
+      final OptionType<ExecutorService> exec,
+      final boolean indexed)
+      throws BookDatabaseException {
 
     NullCheck.notNull(parser, "Parser");
     NullCheck.notNull(serializer, "Serializer");
     NullCheck.notNull(owner, "Owner");
     NullCheck.notNull(directory, "Directory");
+    NullCheck.notNull(exec, "Executor");
 
     LOG.debug("opening book database: {}", directory);
 
     final BookMaps maps = new BookMaps();
     final List<Exception> errors = new ArrayList<>();
-    openAllBooks(parser, serializer, owner, directory, maps, errors);
+    final BookDatabaseIndex index = new BookDatabaseIndex(directory, serializer);
+
+    if (!indexed) {
+      index.delete();
+      openAllBooks(parser, serializer, owner, directory, maps, errors, exec, Option.none());
+    } else if (!openFromIndex(parser, serializer, owner, directory, maps, index)) {
+      LOG.debug("index is missing or stale, rebuilding: {}", directory);
+      openAllBooks(parser, serializer, owner, directory, maps, errors, exec, Option.some(index));
+      if (errors.isEmpty()) {
+        rebuildIndex(directory, maps, index);
+      }
+    }
 
     if (!errors.isEmpty()) {
       throw new BookDatabaseException(
           "One or more errors occurred whilst trying to open a book database.", errors);
     }
 
-    return new BookDatabase(owner, directory, maps, serializer);
+    return new BookDatabase(
+        owner, directory, maps, serializer, indexed ? Option.some(index) : Option.none());
+  }
+
+  private static boolean openFromIndex(
+      final OPDSJSONParserType parser,
+      final OPDSJSONSerializerType serializer,
+      final AccountID account,
+      final File directory,
+      final BookMaps maps,
+      final BookDatabaseIndex index) {
+
+    final String[] names = directory.list();
+    if (names == null) {
+      return false;
+    }
+
+    final OptionType<BookDatabaseIndex.Contents> contents_opt = index.read(parser);
+    if (contents_opt.isNone()) {
+      return false;
+    }
+
+    /*
+     * Listing the directory is cheap and catches books that were added or removed by anything
+     * that did not maintain the index, such as an older version of the application.
+     */
+
+    final BookDatabaseIndex.Contents contents =
+        ((Some<BookDatabaseIndex.Contents>) contents_opt).get();
+    if (!contents.matches(bookNames(names))) {
+      return false;
+    }
+
+    /*
+     * A book whose meta.json has been modified since its record was written (by anything that
+     * did not maintain the index) is read from its directory instead.
+     */
+
+    final OptionType<BookDatabaseIndex> index_opt = Option.some(index);
+    boolean stale = false;
+    for (final BookDatabaseIndex.Record record : contents.records().values()) {
+      final BookID book_id = record.id();
+      final File book_directory = new File(directory, book_id.value());
+      if (new File(book_directory, "meta.json").lastModified() != record.stamp()) {
+        LOG.debug("index record is stale, reading book: {}/{}", directory, book_id.value());
+        final List<Exception> errors = new ArrayList<>();
+        final DatabaseEntry entry = openOneEntry(
+            parser, serializer, index_opt, account, book_directory, maps, errors, book_id.value());
+        if (entry == null || !errors.isEmpty()) {
+          maps.clear();
+          return false;
+        }
+        maps.addEntry(entry);
+        stale = true;
+        continue;
+      }
+
+      final Book.Builder book_builder = Book.builder(book_id, account, record.entry());
+      if (record.hasBook()) {
+        book_builder.setFile(new File(book_directory, "book.epub"));
+      }
+      if (record.hasCover()) {
+        book_builder.setCover(new File(book_directory, "cover.jpg"));
+      }
+      maps.addEntry(new DatabaseEntry(
+          book_directory, serializer, index_opt, book_builder.build(), () -> maps.delete(book_id)));
+    }
+
+    if (stale || contents.wantsCompaction()) {
+      LOG.debug("compacting index: {}", directory);
+      index.rewrite(records(directory, maps), contents.ignored());
+    }
+    return true;
+  }
+
+  private static void rebuildIndex(
+      final File directory,
+      final BookMaps maps,
+      final BookDatabaseIndex index) {
+
+    final String[] names = directory.list();
+    if (names == null) {
+      return;
+    }
+
+    final List<String> ignored = new ArrayList<>();
+    for (final String name : bookNames(names)) {
+      if (!maps.entries.containsKey(BookID.create(name))) {
+        ignored.add(name);
+      }
+    }
+
+    index.rewrite(records(directory, maps), ignored);
+  }
+
+  private static List<BookDatabaseIndex.Record> records(
+      final File directory,
+      final BookMaps maps) {
+
+    final List<BookDatabaseIndex.Record> records = new ArrayList<>(maps.books.size());
+    for (final Book book : maps.books.values()) {
+      records.add(BookDatabaseIndex.record(
+          book.id(), book.entry(), new File(directory, book.id().value())));
+    }
+    return records;
+  }
+
+  private static Set<String> bookNames(final String[] names) {
+    final Set<String> book_names = new HashSet<>(names.length);
+    for (final String name : names) {
+      if (!BookDatabaseIndex.isIndexFile(name)) {
+        book_names.add(name);
+      }
+    }
+    return book_names;
   }
 
   private static void openAllBooks(
@@ -134,7 +349,9 @@ public final class BookDatabase implements BookDatabaseType {
       final AccountID account,
       final File directory,
       final BookMaps maps,
-      final List<Exception> errors) {
+      final List<Exception> errors,
+      final OptionType<ExecutorService> exec,
+      final OptionType<BookDatabaseIndex> index) {
 
     if (!directory.exists()) {
       directory.mkdirs();
@@ -144,13 +361,21 @@ public final class BookDatabase implements BookDatabaseType {
       errors.add(new IOException("Not a directory: " + directory));
     }
 
-    final String[] book_dirs = directory.list();
-    if (book_dirs != null) {
+    final String[] names = directory.list();
+    if (names != null) {
+      final Set<String> book_dirs = bookNames(names);
+      if (exec.isSome()) {
+        openAllBooksInParallel(
+            parser, serializer, account, directory, maps, errors, book_dirs,
+            ((Some<ExecutorService>) exec).get(), index);
+        return;
+      }
+
       for (final String book_id : book_dirs) {
         LOG.debug("opening book: {}/{}", directory, book_id);
         final File book_directory = new File(directory, book_id);
         final DatabaseEntry entry =
-            openOneEntry(parser, serializer, account, book_directory, maps, errors, book_id);
+            openOneEntry(parser, serializer, index, account, book_directory, maps, errors, book_id);
         if (entry == null) {
           continue;
         }
@@ -159,9 +384,59 @@ public final class BookDatabase implements BookDatabaseType {
     }
   }
 
+  private static void openAllBooksInParallel(
+      final OPDSJSONParserType parser,
+      final OPDSJSONSerializerType serializer,
+      final AccountID account,
+      final File directory,
+      final BookMaps maps,
+      final List<Exception> errors,
+      final Set<String> book_dirs,
+      final ExecutorService exec,
+      final OptionType<BookDatabaseIndex> index) {
+
+    final List<Exception> task_errors = Collections.synchronizedList(new ArrayList<>());
+    final List<Future<DatabaseEntry>> futures = new ArrayList<>(book_dirs.size());
+
+    for (final String book_id : book_dirs) {
+      final File book_directory = new File(directory, book_id);
+      futures.add(exec.submit(() -> {
+        LOG.debug("opening book: {}/{}", directory, book_id);
+        return openOneEntry(
+            parser, serializer, index, account, book_directory, maps, task_errors, book_id);
+      }));
+    }
+
+    /*
+     * Wait for every entry, even after a failure, so that all errors are reported together.
+     */
+
+    for (final Future<DatabaseEntry> future : futures) {
+      try {
+        final DatabaseEntry entry = future.get();
+        if (entry != null) {
+          maps.addEntry(entry);
+        }
+      } catch (final ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof Exception) {
+          errors.add((Exception) cause);
+        } else {
+          errors.add(e);
+        }
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        errors.add(e);
+      }
+    }
+
+    errors.addAll(task_errors);
+  }
+
   private static @Nullable DatabaseEntry openOneEntry(
       final OPDSJSONParserType parser,
       final OPDSJSONSerializerType serializer,
+      final OptionType<BookDatabaseIndex> index,
       final AccountID account_id,
       final File directory,
       final BookMaps maps,
@@ -193,7 +468,8 @@ public final class BookDatabase implements BookDatabaseType {
         book_builder.setCover(file_cover);
       }
 
-      return new DatabaseEntry(directory, serializer, book_builder.build(), () -> maps.delete(book_id));
+      return new DatabaseEntry(
+          directory, serializer, index, book_builder.build(), () -> maps.delete(book_id));
     } catch (final IOException e) {
       errors.add(e);
       return null;
@@ -235,6 +511,7 @@ public final class BookDatabase implements BookDatabaseType {
     synchronized (this.maps.maps_lock) {
       try {
         final File book_dir = new File(this.directory, id.value());
+        indexBegin(this.index, id);
         DirectoryUtilities.directoryCreate(book_dir);
 
         final File file_meta = new File(book_dir, "meta.json");
@@ -248,9 +525,11 @@ public final class BookDatabase implements BookDatabaseType {
 
         final Book.Builder book_builder = Book.builder(id, this.owner, feed_entry);
         final DatabaseEntry entry =
-            new DatabaseEntry(book_dir, this.serializer, book_builder.build(), () -> maps.delete(id));
+            new DatabaseEntry(
+                book_dir, this.serializer, this.index, book_builder.build(), () -> maps.delete(id));
 
         this.maps.addEntry(entry);
+        indexUpdate(this.index, id, feed_entry, book_dir);
         return entry;
       } catch (final IOException e) {
         throw new BookDatabaseException(e.getMessage(), Collections.singletonList(e));
@@ -273,11 +552,38 @@ public final class BookDatabase implements BookDatabaseType {
     }
   }
 
+  private static void indexBegin(
+      final OptionType<BookDatabaseIndex> index,
+      final BookID id) {
+    if (index.isSome()) {
+      ((Some<BookDatabaseIndex>) index).get().begin(id);
+    }
+  }
+
+  private static void indexUpdate(
+      final OptionType<BookDatabaseIndex> index,
+      final BookID id,
+      final OPDSAcquisitionFeedEntry entry,
+      final File book_dir) {
+    if (index.isSome()) {
+      ((Some<BookDatabaseIndex>) index).get().update(id, entry, book_dir);
+    }
+  }
+
+  private static void indexRemove(
+      final OptionType<BookDatabaseIndex> index,
+      final BookID id) {
+    if (index.isSome()) {
+      ((Some<BookDatabaseIndex>) index).get().remove(id);
+    }
+  }
+
   private static final class DatabaseEntry implements BookDatabaseEntryType {
 
     private final File book_dir;
     private final Object book_lock;
     private final OPDSJSONSerializerType serializer;
+    private final OptionType<BookDatabaseIndex> index;
     private final Runnable on_delete;
     private final BookID id;
     private @GuardedBy("book_lock") boolean deleted;
@@ -286,6 +592,7 @@ public final class BookDatabase implements BookDatabaseType {
     DatabaseEntry(
         final File book_dir,
         final OPDSJSONSerializerType serializer,
+        final OptionType<BookDatabaseIndex> index,
         final Book book,
         final Runnable on_delete) {
 
@@ -293,6 +600,8 @@ public final class BookDatabase implements BookDatabaseType {
           NullCheck.notNull(book_dir, "Book directory");
       this.serializer =
           NullCheck.notNull(serializer, "Serializer");
+      this.index =
+          NullCheck.notNull(index, "Index");
       this.book =
           NullCheck.notNull(book, "book");
       this.on_delete =
@@ -317,6 +626,7 @@ public final class BookDatabase implements BookDatabaseType {
 
       synchronized (this.book_lock) {
         Assertions.checkPrecondition(!this.deleted, "Entry must not have been deleted");
+        indexBegin(this.index, this.id);
 
         final File file_target =
             new File(this.book_dir, "book.epub");
@@ -325,12 +635,47 @@ public final class BookDatabase implements BookDatabaseType {
 
         try {
           DirectoryUtilities.directoryCreate(this.book_dir);
-          FileUtilities.fileCopy(file_source, file_target_tmp);
+          FileUtilities.fileCopy(file_source, file_target_tmp, FileSyncPolicy.FILE_SYNC_ONCE);
           FileUtilities.fileRename(file_target_tmp, file_target);
           this.book =
               this.book.toBuilder()
                   .setFile(file_target)
                   .build();
+          indexUpdate(this.index, this.id, this.book.entry(), this.book_dir);
+        } catch (final IOException e) {
+          throw new BookDatabaseException(e.getMessage(), Collections.singletonList(e));
+        } finally {
+          try {
+            FileUtilities.fileDelete(file_target_tmp);
+          } catch (final IOException ignored) {
+            LOG.error("could not delete temporary file: {}: ", file_target_tmp, ignored);
+          }
+        }
+      }
+    }
+
+    @Override
+    public void adoptEPUB(final File file_source) throws BookDatabaseException {
+      NullCheck.notNull(file_source, "File");
+
+      synchronized (this.book_lock) {
+        Assertions.checkPrecondition(!this.deleted, "Entry must not have been deleted");
+        indexBegin(this.index, this.id);
+
+        final File file_target =
+            new File(this.book_dir, "book.epub");
+        final File file_target_tmp =
+            new File(this.book_dir, "book.epub.tmp");
+
+        try {
+          DirectoryUtilities.directoryCreate(this.book_dir);
+          FileUtilities.fileMoveAtomically(
+              file_source, file_target, file_target_tmp, FileSyncPolicy.FILE_SYNC_ONCE);
+          this.book =
+              this.book.toBuilder()
+                  .setFile(file_target)
+                  .build();
+          indexUpdate(this.index, this.id, this.book.entry(), this.book_dir);
         } catch (final IOException e) {
           throw new BookDatabaseException(e.getMessage(), Collections.singletonList(e));
         } finally {
@@ -399,6 +744,7 @@ public final class BookDatabase implements BookDatabaseType {
 
       synchronized (this.book_lock) {
         Assertions.checkPrecondition(!this.deleted, "Entry must not have been deleted");
+        indexBegin(this.index, this.id);
 
         final File file_meta =
             new File(this.book_dir, "meta.json");
@@ -418,6 +764,7 @@ public final class BookDatabase implements BookDatabaseType {
               this.book.toBuilder()
                   .setEntry(opds_entry)
                   .build();
+          indexUpdate(this.index, this.id, opds_entry, this.book_dir);
         } catch (final IOException e) {
           throw new BookDatabaseException(e.getMessage(), Collections.singletonList(e));
         } finally {
@@ -434,9 +781,11 @@ public final class BookDatabase implements BookDatabaseType {
     public void delete() throws BookDatabaseException {
       synchronized (this.book_lock) {
         Assertions.checkPrecondition(!this.deleted, "Entry must not have been deleted");
+        indexBegin(this.index, this.id);
 
         try {
           DirectoryUtilities.directoryDelete(this.book_dir);
+          indexRemove(this.index, this.id);
           this.on_delete.run();
         } catch (final IOException e) {
           throw new BookDatabaseException(e.getMessage(), Collections.singletonList(e));
@@ -448,6 +797,7 @@ public final class BookDatabase implements BookDatabaseType {
     public void deleteEPUB() throws BookDatabaseException {
       synchronized (this.book_lock) {
         Assertions.checkPrecondition(!this.deleted, "Entry must not have been deleted");
+        indexBegin(this.index, this.id);
 
         final File file_target =
             new File(this.book_dir, "book.epub");
@@ -459,6 +809,7 @@ public final class BookDatabase implements BookDatabaseType {
               this.book.toBuilder()
                   .setFile(Option.none())
                   .build();
+          indexUpdate(this.index, this.id, this.book.entry(), this.book_dir);
         } catch (final IOException e) {
           throw new BookDatabaseException(e.getMessage(), Collections.singletonList(e));
         }
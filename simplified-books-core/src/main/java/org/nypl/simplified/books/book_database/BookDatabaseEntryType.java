@@ -28,6 +28,19 @@ public interface BookDatabaseEntryType {
   void writeEPUB(File file)
       throws BookDatabaseException;
 
+  /**
+   * Move the EPUB file at {@code file} into the database. The file is renamed
+   * into place if it is on the same filesystem as the database, and copied
+   * otherwise. In both cases, {@code file} no longer exists when this method
+   * returns successfully.
+   *
+   * @param file The source file
+   * @throws BookDatabaseException On errors
+   */
+
+  void adoptEPUB(File file)
+      throws BookDatabaseException;
+
   /**
    * Copy the Adobe Adept loan information into the database.
    *
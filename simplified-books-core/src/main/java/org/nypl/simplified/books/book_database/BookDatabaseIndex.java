@@ -0,0 +1,490 @@
+package org.nypl.simplified.books.book_database;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.io7m.jfunctional.Option;
+import com.io7m.jfunctional.OptionType;
+import com.io7m.jnull.NullCheck;
+
+import org.nypl.simplified.books.core.LogUtilities;
+import org.nypl.simplified.files.FileUtilities;
+import org.nypl.simplified.json.core.JSONMappers;
+import org.nypl.simplified.json.core.JSONParserUtilities;
+import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntry;
+import org.nypl.simplified.opds.core.OPDSJSONParserType;
+import org.nypl.simplified.opds.core.OPDSJSONSerializerType;
+import org.slf4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * <p>An append-only index of the entries in a book database.</p>
+ *
+ * <p>The index is a single file in the database directory holding one JSON record per line. Each
+ * change to a book appends a record holding the complete state of that book: the serialized OPDS
+ * entry, whether the book and cover files are present, and the modification time of the entry's
+ * {@code meta.json} file. Opening a database therefore requires a single sequential read of the
+ * index instead of opening and parsing a file in every book directory. A book whose
+ * {@code meta.json} no longer has the recorded modification time is read from its directory
+ * instead.</p>
+ *
+ * <p>The per-book directories remain authoritative. A change is preceded by a {@code begin} record
+ * for the book, so an index that ends with a change that was never completed (or that ends with a
+ * partially written line) is recognized as stale, and the database is rebuilt from the
+ * directories. Any failure to write to the index deletes it for the same reason.</p>
+ */
+
+final class BookDatabaseIndex {
+
+  private static final Logger LOG = LogUtilities.getLog(BookDatabaseIndex.class);
+
+  static final String FILE_NAME = "index.jsonl";
+  static final String FILE_NAME_TMP = "index.jsonl.tmp";
+
+  private static final int VERSION = 1;
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final String TYPE_HEADER = "header";
+  private static final String TYPE_BEGIN = "begin";
+  private static final String TYPE_ENTRY = "entry";
+  private static final String TYPE_REMOVED = "removed";
+  private static final String TYPE_IGNORED = "ignored";
+
+  private final File file;
+  private final File file_tmp;
+  private final OPDSJSONSerializerType serializer;
+  private final Object lock;
+  private @GuardedBy("lock") boolean broken;
+
+  /**
+   * The state of a single book, as recorded in the index.
+   */
+
+  static final class Record {
+    private final BookID id;
+    private final OPDSAcquisitionFeedEntry entry;
+    private final boolean has_book;
+    private final boolean has_cover;
+    private final long stamp;
+
+    Record(
+        final BookID id,
+        final OPDSAcquisitionFeedEntry entry,
+        final boolean has_book,
+        final boolean has_cover,
+        final long stamp) {
+      this.id = NullCheck.notNull(id, "ID");
+      this.entry = NullCheck.notNull(entry, "Entry");
+      this.has_book = has_book;
+      this.has_cover = has_cover;
+      this.stamp = stamp;
+    }
+
+    BookID id() {
+      return this.id;
+    }
+
+    OPDSAcquisitionFeedEntry entry() {
+      return this.entry;
+    }
+
+    boolean hasBook() {
+      return this.has_book;
+    }
+
+    boolean hasCover() {
+      return this.has_cover;
+    }
+
+    long stamp() {
+      return this.stamp;
+    }
+  }
+
+  /**
+   * The contents of an index that was read successfully.
+   */
+
+  static final class Contents {
+    private final SortedMap<BookID, Record> records;
+    private final Set<String> ignored;
+    private final int lines;
+
+    private Contents(
+        final SortedMap<BookID, Record> records,
+        final Set<String> ignored,
+        final int lines) {
+      this.records = NullCheck.notNull(records, "Records");
+      this.ignored = NullCheck.notNull(ignored, "Ignored");
+      this.lines = lines;
+    }
+
+    /**
+     * @return The most recent record of each book in the database
+     */
+
+    SortedMap<BookID, Record> records() {
+      return this.records;
+    }
+
+    /**
+     * @return The names of files in the database directory that are known not to be books
+     */
+
+    Set<String> ignored() {
+      return this.ignored;
+    }
+
+    /**
+     * @return The number of lines in the index, including superseded records
+     */
+
+    int lines() {
+      return this.lines;
+    }
+
+    /**
+     * @param names The names of the files in the database directory
+     * @return {@code true} iff the index accounts for exactly the given names
+     */
+
+    boolean matches(final Set<String> names) {
+      if (names.size() != this.records.size() + this.ignored.size()) {
+        return false;
+      }
+      for (final String name : names) {
+        if (this.ignored.contains(name)) {
+          continue;
+        }
+        try {
+          if (!this.records.containsKey(BookID.create(name))) {
+            return false;
+          }
+        } catch (final IllegalArgumentException e) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @return {@code true} iff enough records have been superseded that the index is worth
+     * rewriting
+     */
+
+    boolean wantsCompaction() {
+      return this.lines > 16 + (2 * (this.records.size() + this.ignored.size()));
+    }
+  }
+
+  BookDatabaseIndex(
+      final File directory,
+      final OPDSJSONSerializerType serializer) {
+    NullCheck.notNull(directory, "Directory");
+    this.file = new File(directory, FILE_NAME);
+    this.file_tmp = new File(directory, FILE_NAME_TMP);
+    this.serializer = NullCheck.notNull(serializer, "Serializer");
+    this.lock = new Object();
+    this.broken = false;
+  }
+
+  /**
+   * @param name The name of a file in a database directory
+   * @return {@code true} iff the file belongs to the index rather than to a book
+   */
+
+  static boolean isIndexFile(final String name) {
+    return FILE_NAME.equals(name) || FILE_NAME_TMP.equals(name);
+  }
+
+  /**
+   * Read the index.
+   *
+   * @param parser A JSON parser for OPDS entries
+   * @return The contents of the index, or nothing if the index is missing, unreadable, or ends
+   * with an incomplete change
+   */
+
+  OptionType<Contents> read(final OPDSJSONParserType parser) {
+    NullCheck.notNull(parser, "Parser");
+
+    synchronized (this.lock) {
+      if (!this.file.isFile()) {
+        return Option.none();
+      }
+
+      final SortedMap<BookID, Record> records = new TreeMap<>();
+      final Set<String> ignored = new HashSet<>();
+      final Set<BookID> pending = new HashSet<>();
+      int lines = 0;
+
+      try (BufferedReader reader =
+               new BufferedReader(new InputStreamReader(new FileInputStream(this.file), UTF8))) {
+
+        final ObjectNode header = JSONParserUtilities.checkObject(
+            null, JSONMappers.treeReader().readTree(NullCheck.notNull(reader.readLine(), "Header")));
+        if (!TYPE_HEADER.equals(JSONParserUtilities.getString(header, "type"))
+            || JSONParserUtilities.getInteger(header, "version") != VERSION) {
+          LOG.debug("index has an unsupported header: {}", this.file);
+          return Option.none();
+        }
+
+        while (true) {
+          final String line = reader.readLine();
+          if (line == null) {
+            break;
+          }
+
+          ++lines;
+          final ObjectNode node = JSONParserUtilities.checkObject(null, JSONMappers.treeReader().readTree(line));
+          final String type = JSONParserUtilities.getString(node, "type");
+          switch (type) {
+            case TYPE_BEGIN: {
+              pending.add(BookID.create(JSONParserUtilities.getString(node, "id")));
+              break;
+            }
+            case TYPE_ENTRY: {
+              final BookID id = BookID.create(JSONParserUtilities.getString(node, "id"));
+              records.put(id, new Record(
+                  id,
+                  parser.parseAcquisitionFeedEntry(JSONParserUtilities.getObject(node, "entry")),
+                  JSONParserUtilities.getBoolean(node, "book"),
+                  JSONParserUtilities.getBoolean(node, "cover"),
+                  JSONParserUtilities.getBigInteger(node, "stamp").longValue()));
+              pending.remove(id);
+              break;
+            }
+            case TYPE_REMOVED: {
+              final BookID id = BookID.create(JSONParserUtilities.getString(node, "id"));
+              records.remove(id);
+              pending.remove(id);
+              break;
+            }
+            case TYPE_IGNORED: {
+              ignored.add(JSONParserUtilities.getString(node, "name"));
+              break;
+            }
+            default: {
+              LOG.debug("index has an unrecognized record type {}: {}", type, this.file);
+              return Option.none();
+            }
+          }
+        }
+      } catch (final IOException | IllegalArgumentException | NullPointerException e) {
+        LOG.debug("index is unreadable: {}: ", this.file, e);
+        return Option.none();
+      }
+
+      if (!pending.isEmpty()) {
+        LOG.debug("index ends with {} incomplete changes: {}", pending.size(), this.file);
+        return Option.none();
+      }
+
+      return Option.some(new Contents(records, ignored, lines));
+    }
+  }
+
+  /**
+   * Replace the index with one that holds exactly the given records.
+   *
+   * @param records The current state of every book in the database
+   * @param ignored The names of files in the database directory that are not books
+   */
+
+  void rewrite(
+      final Collection<Record> records,
+      final Collection<String> ignored) {
+    NullCheck.notNull(records, "Records");
+    NullCheck.notNull(ignored, "Ignored");
+
+    synchronized (this.lock) {
+      try {
+        try (OutputStream stream = new FileOutputStream(this.file_tmp)) {
+          final Writer writer = new OutputStreamWriter(stream, UTF8);
+          this.writeLine(writer, this.header());
+          for (final String name : ignored) {
+            final ObjectNode node = JsonNodeFactory.instance.objectNode();
+            node.put("type", TYPE_IGNORED);
+            node.put("name", name);
+            this.writeLine(writer, node);
+          }
+          for (final Record record : records) {
+            this.writeLine(writer, this.entryRecord(record));
+          }
+          writer.flush();
+        }
+        FileUtilities.fileRename(this.file_tmp, this.file);
+        this.broken = false;
+      } catch (final IOException e) {
+        this.fail(e);
+      }
+    }
+  }
+
+  /**
+   * Record that a change to the given book is about to be made.
+   *
+   * @param id The book
+   */
+
+  void begin(final BookID id) {
+    NullCheck.notNull(id, "ID");
+
+    final ObjectNode node = JsonNodeFactory.instance.objectNode();
+    node.put("type", TYPE_BEGIN);
+    node.put("id", id.value());
+    this.append(Collections.singletonList(node));
+  }
+
+  /**
+   * Construct a record of the current state of the given book. The presence of the book and
+   * cover files is taken from the book directory, so that the record matches what opening the
+   * database from the book directories would produce.
+   *
+   * @param id       The book
+   * @param entry    The OPDS entry of the book
+   * @param book_dir The directory of the book
+   * @return A record of the book
+   */
+
+  static Record record(
+      final BookID id,
+      final OPDSAcquisitionFeedEntry entry,
+      final File book_dir) {
+    return new Record(
+        id,
+        entry,
+        new File(book_dir, "book.epub").isFile(),
+        new File(book_dir, "cover.jpg").isFile(),
+        new File(book_dir, "meta.json").lastModified());
+  }
+
+  /**
+   * Record the current state of the given book.
+   *
+   * @param id       The book
+   * @param entry    The OPDS entry of the book
+   * @param book_dir The directory of the book
+   */
+
+  void update(
+      final BookID id,
+      final OPDSAcquisitionFeedEntry entry,
+      final File book_dir) {
+    NullCheck.notNull(id, "ID");
+    NullCheck.notNull(entry, "Entry");
+    NullCheck.notNull(book_dir, "Directory");
+
+    try {
+      this.append(Collections.singletonList(this.entryRecord(record(id, entry, book_dir))));
+    } catch (final IOException e) {
+      synchronized (this.lock) {
+        this.fail(e);
+      }
+    }
+  }
+
+  /**
+   * Record that the given book has been removed.
+   *
+   * @param id The book
+   */
+
+  void remove(final BookID id) {
+    NullCheck.notNull(id, "ID");
+
+    final ObjectNode node = JsonNodeFactory.instance.objectNode();
+    node.put("type", TYPE_REMOVED);
+    node.put("id", id.value());
+    this.append(Collections.singletonList(node));
+  }
+
+  /**
+   * Delete the index. The next indexed open of the database will rebuild it.
+   */
+
+  void delete() {
+    synchronized (this.lock) {
+      this.file.delete();
+      this.file_tmp.delete();
+      this.broken = false;
+    }
+  }
+
+  private void append(final Collection<ObjectNode> nodes) {
+    synchronized (this.lock) {
+      if (this.broken) {
+        return;
+      }
+
+      /*
+       * A database that has been deleted and then written to again starts a new index.
+       */
+
+      final boolean fresh = !this.file.isFile();
+      try (OutputStream stream = new FileOutputStream(this.file, true)) {
+        final Writer writer = new OutputStreamWriter(stream, UTF8);
+        if (fresh) {
+          this.writeLine(writer, this.header());
+        }
+        for (final ObjectNode node : nodes) {
+          this.writeLine(writer, node);
+        }
+        writer.flush();
+      } catch (final IOException e) {
+        this.fail(e);
+      }
+    }
+  }
+
+  @GuardedBy("lock")
+  private void fail(final IOException e) {
+    LOG.error("could not write book database index, discarding it: {}: ", this.file, e);
+    this.file.delete();
+    this.file_tmp.delete();
+    this.broken = true;
+  }
+
+  private ObjectNode header() {
+    final ObjectNode node = JsonNodeFactory.instance.objectNode();
+    node.put("type", TYPE_HEADER);
+    node.put("version", VERSION);
+    return node;
+  }
+
+  private ObjectNode entryRecord(final Record record) throws IOException {
+    final ObjectNode node = JsonNodeFactory.instance.objectNode();
+    node.put("type", TYPE_ENTRY);
+    node.put("id", record.id().value());
+    node.put("book", record.hasBook());
+    node.put("cover", record.hasCover());
+    node.put("stamp", record.stamp());
+    node.set("entry", this.serializer.serializeFeedEntry(record.entry()));
+    return node;
+  }
+
+  private void writeLine(
+      final Writer writer,
+      final JsonNode node) throws IOException {
+    writer.write(JSONMappers.writer().writeValueAsString(node));
+    writer.write('\n');
+  }
+}
@@ -1,5 +1,10 @@
 package org.nypl.simplified.books.book_database;
 
+import com.io7m.jfunctional.Option;
+import com.io7m.jfunctional.OptionType;
+import com.io7m.jfunctional.Some;
+import com.io7m.jnull.NullCheck;
+
 import org.nypl.simplified.books.accounts.AccountID;
 import org.nypl.simplified.opds.core.OPDSJSONParser;
 import org.nypl.simplified.opds.core.OPDSJSONParserType;
@@ -7,17 +12,44 @@ import org.nypl.simplified.opds.core.OPDSJSONSerializer;
 import org.nypl.simplified.opds.core.OPDSJSONSerializerType;
 
 import java.io.File;
+import java.util.concurrent.ExecutorService;
 
 public final class BookDatabases implements BookDatabaseFactoryType {
 
-  private static final BookDatabases INSTANCE = new BookDatabases();
+  private static final BookDatabases INSTANCE = new BookDatabases(Option.none(), false);
+
+  private final OptionType<ExecutorService> exec;
+  private final boolean indexed;
 
   public static BookDatabases get() {
     return INSTANCE;
   }
 
-  private BookDatabases() {
+  /**
+   * @param exec An executor on which to parse database entries
+   * @return A factory that opens databases by parsing their entries in parallel on {@code exec}
+   * @see BookDatabase#openInParallel(OPDSJSONParserType, OPDSJSONSerializerType, AccountID, File, ExecutorService)
+   */
+
+  public static BookDatabases withExecutor(final ExecutorService exec) {
+    return new BookDatabases(Option.some(NullCheck.notNull(exec, "Executor")), false);
+  }
+
+  /**
+   * @return A factory that opens databases in the same manner as this factory, but that reads and
+   * maintains a per-database index file
+   * @see BookDatabase#openIndexed(OPDSJSONParserType, OPDSJSONSerializerType, AccountID, File, OptionType)
+   */
+
+  public BookDatabases withIndex() {
+    return new BookDatabases(this.exec, true);
+  }
 
+  private BookDatabases(
+      final OptionType<ExecutorService> exec,
+      final boolean indexed) {
+    this.exec = NullCheck.notNull(exec, "Executor");
+    this.indexed = indexed;
   }
 
   @Override
@@ -27,6 +59,13 @@ public final class BookDatabases implements BookDatabaseFactoryType {
       final AccountID owner,
       final File directory) throws BookDatabaseException {
 
+    if (this.indexed) {
+      return BookDatabase.openIndexed(parser, serializer, owner, directory, this.exec);
+    }
+    if (this.exec.isSome()) {
+      return BookDatabase.openInParallel(
+          parser, serializer, owner, directory, ((Some<ExecutorService>) this.exec).get());
+    }
     return BookDatabase.open(parser, serializer, owner, directory);
   }
 
@@ -35,7 +74,7 @@ public final class BookDatabases implements BookDatabaseFactoryType {
       final AccountID owner,
       final File directory) throws BookDatabaseException {
 
-    return BookDatabase.open(
+    return this.openDatabase(
         OPDSJSONParser.newParser(), OPDSJSONSerializer.newSerializer(), owner, directory);
   }
 }
@@ -3,10 +3,11 @@ package org.nypl.simplified.books.book_database;
 import com.io7m.jnull.NullCheck;
 import com.io7m.junreachable.UnreachableCodeException;
 
+import org.nypl.simplified.http.core.HTTPHashing;
 import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntry;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Functions to construct book IDs.
@@ -14,12 +15,31 @@ import java.security.NoSuchAlgorithmException;
 
 public final class BookIDs {
 
+  /**
+   * The maximum number of OPDS entry IDs for which book IDs are cached.
+   */
+
+  public static final int INTERN_CACHE_SIZE = 2048;
+
+  /*
+   * Feeds are loaded and reloaded repeatedly, and the same entries appear in many of them, so
+   * the book IDs of recently seen entries are kept rather than being hashed again.
+   */
+
+  private static final Map<String, BookID> INTERNED =
+      new LinkedHashMap<String, BookID>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, BookID> eldest) {
+          return this.size() > INTERN_CACHE_SIZE;
+        }
+      };
+
   private BookIDs() {
     throw new UnreachableCodeException();
   }
 
   /**
-   * Construct a book ID derived from the hash of the given text.
+   * Construct a book ID derived from the SHA-256 hash of the UTF-8 encoding of the given text.
    *
    * @param text The text
    * @return A new book ID
@@ -28,21 +48,42 @@ public final class BookIDs {
   public static BookID newFromText(
       final String text) {
 
-    try {
-      final MessageDigest md = MessageDigest.getInstance("SHA-256");
-      md.update(text.getBytes());
-      final byte[] dg = md.digest();
+    NullCheck.notNull(text, "Text");
+    return BookID.create(HTTPHashing.sha256Hex(text));
+  }
 
-      final StringBuilder b = new StringBuilder(64);
-      for (int index = 0; index < dg.length; ++index) {
-        final byte bb = dg[index];
-        b.append(String.format("%02x", bb));
+  /**
+   * Construct a book ID derived from the hash of the given text, returning a cached ID if the
+   * same text has been seen recently.
+   *
+   * @param text The text
+   * @return A book ID
+   * @see #newFromText(String)
+   * @see #INTERN_CACHE_SIZE
+   */
+
+  public static BookID newFromTextInterned(
+      final String text) {
+
+    NullCheck.notNull(text, "Text");
+
+    synchronized (INTERNED) {
+      final BookID existing = INTERNED.get(text);
+      if (existing != null) {
+        return existing;
       }
+    }
 
-      return BookID.create(b.toString());
-    } catch (final NoSuchAlgorithmException e) {
-      throw new IllegalStateException(e);
+    /*
+     * The hash is calculated outside of the lock; two threads may occasionally both calculate
+     * the ID of the same text, but the results are equal.
+     */
+
+    final BookID id = newFromText(text);
+    synchronized (INTERNED) {
+      INTERNED.put(text, id);
     }
+    return id;
   }
 
   /**
@@ -50,12 +91,12 @@ public final class BookIDs {
    *
    * @param e The entry
    *
-   * @return A new book ID
+   * @return A book ID
    */
 
   public static BookID newFromOPDSEntry(
       final OPDSAcquisitionFeedEntry e)
   {
-    return newFromText(NullCheck.notNull(e, "Entry").getID());
+    return newFromTextInterned(NullCheck.notNull(e, "Entry").getID());
   }
 }
@@ -0,0 +1,339 @@
+package org.nypl.simplified.books.book_registry;
+
+import com.io7m.jfunctional.OptionType;
+import com.io7m.jfunctional.Some;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+
+import org.nypl.simplified.books.book_database.BookID;
+import org.nypl.simplified.books.core.LogUtilities;
+import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntry;
+import org.nypl.simplified.opds.core.OPDSCategory;
+import org.slf4j.Logger;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * <p>An in-memory search index over the books in a book registry.</p>
+ *
+ * <p>The index holds the words of the title, authors, publisher, and categories of each book,
+ * case-folded and with accents removed, and keeps the books sorted by title and by author. It is
+ * updated incrementally as the registry publishes book status events, so searching and sorting
+ * the books of a profile requires neither scanning the text of every book nor sorting.</p>
+ */
+
+public final class BookRegistryIndex {
+
+  private static final Logger LOG = LogUtilities.getLog(BookRegistryIndex.class);
+
+  /**
+   * The orders in which search results may be returned.
+   */
+
+  public enum SortBy {
+
+    /**
+     * Sort books by their first author. Books without authors sort last.
+     */
+
+    SORT_BY_AUTHOR,
+
+    /**
+     * Sort books by title.
+     */
+
+    SORT_BY_TITLE
+  }
+
+  private static final Comparator<Record> BY_TITLE = (r0, r1) -> {
+    final int c = r0.title.compareTo(r1.title);
+    return c != 0 ? c : r0.id.compareTo(r1.id);
+  };
+
+  private static final Comparator<Record> BY_AUTHOR = (r0, r1) -> {
+    final String a0 = r0.author;
+    final String a1 = r1.author;
+    final int c;
+    if (a0 == null) {
+      c = a1 == null ? 0 : 1;
+    } else {
+      c = a1 == null ? -1 : a0.compareTo(a1);
+    }
+    return c != 0 ? c : r0.id.compareTo(r1.id);
+  };
+
+  private final BookRegistryReadableType registry;
+  private final Object lock;
+  private final @GuardedBy("lock") HashMap<BookID, Record> records;
+  private final @GuardedBy("lock") TreeMap<String, Set<BookID>> postings;
+  private final @GuardedBy("lock") TreeSet<Record> by_title;
+  private final @GuardedBy("lock") TreeSet<Record> by_author;
+
+  private BookRegistryIndex(
+      final BookRegistryReadableType in_registry) {
+
+    this.registry = NullCheck.notNull(in_registry, "Registry");
+    this.lock = new Object();
+    this.records = new HashMap<>(128);
+    this.postings = new TreeMap<>();
+    this.by_title = new TreeSet<>(BY_TITLE);
+    this.by_author = new TreeSet<>(BY_AUTHOR);
+  }
+
+  /**
+   * Create an index of the given registry. The index indexes the books currently in the registry,
+   * and then follows the changes published by the registry.
+   *
+   * @param registry The registry
+   * @return A new index
+   */
+
+  public static BookRegistryIndex create(
+      final BookRegistryReadableType registry) {
+
+    final BookRegistryIndex index = new BookRegistryIndex(registry);
+    registry.bookEvents().subscribe(index::onBookEvent);
+    for (final BookID id : registry.books().keySet()) {
+      index.reindex(id);
+    }
+    return index;
+  }
+
+  /**
+   * <p>Find the books that match any of the words of the given search text.</p>
+   *
+   * <p>A word matches a book if it is a prefix of any word of the title, authors, publisher, or
+   * categories of the book, ignoring case and accents. If no search text is given, or the text
+   * contains no words, all books match.</p>
+   *
+   * @param search The search text, if any
+   * @param sort   The order of the results
+   * @return The IDs of the matching books, in the given order
+   */
+
+  public List<BookID> search(
+      final OptionType<String> search,
+      final SortBy sort) {
+
+    NullCheck.notNull(search, "Search");
+    NullCheck.notNull(sort, "Sort");
+
+    final List<String> terms;
+    if (search.isSome()) {
+      terms = tokens(((Some<String>) search).get());
+    } else {
+      terms = Collections.emptyList();
+    }
+
+    synchronized (this.lock) {
+      final TreeSet<Record> view;
+      switch (sort) {
+        case SORT_BY_AUTHOR:
+          view = this.by_author;
+          break;
+        case SORT_BY_TITLE:
+          view = this.by_title;
+          break;
+        default:
+          throw new IllegalArgumentException("Unrecognized sort " + sort);
+      }
+
+      if (terms.isEmpty()) {
+        final List<BookID> results = new ArrayList<>(view.size());
+        for (final Record record : view) {
+          results.add(record.id);
+        }
+        return results;
+      }
+
+      final HashSet<BookID> matched = new HashSet<>();
+      for (final String term : terms) {
+        final Map<String, Set<BookID>> range =
+            this.postings.subMap(term, true, term + Character.MAX_VALUE, false);
+        for (final Set<BookID> ids : range.values()) {
+          matched.addAll(ids);
+        }
+      }
+
+      /*
+       * Walk whichever of the sorted view or the set of matches is smaller.
+       */
+
+      final List<BookID> results = new ArrayList<>(matched.size());
+      if (matched.size() * 4 < view.size()) {
+        final ArrayList<Record> matched_records = new ArrayList<>(matched.size());
+        for (final BookID id : matched) {
+          matched_records.add(NullCheck.notNull(this.records.get(id)));
+        }
+        Collections.sort(matched_records, view.comparator());
+        for (final Record record : matched_records) {
+          results.add(record.id);
+        }
+      } else {
+        for (final Record record : view) {
+          if (matched.contains(record.id)) {
+            results.add(record.id);
+          }
+        }
+      }
+      return results;
+    }
+  }
+
+  /**
+   * @return The number of indexed books
+   */
+
+  public int size() {
+    synchronized (this.lock) {
+      return this.records.size();
+    }
+  }
+
+  private void onBookEvent(final BookStatusEvent event) {
+    this.reindex(event.book());
+  }
+
+  /**
+   * Bring the index up to date with the current state of the given book in the registry. The
+   * registry is read with the lock held so that concurrent updates of the same book cannot be
+   * applied out of order.
+   */
+
+  private void reindex(final BookID id) {
+    synchronized (this.lock) {
+      final OptionType<BookWithStatus> book_opt = this.registry.book(id);
+      final Record existing = this.records.get(id);
+
+      if (book_opt.isSome()) {
+        final OPDSAcquisitionFeedEntry entry =
+            ((Some<BookWithStatus>) book_opt).get().book().entry();
+        if (existing != null) {
+          if (existing.entry == entry) {
+            return;
+          }
+          this.remove(existing);
+        }
+        this.add(new Record(id, entry));
+      } else if (existing != null) {
+        this.remove(existing);
+      }
+    }
+  }
+
+  @GuardedBy("lock")
+  private void add(final Record record) {
+    this.records.put(record.id, record);
+    this.by_title.add(record);
+    this.by_author.add(record);
+    for (final String token : record.tokens) {
+      Set<BookID> ids = this.postings.get(token);
+      if (ids == null) {
+        ids = new HashSet<>(4);
+        this.postings.put(token, ids);
+      }
+      ids.add(record.id);
+    }
+    LOG.trace("indexed {} ({} tokens)", record.id.brief(), record.tokens.size());
+  }
+
+  @GuardedBy("lock")
+  private void remove(final Record record) {
+    this.records.remove(record.id);
+    this.by_title.remove(record);
+    this.by_author.remove(record);
+    for (final String token : record.tokens) {
+      final Set<BookID> ids = this.postings.get(token);
+      if (ids != null) {
+        ids.remove(record.id);
+        if (ids.isEmpty()) {
+          this.postings.remove(token);
+        }
+      }
+    }
+  }
+
+  /**
+   * Split the given text into lowercase words, with accents and other combining marks removed.
+   * Any character that is not a letter or digit separates words.
+   *
+   * @param text The text
+   * @return The words of the text
+   */
+
+  static List<String> tokens(final String text) {
+    final String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+    final List<String> tokens = new ArrayList<>(8);
+    final StringBuilder current = new StringBuilder(16);
+
+    for (int index = 0; index < decomposed.length(); ++index) {
+      final char c = decomposed.charAt(index);
+      switch (Character.getType(c)) {
+        case Character.NON_SPACING_MARK:
+        case Character.COMBINING_SPACING_MARK:
+        case Character.ENCLOSING_MARK:
+          continue;
+        default:
+          break;
+      }
+
+      if (Character.isLetterOrDigit(c)) {
+        current.append(Character.toLowerCase(c));
+      } else if (current.length() > 0) {
+        tokens.add(current.toString());
+        current.setLength(0);
+      }
+    }
+
+    if (current.length() > 0) {
+      tokens.add(current.toString());
+    }
+    return tokens;
+  }
+
+  private static final class Record {
+
+    private final BookID id;
+    private final OPDSAcquisitionFeedEntry entry;
+    private final String title;
+    private final @Nullable String author;
+    private final HashSet<String> tokens;
+
+    Record(
+        final BookID in_id,
+        final OPDSAcquisitionFeedEntry in_entry) {
+
+      this.id = NullCheck.notNull(in_id, "ID");
+      this.entry = NullCheck.notNull(in_entry, "Entry");
+      this.title = in_entry.getTitle();
+
+      final List<String> authors = in_entry.getAuthors();
+      this.author = authors.isEmpty() ? null : authors.get(0);
+
+      this.tokens = new HashSet<>(16);
+      this.tokens.addAll(tokens(this.title));
+      for (final String a : authors) {
+        this.tokens.addAll(tokens(a));
+      }
+      final OptionType<String> publisher = in_entry.getPublisher();
+      if (publisher.isSome()) {
+        this.tokens.addAll(tokens(((Some<String>) publisher).get()));
+      }
+      for (final OPDSCategory category : in_entry.getCategories()) {
+        this.tokens.addAll(tokens(category.getEffectiveLabel()));
+      }
+    }
+  }
+}
@@ -0,0 +1,227 @@
+package org.nypl.simplified.books.book_registry;
+
+import com.google.common.collect.ImmutableList;
+import com.io7m.jfunctional.ProcedureType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+
+import org.nypl.simplified.books.book_database.BookID;
+import org.nypl.simplified.books.core.LogUtilities;
+import org.nypl.simplified.observable.ObservableReadableType;
+import org.nypl.simplified.observable.ObservableSubscriptionType;
+import org.slf4j.Logger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>The default implementation of the {@link BookStatusEventBusType} interface.</p>
+ *
+ * <p>The bus subscribes to a source of book status events (typically the book registry). The
+ * first event for a book schedules a delivery for that book at the end of the coalescing window,
+ * and any events that arrive for the same book before the delivery runs replace the pending
+ * event. Events for books that have no subscribers are discarded immediately.</p>
+ *
+ * <p>Events are delivered on the threads of the given executor.</p>
+ */
+
+public final class BookStatusEventBus implements BookStatusEventBusType {
+
+  private static final Logger LOG = LogUtilities.getLog(BookStatusEventBus.class);
+
+  /**
+   * A coalescing window of roughly one display frame.
+   */
+
+  public static final long FRAME_WINDOW_MILLISECONDS = 16L;
+
+  private final ScheduledExecutorService exec;
+  private final long window_nanos;
+  private final ConcurrentHashMap<BookID, BookStatusEvent> pending;
+  private final ConcurrentHashMap<BookID, ImmutableList<Subscription>> subscribers_by_book;
+  private final Object subscribers_lock;
+  private volatile ImmutableList<Subscription> subscribers_all;
+
+  private BookStatusEventBus(
+      final ScheduledExecutorService in_exec,
+      final long in_window_nanos) {
+
+    this.exec = NullCheck.notNull(in_exec, "Executor");
+    this.window_nanos = in_window_nanos;
+    this.pending = new ConcurrentHashMap<>();
+    this.subscribers_by_book = new ConcurrentHashMap<>();
+    this.subscribers_lock = new Object();
+    this.subscribers_all = ImmutableList.of();
+  }
+
+  /**
+   * Create a new bus that coalesces the events published by the given observable.
+   *
+   * @param events The source of events
+   * @param exec   An executor on which events will be delivered
+   * @param window The length of the coalescing window
+   * @param unit   The unit of {@code window}
+   * @return A new bus
+   */
+
+  public static BookStatusEventBusType create(
+      final ObservableReadableType<BookStatusEvent> events,
+      final ScheduledExecutorService exec,
+      final long window,
+      final TimeUnit unit) {
+
+    NullCheck.notNull(events, "Events");
+    NullCheck.notNull(unit, "Unit");
+
+    final BookStatusEventBus bus = new BookStatusEventBus(exec, unit.toNanos(window));
+    events.subscribe(bus::onEvent);
+    return bus;
+  }
+
+  @Override
+  public ObservableSubscriptionType<BookStatusEvent> subscribe(
+      final BookID book,
+      final ProcedureType<BookStatusEvent> receiver) {
+
+    NullCheck.notNull(book, "Book");
+    NullCheck.notNull(receiver, "Receiver");
+
+    final Subscription subscription = new Subscription(book, receiver);
+    synchronized (this.subscribers_lock) {
+      final ImmutableList<Subscription> current = this.subscribers_by_book.get(book);
+      final ImmutableList.Builder<Subscription> builder = ImmutableList.builder();
+      if (current != null) {
+        builder.addAll(current);
+      }
+      this.subscribers_by_book.put(book, builder.add(subscription).build());
+    }
+    return subscription;
+  }
+
+  @Override
+  public ObservableSubscriptionType<BookStatusEvent> subscribeAll(
+      final ProcedureType<BookStatusEvent> receiver) {
+
+    NullCheck.notNull(receiver, "Receiver");
+
+    final Subscription subscription = new Subscription(null, receiver);
+    synchronized (this.subscribers_lock) {
+      this.subscribers_all =
+          ImmutableList.<Subscription>builder()
+              .addAll(this.subscribers_all)
+              .add(subscription)
+              .build();
+    }
+    return subscription;
+  }
+
+  @Override
+  public int count() {
+    synchronized (this.subscribers_lock) {
+      int count = this.subscribers_all.size();
+      for (final ImmutableList<Subscription> subscriptions : this.subscribers_by_book.values()) {
+        count += subscriptions.size();
+      }
+      return count;
+    }
+  }
+
+  private void onEvent(final BookStatusEvent event) {
+    final BookID book = event.book();
+    if (this.subscribers_all.isEmpty() && !this.subscribers_by_book.containsKey(book)) {
+      return;
+    }
+
+    /*
+     * Only the event that starts a burst schedules a delivery. Later events in the same burst
+     * replace the pending event, and are picked up by the delivery that is already scheduled.
+     */
+
+    if (this.pending.put(book, event) == null) {
+      try {
+        this.exec.schedule(() -> this.deliver(book), this.window_nanos, TimeUnit.NANOSECONDS);
+      } catch (final RejectedExecutionException e) {
+        LOG.error("could not schedule delivery, delivering immediately: ", e);
+        this.deliver(book);
+      }
+    }
+  }
+
+  private void deliver(final BookID book) {
+    final BookStatusEvent event = this.pending.remove(book);
+    if (event == null) {
+      return;
+    }
+
+    final ImmutableList<Subscription> subscriptions = this.subscribers_by_book.get(book);
+    if (subscriptions != null) {
+      for (final Subscription subscription : subscriptions) {
+        subscription.deliver(event);
+      }
+    }
+    for (final Subscription subscription : this.subscribers_all) {
+      subscription.deliver(event);
+    }
+  }
+
+  private void unsubscribe(final Subscription subscription) {
+    synchronized (this.subscribers_lock) {
+      final BookID book = subscription.book;
+      if (book == null) {
+        this.subscribers_all = without(this.subscribers_all, subscription);
+        return;
+      }
+
+      final ImmutableList<Subscription> current = this.subscribers_by_book.get(book);
+      if (current != null) {
+        final ImmutableList<Subscription> remaining = without(current, subscription);
+        if (remaining.isEmpty()) {
+          this.subscribers_by_book.remove(book);
+        } else {
+          this.subscribers_by_book.put(book, remaining);
+        }
+      }
+    }
+  }
+
+  private static ImmutableList<Subscription> without(
+      final ImmutableList<Subscription> subscriptions,
+      final Subscription subscription) {
+
+    final ImmutableList.Builder<Subscription> builder = ImmutableList.builder();
+    for (final Subscription existing : subscriptions) {
+      if (existing != subscription) {
+        builder.add(existing);
+      }
+    }
+    return builder.build();
+  }
+
+  private final class Subscription implements ObservableSubscriptionType<BookStatusEvent> {
+
+    private final @Nullable BookID book;
+    private final ProcedureType<BookStatusEvent> receiver;
+
+    Subscription(
+        final @Nullable BookID in_book,
+        final ProcedureType<BookStatusEvent> in_receiver) {
+      this.book = in_book;
+      this.receiver = NullCheck.notNull(in_receiver, "Receiver");
+    }
+
+    void deliver(final BookStatusEvent event) {
+      try {
+        this.receiver.call(event);
+      } catch (final Exception e) {
+        LOG.error("subscriber raised exception: ", e);
+      }
+    }
+
+    @Override
+    public void unsubscribe() {
+      BookStatusEventBus.this.unsubscribe(this);
+    }
+  }
+}
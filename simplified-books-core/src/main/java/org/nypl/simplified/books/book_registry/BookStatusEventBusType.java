@@ -0,0 +1,46 @@
+package org.nypl.simplified.books.book_registry;
+
+import com.io7m.jfunctional.ProcedureType;
+
+import org.nypl.simplified.books.book_database.BookID;
+import org.nypl.simplified.observable.ObservableSubscriptionType;
+
+/**
+ * <p>A bus that delivers coalesced book status events.</p>
+ *
+ * <p>Events published for the same book in quick succession are coalesced, and subscribers
+ * receive only the most recent event for each book once the burst has ended. Subscribers
+ * are expected to fetch the current status of the book from the book registry upon receipt
+ * of an event.</p>
+ */
+
+public interface BookStatusEventBusType {
+
+  /**
+   * Subscribe to coalesced events for the given book.
+   *
+   * @param book     The book
+   * @param receiver The receiver method
+   * @return A subscription
+   */
+
+  ObservableSubscriptionType<BookStatusEvent> subscribe(
+      BookID book,
+      ProcedureType<BookStatusEvent> receiver);
+
+  /**
+   * Subscribe to coalesced events for all books.
+   *
+   * @param receiver The receiver method
+   * @return A subscription
+   */
+
+  ObservableSubscriptionType<BookStatusEvent> subscribeAll(
+      ProcedureType<BookStatusEvent> receiver);
+
+  /**
+   * @return The number of subscribers to the bus
+   */
+
+  int count();
+}
@@ -7,7 +7,6 @@ import com.io7m.jnull.NullCheck;
 import org.nypl.simplified.books.book_database.BookID;
 import org.nypl.simplified.rfc3339.core.RFC3339Formatter;
 
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 
 /**
@@ -117,7 +116,6 @@ public final class BookStatusHeld implements BookStatusType {
 
   @Override
   public String toString() {
-    final SimpleDateFormat fmt = RFC3339Formatter.newDateFormatter();
     final StringBuilder b = new StringBuilder(128);
     b.append("[BookStatusHeld ");
     b.append(this.id);
@@ -129,7 +127,7 @@ public final class BookStatusHeld implements BookStatusType {
             new FunctionType<Calendar, String>() {
               @Override
               public String call(final Calendar et) {
-                return fmt.format(et.getTime());
+                return RFC3339Formatter.formatRFC3339Date(et);
               }
             }));
     b.append(" ");
@@ -138,7 +136,7 @@ public final class BookStatusHeld implements BookStatusType {
             new FunctionType<Calendar, String>() {
               @Override
               public String call(final Calendar et) {
-                return fmt.format(et.getTime());
+                return RFC3339Formatter.formatRFC3339Date(et);
               }
             }));
     b.append(" revocable=");
@@ -7,7 +7,6 @@ import com.io7m.jnull.NullCheck;
 import org.nypl.simplified.books.book_database.BookID;
 import org.nypl.simplified.rfc3339.core.RFC3339Formatter;
 
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 
 /**
@@ -67,7 +66,6 @@ public final class BookStatusHeldReady implements BookStatusType
 
   @Override public String toString()
   {
-    final SimpleDateFormat fmt = RFC3339Formatter.newDateFormatter();
     final StringBuilder b = new StringBuilder(128);
     b.append("[BookStatusHeldReady ");
     b.append(this.id);
@@ -78,7 +76,7 @@ public final class BookStatusHeldReady implements BookStatusType
         {
           @Override public String call(final Calendar et)
           {
-            return fmt.format(et.getTime());
+            return RFC3339Formatter.formatRFC3339Date(et);
           }
         }));
     b.append(" revocable=");
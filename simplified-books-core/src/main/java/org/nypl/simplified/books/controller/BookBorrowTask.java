@@ -50,6 +50,7 @@ import org.nypl.simplified.books.feeds.FeedType;
 import org.nypl.simplified.books.feeds.FeedWithGroups;
 import org.nypl.simplified.books.feeds.FeedWithoutGroups;
 import org.nypl.simplified.downloader.core.DownloadListenerType;
+import org.nypl.simplified.downloader.core.DownloadPriority;
 import org.nypl.simplified.downloader.core.DownloadType;
 import org.nypl.simplified.downloader.core.DownloaderType;
 import org.nypl.simplified.files.FileUtilities;
@@ -317,7 +318,23 @@ final class BookBorrowTask implements Callable<Unit> {
      * downloading by passing them to the Adobe DRM connector.
      */
 
-    return this.downloader.download(acquisition.getURI(), auth, new FulfillmentListener(this));
+    return this.downloader.download(
+        acquisition.getURI(),
+        auth,
+        this.downloadPriority(),
+        new FulfillmentListener(this));
+  }
+
+  /**
+   * A book that was already on loan when the task started is being downloaded again, so the
+   * download yields to the downloads of books that are being borrowed now.
+   */
+
+  private DownloadPriority downloadPriority() {
+    if (this.entry.getAvailability() instanceof OPDSAvailabilityLoaned) {
+      return DownloadPriority.DOWNLOAD_PRIORITY_BACKGROUND;
+    }
+    return DownloadPriority.DOWNLOAD_PRIORITY_USER_INITIATED;
   }
 
   private void runAcquisitionBorrowGotOPDSEntry(
@@ -548,7 +565,7 @@ final class BookBorrowTask implements Callable<Unit> {
       final OptionType<AdobeAdeptLoan> loan_opt)
       throws BookDatabaseException {
 
-    this.database_entry.writeEPUB(file);
+    this.database_entry.adoptEPUB(file);
     loan_opt.mapPartial_(loan -> this.database_entry.writeAdobeLoan(loan));
   }
 
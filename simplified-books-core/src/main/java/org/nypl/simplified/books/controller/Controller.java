@@ -27,11 +27,13 @@ import org.nypl.simplified.books.accounts.AccountType;
 import org.nypl.simplified.books.accounts.AccountsDatabaseNonexistentException;
 import org.nypl.simplified.books.analytics.AnalyticsLogger;
 import org.nypl.simplified.books.book_database.BookID;
+import org.nypl.simplified.books.book_registry.BookRegistryIndex;
 import org.nypl.simplified.books.book_registry.BookRegistryType;
 import org.nypl.simplified.books.book_registry.BookWithStatus;
 import org.nypl.simplified.books.bundled_content.BundledContentResolverType;
 import org.nypl.simplified.books.feeds.FeedLoaderType;
 import org.nypl.simplified.books.feeds.FeedWithoutGroups;
+import org.nypl.simplified.books.idle_timer.ProfileIdleTimedOut;
 import org.nypl.simplified.books.idle_timer.ProfileIdleTimer;
 import org.nypl.simplified.books.idle_timer.ProfileIdleTimerType;
 import org.nypl.simplified.books.profiles.ProfileAccountSelectEvent;
@@ -60,6 +62,7 @@ import org.nypl.simplified.opds.core.OPDSFeedParserType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.SortedMap;
@@ -78,6 +81,7 @@ public final class Controller implements BooksControllerType, ProfilesController
   private final ProfilesDatabaseType profiles;
   private final AnalyticsLogger analytics_logger;
   private final BookRegistryType book_registry;
+  private final BookRegistryIndex book_index;
   private final ObservableType<ProfileEvent> profile_events;
   private final BundledContentResolverType bundled_content;
   private final FunctionType<Unit, AccountProviderCollection> account_providers;
@@ -120,6 +124,8 @@ public final class Controller implements BooksControllerType, ProfilesController
         NullCheck.notNull(in_analytics_logger, "Analytics");
     this.book_registry =
         NullCheck.notNull(in_book_registry, "Book Registry");
+    this.book_index =
+        BookRegistryIndex.create(this.book_registry);
     this.bundled_content =
         NullCheck.notNull(in_bundled_content, "Bundled content");
     this.account_providers =
@@ -141,6 +147,30 @@ public final class Controller implements BooksControllerType, ProfilesController
       onProfileEventSelected((ProfileSelected) e);
       return;
     }
+    if (e instanceof ProfileIdleTimedOut) {
+      onProfileEventIdleTimedOut();
+      return;
+    }
+  }
+
+  /**
+   * Make any deferred writes to the current profile before the application logs it out.
+   */
+
+  private void onProfileEventIdleTimedOut() {
+    LOG.debug("onProfileEventIdleTimedOut");
+
+    final OptionType<ProfileType> profile_opt = this.profiles.currentProfile();
+    if (profile_opt.isSome()) {
+      final ProfileType profile = ((Some<ProfileType>) profile_opt).get();
+      this.task_executor.execute(() -> {
+        try {
+          profile.preferencesFlush();
+        } catch (final IOException ex) {
+          LOG.error("could not write preferences for idle profile: ", ex);
+        }
+      });
+    }
   }
 
   private void onProfileEventSelected(final ProfileSelected ev) {
@@ -420,7 +450,8 @@ public final class Controller implements BooksControllerType, ProfilesController
       throws ProfileNoneCurrentException {
 
     NullCheck.notNull(request, "Request");
-    return this.task_executor.submit(new ProfileFeedTask(this.book_registry, request));
+    return this.task_executor.submit(
+        new ProfileFeedTask(this.book_registry, this.book_index, request));
   }
 
   @Override
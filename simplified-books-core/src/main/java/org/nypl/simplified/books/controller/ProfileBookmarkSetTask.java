@@ -5,7 +5,6 @@ import com.io7m.jnull.NullCheck;
 
 import org.nypl.simplified.books.book_database.BookID;
 import org.nypl.simplified.books.profiles.ProfileEvent;
-import org.nypl.simplified.books.profiles.ProfilePreferences;
 import org.nypl.simplified.books.profiles.ProfilePreferencesChanged;
 import org.nypl.simplified.books.profiles.ProfileType;
 import org.nypl.simplified.books.reader.ReaderBookLocation;
@@ -47,11 +46,7 @@ final class ProfileBookmarkSetTask implements Callable<Unit> {
     try {
       LOG.debug("[{}] saving bookmark {}", this.book_id.brief(), this.new_location);
 
-      final ProfilePreferences preferences = profile.preferences();
-
-      this.profile.preferencesUpdate(
-          preferences.withReaderBookmarks(
-              preferences.readerBookmarks().withBookmark(book_id, new_location)));
+      this.profile.bookmarkSet(this.book_id, this.new_location);
 
       this.events.send(ProfilePreferencesChanged.builder()
           .setChangedReaderBookmarks(true)
@@ -1,13 +1,13 @@
 package org.nypl.simplified.books.controller;
 
-import com.io7m.jfunctional.None;
 import com.io7m.jfunctional.Option;
 import com.io7m.jfunctional.OptionType;
-import com.io7m.jfunctional.OptionVisitorType;
 import com.io7m.jfunctional.Some;
 import com.io7m.jnull.NullCheck;
 import com.io7m.junreachable.UnreachableCodeException;
 
+import org.nypl.simplified.books.book_database.BookID;
+import org.nypl.simplified.books.book_registry.BookRegistryIndex;
 import org.nypl.simplified.books.book_registry.BookRegistryReadableType;
 import org.nypl.simplified.books.book_registry.BookStatusHeld;
 import org.nypl.simplified.books.book_registry.BookStatusHeldReady;
@@ -25,15 +25,12 @@ import org.nypl.simplified.books.feeds.FeedFacetPseudo;
 import org.nypl.simplified.books.feeds.FeedFacetType;
 import org.nypl.simplified.books.feeds.FeedSearchLocal;
 import org.nypl.simplified.books.feeds.FeedWithoutGroups;
-import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
 
@@ -43,15 +40,19 @@ final class ProfileFeedTask implements Callable<FeedWithoutGroups> {
 
   private final ProfileFeedRequest request;
   private final BookRegistryReadableType book_registry;
+  private final BookRegistryIndex book_index;
 
   ProfileFeedTask(
       final BookRegistryReadableType book_registry,
+      final BookRegistryIndex book_index,
       final ProfileFeedRequest request) {
 
     this.request =
         NullCheck.notNull(request, "Request");
     this.book_registry =
         NullCheck.notNull(book_registry, "Book registry");
+    this.book_index =
+        NullCheck.notNull(book_index, "Book index");
   }
 
   private static void facets(
@@ -101,17 +102,22 @@ final class ProfileFeedTask implements Callable<FeedWithoutGroups> {
             Option.none());
 
     try {
-      final ArrayList<BookWithStatus> books =
-          collectAllBooks(this.book_registry);
       final BookStatusMatcherType<Boolean, UnreachableCodeException> filter =
           selectFeedFilter(this.request);
 
-      filterBooks(filter, books);
-      searchBooks(this.request.search(), books);
-      sortBooks(this.request.facetActive(), books);
-
-      for (final BookWithStatus book : books) {
-        feed.add(FeedEntryOPDS.fromOPDSAcquisitionFeedEntry(book.book().entry()));
+      /*
+       * The index returns the matching books already sorted; the status of each book is then
+       * checked against the current state of the registry.
+       */
+
+      for (final BookID id : searchBooks(this.book_index, this.request)) {
+        final OptionType<BookWithStatus> book_opt = this.book_registry.book(id);
+        if (book_opt.isSome()) {
+          final BookWithStatus book = ((Some<BookWithStatus>) book_opt).get();
+          if (book.status().matchBookStatus(filter)) {
+            feed.add(FeedEntryOPDS.fromOPDSAcquisitionFeedEntry(book.book().entry()));
+          }
+        }
       }
 
       return feed;
@@ -121,146 +127,22 @@ final class ProfileFeedTask implements Callable<FeedWithoutGroups> {
   }
 
   /**
-   * @return {@code true} if any of the given search terms match the given book, or the list of
-   * search terms is empty
-   */
-
-  private static boolean searchMatches(
-      final List<String> terms_upper,
-      final BookWithStatus book) {
-
-    if (terms_upper.isEmpty()) {
-      return true;
-    }
-
-    for (int index = 0; index < terms_upper.size(); ++index) {
-      final String term_upper = terms_upper.get(index);
-      final OPDSAcquisitionFeedEntry ee = book.book().entry();
-      final String e_title = ee.getTitle().toUpperCase();
-      if (e_title.contains(term_upper)) {
-        return true;
-      }
-
-      final List<String> authors = ee.getAuthors();
-      for (final String a : authors) {
-        if (a.toUpperCase().contains(term_upper)) {
-          return true;
-        }
-      }
-    }
-
-    return false;
-  }
-
-  /**
-   * Filter the given books by the given search terms.
-   */
-
-  private void searchBooks(
-      final OptionType<String> search,
-      final ArrayList<BookWithStatus> books) {
-
-    final List<String> terms_upper = searchTermsSplitUpper(search);
-    final Iterator<BookWithStatus> iter = books.iterator();
-    while (iter.hasNext()) {
-      final BookWithStatus book = iter.next();
-      if (!searchMatches(terms_upper, book)) {
-        iter.remove();
-      }
-    }
-  }
-
-  /**
-   * Split the given search string into a list of uppercase search terms.
-   */
-
-  private List<String> searchTermsSplitUpper(final OptionType<String> search) {
-    return search.accept(new OptionVisitorType<String, List<String>>() {
-      @Override
-      public List<String> none(final None<String> none) {
-        return Collections.emptyList();
-      }
-
-      @Override
-      public List<String> some(final Some<String> some) {
-        final String[] terms = some.get().split("\\s+");
-        final List<String> terms_upper = new ArrayList<String>(8);
-        for (final String term : terms) {
-          terms_upper.add(term.toUpperCase());
-        }
-        return terms_upper;
-      }
-    });
-  }
-
-  /**
-   * Sort the list of books by the given facet.
+   * @return The books of the registry that match the search terms of the request, in the order
+   * of the active facet
    */
 
-  private void sortBooks(
-      final FeedFacetPseudo.FacetType facet,
-      final ArrayList<BookWithStatus> books) {
+  private static List<BookID> searchBooks(
+      final BookRegistryIndex index,
+      final ProfileFeedRequest request) {
 
-    switch (facet) {
+    switch (request.facetActive()) {
       case SORT_BY_AUTHOR:
-        sortBooksByAuthor(books);
-        break;
+        return index.search(request.search(), BookRegistryIndex.SortBy.SORT_BY_AUTHOR);
       case SORT_BY_TITLE:
-        sortBooksByTitle(books);
-        break;
-    }
-  }
-
-  private void sortBooksByTitle(final ArrayList<BookWithStatus> books) {
-    Collections.sort(books, (book0, book1) -> {
-      final OPDSAcquisitionFeedEntry entry0 = book0.book().entry();
-      final OPDSAcquisitionFeedEntry entry1 = book1.book().entry();
-      return entry0.getTitle().compareTo(entry1.getTitle());
-    });
-  }
-
-  private void sortBooksByAuthor(final ArrayList<BookWithStatus> books) {
-    Collections.sort(books, (book0, book1) -> {
-      final OPDSAcquisitionFeedEntry entry0 = book0.book().entry();
-      final OPDSAcquisitionFeedEntry entry1 = book1.book().entry();
-      final List<String> authors1 = entry0.getAuthors();
-      final List<String> authors2 = entry1.getAuthors();
-      final boolean e0 = authors1.isEmpty();
-      final boolean e1 = authors2.isEmpty();
-      if (e0 && e1) {
-        return 0;
-      }
-      if (e0) {
-        return 1;
-      }
-      if (e1) {
-        return -1;
-      }
-      final String author1 = NullCheck.notNull(authors1.get(0));
-      final String author2 = NullCheck.notNull(authors2.get(0));
-      return author1.compareTo(author2);
-    });
-  }
-
-  /**
-   * Filter the list of books with the given filter.
-   */
-
-  private void filterBooks(
-      final BookStatusMatcherType<Boolean, UnreachableCodeException> filter,
-      final ArrayList<BookWithStatus> books) {
-
-    final Iterator<BookWithStatus> iter = books.iterator();
-    while (iter.hasNext()) {
-      final BookWithStatus book = iter.next();
-      if (!book.status().matchBookStatus(filter)) {
-        iter.remove();
-      }
+        return index.search(request.search(), BookRegistryIndex.SortBy.SORT_BY_TITLE);
     }
-  }
 
-  private ArrayList<BookWithStatus> collectAllBooks(final BookRegistryReadableType book_registry) {
-    return new ArrayList<>(book_registry.books().values());
+    throw new UnreachableCodeException();
   }
 
   private static BookStatusMatcherType<Boolean, UnreachableCodeException> selectFeedFilter(
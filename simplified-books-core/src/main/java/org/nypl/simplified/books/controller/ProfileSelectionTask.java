@@ -4,6 +4,7 @@ import com.io7m.jfunctional.Unit;
 import com.io7m.jnull.NullCheck;
 
 import org.nypl.simplified.books.profiles.ProfileAnonymousEnabledException;
+import org.nypl.simplified.books.profiles.ProfileDatabaseAccountsException;
 import org.nypl.simplified.books.profiles.ProfileEvent;
 import org.nypl.simplified.books.profiles.ProfileID;
 import org.nypl.simplified.books.profiles.ProfileNonexistentException;
@@ -33,7 +34,10 @@ final class ProfileSelectionTask implements Callable<Unit> {
   }
 
   @Override
-  public Unit call() throws ProfileNonexistentException, ProfileAnonymousEnabledException {
+  public Unit call()
+      throws ProfileNonexistentException,
+      ProfileAnonymousEnabledException,
+      ProfileDatabaseAccountsException {
     this.profiles.setProfileCurrent(this.profile_id);
     this.profile_events.send(ProfileSelected.of());
     return Unit.unit();
@@ -1,7 +1,5 @@
 package org.nypl.simplified.books.core;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.io7m.jfunctional.Option;
 import com.io7m.jfunctional.OptionType;
@@ -17,6 +15,7 @@ import org.nypl.simplified.http.core.HTTPResultException;
 import org.nypl.simplified.http.core.HTTPResultMatcherType;
 import org.nypl.simplified.http.core.HTTPResultOKType;
 import org.nypl.simplified.http.core.HTTPType;
+import org.nypl.simplified.json.core.JSONMappers;
 import org.nypl.simplified.json.core.JSONParserUtilities;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -89,9 +88,8 @@ public abstract class SyncedDocumentAbstract implements SyncedDocumentType
     throws IOException
   {
     NullCheck.notNull(meta);
-    final ObjectMapper jom = new ObjectMapper();
     final ObjectNode o =
-      JSONParserUtilities.checkObject(null, jom.readTree(meta));
+      JSONParserUtilities.checkObject(null, JSONMappers.mapper().readTree(meta));
     final URI uri = JSONParserUtilities.getURI(o, "url");
     final Long latest =
       JSONParserUtilities.getBigInteger(o, "last-fetch").longValue();
@@ -262,14 +260,12 @@ public abstract class SyncedDocumentAbstract implements SyncedDocumentType
     final long now)
     throws IOException
   {
-    final ObjectMapper jom = new ObjectMapper();
-    final ObjectNode o = jom.createObjectNode();
+    final ObjectNode o = JSONMappers.createObjectNode();
     o.put("url", u.toString());
     o.put("last-fetch", now);
 
     final ByteArrayOutputStream bao = new ByteArrayOutputStream();
-    final ObjectWriter jw = jom.writerWithDefaultPrettyPrinter();
-    jw.writeValue(bao, o);
+    JSONMappers.prettyWriter().writeValue(bao, o);
 
     FileUtilities.fileWriteBytesAtomically(
       this.meta, this.meta_tmp, bao.toByteArray());
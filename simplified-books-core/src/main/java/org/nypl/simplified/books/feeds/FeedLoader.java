@@ -28,10 +28,15 @@ import org.nypl.simplified.books.bundled_content.BundledURIs;
 import org.nypl.simplified.books.core.LogUtilities;
 import org.nypl.simplified.http.core.HTTPAuthType;
 import org.nypl.simplified.opds.core.OPDSAcquisitionFeed;
+import org.nypl.simplified.opds.core.OPDSAcquisitionFeedBuilderType;
+import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntry;
+import org.nypl.simplified.opds.core.OPDSFeedParserListenerType;
 import org.nypl.simplified.opds.core.OPDSFeedParserType;
+import org.nypl.simplified.opds.core.OPDSFeedStreamingParserType;
 import org.nypl.simplified.opds.core.OPDSFeedTransportException;
 import org.nypl.simplified.opds.core.OPDSFeedTransportType;
 import org.nypl.simplified.opds.core.OPDSOpenSearch1_1;
+import org.nypl.simplified.opds.core.OPDSParseException;
 import org.nypl.simplified.opds.core.OPDSSearchLink;
 import org.nypl.simplified.opds.core.OPDSSearchParserType;
 import org.slf4j.Logger;
@@ -40,7 +45,15 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -50,8 +63,10 @@ import java.util.concurrent.atomic.AtomicReference;
 /**
  * The default implementation of the {@link FeedLoaderType} interface.
  * <p>
- * This implementation caches feeds. A feed is ejected from the cache if it has
- * not been accessed for five minutes.
+ * This implementation caches feeds according to a {@link FeedLoaderConfiguration}.
+ * Stale feeds are delivered immediately and are refreshed on the feed executor;
+ * the listener that requested a stale feed is notified again if the refreshed
+ * feed differs from the stale one.
  */
 
 public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI, FeedType> {
@@ -62,6 +77,9 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
   }
 
   private final ExpiringMap<URI, FeedType> cache;
+  private final ConcurrentHashMap<URI, CachedFeedStamp> cache_stamps;
+  private final Set<URI> refreshing;
+  private final long soft_ttl_nanos;
   private final ListeningExecutorService exec;
   private final OPDSFeedParserType parser;
   private final OPDSSearchParserType search_parser;
@@ -76,7 +94,8 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
       final OPDSFeedParserType in_parser,
       final OPDSFeedTransportType<OptionType<HTTPAuthType>> in_transport,
       final OPDSSearchParserType in_search_parser,
-      final ExpiringMap<URI, FeedType> in_m) {
+      final ExpiringMap<URI, FeedType> in_m,
+      final long in_soft_ttl_nanos) {
 
     this.exec =
         MoreExecutors.listeningDecorator(NullCheck.notNull(in_exec));
@@ -92,12 +111,18 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
         NullCheck.notNull(in_transport);
     this.cache =
         NullCheck.notNull(in_m);
+    this.cache_stamps =
+        new ConcurrentHashMap<>();
+    this.refreshing =
+        Collections.newSetFromMap(new ConcurrentHashMap<>());
+    this.soft_ttl_nanos =
+        in_soft_ttl_nanos;
 
     this.cache.addExpirationListener(this);
   }
 
   /**
-   * Construct a new feed loader.
+   * Construct a new feed loader with the default configuration.
    *
    * @param in_exec            An executor
    * @param in_book_registry   A book registry
@@ -106,6 +131,7 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
    * @param in_transport       A feed transport
    * @param in_search_parser   A search document parser
    * @return A new feed loader
+   * @see FeedLoaderConfiguration#builder()
    */
 
   public static FeedLoaderType newFeedLoader(
@@ -115,23 +141,70 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
       final OPDSFeedParserType in_parser,
       final OPDSFeedTransportType<OptionType<HTTPAuthType>> in_transport,
       final OPDSSearchParserType in_search_parser) {
+    return FeedLoader.newFeedLoader(
+        in_exec,
+        in_book_registry,
+        in_bundled_content,
+        in_parser,
+        in_transport,
+        in_search_parser,
+        FeedLoaderConfiguration.builder().build());
+  }
+
+  /**
+   * Construct a new feed loader.
+   *
+   * @param in_exec            An executor
+   * @param in_book_registry   A book registry
+   * @param in_bundled_content A resolver for bundled content
+   * @param in_parser          A feed parser
+   * @param in_transport       A feed transport
+   * @param in_search_parser   A search document parser
+   * @param in_configuration   The caching policy
+   * @return A new feed loader
+   */
+
+  public static FeedLoaderType newFeedLoader(
+      final ExecutorService in_exec,
+      final BookRegistryReadableType in_book_registry,
+      final BundledContentResolverType in_bundled_content,
+      final OPDSFeedParserType in_parser,
+      final OPDSFeedTransportType<OptionType<HTTPAuthType>> in_transport,
+      final OPDSSearchParserType in_search_parser,
+      final FeedLoaderConfiguration in_configuration) {
+
+    NullCheck.notNull(in_configuration, "Configuration");
+    Assertions.checkPrecondition(
+        in_configuration.softTTLMilliseconds() > 0L, "Soft TTL must be positive");
+    Assertions.checkPrecondition(
+        in_configuration.hardTTLMilliseconds() > 0L, "Hard TTL must be positive");
 
     final Builder<Object, Object> b = ExpiringMap.builder();
     b.expirationPolicy(ExpirationPolicy.CREATED);
-    b.expiration(5L, TimeUnit.MINUTES);
-    final ExpiringMap<URI, FeedType> m = b.build();
-    return FeedLoader.newFeedLoaderFromExpiringMap(
+    b.expiration(in_configuration.hardTTLMilliseconds(), TimeUnit.MILLISECONDS);
+    final ExpiringMap<URI, FeedType> m = NullCheck.notNull(b.build(), "Map");
+
+    final long soft_ttl_nanos;
+    if (in_configuration.staleWhileRevalidate()) {
+      soft_ttl_nanos = TimeUnit.MILLISECONDS.toNanos(in_configuration.softTTLMilliseconds());
+    } else {
+      soft_ttl_nanos = Long.MAX_VALUE;
+    }
+
+    return new FeedLoader(
         in_exec,
         in_book_registry,
         in_bundled_content,
         in_parser,
         in_transport,
         in_search_parser,
-        NullCheck.notNull(m, "Map"));
+        m,
+        soft_ttl_nanos);
   }
 
   /**
-   * Construct a feed loader from an existing map.
+   * Construct a feed loader from an existing map. Feeds are cached for as
+   * long as the map retains them, and are never delivered stale.
    *
    * @param in_exec          An executor
    * @param in_book_registry A book registry
@@ -152,7 +225,14 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
       final ExpiringMap<URI, FeedType> m) {
 
     return new FeedLoader(
-        in_exec, in_book_registry, in_bundled_content, in_parser, in_transport, in_search_parser, m);
+        in_exec,
+        in_book_registry,
+        in_bundled_content,
+        in_parser,
+        in_transport,
+        in_search_parser,
+        m,
+        Long.MAX_VALUE);
   }
 
   private static void updateFeedFromBookRegistry(
@@ -170,14 +250,7 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
               final FeedGroup group = feed_with_groups.get(index);
               final List<FeedEntryType> entries = group.getGroupEntries();
               for (int gi = 0; gi < entries.size(); ++gi) {
-                final FeedEntryType e = entries.get(gi);
-                final BookID id = e.getBookID();
-                final BookWithStatus book_with_status = registry.books().get(id);
-                if (book_with_status != null) {
-                  LOG.debug("updating entry {} from book registry", id);
-                  entries.set(gi, FeedEntryOPDS.fromOPDSAcquisitionFeedEntry(
-                      book_with_status.book().entry()));
-                }
+                entries.set(gi, updateEntryFromBookRegistry(registry, entries.get(gi)));
               }
             }
             return Unit.unit();
@@ -189,15 +262,8 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
             LOG.debug("updating {} entries (without groups) from book registry", size);
 
             for (int index = 0; index < size; ++index) {
-              final FeedEntryType e = feed_without_groups.get(index);
-              final BookID id = e.getBookID();
-              final BookWithStatus book_with_status = registry.books().get(id);
-              if (book_with_status != null) {
-                LOG.debug("updating entry {} from book registry", id);
-                final FeedEntryType en =
-                    FeedEntryOPDS.fromOPDSAcquisitionFeedEntry(book_with_status.book().entry());
-                feed_without_groups.set(index, en);
-              }
+              feed_without_groups.set(
+                  index, updateEntryFromBookRegistry(registry, feed_without_groups.get(index)));
             }
 
             return Unit.unit();
@@ -205,11 +271,37 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
         });
   }
 
+  private static FeedEntryType updateEntryFromBookRegistry(
+      final BookRegistryReadableType registry,
+      final FeedEntryType e) {
+
+    final BookID id = e.getBookID();
+    final BookWithStatus book_with_status = registry.books().get(id);
+    if (book_with_status != null) {
+      LOG.debug("updating entry {} from book registry", id);
+      return FeedEntryOPDS.fromOPDSAcquisitionFeedEntry(book_with_status.book().entry());
+    }
+    return e;
+  }
+
   @Override
   public void expired(
       final @Nullable URI key,
       final @Nullable FeedType value) {
     LOG.debug("expired: {}", key);
+    if (key != null) {
+      this.cache_stamps.remove(key);
+    }
+  }
+
+  private ListenableFuture<FeedType> fetch(
+      final URI uri,
+      final String method,
+      final OptionType<HTTPAuthType> auth,
+      final FeedLoaderListenerType listener,
+      final boolean update_from_database) {
+    final OptionType<FeedLoaderStreamingListenerType> none = Option.none();
+    return this.fetch(uri, method, auth, listener, none, update_from_database);
   }
 
   private ListenableFuture<FeedType> fetch(
@@ -217,9 +309,11 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
       final String method,
       final OptionType<HTTPAuthType> auth,
       final FeedLoaderListenerType listener,
+      final OptionType<FeedLoaderStreamingListenerType> streaming,
       final boolean update_from_database) {
     LOG.debug("not cached, fetching ({}): {} (auth {})", method, uri, auth);
-    return this.exec.submit(() -> fetchInner(uri, method, auth, listener, update_from_database));
+    return this.exec.submit(
+        () -> fetchInner(uri, method, auth, listener, streaming, update_from_database));
   }
 
   private FeedType fetchInner(
@@ -227,15 +321,21 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
       final String method,
       final OptionType<HTTPAuthType> auth,
       final FeedLoaderListenerType listener,
+      final OptionType<FeedLoaderStreamingListenerType> streaming,
       final boolean update_from_database) throws Exception {
 
     final ProtectedListener p_listener = new ProtectedListener(listener);
     try {
-      final FeedType f = this.loadFeed(uri, method, auth, p_listener);
+      final OptionType<StreamingReceiver> receiver = streaming.map(
+          s -> new StreamingReceiver(uri, s, update_from_database, this.book_registry));
+      final MessageDigest digest = FeedLoader.newDigest();
+      final FeedType f = this.loadFeed(uri, method, auth, p_listener, receiver, digest);
       if (update_from_database) {
         FeedLoader.updateFeedFromBookRegistry(this.book_registry, f);
       }
       this.cache.put(uri, f);
+      this.cache.resetExpiration(uri);
+      this.cache_stamps.put(uri, new CachedFeedStamp(System.nanoTime(), digest.digest()));
       LOG.debug("added to cache: {} ({} entries)", uri, f.size());
       p_listener.onFeedLoadSuccess(uri, f);
       return f;
@@ -255,11 +355,12 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
     NullCheck.notNull(auth);
     NullCheck.notNull(listener);
 
-    if (this.cache.containsKey(uri)) {
+    final FeedType f = this.cache.get(uri);
+    if (f != null) {
       LOG.debug("retrieved from cache: {}", uri);
-      final FeedType f = NullCheck.notNull(this.cache.get(uri));
       final ProtectedListener p_listener = new ProtectedListener(listener);
       p_listener.onFeedLoadSuccess(uri, f);
+      this.revalidateIfStale(uri, auth, listener, false);
       return Futures.immediateFuture(f);
     }
 
@@ -287,38 +388,146 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
     NullCheck.notNull(auth);
     NullCheck.notNull(listener);
 
-    if (this.cache.containsKey(uri)) {
+    final FeedType f = this.cache.get(uri);
+    if (f != null) {
       LOG.debug("retrieved from cache: {}", uri);
-      final FeedType f = NullCheck.notNull(this.cache.get(uri));
       FeedLoader.updateFeedFromBookRegistry(this.book_registry, f);
       final ProtectedListener p_listener = new ProtectedListener(listener);
       p_listener.onFeedLoadSuccess(uri, f);
+      this.revalidateIfStale(uri, auth, listener, true);
       return Futures.immediateFuture(f);
     }
 
     return this.fetch(uri, "GET", auth, listener, true);
   }
 
+  @Override
+  public ListenableFuture<FeedType> fromURIWithBookRegistryEntriesStreaming(
+      final URI uri,
+      final OptionType<HTTPAuthType> auth,
+      final FeedLoaderStreamingListenerType listener) {
+    NullCheck.notNull(uri);
+    NullCheck.notNull(auth);
+    NullCheck.notNull(listener);
+
+    if (this.cache.containsKey(uri)) {
+      return this.fromURIWithBookRegistryEntries(uri, auth, listener);
+    }
+
+    return this.fetch(uri, "GET", auth, listener, Option.some(listener), true);
+  }
+
   @Override
   public void invalidate(final URI uri) {
     NullCheck.notNull(uri);
     this.cache.remove(uri);
+    this.cache_stamps.remove(uri);
+  }
+
+  /**
+   * If the cached feed for {@code uri} is stale, and is not already being
+   * refreshed, refresh it in the background. The listener is only notified,
+   * through {@link FeedLoaderListenerType#onFeedLoadRevalidated(URI, FeedType)},
+   * if the refreshed feed differs from the cached feed.
+   */
+
+  private void revalidateIfStale(
+      final URI uri,
+      final OptionType<HTTPAuthType> auth,
+      final FeedLoaderListenerType listener,
+      final boolean update_from_database) {
+
+    final CachedFeedStamp stamp = this.cache_stamps.get(uri);
+    if (stamp == null || System.nanoTime() - stamp.time < this.soft_ttl_nanos) {
+      return;
+    }
+    if (!this.refreshing.add(uri)) {
+      LOG.debug("stale, already revalidating: {}", uri);
+      return;
+    }
+
+    LOG.debug("stale, revalidating: {}", uri);
+    this.exec.execute(() -> {
+      try {
+        this.revalidate(uri, auth, listener, update_from_database);
+      } finally {
+        this.refreshing.remove(uri);
+      }
+    });
+  }
+
+  private void revalidate(
+      final URI uri,
+      final OptionType<HTTPAuthType> auth,
+      final FeedLoaderListenerType listener,
+      final boolean update_from_database) {
+
+    /*
+     * The stale feed has already been delivered, so a failed refresh is not
+     * reported to the listener, and the user is not asked for credentials.
+     */
+
+    final FeedType f;
+    final MessageDigest digest = FeedLoader.newDigest();
+    try {
+      f = this.loadFeed(
+          uri, "GET", auth, new RevalidationListener(), Option.none(), digest);
+    } catch (final Exception x) {
+      LOG.error("could not revalidate {}: ", uri, x);
+      return;
+    }
+
+    final byte[] hash = digest.digest();
+    final CachedFeedStamp previous = this.cache_stamps.get(uri);
+    final FeedType cached = this.cache.get(uri);
+    if (previous != null && cached != null && Arrays.equals(previous.digest, hash)) {
+      LOG.debug("revalidated, unchanged: {}", uri);
+      this.cache.resetExpiration(uri);
+      this.cache_stamps.put(uri, new CachedFeedStamp(System.nanoTime(), hash));
+      return;
+    }
+
+    if (update_from_database) {
+      FeedLoader.updateFeedFromBookRegistry(this.book_registry, f);
+    }
+    this.cache.put(uri, f);
+    this.cache.resetExpiration(uri);
+    this.cache_stamps.put(uri, new CachedFeedStamp(System.nanoTime(), hash));
+    LOG.debug("revalidated, changed: {} ({} entries)", uri, f.size());
+    new ProtectedListener(listener).onFeedLoadRevalidated(uri, f);
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
   }
 
   private FeedType loadFeed(
       final URI uri,
       final String method,
       final OptionType<HTTPAuthType> auth,
-      final FeedLoaderListenerType listener)
+      final FeedLoaderListenerType listener,
+      final OptionType<StreamingReceiver> receiver,
+      final MessageDigest digest)
       throws InterruptedException, OPDSFeedTransportException, IOException {
 
+    /*
+     * Everything that is read to construct the feed is passed through the
+     * given digest, so that a refreshed feed can be cheaply compared with
+     * the cached one.
+     */
+
     /*
      * If the URI has a scheme that refers to bundled content, fetch the data from
      * the resolver instead.
      */
 
     if (BundledURIs.isBundledURI(uri)) {
-      try (final InputStream stream = this.bundled_content.resolve(uri)) {
+      try (final InputStream stream =
+               new DigestInputStream(this.bundled_content.resolve(uri), digest)) {
         return Feeds.fromAcquisitionFeed(this.parser.parse(uri, stream), Option.none());
       }
     }
@@ -326,9 +535,9 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
     final AtomicReference<OptionType<HTTPAuthType>> auth_ref =
         new AtomicReference<OptionType<HTTPAuthType>>(auth);
 
-    try (InputStream main_stream =
-             this.loadFeedStreamRetryingAuth(uri, method, listener, auth_ref)) {
-      final OPDSAcquisitionFeed parsed = this.parser.parse(uri, main_stream);
+    try (InputStream main_stream = new DigestInputStream(
+        this.loadFeedStreamRetryingAuth(uri, method, listener, auth_ref), digest)) {
+      final OPDSAcquisitionFeed parsed = this.parseFeed(uri, main_stream, receiver);
 
       /*
        * If a search link was provided, fetch the search link and parse it.
@@ -340,8 +549,8 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
         final Some<OPDSSearchLink> some = (Some<OPDSSearchLink>) search_opt;
         final URI search_uri = some.get().getURI();
 
-        try (InputStream search_stream =
-                 this.loadFeedStreamRetryingAuth(search_uri, method, listener, auth_ref)) {
+        try (InputStream search_stream = new DigestInputStream(
+            this.loadFeedStreamRetryingAuth(search_uri, method, listener, auth_ref), digest)) {
           final OptionType<OPDSOpenSearch1_1> search =
               Option.some(this.search_parser.parse(search_uri, search_stream));
           return Feeds.fromAcquisitionFeed(parsed, search);
@@ -358,6 +567,34 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
     }
   }
 
+  /**
+   * Parse the feed in {@code stream}. If a receiver is provided and the parser
+   * is capable of streaming, entries are passed to the receiver as they are
+   * parsed.
+   */
+
+  private OPDSAcquisitionFeed parseFeed(
+      final URI uri,
+      final InputStream stream,
+      final OptionType<StreamingReceiver> receiver_opt)
+      throws OPDSParseException {
+
+    if (receiver_opt.isSome() && this.parser instanceof OPDSFeedStreamingParserType) {
+      final StreamingReceiver receiver = ((Some<StreamingReceiver>) receiver_opt).get();
+      final OPDSFeedStreamingParserType streaming_parser = (OPDSFeedStreamingParserType) this.parser;
+      final OPDSAcquisitionFeed header = streaming_parser.parseStreaming(uri, stream, receiver);
+      receiver.flush();
+
+      final OPDSAcquisitionFeedBuilderType b = OPDSAcquisitionFeed.newBuilderFromFeedHeader(header);
+      for (final OPDSAcquisitionFeedEntry e : receiver.entries) {
+        b.addEntry(e);
+      }
+      return b.build();
+    }
+
+    return this.parser.parse(uri, stream);
+  }
+
   /**
    * Try to fetch {@code uri}, consulting {@code listener} if authentication
    * details are required. If the final attempt results in a successful
@@ -444,6 +681,47 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
     return AccountAuthenticatedHTTP.createAuthenticatedHTTP(result_some.get());
   }
 
+  private static final class CachedFeedStamp {
+    private final long time;
+    private final byte[] digest;
+
+    CachedFeedStamp(
+        final long in_time,
+        final byte[] in_digest) {
+      this.time = in_time;
+      this.digest = NullCheck.notNull(in_digest, "Digest");
+    }
+  }
+
+  /**
+   * The listener used when refreshing stale feeds in the background.
+   */
+
+  private static final class RevalidationListener implements FeedLoaderListenerType {
+    @Override
+    public void onFeedLoadSuccess(
+        final URI u,
+        final FeedType f) {
+      LOG.debug("revalidated: {}", u);
+    }
+
+    @Override
+    public void onFeedRequiresAuthentication(
+        final URI u,
+        final int attempts,
+        final FeedLoaderAuthenticationListenerType listener) {
+      LOG.debug("revalidation of {} requires authentication, giving up", u);
+      listener.onAuthenticationNotProvided();
+    }
+
+    @Override
+    public void onFeedLoadFailure(
+        final URI u,
+        final Throwable x) {
+      LOG.error("could not revalidate {}: ", u, x);
+    }
+  }
+
   private static final class ProtectedListener implements FeedLoaderListenerType {
     private final FeedLoaderListenerType delegate;
 
@@ -473,6 +751,17 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
       }
     }
 
+    @Override
+    public void onFeedLoadRevalidated(
+        final URI u,
+        final FeedType f) {
+      try {
+        this.delegate.onFeedLoadRevalidated(u, f);
+      } catch (final Throwable x) {
+        this.onFeedLoadFailure(u, x);
+      }
+    }
+
     @Override
     public void onFeedRequiresAuthentication(
         final URI u,
@@ -486,6 +775,95 @@ public final class FeedLoader implements FeedLoaderType, ExpirationListener<URI,
     }
   }
 
+  /**
+   * A parser listener that converts entries to feed entries and passes them to
+   * a streaming feed listener in batches.
+   */
+
+  private static final class StreamingReceiver implements OPDSFeedParserListenerType {
+    private static final int BATCH_SIZE = 8;
+
+    private final URI uri;
+    private final FeedLoaderStreamingListenerType listener;
+    private final boolean update_from_database;
+    private final BookRegistryReadableType book_registry;
+    private final List<OPDSAcquisitionFeedEntry> entries;
+    private final List<FeedEntryType> batch;
+    private @Nullable FeedWithoutGroups header;
+    private boolean header_delivered;
+    private boolean grouped;
+
+    StreamingReceiver(
+        final URI in_uri,
+        final FeedLoaderStreamingListenerType in_listener,
+        final boolean in_update_from_database,
+        final BookRegistryReadableType in_book_registry) {
+      this.uri = NullCheck.notNull(in_uri, "URI");
+      this.listener = NullCheck.notNull(in_listener, "Listener");
+      this.update_from_database = in_update_from_database;
+      this.book_registry = NullCheck.notNull(in_book_registry, "Book registry");
+      this.entries = new ArrayList<>(32);
+      this.batch = new ArrayList<>(BATCH_SIZE);
+    }
+
+    @Override
+    public void onFeedHeader(final OPDSAcquisitionFeed in_header) {
+      final OptionType<OPDSOpenSearch1_1> none = Option.none();
+      this.header = Feeds.withoutGroups(in_header, none);
+    }
+
+    @Override
+    public void onFeedEntry(final OPDSAcquisitionFeedEntry entry) {
+      this.entries.add(entry);
+
+      /*
+       * Feeds with groups can't usefully be displayed until all of the entries
+       * have been seen, so incremental delivery stops as soon as an entry in a
+       * group appears.
+       */
+
+      if (this.grouped) {
+        return;
+      }
+      if (!entry.getGroups().isEmpty()) {
+        LOG.debug("feed {} has groups, not delivering entries incrementally", this.uri);
+        this.grouped = true;
+        this.batch.clear();
+        return;
+      }
+
+      final OptionType<FeedEntryType> e_opt = Feeds.fromAcquisitionFeedEntry(entry);
+      if (e_opt.isSome()) {
+        FeedEntryType e = ((Some<FeedEntryType>) e_opt).get();
+        if (this.update_from_database) {
+          e = updateEntryFromBookRegistry(this.book_registry, e);
+        }
+        this.batch.add(e);
+        if (this.batch.size() >= BATCH_SIZE) {
+          this.flush();
+        }
+      }
+    }
+
+    void flush() {
+      if (this.grouped || this.batch.isEmpty()) {
+        return;
+      }
+
+      try {
+        if (!this.header_delivered) {
+          this.header_delivered = true;
+          this.listener.onFeedLoadHeader(this.uri, NullCheck.notNull(this.header, "Header"));
+        }
+        this.listener.onFeedLoadEntries(this.uri, new ArrayList<>(this.batch));
+      } catch (final Throwable x) {
+        LOG.error("listener raised error: ", x);
+      } finally {
+        this.batch.clear();
+      }
+    }
+  }
+
   /**
    * An authentication listener that allows external threads to wait until one
    * of the listener methods has been called.
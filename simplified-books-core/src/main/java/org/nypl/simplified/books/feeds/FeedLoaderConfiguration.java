@@ -0,0 +1,101 @@
+package org.nypl.simplified.books.feeds;
+
+import com.google.auto.value.AutoValue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>The caching policy of a feed loader.</p>
+ *
+ * <p>A cached feed is <i>fresh</i> until its soft TTL has elapsed, and is
+ * then <i>stale</i> until its hard TTL has elapsed, at which point it is
+ * evicted from the cache. Fresh feeds are delivered from the cache. Stale
+ * feeds are delivered from the cache and are then refreshed in the
+ * background, with the refreshed feed being delivered a second time if its
+ * content has changed. If the soft TTL is not less than the hard TTL, feeds
+ * are never stale.</p>
+ */
+
+@AutoValue
+public abstract class FeedLoaderConfiguration {
+
+  FeedLoaderConfiguration() {
+
+  }
+
+  /**
+   * @return The time in milliseconds for which a cached feed is fresh
+   */
+
+  public abstract long softTTLMilliseconds();
+
+  /**
+   * @return The time in milliseconds after which a cached feed is evicted
+   */
+
+  public abstract long hardTTLMilliseconds();
+
+  /**
+   * @return {@code true} iff cached feeds may be delivered stale
+   */
+
+  public final boolean staleWhileRevalidate() {
+    return this.softTTLMilliseconds() < this.hardTTLMilliseconds();
+  }
+
+  /**
+   * @return The current value as a mutable builder
+   */
+
+  public abstract Builder toBuilder();
+
+  /**
+   * A mutable builder for the type.
+   */
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+
+    Builder() {
+
+    }
+
+    /**
+     * @param ttl The soft TTL in milliseconds
+     * @return The current builder
+     * @see #softTTLMilliseconds()
+     */
+
+    public abstract Builder setSoftTTLMilliseconds(
+        long ttl);
+
+    /**
+     * @param ttl The hard TTL in milliseconds
+     * @return The current builder
+     * @see #hardTTLMilliseconds()
+     */
+
+    public abstract Builder setHardTTLMilliseconds(
+        long ttl);
+
+    /**
+     * @return A configuration based on the given parameters
+     */
+
+    public abstract FeedLoaderConfiguration build();
+  }
+
+  /**
+   * Feeds are fresh for five minutes and are then evicted; they are never
+   * delivered stale.
+   *
+   * @return A mutable builder to construct configurations
+   */
+
+  public static FeedLoaderConfiguration.Builder builder() {
+    final long five_minutes = TimeUnit.MINUTES.toMillis(5L);
+    return new AutoValue_FeedLoaderConfiguration.Builder()
+        .setSoftTTLMilliseconds(five_minutes)
+        .setHardTTLMilliseconds(five_minutes);
+  }
+}
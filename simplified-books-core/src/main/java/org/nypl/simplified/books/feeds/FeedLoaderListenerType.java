@@ -19,6 +19,24 @@ public interface FeedLoaderListenerType
     URI u,
     FeedType f);
 
+  /**
+   * A feed that was previously delivered to {@link #onFeedLoadSuccess(URI,
+   * FeedType)} from the cache has been refreshed in the background, and its
+   * content has changed. The given feed replaces the previously delivered
+   * feed; it is not a continuation of it. By default, the feed is delivered
+   * to {@link #onFeedLoadSuccess(URI, FeedType)}.
+   *
+   * @param u The URI of the feed
+   * @param f The refreshed feed
+   */
+
+  default void onFeedLoadRevalidated(
+    final URI u,
+    final FeedType f)
+  {
+    this.onFeedLoadSuccess(u, f);
+  }
+
   /**
    * A feed requires authentication details.
    *
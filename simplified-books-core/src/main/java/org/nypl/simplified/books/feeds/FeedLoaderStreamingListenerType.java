@@ -0,0 +1,43 @@
+package org.nypl.simplified.books.feeds;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * <p>The type of feed loading listeners that can receive the entries of a feed
+ * incrementally, as they are parsed.</p>
+ *
+ * <p>For feeds without groups, {@link #onFeedLoadHeader(URI,
+ * FeedWithoutGroups)} is called once with an empty feed carrying the feed's
+ * title, links and facets, followed by any number of calls to {@link
+ * #onFeedLoadEntries(URI, List)}. The complete feed is then delivered to
+ * {@link #onFeedLoadSuccess(URI, FeedType)} as usual, and will contain all of
+ * the entries that were delivered incrementally. If the feed turns out to
+ * contain groups, no further entries are delivered incrementally and the
+ * feed is delivered as a {@link FeedWithGroups} on completion.</p>
+ */
+
+public interface FeedLoaderStreamingListenerType extends FeedLoaderListenerType
+{
+  /**
+   * The header of a feed without groups has been parsed.
+   *
+   * @param u      The URI of the feed
+   * @param header A feed with no entries
+   */
+
+  void onFeedLoadHeader(
+    URI u,
+    FeedWithoutGroups header);
+
+  /**
+   * A batch of entries has been parsed. Entries are delivered in feed order.
+   *
+   * @param u       The URI of the feed
+   * @param entries The entries
+   */
+
+  void onFeedLoadEntries(
+    URI u,
+    List<FeedEntryType> entries);
+}
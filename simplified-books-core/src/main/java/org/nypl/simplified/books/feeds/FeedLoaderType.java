@@ -67,6 +67,26 @@ public interface FeedLoaderType
     OptionType<HTTPAuthType> auth,
     FeedLoaderListenerType listener);
 
+  /**
+   * Load a feed from the given URI, caching feeds that are successfully
+   * fetched. This is equivalent to {@link #fromURIWithBookRegistryEntries(URI,
+   * OptionType, FeedLoaderListenerType)} except that, if the feed has to be
+   * fetched and does not contain groups, the feed's entries are delivered to
+   * the given listener in batches as they are parsed, before the complete feed
+   * is delivered.
+   *
+   * @param uri      The URI
+   * @param auth     HTTP authentication details, if any
+   * @param listener The listener
+   *
+   * @return A future that can be used to cancel the loading feed
+   */
+
+  ListenableFuture<FeedType> fromURIWithBookRegistryEntriesStreaming(
+    URI uri,
+    OptionType<HTTPAuthType> auth,
+    FeedLoaderStreamingListenerType listener);
+
   /**
    * Invalidate the cached feed for URI {@code uri}, if any.
    *
@@ -3,6 +3,7 @@ package org.nypl.simplified.books.feeds;
 import com.io7m.jfunctional.FunctionType;
 import com.io7m.jfunctional.Option;
 import com.io7m.jfunctional.OptionType;
+import com.io7m.jfunctional.Some;
 import com.io7m.jnull.NullCheck;
 import com.io7m.junreachable.UnreachableCodeException;
 import org.nypl.simplified.opds.core.OPDSAcquisition;
@@ -55,7 +56,40 @@ public final class Feeds
     return FeedWithGroups.fromAcquisitionFeed(f, search);
   }
 
-  private static FeedWithoutGroups withoutGroups(
+  /**
+   * Construct a feed entry from the given acquisition feed entry, if the entry
+   * has any acquisitions. Entries without acquisitions are not shown in feeds
+   * without groups.
+   *
+   * @param e The feed entry
+   *
+   * @return A new feed entry, if the entry has any acquisitions
+   */
+
+  public static OptionType<FeedEntryType> fromAcquisitionFeedEntry(
+    final OPDSAcquisitionFeedEntry e)
+  {
+    NullCheck.notNull(e);
+
+    if (!e.getAcquisitions().isEmpty()) {
+      OPDSAcquisition best = NullCheck.notNull(e.getAcquisitions().get(0));
+      for (final OPDSAcquisition current : e.getAcquisitions()) {
+        final OPDSAcquisition nn_current = NullCheck.notNull(current);
+        if (Feeds.priority(nn_current)
+          > Feeds.priority(best)) {
+          best = nn_current;
+        }
+      }
+      final OptionType<OPDSAcquisition> a_opt = Option.some(best);
+      if (a_opt.isSome()) {
+        return Option.some(FeedEntryOPDS.fromOPDSAcquisitionFeedEntry(e));
+      }
+    }
+
+    return Option.none();
+  }
+
+  static FeedWithoutGroups withoutGroups(
     final OPDSAcquisitionFeed f,
     final OptionType<OPDSOpenSearch1_1> search)
   {
@@ -104,19 +138,10 @@ public final class Feeds
     for (int index = 0; index < in_entries.size(); ++index) {
       final OPDSAcquisitionFeedEntry fe =
         NullCheck.notNull(in_entries.get(index));
-      if (!fe.getAcquisitions().isEmpty()) {
-        OPDSAcquisition best = NullCheck.notNull(fe.getAcquisitions().get(0));
-        for (final OPDSAcquisition current : fe.getAcquisitions()) {
-          final OPDSAcquisition nn_current = NullCheck.notNull(current);
-          if (Feeds.priority(nn_current)
-            > Feeds.priority(best)) {
-            best = nn_current;
-          }
-        }
-        final OptionType<OPDSAcquisition> a_opt = Option.some(best);
-        if (a_opt.isSome()) {
-          rf.add(FeedEntryOPDS.fromOPDSAcquisitionFeedEntry(fe));
-        }
+      final OptionType<FeedEntryType> e_opt =
+        Feeds.fromAcquisitionFeedEntry(fe);
+      if (e_opt.isSome()) {
+        rf.add(((Some<FeedEntryType>) e_opt).get());
       }
     }
 
@@ -0,0 +1,364 @@
+package org.nypl.simplified.books.profiles;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableMap;
+import com.io7m.jfunctional.PartialFunctionType;
+import com.io7m.jfunctional.Unit;
+import com.io7m.jnull.NullCheck;
+
+import org.nypl.simplified.books.book_database.BookID;
+import org.nypl.simplified.books.core.LogUtilities;
+import org.nypl.simplified.books.reader.ReaderBookLocation;
+import org.nypl.simplified.books.reader.ReaderBookLocationJSON;
+import org.nypl.simplified.books.reader.ReaderBookmarks;
+import org.nypl.simplified.files.FileLocking;
+import org.nypl.simplified.files.FileUtilities;
+import org.nypl.simplified.json.core.JSONParseException;
+import org.nypl.simplified.json.core.JSONParserUtilities;
+import org.slf4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>An append-only journal of the reader bookmarks of a profile.</p>
+ *
+ * <p>The journal is a single file in the profile directory holding one JSON record per line.
+ * Setting a bookmark appends a record holding the new location of the book, and the most recent
+ * record for each book wins when the journal is read. The journal is rewritten with one record per
+ * book when enough records have been superseded, or when the bookmarks are replaced wholesale.</p>
+ *
+ * <p>Changes are made in memory and are written when the journal is flushed, so that the owning
+ * profile can decide how often the journal is written.</p>
+ *
+ * <p>Appended records are forced to storage before a flush returns. A line that cannot be parsed
+ * (typically a record that was only partially written when the process died) is skipped, and the
+ * journal is rewritten on open so that later records cannot be appended to the damaged line.</p>
+ *
+ * <p>The journal is read and written while holding the lock of the profile directory, as the
+ * profile description is.</p>
+ *
+ * <p>Instances are not thread-safe; the owning profile serializes access.</p>
+ */
+
+final class ProfileBookmarkJournal {
+
+  private static final Logger LOG = LogUtilities.getLog(ProfileBookmarkJournal.class);
+
+  static final String FILE_NAME = "bookmarks.jsonl";
+  static final String FILE_NAME_TMP = "bookmarks.jsonl.tmp";
+
+  private static final int VERSION = 1;
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final String TYPE_HEADER = "header";
+  private static final String TYPE_BOOKMARK = "bookmark";
+
+  private final ObjectMapper mapper;
+  private final File file;
+  private final File file_tmp;
+  private final File file_lock;
+  private final HashMap<BookID, ReaderBookLocation> bookmarks;
+  private final LinkedHashMap<BookID, ReaderBookLocation> pending;
+  private boolean rewrite;
+  private int lines;
+
+  private ProfileBookmarkJournal(
+      final ObjectMapper mapper,
+      final File directory) {
+    this.mapper = NullCheck.notNull(mapper, "Mapper");
+    NullCheck.notNull(directory, "Directory");
+    this.file = new File(directory, FILE_NAME);
+    this.file_tmp = new File(directory, FILE_NAME_TMP);
+    this.file_lock = new File(directory, "lock");
+    this.bookmarks = new HashMap<>();
+    this.pending = new LinkedHashMap<>();
+    this.rewrite = false;
+    this.lines = 0;
+  }
+
+  /**
+   * Open the journal in the given profile directory.
+   *
+   * @param mapper    A JSON object mapper
+   * @param directory The profile directory
+   * @param initial   Bookmarks that predate the journal, such as those stored in older profile
+   *                  descriptions; any records in the journal take precedence over these
+   * @return The journal
+   * @throws IOException On I/O errors, or if the journal has an unsupported format
+   */
+
+  static ProfileBookmarkJournal open(
+      final ObjectMapper mapper,
+      final File directory,
+      final ReaderBookmarks initial)
+      throws IOException {
+
+    NullCheck.notNull(initial, "Initial");
+
+    final ProfileBookmarkJournal journal = new ProfileBookmarkJournal(mapper, directory);
+    journal.bookmarks.putAll(initial.bookmarks());
+
+    return journal.locked(ignored -> {
+      boolean rewrite = !initial.bookmarks().isEmpty();
+      if (journal.file.isFile()) {
+        rewrite |= !journal.read();
+      }
+      if (rewrite || journal.wantsCompaction()) {
+        journal.compact();
+      }
+      return journal;
+    });
+  }
+
+  /**
+   * @return The current bookmarks
+   */
+
+  ReaderBookmarks bookmarks() {
+    return ReaderBookmarks.create(ImmutableMap.copyOf(this.bookmarks));
+  }
+
+  /**
+   * @return {@code true} iff there are changes that have not been written by {@link #flush()}
+   */
+
+  boolean isDirty() {
+    return this.rewrite || !this.pending.isEmpty();
+  }
+
+  /**
+   * Set the bookmark for the given book. The change is not written until {@link #flush()} is
+   * called.
+   *
+   * @param book_id  The book
+   * @param location The new location
+   */
+
+  void set(
+      final BookID book_id,
+      final ReaderBookLocation location) {
+
+    NullCheck.notNull(book_id, "Book ID");
+    NullCheck.notNull(location, "Location");
+
+    if (location.equals(this.bookmarks.get(book_id))) {
+      return;
+    }
+
+    this.bookmarks.put(book_id, location);
+    if (!this.rewrite) {
+      this.pending.remove(book_id);
+      this.pending.put(book_id, location);
+    }
+  }
+
+  /**
+   * Replace all of the bookmarks. The change is not written until {@link #flush()} is called.
+   *
+   * @param new_bookmarks The new bookmarks
+   */
+
+  void replace(final ReaderBookmarks new_bookmarks) {
+    NullCheck.notNull(new_bookmarks, "Bookmarks");
+
+    final ImmutableMap<BookID, ReaderBookLocation> m = new_bookmarks.bookmarks();
+    if (m.equals(this.bookmarks)) {
+      return;
+    }
+
+    this.bookmarks.clear();
+    this.bookmarks.putAll(m);
+    this.pending.clear();
+    this.rewrite = true;
+  }
+
+  /**
+   * Write any changes made since the last flush. Bookmarks that were set several times are
+   * written once, with their most recent location. Changes that could not be written remain
+   * pending, and are written by the next flush.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void flush() throws IOException {
+    if (!this.isDirty()) {
+      return;
+    }
+
+    this.locked(ignored -> {
+      this.flushLocked();
+      return Unit.unit();
+    });
+  }
+
+  private void flushLocked() throws IOException {
+    if (this.rewrite) {
+      this.compact();
+      this.pending.clear();
+      this.rewrite = false;
+      return;
+    }
+
+    final boolean fresh = !this.file.isFile();
+    try (FileOutputStream stream = new FileOutputStream(this.file, true)) {
+      final Writer writer = new OutputStreamWriter(stream, UTF8);
+      if (fresh) {
+        this.writeLine(writer, this.header());
+      }
+      for (final Map.Entry<BookID, ReaderBookLocation> e : this.pending.entrySet()) {
+        this.writeLine(writer, this.record(e.getKey(), e.getValue()));
+      }
+      writer.flush();
+      stream.getChannel().force(true);
+    } catch (final IOException e) {
+
+      /*
+       * The append may have left a partial line at the end of the journal. Rewriting the journal
+       * is the only safe way to write anything else to it.
+       */
+
+      this.pending.clear();
+      this.rewrite = true;
+      throw e;
+    }
+
+    this.lines += this.pending.size();
+    this.pending.clear();
+
+    if (this.wantsCompaction()) {
+      this.compact();
+    }
+  }
+
+  /**
+   * @return {@code false} iff one or more lines could not be parsed
+   */
+
+  private boolean read() throws IOException {
+    boolean clean = true;
+
+    try (BufferedReader reader =
+             new BufferedReader(new InputStreamReader(new FileInputStream(this.file), UTF8))) {
+
+      final String header_line = reader.readLine();
+      if (header_line == null) {
+        return false;
+      }
+
+      final int version;
+      try {
+        final ObjectNode header = this.parseLine(header_line);
+        if (!TYPE_HEADER.equals(JSONParserUtilities.getString(header, "type"))) {
+          throw new IOException("Missing header");
+        }
+        version = JSONParserUtilities.getInteger(header, "version");
+      } catch (final IOException e) {
+        LOG.error("discarding bookmark journal with an unreadable header {}: ", this.file, e);
+        return false;
+      }
+
+      if (version != VERSION) {
+        throw new IOException("Unsupported bookmark journal version " + version + ": " + this.file);
+      }
+
+      while (true) {
+        final String line = reader.readLine();
+        if (line == null) {
+          break;
+        }
+
+        ++this.lines;
+        try {
+          final ObjectNode node = this.parseLine(line);
+          if (!TYPE_BOOKMARK.equals(JSONParserUtilities.getString(node, "type"))) {
+            throw new IOException("Unrecognized record type");
+          }
+          this.bookmarks.put(
+              BookID.create(JSONParserUtilities.getString(node, "id")),
+              ReaderBookLocationJSON.deserializeFromJSON(
+                  this.mapper, JSONParserUtilities.getNode(node, "location")));
+        } catch (final IOException | IllegalArgumentException e) {
+          LOG.error("skipping unreadable bookmark record in {}: ", this.file, e);
+          clean = false;
+        }
+      }
+    }
+
+    return clean;
+  }
+
+  /**
+   * Parse a single line of the journal, which must hold a JSON object. Some versions of Jackson
+   * return no node at all for a line with no content, so that case is checked explicitly.
+   */
+
+  private ObjectNode parseLine(final String line) throws IOException {
+    final JsonNode node = this.mapper.readTree(line);
+    if (node == null || !node.isObject()) {
+      throw new JSONParseException("Expected a JSON object");
+    }
+    return (ObjectNode) node;
+  }
+
+  private <T> T locked(final PartialFunctionType<Unit, T, IOException> p) throws IOException {
+    return FileLocking.withFileThreadLocked(this.file_lock, 1000L, p);
+  }
+
+  private boolean wantsCompaction() {
+    return this.lines > 64 + (2 * this.bookmarks.size());
+  }
+
+  private void compact() throws IOException {
+    LOG.debug("compacting {} ({} lines, {} bookmarks)", this.file, this.lines, this.bookmarks.size());
+
+    try (FileOutputStream stream = new FileOutputStream(this.file_tmp)) {
+      final Writer writer = new OutputStreamWriter(stream, UTF8);
+      this.writeLine(writer, this.header());
+      for (final Map.Entry<BookID, ReaderBookLocation> e : this.bookmarks.entrySet()) {
+        this.writeLine(writer, this.record(e.getKey(), e.getValue()));
+      }
+      writer.flush();
+      stream.getChannel().force(true);
+    }
+
+    FileUtilities.fileRename(this.file_tmp, this.file);
+    this.lines = this.bookmarks.size();
+  }
+
+  private ObjectNode header() {
+    final ObjectNode node = this.mapper.createObjectNode();
+    node.put("type", TYPE_HEADER);
+    node.put("version", VERSION);
+    return node;
+  }
+
+  private ObjectNode record(
+      final BookID book_id,
+      final ReaderBookLocation location) {
+    final ObjectNode node = this.mapper.createObjectNode();
+    node.put("type", TYPE_BOOKMARK);
+    node.put("id", book_id.value());
+    node.set("location", ReaderBookLocationJSON.serializeToJSON(this.mapper, location));
+    return node;
+  }
+
+  private void writeLine(
+      final Writer writer,
+      final JsonNode node) throws IOException {
+    writer.write(this.mapper.writeValueAsString(node));
+    writer.write('\n');
+  }
+}
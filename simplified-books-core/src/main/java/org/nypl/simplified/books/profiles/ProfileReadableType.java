@@ -54,12 +54,18 @@ public interface ProfileReadableType extends Comparable<ProfileReadableType> {
 
   /**
    * @return The current account
+   * @throws IllegalStateException If this profile is not the current profile and its accounts
+   *                               could not be opened; the accounts of the current profile are
+   *                               opened when it becomes current
    */
 
   AccountType accountCurrent();
 
   /**
    * @return A read-only map of the accounts for this profile
+   * @throws IllegalStateException If this profile is not the current profile and its accounts
+   *                               could not be opened; the accounts of the current profile are
+   *                               opened when it becomes current
    */
 
   SortedMap<AccountID, AccountType> accounts();
@@ -72,6 +78,9 @@ public interface ProfileReadableType extends Comparable<ProfileReadableType> {
 
   /**
    * @return A read-only map of the accounts for this profile, organized by provider
+   * @throws IllegalStateException If this profile is not the current profile and its accounts
+   *                               could not be opened; the accounts of the current profile are
+   *                               opened when it becomes current
    */
 
   SortedMap<URI, AccountType> accountsByProvider();
@@ -79,6 +88,9 @@ public interface ProfileReadableType extends Comparable<ProfileReadableType> {
   /**
    * @param account_id The account ID
    * @return The account with the given ID
+   * @throws IllegalStateException If this profile is not the current profile and its accounts
+   *                               could not be opened; the accounts of the current profile are
+   *                               opened when it becomes current
    */
 
   AccountType account(AccountID account_id) throws AccountsDatabaseNonexistentException;
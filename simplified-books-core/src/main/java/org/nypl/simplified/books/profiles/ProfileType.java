@@ -6,6 +6,8 @@ import org.nypl.simplified.books.accounts.AccountType;
 import org.nypl.simplified.books.accounts.AccountsDatabaseException;
 import org.nypl.simplified.books.accounts.AccountsDatabaseNonexistentException;
 import org.nypl.simplified.books.accounts.AccountsDatabaseType;
+import org.nypl.simplified.books.book_database.BookID;
+import org.nypl.simplified.books.reader.ReaderBookLocation;
 
 import java.io.IOException;
 
@@ -25,12 +27,16 @@ public interface ProfileType extends ProfileReadableType {
 
   /**
    * @return The accounts database for the profile
+   * @throws IllegalStateException If this profile is not the current profile and its accounts
+   *                               could not be opened; the accounts of the current profile are
+   *                               opened when it becomes current
    */
 
   AccountsDatabaseType accountsDatabase();
 
   /**
-   * Set the profile's preferences to the given value.
+   * Set the profile's preferences to the given value. If the profiles database has write-behind
+   * enabled, the preferences are written later.
    *
    * @param preferences The new preferences
    */
@@ -38,6 +44,28 @@ public interface ProfileType extends ProfileReadableType {
   void preferencesUpdate(
       ProfilePreferences preferences) throws IOException;
 
+  /**
+   * Set the reader bookmark for the given book. This is equivalent to updating the preferences
+   * with a new set of bookmarks, but only the changed bookmark is written to disk.
+   *
+   * @param book_id  The book
+   * @param location The new location
+   */
+
+  void bookmarkSet(
+      BookID book_id,
+      ReaderBookLocation location) throws IOException;
+
+  /**
+   * Write any changes to the profile's preferences and bookmarks that have been deferred.
+   *
+   * @throws IOException On I/O errors
+   * @see ProfilesDatabaseType#enableWriteBehind(java.util.concurrent.ScheduledExecutorService,
+   * long, java.util.concurrent.TimeUnit)
+   */
+
+  void preferencesFlush() throws IOException;
+
   /**
    * Create an account using the given provider.
    *
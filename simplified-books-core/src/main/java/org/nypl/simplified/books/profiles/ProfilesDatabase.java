@@ -1,6 +1,7 @@
 package org.nypl.simplified.books.profiles;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
 import com.io7m.jfunctional.Option;
 import com.io7m.jfunctional.OptionType;
 import com.io7m.jfunctional.Unit;
@@ -18,9 +19,13 @@ import org.nypl.simplified.books.accounts.AccountsDatabaseException;
 import org.nypl.simplified.books.accounts.AccountsDatabaseFactoryType;
 import org.nypl.simplified.books.accounts.AccountsDatabaseNonexistentException;
 import org.nypl.simplified.books.accounts.AccountsDatabaseType;
+import org.nypl.simplified.books.book_database.BookID;
 import org.nypl.simplified.books.core.LogUtilities;
+import org.nypl.simplified.books.reader.ReaderBookLocation;
+import org.nypl.simplified.books.reader.ReaderBookmarks;
 import org.nypl.simplified.files.FileLocking;
 import org.nypl.simplified.files.FileUtilities;
+import org.nypl.simplified.json.core.JSONMappers;
 import org.slf4j.Logger;
 
 import java.io.File;
@@ -31,6 +36,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.SortedMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.concurrent.GuardedBy;
 
@@ -55,6 +64,8 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
   private final Object profile_current_lock;
   private final AccountProviderCollectionType account_providers;
   private @GuardedBy("profile_current_lock") ProfileID profile_current;
+  private volatile @Nullable ScheduledExecutorService write_behind_exec;
+  private volatile long write_behind_delay_ms;
 
   private ProfilesDatabase(
       final AccountProviderCollectionType account_providers,
@@ -117,7 +128,7 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
     LOG.debug("opening profile database: {}", directory);
 
     final ConcurrentSkipListMap<ProfileID, Profile> profiles = new ConcurrentSkipListMap<>();
-    final ObjectMapper jom = new ObjectMapper();
+    final ObjectMapper jom = JSONMappers.mapper();
 
     final List<Exception> errors = new ArrayList<>();
     openAllProfiles(account_providers, accounts_databases, directory, profiles, jom, errors);
@@ -195,7 +206,7 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
     LOG.debug("opening profile database: {}", directory);
 
     final ConcurrentSkipListMap<ProfileID, Profile> profiles = new ConcurrentSkipListMap<>();
-    final ObjectMapper jom = new ObjectMapper();
+    final ObjectMapper jom = JSONMappers.mapper();
 
     final List<Exception> errors = new ArrayList<>();
     openAllProfiles(account_providers, accounts_databases, directory, profiles, jom, errors);
@@ -206,11 +217,6 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
       profiles.put(ANONYMOUS_PROFILE_ID, anon);
     }
 
-    if (!errors.isEmpty()) {
-      throw new ProfileDatabaseOpenException(
-          "One or more errors occurred whilst trying to open the profile database.", errors);
-    }
-
     final ProfilesDatabase database =
         new ProfilesDatabase(
             account_providers,
@@ -219,7 +225,24 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
             profiles,
             ANONYMOUS_PROFILE_ENABLED);
 
-    database.setCurrentProfile(ANONYMOUS_PROFILE_ID);
+    /*
+     * The anonymous profile is always current, so its accounts are opened now in order that
+     * any error is raised here rather than when the accounts are first accessed.
+     */
+
+    if (errors.isEmpty()) {
+      try {
+        database.setCurrentProfile(ANONYMOUS_PROFILE_ID);
+      } catch (final ProfileDatabaseAccountsException e) {
+        errors.add(e);
+      }
+    }
+
+    if (!errors.isEmpty()) {
+      throw new ProfileDatabaseOpenException(
+          "One or more errors occurred whilst trying to open the profile database.", errors);
+    }
+
     return database;
   }
 
@@ -251,20 +274,40 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
       return null;
     }
 
-    final ProfileID profile_id = ProfileID.create(id);
-    final File profile_accounts_dir = new File(profile_dir, "accounts");
+    /*
+     * Bookmarks are kept in a journal. Profiles written by older versions of the application
+     * hold their bookmarks in the profile description; these are moved into the journal, and
+     * the description is rewritten without them.
+     */
 
+    final ProfileBookmarkJournal bookmarks;
     try {
-      final AccountsDatabaseType accounts =
-          accounts_databases.openDatabase(account_providers, profile_accounts_dir);
-      final AccountType account =
-          accounts.accounts().get(accounts.accounts().firstKey());
-
-      return new Profile(null, profile_id, profile_dir, desc, accounts, account);
-    } catch (final AccountsDatabaseException e) {
-      errors.add(e);
+      final ReaderBookmarks legacy = desc.preferences().readerBookmarks();
+      bookmarks = ProfileBookmarkJournal.open(jom, profile_dir, legacy);
+      if (!legacy.bookmarks().isEmpty()) {
+        LOG.debug("moved {} bookmarks into journal: {}", legacy.bookmarks().size(), profile_dir);
+        writeDescription(profile_dir, desc);
+      }
+    } catch (final IOException e) {
+      errors.add(new IOException("Could not open bookmarks: " + profile_dir, e));
       return null;
     }
+
+    /*
+     * The accounts of the profile, and the book databases of those accounts, are not opened
+     * until they are needed.
+     */
+
+    return new Profile(
+        null,
+        ProfileID.create(id),
+        profile_dir,
+        desc,
+        bookmarks,
+        account_providers,
+        accounts_databases,
+        null,
+        null);
   }
 
   @Override
@@ -374,9 +417,20 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
             accounts_databases.openDatabase(account_providers, profile_accounts_dir);
         final AccountType account =
             accounts.createAccount(account_provider);
+        final ProfileBookmarkJournal bookmarks =
+            ProfileBookmarkJournal.open(JSONMappers.mapper(), profile_dir, prefs.readerBookmarks());
 
         final Profile profile =
-            new Profile(null, id, profile_dir, desc, accounts, account);
+            new Profile(
+                null,
+                id,
+                profile_dir,
+                desc,
+                bookmarks,
+                account_providers,
+                accounts_databases,
+                accounts,
+                account);
 
         writeDescription(profile_dir, desc);
         return profile;
@@ -405,7 +459,9 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
   @Override
   public void setProfileCurrent(
       final ProfileID profile)
-      throws ProfileNonexistentException, ProfileAnonymousEnabledException {
+      throws ProfileNonexistentException,
+      ProfileAnonymousEnabledException,
+      ProfileDatabaseAccountsException {
 
     NullCheck.notNull(profile, "Profile");
 
@@ -425,11 +481,91 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
     }
   }
 
-  private void setCurrentProfile(final ProfileID profile) {
+  private void setCurrentProfile(final ProfileID profile)
+      throws ProfileDatabaseAccountsException {
     LOG.debug("setCurrentProfile: {}", profile);
+
+    /*
+     * The accounts of the current profile are opened before it becomes current, so that they
+     * can always be accessed without error, and without waiting for them to be opened.
+     */
+
+    final Profile current_profile = this.profiles.get(profile);
+    if (current_profile != null) {
+      current_profile.accountsOpenChecked();
+    }
+
+    final ProfileID previous;
     synchronized (this.profile_current_lock) {
+      previous = this.profile_current;
       this.profile_current = NullCheck.notNull(profile, "Profile");
     }
+
+    /*
+     * Any writes that were deferred for the deselected profile are made now.
+     */
+
+    if (previous != null && !previous.equals(profile)) {
+      final Profile previous_profile = this.profiles.get(previous);
+      if (previous_profile != null) {
+        try {
+          previous_profile.preferencesFlush();
+        } catch (final IOException e) {
+          LOG.error("could not write preferences for deselected profile {}: ", previous.id(), e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void enableWriteBehind(
+      final ScheduledExecutorService executor,
+      final long delay,
+      final TimeUnit unit) {
+
+    NullCheck.notNull(executor, "Executor");
+    NullCheck.notNull(unit, "Unit");
+    Assertions.checkPrecondition(delay >= 0L, "Delay %d must be non-negative", delay);
+
+    this.write_behind_delay_ms = unit.toMillis(delay);
+    this.write_behind_exec = executor;
+  }
+
+  @Override
+  public void prewarm(final Executor executor) {
+    NullCheck.notNull(executor, "Executor");
+
+    final List<Profile> ordered = new ArrayList<>(this.profiles.values());
+    synchronized (this.profile_current_lock) {
+      final Profile current =
+          this.profile_current == null ? null : this.profiles.get(this.profile_current);
+      if (current != null) {
+        ordered.remove(current);
+        ordered.add(0, current);
+      }
+    }
+
+    executor.execute(() -> {
+      for (final Profile profile : ordered) {
+        profile.accountsPrewarm();
+      }
+    });
+  }
+
+  @Override
+  public void flush() throws IOException {
+    IOException error = null;
+    for (final Profile profile : this.profiles.values()) {
+      try {
+        profile.preferencesFlush();
+      } catch (final IOException e) {
+        LOG.error("could not write preferences for profile {}: ", profile.id.id(), e);
+        error = e;
+      }
+    }
+    if (error != null) {
+      throw error;
+    }
   }
 
   @Override
@@ -471,12 +607,24 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
 
     private final Object description_lock;
     private @GuardedBy("description_lock") ProfileDescription description;
+    private @GuardedBy("description_lock") final ProfileBookmarkJournal bookmarks;
+    private @GuardedBy("description_lock") boolean bookmarks_changed;
+    private @GuardedBy("description_lock") ProfileDescription description_written;
+    private @GuardedBy("description_lock") boolean flush_scheduled;
+
+    /*
+     * The accounts are opened, and the current account is changed, only while holding
+     * account_current_lock. Once the accounts have been opened, they are read without the lock,
+     * so that reading them never waits for the accounts of a profile to be opened.
+     */
 
     private final Object account_current_lock;
-    private @GuardedBy("account_current_lock") AccountType account_current;
+    private volatile @Nullable AccountsDatabaseType accounts;
+    private volatile @Nullable AccountType account_current;
 
     private ProfilesDatabase owner;
-    private final AccountsDatabaseType accounts;
+    private final AccountProviderCollectionType account_providers;
+    private final AccountsDatabaseFactoryType accounts_databases;
     private final ProfileID id;
     private final File directory;
 
@@ -485,19 +633,29 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
         final ProfileID in_id,
         final File in_directory,
         final ProfileDescription in_description,
-        final AccountsDatabaseType in_accounts,
-        final AccountType in_account_current) {
+        final ProfileBookmarkJournal in_bookmarks,
+        final AccountProviderCollectionType in_account_providers,
+        final AccountsDatabaseFactoryType in_accounts_databases,
+        final @Nullable AccountsDatabaseType in_accounts,
+        final @Nullable AccountType in_account_current) {
 
       this.id =
           NullCheck.notNull(in_id, "id");
       this.directory =
           NullCheck.notNull(in_directory, "directory");
+      this.bookmarks =
+          NullCheck.notNull(in_bookmarks, "bookmarks");
       this.description =
-          NullCheck.notNull(in_description, "description");
-      this.accounts =
-          NullCheck.notNull(in_accounts, "accounts");
-      this.account_current =
-          NullCheck.notNull(in_account_current, "account_current");
+          withBookmarks(NullCheck.notNull(in_description, "description"), in_bookmarks.bookmarks());
+      this.bookmarks_changed = false;
+      this.description_written = withoutBookmarks(this.description);
+      this.flush_scheduled = false;
+      this.account_providers =
+          NullCheck.notNull(in_account_providers, "account_providers");
+      this.accounts_databases =
+          NullCheck.notNull(in_accounts_databases, "accounts_databases");
+      this.accounts = in_accounts;
+      this.account_current = in_account_current;
 
       this.account_current_lock = new Object();
       this.description_lock = new Object();
@@ -539,26 +697,120 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
 
     @Override
     public AccountType accountCurrent() {
+      final AccountType current = this.account_current;
+      if (current != null) {
+        return current;
+      }
+
       synchronized (this.account_current_lock) {
-        return this.account_current;
+        this.accountsOpen();
+        return NullCheck.notNull(this.account_current);
       }
     }
 
     @Override
     public SortedMap<AccountID, AccountType> accounts() {
-      return this.accounts.accounts();
+      return this.accountsDatabase().accounts();
+    }
+
+    /**
+     * Open the accounts database of the profile, and therefore the book databases of its
+     * accounts, if it has not already been opened.
+     *
+     * @throws AccountsDatabaseException If the database cannot be opened
+     */
+
+    @GuardedBy("account_current_lock")
+    private AccountsDatabaseType accountsOpenActual() throws AccountsDatabaseException {
+      final AccountsDatabaseType opened = this.accounts;
+      if (opened != null) {
+        return opened;
+      }
+
+      LOG.debug("opening accounts of profile {}", this.id.id());
+      final AccountsDatabaseType database =
+          this.accounts_databases.openDatabase(
+              this.account_providers, new File(this.directory, "accounts"));
+      this.account_current = database.accounts().get(database.accounts().firstKey());
+      this.accounts = database;
+      return database;
+    }
+
+    /**
+     * Open the accounts database of the profile for one of the accessors that cannot raise a
+     * checked exception.
+     *
+     * @throws IllegalStateException If the database cannot be opened
+     */
+
+    @GuardedBy("account_current_lock")
+    private AccountsDatabaseType accountsOpen() {
+      try {
+        return this.accountsOpenActual();
+      } catch (final AccountsDatabaseException e) {
+        throw new IllegalStateException(
+            "Could not open the accounts of profile " + this.id.id(), e);
+      }
+    }
+
+    /**
+     * Open the accounts database of the profile, if it has not already been opened.
+     *
+     * @throws ProfileDatabaseAccountsException If the database cannot be opened
+     */
+
+    private void accountsOpenChecked() throws ProfileDatabaseAccountsException {
+      if (this.accounts != null) {
+        return;
+      }
+
+      synchronized (this.account_current_lock) {
+        try {
+          this.accountsOpenActual();
+        } catch (final AccountsDatabaseException e) {
+          throw new ProfileDatabaseAccountsException(
+              "Could not open the accounts of profile " + this.id.id(), e);
+        }
+      }
+    }
+
+    /**
+     * Open the accounts database of the profile, logging rather than raising any error; the
+     * error is raised again when the accounts are next accessed.
+     */
+
+    private void accountsPrewarm() {
+      try {
+        this.accountsOpenChecked();
+      } catch (final ProfileDatabaseAccountsException e) {
+        LOG.error("could not open accounts of profile {}: ", this.id.id(), e);
+      }
     }
 
     @Override
     public ProfilePreferences preferences() {
       synchronized (this.description_lock) {
-        return this.description.preferences();
+        return this.descriptionCurrent().preferences();
+      }
+    }
+
+    /*
+     * Setting a bookmark does not rebuild the description; the bookmarks are copied out of the
+     * journal the next time that the description is needed.
+     */
+
+    @GuardedBy("description_lock")
+    private ProfileDescription descriptionCurrent() {
+      if (this.bookmarks_changed) {
+        this.description = withBookmarks(this.description, this.bookmarks.bookmarks());
+        this.bookmarks_changed = false;
       }
+      return this.description;
     }
 
     @Override
     public SortedMap<URI, AccountType> accountsByProvider() {
-      return this.accounts.accountsByProvider();
+      return this.accountsDatabase().accountsByProvider();
     }
 
     @Override
@@ -577,7 +829,30 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
 
     @Override
     public AccountsDatabaseType accountsDatabase() {
-      return this.accounts;
+      final AccountsDatabaseType opened = this.accounts;
+      if (opened != null) {
+        return opened;
+      }
+
+      synchronized (this.account_current_lock) {
+        return this.accountsOpen();
+      }
+    }
+
+    /**
+     * @return The accounts database of the profile, raising a checked exception if it cannot be
+     * opened
+     */
+
+    private AccountsDatabaseType accountsDatabaseChecked() throws AccountsDatabaseException {
+      final AccountsDatabaseType opened = this.accounts;
+      if (opened != null) {
+        return opened;
+      }
+
+      synchronized (this.account_current_lock) {
+        return this.accountsOpenActual();
+      }
     }
 
     @Override
@@ -586,15 +861,85 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
 
       NullCheck.notNull(preferences, "Preferences");
 
-      final ProfileDescription new_desc;
       synchronized (this.description_lock) {
-        new_desc =
-            this.description.toBuilder()
+        this.description =
+            this.descriptionCurrent().toBuilder()
                 .setPreferences(preferences)
                 .build();
 
-        writeDescription(this.directory, new_desc);
-        this.description = new_desc;
+        this.bookmarks.replace(preferences.readerBookmarks());
+        this.writeOrSchedule();
+      }
+    }
+
+    @Override
+    public void bookmarkSet(
+        final BookID book_id,
+        final ReaderBookLocation location)
+        throws IOException {
+
+      NullCheck.notNull(book_id, "Book ID");
+      NullCheck.notNull(location, "Location");
+
+      synchronized (this.description_lock) {
+        this.bookmarks.set(book_id, location);
+        this.bookmarks_changed = true;
+        this.writeOrSchedule();
+      }
+    }
+
+    @Override
+    public void preferencesFlush() throws IOException {
+      synchronized (this.description_lock) {
+        this.writePending();
+      }
+    }
+
+    /*
+     * If the database has write-behind enabled, the in-memory state is written once the delay
+     * has elapsed, and any further changes made in the meantime are written along with it.
+     * Otherwise, it is written immediately.
+     */
+
+    @GuardedBy("description_lock")
+    private void writeOrSchedule() throws IOException {
+      final ProfilesDatabase current_owner = this.owner;
+      final ScheduledExecutorService exec =
+          current_owner == null ? null : current_owner.write_behind_exec;
+
+      if (exec == null) {
+        this.writePending();
+        return;
+      }
+
+      if (this.flush_scheduled) {
+        return;
+      }
+
+      this.flush_scheduled = true;
+      try {
+        exec.schedule(() -> {
+          try {
+            this.preferencesFlush();
+          } catch (final IOException e) {
+            LOG.error("could not write preferences for profile {}: ", this.id.id(), e);
+          }
+        }, current_owner.write_behind_delay_ms, TimeUnit.MILLISECONDS);
+      } catch (final RejectedExecutionException e) {
+        this.flush_scheduled = false;
+        this.writePending();
+      }
+    }
+
+    @GuardedBy("description_lock")
+    private void writePending() throws IOException {
+      this.flush_scheduled = false;
+      this.bookmarks.flush();
+
+      final ProfileDescription current = withoutBookmarks(this.description);
+      if (!current.equals(this.description_written)) {
+        writeDescription(this.directory, current);
+        this.description_written = current;
       }
     }
 
@@ -603,7 +948,7 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
         throws AccountsDatabaseException {
 
       NullCheck.notNull(account_provider, "Account provider");
-      return this.accounts.createAccount(account_provider);
+      return this.accountsDatabaseChecked().createAccount(account_provider);
     }
 
     @Override
@@ -611,10 +956,11 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
         throws AccountsDatabaseException {
 
       NullCheck.notNull(account_provider, "Account provider");
-      final AccountID deleted = this.accounts.deleteAccountByProvider(account_provider);
+      final AccountID deleted =
+          this.accountsDatabaseChecked().deleteAccountByProvider(account_provider);
 
       synchronized (this.account_current_lock) {
-        if (this.account_current.id().equals(deleted)) {
+        if (NullCheck.notNull(this.account_current).id().equals(deleted)) {
           this.account_current = NullCheck.notNull(this.accounts().get(accounts().firstKey()));
         }
         return deleted;
@@ -626,7 +972,8 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
         throws AccountsDatabaseNonexistentException {
 
       NullCheck.notNull(account_provider, "Account provider");
-      final AccountType account = this.accounts.accountsByProvider().get(account_provider.id());
+      final AccountType account =
+          this.accountsDatabase().accountsByProvider().get(account_provider.id());
       if (account != null) {
         setAccountCurrent(account.id());
         return account;
@@ -646,7 +993,7 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
 
       NullCheck.notNull(id, "ID");
       synchronized (this.account_current_lock) {
-        final AccountType account = this.accounts.accounts().get(id);
+        final AccountType account = this.accountsOpen().accounts().get(id);
         if (account != null) {
           this.account_current = account;
         } else {
@@ -656,6 +1003,24 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
     }
   }
 
+  private static ProfileDescription withBookmarks(
+      final ProfileDescription desc,
+      final ReaderBookmarks bookmarks) {
+    return desc.toBuilder()
+        .setPreferences(desc.preferences().withReaderBookmarks(bookmarks))
+        .build();
+  }
+
+  private static ProfileDescription withoutBookmarks(
+      final ProfileDescription desc) {
+    return withBookmarks(desc, ReaderBookmarks.create(ImmutableMap.of()));
+  }
+
+  /**
+   * Write the given description to the profile directory. Bookmarks are stored in a
+   * {@link ProfileBookmarkJournal} and are therefore not written.
+   */
+
   private static void writeDescription(
       final File directory,
       final ProfileDescription new_desc)
@@ -683,7 +1048,8 @@ public final class ProfilesDatabase implements ProfilesDatabaseType {
           FileUtilities.fileWriteUTF8Atomically(
               profile_file,
               profile_file_tmp,
-              ProfileDescriptionJSON.serializeToString(new ObjectMapper(), new_desc));
+              ProfileDescriptionJSON.serializeToString(
+                  JSONMappers.mapper(), withoutBookmarks(new_desc)));
           return Unit.unit();
         });
   }
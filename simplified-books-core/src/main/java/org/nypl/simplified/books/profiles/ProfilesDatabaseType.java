@@ -7,7 +7,11 @@ import org.nypl.simplified.books.accounts.AccountProvider;
 import org.nypl.simplified.books.accounts.AccountsDatabaseNonexistentException;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.SortedMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <p>The interface exposed by the profiles database.</p>
@@ -103,17 +107,59 @@ public interface ProfilesDatabaseType {
 
   /**
    * Set the profile with the given ID as the current profile. Setting the current profile is
-   * forbidden if the anonymous profile is enabled.
+   * forbidden if the anonymous profile is enabled. The accounts of the profile are opened, if they
+   * have not been already; if they cannot be opened, the current profile is not changed.
    *
    * @param profile The profile ID
    * @throws ProfileNonexistentException      If no profile exists with the given ID
    * @throws ProfileAnonymousEnabledException If the anonymous profile is enabled
+   * @throws ProfileDatabaseAccountsException If the accounts of the profile cannot be opened
    * @see #anonymousProfileEnabled()
    */
 
   void setProfileCurrent(
       ProfileID profile)
-      throws ProfileAnonymousEnabledException, ProfileNonexistentException;
+      throws ProfileAnonymousEnabledException,
+      ProfileNonexistentException,
+      ProfileDatabaseAccountsException;
+
+  /**
+   * Defer writing profile preferences and bookmarks. Once enabled, an update to a profile changes
+   * the in-memory state of the profile immediately and schedules a write on the given executor
+   * after {@code delay}; updates made before the write happens are written along with it. Deferred
+   * writes are also made when a profile stops being current, and when {@link #flush()} or
+   * {@link ProfileType#preferencesFlush()} is called.
+   *
+   * @param executor The executor on which deferred writes are made
+   * @param delay    The time for which writes are deferred
+   * @param unit     The unit of {@code delay}
+   */
+
+  void enableWriteBehind(
+      ScheduledExecutorService executor,
+      long delay,
+      TimeUnit unit);
+
+  /**
+   * Open the accounts of all profiles on the given executor, starting with the current profile.
+   * The accounts of a profile, and the book databases of those accounts, are otherwise opened
+   * when the profile becomes current or when they are first accessed. Errors are logged, and are
+   * raised again when the accounts of the affected profile are accessed.
+   *
+   * @param executor The executor on which accounts are opened
+   */
+
+  void prewarm(
+      Executor executor);
+
+  /**
+   * Write any deferred changes to all profiles.
+   *
+   * @throws IOException On I/O errors
+   * @see #enableWriteBehind(ScheduledExecutorService, long, TimeUnit)
+   */
+
+  void flush() throws IOException;
 
   /**
    * Return the current profile. The current profile is the profile set with the most recent
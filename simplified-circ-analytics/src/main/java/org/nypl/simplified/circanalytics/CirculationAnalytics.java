@@ -1,18 +1,15 @@
 package org.nypl.simplified.circanalytics;
 
-import android.content.Context;
-
-import com.android.volley.Request;
-import com.android.volley.RequestQueue;
-import com.android.volley.Response;
-import com.android.volley.VolleyError;
-import com.android.volley.toolbox.Volley;
+import com.io7m.jfunctional.OptionType;
 import com.io7m.jfunctional.Some;
+import com.io7m.jnull.NullCheck;
 
-import org.nypl.simplified.books.accounts.AccountAuthenticationCredentials;
-import org.nypl.simplified.books.feeds.FeedEntryOPDS;
+import org.nypl.simplified.books.accounts.AccountAuthenticatedHTTP;
+import org.nypl.simplified.books.accounts.AccountReadableType;
+import org.nypl.simplified.books.analytics.CirculationAnalyticsDispatcher;
 import org.nypl.simplified.books.core.LogUtilities;
-import org.nypl.simplified.volley.NYPLStringRequest;
+import org.nypl.simplified.books.feeds.FeedEntryOPDS;
+import org.nypl.simplified.http.core.HTTPAuthType;
 import org.slf4j.Logger;
 
 import java.net.URI;
@@ -20,44 +17,57 @@ import java.net.URI;
 /**
  * Created by aferditamuriqi on 10/24/16.
  *
+ * Functions to report circulation events to the analytics endpoints of books.
  */
 
 public final class CirculationAnalytics {
 
-
   private static final Logger LOG;
 
   static {
     LOG = LogUtilities.getLog(CirculationAnalytics.class);
   }
 
+  private CirculationAnalytics() {
+
+  }
+
   /**
+   * Report an event for the given book. The event is queued on the given dispatcher, which is
+   * shared by the whole application; this method neither blocks nor starts any threads. The event
+   * is sent with the current credentials of the given account.
    *
+   * @param dispatcher The analytics dispatcher
+   * @param account    The account to which the book belongs
+   * @param entry      The book
+   * @param event      The event, such as {@code open_book}
    */
-  public static void postEvent(AccountAuthenticationCredentials creds, Context context, FeedEntryOPDS entry, String event)
-  {
-
-    final RequestQueue queue = Volley.newRequestQueue(context);
-
-    final URI url = ((Some<URI>) entry.getFeedEntry().getAnalytics()).get().resolve(event);
-
-    final String stringUrl =  ((Some<URI>) entry.getFeedEntry().getAnalytics()).get().toString() + "/" + event;
-
-    final NYPLStringRequest request = new NYPLStringRequest(Request.Method.GET, stringUrl, creds, new Response.Listener<String>() {
-      @Override
-      public void onResponse(final String string) {
-        // do nothing
-        LOG.debug(string);
-      }
-    }, new Response.ErrorListener() {
-      @Override
-      public void onErrorResponse(final VolleyError error) {
-        // do nothing
-        LOG.debug(error.toString());
-      }
-    });
-    queue.add(request);
 
+  public static void postEvent(
+      final CirculationAnalyticsDispatcher dispatcher,
+      final AccountReadableType account,
+      final FeedEntryOPDS entry,
+      final String event) {
+
+    NullCheck.notNull(dispatcher, "Dispatcher");
+    NullCheck.notNull(account, "Account");
+    NullCheck.notNull(entry, "Entry");
+    NullCheck.notNull(event, "Event");
+
+    final OptionType<URI> analytics = entry.getFeedEntry().getAnalytics();
+    if (analytics.isNone()) {
+      LOG.debug("book {} has no analytics endpoint", entry.getBookID());
+      return;
+    }
+
+    /*
+     * The directory of an account is unique across all profiles, and so identifies the account
+     * whose credentials may be used to send events read back from disk.
+     */
+
+    final OptionType<HTTPAuthType> auth =
+        account.credentials().map(AccountAuthenticatedHTTP::createAuthenticatedHTTP);
+    dispatcher.post(
+        account.directory().getAbsolutePath(), ((Some<URI>) analytics).get(), event, auth);
   }
-
 }
@@ -0,0 +1,302 @@
+package org.nypl.simplified.downloader.core;
+
+import com.io7m.jfunctional.Option;
+import com.io7m.jfunctional.OptionType;
+import com.io7m.jfunctional.Some;
+import com.io7m.jnull.NullCheck;
+import org.nypl.simplified.http.core.HTTPHashing;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Properties;
+
+/**
+ * <p>A partially downloaded file, and the sidecar file that describes it.</p>
+ *
+ * <p>The sidecar records the URI of the download, the validator (an entity
+ * tag or a last modification date) of the remote entity, and the number of
+ * bytes known to have been written to the data file. Together, these allow
+ * a download to be resumed with a conditional range request after it has
+ * been interrupted, even if the application was restarted in the
+ * meantime.</p>
+ *
+ * <p>Partial files are named after a hash of the URI, so that an
+ * interrupted download can be found again. Only one download of a given URI
+ * may use that file at a time; {@link DownloaderHTTP} gives any concurrent
+ * download of the same URI a private partial file (see
+ * {@link #createPrivate(File, URI, long)}) that is never resumed.</p>
+ */
+
+final class DownloadPartial
+{
+  /**
+   * The number of consecutive resumption attempts that may fail without
+   * receiving any data before the partial file is discarded.
+   */
+
+  private static final int MAXIMUM_FAILURES = 3;
+
+  private static final String KEY_URI       = "uri";
+  private static final String KEY_VALIDATOR = "validator";
+  private static final String KEY_BYTES     = "bytes";
+  private static final String KEY_FAILURES  = "failures";
+
+  private final URI                uri;
+  private final boolean            resumable;
+  private final File               file_data;
+  private final File               file_meta;
+  private final File               file_meta_tmp;
+  private       OptionType<String> validator;
+  private       int                failures;
+
+  private DownloadPartial(
+    final URI in_uri,
+    final boolean in_resumable,
+    final File in_file_data,
+    final File in_file_meta,
+    final File in_file_meta_tmp)
+  {
+    this.uri = NullCheck.notNull(in_uri);
+    this.resumable = in_resumable;
+    this.file_data = NullCheck.notNull(in_file_data);
+    this.file_meta = NullCheck.notNull(in_file_meta);
+    this.file_meta_tmp = NullCheck.notNull(in_file_meta_tmp);
+    this.validator = Option.none();
+    this.failures = 0;
+  }
+
+  /**
+   * @param directory The download directory
+   * @param uri       The URI of the download
+   *
+   * @return The partial file for the given URI
+   */
+
+  static DownloadPartial create(
+    final File directory,
+    final URI uri)
+  {
+    NullCheck.notNull(directory);
+    NullCheck.notNull(uri);
+
+    final String name = "partial-" + HTTPHashing.sha256Hex(uri.toString());
+    return new DownloadPartial(
+      uri,
+      true,
+      new File(directory, name + ".data"),
+      new File(directory, name + ".properties"),
+      new File(directory, name + ".properties.tmp"));
+  }
+
+  /**
+   * Create a partial file for a download of a URI that another download is
+   * already using the shared partial file of. The file is named after the
+   * download, and is deleted rather than kept if the download fails.
+   *
+   * @param directory The download directory
+   * @param uri       The URI of the download
+   * @param id        The unique ID of the download
+   *
+   * @return A private partial file for the given download
+   */
+
+  static DownloadPartial createPrivate(
+    final File directory,
+    final URI uri,
+    final long id)
+  {
+    NullCheck.notNull(directory);
+    NullCheck.notNull(uri);
+
+    final String name = String.format(
+      "partial-%s-%016d",
+      HTTPHashing.sha256Hex(uri.toString()),
+      Long.valueOf(id));
+    return new DownloadPartial(
+      uri,
+      false,
+      new File(directory, name + ".data"),
+      new File(directory, name + ".properties"),
+      new File(directory, name + ".properties.tmp"));
+  }
+
+  /**
+   * @return The file to which downloaded data is written
+   */
+
+  File dataFile()
+  {
+    return this.file_data;
+  }
+
+  /**
+   * @return The validator of the remote entity, if one is known
+   */
+
+  OptionType<String> validator()
+  {
+    return this.validator;
+  }
+
+  /**
+   * Determine the offset from which the download can be resumed. If there is
+   * no usable partial data, any existing partial files are deleted and the
+   * download must start from the beginning.
+   *
+   * @return The number of bytes that can be kept, or {@code 0}
+   */
+
+  long resumableLength()
+  {
+    this.validator = Option.none();
+    this.failures = 0;
+
+    if (!this.resumable
+      || !this.file_data.isFile()
+      || !this.file_meta.isFile()) {
+      this.delete();
+      return 0L;
+    }
+
+    try {
+      final Properties p = new Properties();
+      final InputStream is = new FileInputStream(this.file_meta);
+      try {
+        p.load(is);
+      } finally {
+        is.close();
+      }
+
+      final String p_uri = p.getProperty(DownloadPartial.KEY_URI);
+      final String p_validator = p.getProperty(DownloadPartial.KEY_VALIDATOR);
+      final long p_bytes =
+        Long.parseLong(p.getProperty(DownloadPartial.KEY_BYTES, "0"));
+      final int p_failures =
+        Integer.parseInt(p.getProperty(DownloadPartial.KEY_FAILURES, "0"));
+
+      final boolean usable = this.uri.toString().equals(p_uri)
+        && p_validator != null
+        && p_bytes > 0L
+        && p_failures < DownloadPartial.MAXIMUM_FAILURES;
+
+      if (!usable) {
+        this.delete();
+        return 0L;
+      }
+
+      this.validator = Option.some(p_validator);
+      this.failures = p_failures;
+
+      /*
+       * The sidecar is updated periodically, so the data file may contain
+       * more bytes than the sidecar records. Anything beyond the recorded
+       * length is discarded when the download resumes.
+       */
+
+      return Math.min(p_bytes, this.file_data.length());
+    } catch (final IOException | NumberFormatException e) {
+      this.delete();
+      return 0L;
+    }
+  }
+
+  /**
+   * Record the current state of the download.
+   *
+   * @param in_validator The validator of the remote entity, if any
+   * @param bytes        The number of bytes written to the data file
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void save(
+    final OptionType<String> in_validator,
+    final long bytes)
+    throws IOException
+  {
+    this.validator = NullCheck.notNull(in_validator);
+    this.writeMeta(bytes, this.failures);
+  }
+
+  /**
+   * Record that an attempt to download failed after {@code bytes} bytes had
+   * been written. The partial data is kept if it can be used to resume the
+   * download later, and is deleted otherwise.
+   *
+   * @param bytes    The number of bytes written to the data file
+   * @param progress {@code true} iff the failed attempt received any data
+   */
+
+  void failed(
+    final long bytes,
+    final boolean progress)
+  {
+    if (!this.resumable || this.validator.isNone() || bytes <= 0L) {
+      this.delete();
+      return;
+    }
+
+    this.failures = progress ? 0 : this.failures + 1;
+    try {
+      this.writeMeta(bytes, this.failures);
+    } catch (final IOException e) {
+      this.delete();
+    }
+  }
+
+  private void writeMeta(
+    final long bytes,
+    final int in_failures)
+    throws IOException
+  {
+    final Properties p = new Properties();
+    p.setProperty(DownloadPartial.KEY_URI, this.uri.toString());
+    p.setProperty(DownloadPartial.KEY_BYTES, Long.toString(bytes));
+    p.setProperty(DownloadPartial.KEY_FAILURES, Integer.toString(in_failures));
+
+    if (this.validator.isSome()) {
+      p.setProperty(
+        DownloadPartial.KEY_VALIDATOR, ((Some<String>) this.validator).get());
+    }
+
+    final OutputStream os = new FileOutputStream(this.file_meta_tmp);
+    try {
+      p.store(os, null);
+      os.flush();
+    } finally {
+      os.close();
+    }
+
+    if (!this.file_meta_tmp.renameTo(this.file_meta)) {
+      throw new IOException(
+        String.format(
+          "Could not rename %s to %s", this.file_meta_tmp, this.file_meta));
+    }
+  }
+
+  /**
+   * Delete the partial data and sidecar files.
+   */
+
+  void delete()
+  {
+    this.file_data.delete();
+    this.file_meta.delete();
+    this.file_meta_tmp.delete();
+  }
+
+  /**
+   * Delete the sidecar file, keeping the data file.
+   */
+
+  void deleteMeta()
+  {
+    this.file_meta.delete();
+    this.file_meta_tmp.delete();
+  }
+}
@@ -0,0 +1,24 @@
+package org.nypl.simplified.downloader.core;
+
+/**
+ * The priority of a download. Queued downloads with a higher priority are
+ * started before queued downloads with a lower priority, regardless of the
+ * order in which they were submitted.
+ */
+
+public enum DownloadPriority
+{
+  /**
+   * The download was explicitly requested by the user (such as the
+   * fulfillment of a loan that the user has just borrowed).
+   */
+
+  DOWNLOAD_PRIORITY_USER_INITIATED,
+
+  /**
+   * The download was started in the background without the user waiting on
+   * it (such as the re-download of a book that is already on loan).
+   */
+
+  DOWNLOAD_PRIORITY_BACKGROUND
+}
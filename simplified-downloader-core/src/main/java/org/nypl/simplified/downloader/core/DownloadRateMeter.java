@@ -0,0 +1,82 @@
+package org.nypl.simplified.downloader.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A meter that tracks the number of bytes received over a sliding window of
+ * one-second intervals.
+ */
+
+final class DownloadRateMeter
+{
+  private static final int WINDOW_SECONDS = 5;
+
+  private final long[] bucket_bytes;
+  private final long[] bucket_seconds;
+  private long total;
+
+  DownloadRateMeter()
+  {
+    this.bucket_bytes = new long[DownloadRateMeter.WINDOW_SECONDS];
+    this.bucket_seconds = new long[DownloadRateMeter.WINDOW_SECONDS];
+    for (int index = 0; index < this.bucket_seconds.length; ++index) {
+      this.bucket_seconds[index] = Long.MIN_VALUE;
+    }
+    this.total = 0L;
+  }
+
+  /**
+   * Record that {@code bytes} bytes were received at time {@code now_nanos}.
+   *
+   * @param now_nanos The current time, as given by {@link System#nanoTime()}
+   * @param bytes     The number of bytes
+   */
+
+  synchronized void record(
+    final long now_nanos,
+    final long bytes)
+  {
+    final long second = TimeUnit.NANOSECONDS.toSeconds(now_nanos);
+    final long window = (long) DownloadRateMeter.WINDOW_SECONDS;
+    final int index = (int) (((second % window) + window) % window);
+
+    if (this.bucket_seconds[index] != second) {
+      this.bucket_seconds[index] = second;
+      this.bucket_bytes[index] = 0L;
+    }
+
+    this.bucket_bytes[index] += bytes;
+    this.total += bytes;
+  }
+
+  /**
+   * @param now_nanos The current time, as given by {@link System#nanoTime()}
+   *
+   * @return The average rate over the window ending at {@code now_nanos}
+   */
+
+  synchronized long bytesPerSecond(
+    final long now_nanos)
+  {
+    final long second = TimeUnit.NANOSECONDS.toSeconds(now_nanos);
+    final long oldest = second - (long) DownloadRateMeter.WINDOW_SECONDS;
+
+    long sum = 0L;
+    for (int index = 0; index < this.bucket_seconds.length; ++index) {
+      final long bucket_second = this.bucket_seconds[index];
+      if (bucket_second > oldest && bucket_second <= second) {
+        sum += this.bucket_bytes[index];
+      }
+    }
+    return sum / (long) DownloadRateMeter.WINDOW_SECONDS;
+  }
+
+  /**
+   * @return The total number of bytes recorded
+   */
+
+  synchronized long bytesTotal()
+  {
+    return this.total;
+  }
+}
@@ -0,0 +1,117 @@
+package org.nypl.simplified.downloader.core;
+
+import com.google.auto.value.AutoValue;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The configuration for a downloader.
+ */
+
+@AutoValue
+public abstract class DownloaderConfiguration
+{
+  DownloaderConfiguration()
+  {
+
+  }
+
+  /**
+   * @return The maximum number of downloads that may be in progress at any
+   * given time
+   */
+
+  public abstract int maximumConcurrentDownloads();
+
+  /**
+   * @return The maximum number of downloads that may be in progress for a
+   * single host at any given time
+   */
+
+  public abstract int maximumConcurrentDownloadsPerHost();
+
+  /**
+   * @return The thread factory used to create download threads
+   */
+
+  public abstract ThreadFactory threadFactory();
+
+  /**
+   * The type of mutable builders for downloader configurations.
+   */
+
+  @AutoValue.Builder
+  public abstract static class Builder
+  {
+    Builder()
+    {
+
+    }
+
+    /**
+     * @param count The maximum number of concurrent downloads
+     *
+     * @return The current builder
+     *
+     * @see #maximumConcurrentDownloads()
+     */
+
+    public abstract Builder setMaximumConcurrentDownloads(int count);
+
+    /**
+     * @param count The maximum number of concurrent downloads per host
+     *
+     * @return The current builder
+     *
+     * @see #maximumConcurrentDownloadsPerHost()
+     */
+
+    public abstract Builder setMaximumConcurrentDownloadsPerHost(int count);
+
+    /**
+     * @param factory The thread factory
+     *
+     * @return The current builder
+     *
+     * @see #threadFactory()
+     */
+
+    public abstract Builder setThreadFactory(ThreadFactory factory);
+
+    abstract DownloaderConfiguration autoBuild();
+
+    /**
+     * @return The constructed configuration
+     *
+     * @throws IllegalArgumentException If any of the limits are not positive
+     */
+
+    public final DownloaderConfiguration build()
+    {
+      final DownloaderConfiguration c = this.autoBuild();
+      if (c.maximumConcurrentDownloads() < 1) {
+        throw new IllegalArgumentException(
+          "Maximum concurrent downloads must be positive");
+      }
+      if (c.maximumConcurrentDownloadsPerHost() < 1) {
+        throw new IllegalArgumentException(
+          "Maximum concurrent downloads per host must be positive");
+      }
+      return c;
+    }
+  }
+
+  /**
+   * @return A new configuration builder, with a default limit of four
+   * concurrent downloads with at most two to any one host
+   */
+
+  public static Builder builder()
+  {
+    return new AutoValue_DownloaderConfiguration.Builder()
+      .setMaximumConcurrentDownloads(4)
+      .setMaximumConcurrentDownloadsPerHost(2)
+      .setThreadFactory(Executors.defaultThreadFactory());
+  }
+}
@@ -2,6 +2,7 @@ package org.nypl.simplified.downloader.core;
 
 import com.io7m.jfunctional.Option;
 import com.io7m.jfunctional.OptionType;
+import com.io7m.jfunctional.Some;
 import com.io7m.jfunctional.Unit;
 import com.io7m.jnull.NullCheck;
 import org.nypl.simplified.http.core.HTTPAuthType;
@@ -19,43 +20,92 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * The default implementation of the {@link DownloaderType} interface.
+ * <p>The default implementation of the {@link DownloaderType} interface.</p>
+ *
+ * <p>Downloads are queued and started in order of priority, subject to a
+ * limit on the total number of concurrent downloads and a limit on the number
+ * of concurrent downloads to any one host. Downloads that cannot start yet
+ * wait in the queue without occupying a thread.</p>
  */
 
 public final class DownloaderHTTP implements DownloaderType
 {
   private static final Logger LOG;
 
+  /**
+   * The number of bytes received between updates of the sidecar file of a
+   * partial download.
+   */
+
+  private static final long PARTIAL_SAVE_INTERVAL = 4L * 1024L * 1024L;
+
   static {
     LOG = NullCheck.notNull(LoggerFactory.getLogger(DownloaderHTTP.class));
   }
 
-  private final HTTPType        http;
-  private final ExecutorService exec;
-  private final File            directory;
-  private final AtomicLong      id_pool;
+  private final HTTPType                http;
+  private final ExecutorService         exec;
+  private final boolean                 exec_owned;
+  private final File                    directory;
+  private final AtomicLong              id_pool;
+  private final DownloaderConfiguration config;
+  private final DownloadRateMeter       rate;
+  private final Object                  lock;
+  private final TreeSet<Download>       queue;
+  private final Set<Download>           running;
+  private final Map<URI, Integer>       uris_in_use;
+  private final Map<String, Integer>    active_per_host;
+  private       int                     active;
+  private       boolean                 shut_down;
 
   private DownloaderHTTP(
     final ExecutorService in_exec,
+    final boolean in_exec_owned,
+    final DownloaderConfiguration in_config,
     final File in_directory,
     final HTTPType in_http)
   {
     this.exec = NullCheck.notNull(in_exec);
+    this.exec_owned = in_exec_owned;
+    this.config = NullCheck.notNull(in_config);
     this.directory = NullCheck.notNull(in_directory);
     this.http = NullCheck.notNull(in_http);
     this.id_pool = new AtomicLong(0L);
+    this.rate = new DownloadRateMeter();
+    this.lock = new Object();
+    this.queue = new TreeSet<Download>(new DownloadPriorityComparator());
+    this.running = new HashSet<Download>();
+    this.uris_in_use = new HashMap<URI, Integer>();
+    this.active_per_host = new HashMap<String, Integer>();
+    this.active = 0;
+    this.shut_down = false;
   }
 
   /**
+   * Create a new downloader that runs downloads on the given executor. The
+   * downloader applies the limits of the default configuration (see
+   * {@link DownloaderConfiguration#builder()}), but the executor is expected
+   * to have at least as many threads as the configuration allows concurrent
+   * downloads. The executor is not shut down by {@link #shutDown()}.
+   *
    * @param in_exec      An executor service
    * @param in_directory A storage directory
    * @param in_http      An HTTP interface
@@ -68,16 +118,58 @@ public final class DownloaderHTTP implements DownloaderType
     final File in_directory,
     final HTTPType in_http)
   {
-    return new DownloaderHTTP(in_exec, in_directory, in_http);
+    return new DownloaderHTTP(
+      in_exec,
+      false,
+      DownloaderConfiguration.builder().build(),
+      in_directory,
+      in_http);
+  }
+
+  /**
+   * Create a new downloader that owns a dedicated thread pool sized according
+   * to the given configuration. The pool is shut down by {@link #shutDown()}.
+   *
+   * @param in_config    The downloader configuration
+   * @param in_directory A storage directory
+   * @param in_http      An HTTP interface
+   *
+   * @return A new downloader
+   */
+
+  public static DownloaderType newDownloaderWithConfiguration(
+    final DownloaderConfiguration in_config,
+    final File in_directory,
+    final HTTPType in_http)
+  {
+    NullCheck.notNull(in_config);
+    final ExecutorService exec = NullCheck.notNull(
+      Executors.newFixedThreadPool(
+        in_config.maximumConcurrentDownloads(), in_config.threadFactory()));
+    return new DownloaderHTTP(exec, true, in_config, in_directory, in_http);
+  }
+
+  @Override public DownloadType download(
+    final URI in_uri,
+    final OptionType<HTTPAuthType> in_auth,
+    final DownloadListenerType in_listener)
+  {
+    return this.download(
+      in_uri,
+      in_auth,
+      DownloadPriority.DOWNLOAD_PRIORITY_USER_INITIATED,
+      in_listener);
   }
 
   @Override public DownloadType download(
     final URI in_uri,
     final OptionType<HTTPAuthType> in_auth,
+    final DownloadPriority in_priority,
     final DownloadListenerType in_listener)
   {
     NullCheck.notNull(in_uri);
     NullCheck.notNull(in_auth);
+    NullCheck.notNull(in_priority);
     NullCheck.notNull(in_listener);
 
     final long id = this.id_pool.incrementAndGet();
@@ -85,41 +177,307 @@ public final class DownloaderHTTP implements DownloaderType
       this.directory, String.format(
       "%016d.data", Long.valueOf(id)));
 
-    DownloaderHTTP.LOG.debug("queued download {} for {}", file, in_uri);
-    final Download d =
-      new Download(id, file, in_auth, in_uri, this.http, in_listener);
-    this.exec.execute(d);
+    final Download d;
+    final boolean rejected;
+    synchronized (this.lock) {
+      rejected = this.shut_down;
+
+      /*
+       * The shared partial file of a URI can only be used by one download at
+       * a time. A second download of a URI that is already being downloaded
+       * (such as the same book borrowed by two accounts) gets a private
+       * partial file, so that the two transfers cannot corrupt each other.
+       */
+
+      final int in_use = this.uriInUse(in_uri);
+      final DownloadPartial partial;
+      if (in_use == 0) {
+        partial = DownloadPartial.create(this.directory, in_uri);
+      } else {
+        DownloaderHTTP.LOG.debug(
+          "{} is already being downloaded, using a private partial file", in_uri);
+        partial = DownloadPartial.createPrivate(this.directory, in_uri, id);
+      }
+
+      d = new Download(
+        this,
+        id,
+        in_priority,
+        file,
+        partial,
+        in_auth,
+        in_uri,
+        this.http,
+        in_listener);
+
+      if (!rejected) {
+        DownloaderHTTP.LOG.debug(
+          "queued download {} for {} ({})", file, in_uri, in_priority);
+        this.uris_in_use.put(in_uri, Integer.valueOf(in_use + 1));
+        this.queue.add(d);
+      }
+    }
+
+    if (rejected) {
+      DownloaderHTTP.LOG.error("downloader is shut down, rejecting {}", in_uri);
+      d.listener.onDownloadFailed(
+        d,
+        -1,
+        0L,
+        Option.some(
+          (Throwable) new IllegalStateException("Downloader is shut down")));
+      return d;
+    }
+
+    this.dispatch();
     return d;
   }
 
+  @Override public void shutDown()
+  {
+    final List<Download> cancel = new ArrayList<Download>();
+    synchronized (this.lock) {
+      if (this.shut_down) {
+        return;
+      }
+      this.shut_down = true;
+      cancel.addAll(this.queue);
+      cancel.addAll(this.running);
+    }
+
+    DownloaderHTTP.LOG.debug(
+      "shutting down, cancelling {} downloads", Integer.valueOf(cancel.size()));
+    for (final Download d : cancel) {
+      d.cancel();
+    }
+
+    if (this.exec_owned) {
+      this.exec.shutdown();
+    }
+  }
+
+  @Override public DownloaderStatistics statistics()
+  {
+    final int queued;
+    final int running;
+    synchronized (this.lock) {
+      queued = this.queue.size();
+      running = this.active;
+    }
+
+    return DownloaderStatistics.create(
+      queued,
+      running,
+      this.rate.bytesPerSecond(System.nanoTime()),
+      this.rate.bytesTotal());
+  }
+
+  /**
+   * Start as many queued downloads as the configured limits allow, highest
+   * priority first. A download whose host is at its limit does not prevent
+   * downloads for other hosts from starting.
+   */
+
+  private void dispatch()
+  {
+    final List<Download> ready = new ArrayList<Download>();
+
+    synchronized (this.lock) {
+      if (this.shut_down) {
+        return;
+      }
+
+      final int max = this.config.maximumConcurrentDownloads();
+      final int max_host = this.config.maximumConcurrentDownloadsPerHost();
+
+      final Iterator<Download> iter = this.queue.iterator();
+      while (iter.hasNext() && this.active < max) {
+        final Download d = iter.next();
+        final int host_active = this.hostActive(d.host);
+        if (host_active < max_host) {
+          iter.remove();
+          this.active_per_host.put(d.host, Integer.valueOf(host_active + 1));
+          ++this.active;
+          this.running.add(d);
+          ready.add(d);
+        }
+      }
+    }
+
+    for (final Download d : ready) {
+      try {
+        this.exec.execute(
+          new Runnable()
+          {
+            @Override public void run()
+            {
+              try {
+                d.run();
+              } finally {
+                DownloaderHTTP.this.finished(d);
+              }
+            }
+          });
+      } catch (final RejectedExecutionException e) {
+        DownloaderHTTP.LOG.error("could not start download: ", e);
+        d.listener.onDownloadFailed(d, -1, 0L, Option.some((Throwable) e));
+        this.finished(d);
+      }
+    }
+  }
+
+  private int hostActive(
+    final String host)
+  {
+    final Integer count = this.active_per_host.get(host);
+    if (count == null) {
+      return 0;
+    }
+    return count.intValue();
+  }
+
+  private void finished(
+    final Download d)
+  {
+    synchronized (this.lock) {
+      final int host_active = this.hostActive(d.host) - 1;
+      if (host_active <= 0) {
+        this.active_per_host.remove(d.host);
+      } else {
+        this.active_per_host.put(d.host, Integer.valueOf(host_active));
+      }
+      --this.active;
+      this.running.remove(d);
+      this.releaseURI(d);
+    }
+
+    this.dispatch();
+  }
+
+  /**
+   * Remove a cancelled download from the queue, if it has not started yet.
+   *
+   * @return {@code true} iff the download was still queued
+   */
+
+  private boolean cancelQueued(
+    final Download d)
+  {
+    synchronized (this.lock) {
+      final boolean removed = this.queue.remove(d);
+      if (removed) {
+        this.releaseURI(d);
+      }
+      return removed;
+    }
+  }
+
+  private int uriInUse(
+    final URI uri)
+  {
+    final Integer count = this.uris_in_use.get(uri);
+    if (count == null) {
+      return 0;
+    }
+    return count.intValue();
+  }
+
+  private void releaseURI(
+    final Download d)
+  {
+    if (d.uri_released) {
+      return;
+    }
+    d.uri_released = true;
+
+    final int count = this.uriInUse(d.uri) - 1;
+    if (count <= 0) {
+      this.uris_in_use.remove(d.uri);
+    } else {
+      this.uris_in_use.put(d.uri, Integer.valueOf(count));
+    }
+  }
+
+  /**
+   * Indicate that a download has stopped using its partial file. This is
+   * called before the listener of the download is notified, so that a
+   * download of the same URI started by the listener (such as a retry) can
+   * resume from the shared partial file.
+   */
+
+  private void releasePartial(
+    final Download d)
+  {
+    synchronized (this.lock) {
+      this.releaseURI(d);
+    }
+  }
+
+  private static final class DownloadPriorityComparator
+    implements Comparator<Download>
+  {
+    DownloadPriorityComparator()
+    {
+
+    }
+
+    @Override public int compare(
+      final Download x,
+      final Download y)
+    {
+      final int p = x.priority.compareTo(y.priority);
+      if (p != 0) {
+        return p;
+      }
+      return Long.compare(x.id, y.id);
+    }
+  }
+
   private static final class Download implements Runnable,
     DownloadType,
     HTTPResultMatcherType<InputStream, Unit, IOException>
   {
+    private final DownloaderHTTP           owner;
+    private final long                     id;
+    private final DownloadPriority         priority;
+    private final String                   host;
     private final URI                      uri;
     private final AtomicBoolean            cancel;
     private final HTTPType                 http;
     private final OptionType<HTTPAuthType> auth;
     private final File                     file;
+    private final DownloadPartial          partial;
     private final DownloadListenerType     listener;
     private final Logger                   log;
     private       long                     total;
+    private       long                     offset;
     private       String                   content_type;
+    private       boolean                  uri_released;
 
     private Download(
+      final DownloaderHTTP in_owner,
       final long in_id,
+      final DownloadPriority in_priority,
       final File in_file,
+      final DownloadPartial in_partial,
       final OptionType<HTTPAuthType> in_auth,
       final URI in_uri,
       final HTTPType in_http,
       final DownloadListenerType in_listener)
     {
+      this.owner = NullCheck.notNull(in_owner);
+      this.id = in_id;
+      this.priority = NullCheck.notNull(in_priority);
       this.auth = NullCheck.notNull(in_auth);
       this.file = NullCheck.notNull(in_file);
+      this.partial = NullCheck.notNull(in_partial);
       this.uri = NullCheck.notNull(in_uri);
       this.http = NullCheck.notNull(in_http);
       NullCheck.notNull(in_listener);
 
+      final String uri_host = in_uri.getHost();
+      this.host = uri_host == null ? "" : uri_host;
+
       final String name = String.format(
         "%s[%d]", DownloaderHTTP.class, Long.valueOf(in_id));
       this.log = NullCheck.notNull(LoggerFactory.getLogger(name));
@@ -128,35 +486,127 @@ public final class DownloaderHTTP implements DownloaderType
         new DownloadCatchingListener(DownloaderHTTP.LOG, in_listener);
 
       this.total = 0L;
+      this.offset = 0L;
     }
 
     private static String getContentType(
       final Map<String, List<String>> headers)
     {
-      if (headers.containsKey("Content-Type")) {
-        final List<String> values = headers.get("Content-Type");
-        if (values.isEmpty() == false) {
-          return NullCheck.notNull(values.get(0));
+      final OptionType<String> type = Download.getHeader(headers, "Content-Type");
+      if (type.isSome()) {
+        return ((Some<String>) type).get();
+      }
+      return "application/octet-stream";
+    }
+
+    /**
+     * Find the first value of the named header. Header names are compared
+     * case-insensitively, as servers differ in how they capitalize them.
+     */
+
+    private static OptionType<String> getHeader(
+      final Map<String, List<String>> headers,
+      final String name)
+    {
+      for (final Map.Entry<String, List<String>> e : headers.entrySet()) {
+        final String key = e.getKey();
+        if (key != null && key.equalsIgnoreCase(name)) {
+          final List<String> values = e.getValue();
+          if (values != null && values.isEmpty() == false) {
+            return Option.some(NullCheck.notNull(values.get(0)));
+          }
         }
       }
+      return Option.none();
+    }
 
-      return "application/octet-stream";
+    /**
+     * Determine a validator for the remote entity that is suitable for use
+     * in an {@code If-Range} header. Weak entity tags cannot be used for
+     * ranges, so the last modification date is preferred in that case.
+     */
+
+    private static OptionType<String> getValidator(
+      final Map<String, List<String>> headers)
+    {
+      final OptionType<String> etag = Download.getHeader(headers, "ETag");
+      if (etag.isSome()) {
+        final String tag = ((Some<String>) etag).get();
+        if (!tag.startsWith("W/")) {
+          return etag;
+        }
+      }
+      return Download.getHeader(headers, "Last-Modified");
+    }
+
+    /**
+     * Determine the first byte position of a {@code Content-Range} header of
+     * the form {@code bytes first-last/length}.
+     */
+
+    private static long getContentRangeStart(
+      final Map<String, List<String>> headers)
+      throws IOException
+    {
+      final OptionType<String> range_opt =
+        Download.getHeader(headers, "Content-Range");
+      if (range_opt.isNone()) {
+        throw new IOException("Partial content without a Content-Range");
+      }
+
+      final String range = ((Some<String>) range_opt).get().trim();
+      try {
+        if (range.startsWith("bytes ")) {
+          final int dash = range.indexOf('-');
+          if (dash > 6) {
+            return Long.parseLong(range.substring(6, dash).trim());
+          }
+        }
+      } catch (final NumberFormatException e) {
+        throw new IOException("Malformed Content-Range: " + range, e);
+      }
+      throw new IOException("Malformed Content-Range: " + range);
     }
 
     @Override public void run()
     {
+      if (this.cancel.get()) {
+        this.log.debug("download cancelled before starting");
+        this.owner.releasePartial(this);
+        this.listener.onDownloadCancelled(this);
+        return;
+      }
+
+      this.offset = this.partial.resumableLength();
+      this.total = this.offset;
+
       try {
         final HTTPRedirectFollower rf = new HTTPRedirectFollower(
-          this.log, this.http, "GET", this.auth, 5, this.uri, 0L);
-
-        this.log.debug(
-          "starting download, uri {} to file {}", this.uri, this.file);
+          this.log,
+          this.http,
+          "GET",
+          this.auth,
+          5,
+          this.uri,
+          this.offset,
+          this.partial.validator());
+
+        if (this.offset > 0L) {
+          this.log.debug(
+            "resuming download at offset {}, uri {} to file {}",
+            Long.valueOf(this.offset),
+            this.uri,
+            this.file);
+        } else {
+          this.log.debug(
+            "starting download, uri {} to file {}", this.uri, this.file);
+        }
 
         final HTTPResultType<InputStream> r = rf.runExceptional();
         r.matchResult(this);
       } catch (final Throwable e) {
+        this.failedResumable();
         this.listener.onDownloadFailed(this, -1, this.total, Option.some(e));
-        this.failed();
       }
     }
 
@@ -167,20 +617,46 @@ public final class DownloaderHTTP implements DownloaderType
       this.log.error("http error: status {}", Integer.valueOf(e.getStatus()));
 
       final OptionType<Throwable> none = Option.none();
+      if (Download.isPartialUnusable(e.getStatus())) {
+        this.failed();
+      } else {
+        this.failedResumable();
+      }
       this.listener.onDownloadFailed(this, e.getStatus(), this.total, none);
-      this.failed();
       return Unit.unit();
     }
 
+    /**
+     * @return {@code true} iff the given error status means that any partial
+     * data for the URI can no longer be used to resume the download: the
+     * entity is gone, or it no longer matches the partial data. Any other
+     * error (such as a server error, a timeout, or throttling) may be
+     * transient, and the partial data is kept.
+     */
+
+    private static boolean isPartialUnusable(
+      final int status)
+    {
+      switch (status) {
+        case HttpURLConnection.HTTP_NOT_FOUND:
+        case HttpURLConnection.HTTP_GONE:
+        case HttpURLConnection.HTTP_PRECON_FAILED:
+        case 416:
+          return true;
+        default:
+          return false;
+      }
+    }
+
     @Override public Unit onHTTPException(
       final HTTPResultException<InputStream> e)
       throws IOException
     {
       this.log.error("http error: ", e.getError());
 
+      this.failedResumable();
       this.listener.onDownloadFailed(
         this, -1, this.total, Option.some((Throwable) e.getError()));
-      this.failed();
       return Unit.unit();
     }
 
@@ -189,66 +665,154 @@ public final class DownloaderHTTP implements DownloaderType
       throws IOException
     {
       this.log.debug("http ok: ", Integer.valueOf(e.getStatus()));
-      final long expected = e.getContentLength();
-      this.content_type = Download.getContentType(e.getResponseHeaders());
+
+      final Map<String, List<String>> headers = e.getResponseHeaders();
+      final long length = e.getContentLength();
+
+      /*
+       * If the server did not honour the range request (because it does not
+       * support ranges, or because the entity has changed since the partial
+       * data was downloaded), it sends the entire entity and the partial
+       * data must be discarded.
+       */
+
+      final boolean append;
+      if (this.offset > 0L && e.getStatus() == 206) {
+        final long start = Download.getContentRangeStart(headers);
+        if (start != this.offset) {
+          final long requested = this.offset;
+          this.partial.delete();
+          this.offset = 0L;
+          this.total = 0L;
+          throw new IOException(
+            String.format(
+              "Requested content from offset %d but received offset %d",
+              Long.valueOf(requested),
+              Long.valueOf(start)));
+        }
+        append = true;
+      } else {
+        if (this.offset > 0L) {
+          this.log.debug("server sent the entire entity; restarting");
+        }
+        this.offset = 0L;
+        this.total = 0L;
+        append = false;
+      }
+
+      final long expected = length < 0L ? length : this.offset + length;
+      this.content_type = Download.getContentType(headers);
       this.log.debug(
         "expecting {} bytes of {}", Long.valueOf(expected), this.content_type);
-      this.listener.onDownloadStarted(this, expected);
 
-      final OutputStream out = new FileOutputStream(this.file);
+      final OptionType<String> validator = Download.getValidator(headers);
+      final File data = this.partial.dataFile();
+      final FileOutputStream out = new FileOutputStream(data, append);
       try {
+        if (append) {
+          out.getChannel().truncate(this.offset);
+        }
+        this.partial.save(validator, this.total);
+        this.listener.onDownloadStarted(this, expected);
+
         final InputStream stream = e.getValue();
         try {
           final byte[] buffer = new byte[1024];
+          long saved = this.total;
 
           while (this.cancel.get() == false) {
             final int r = stream.read(buffer);
             if (r == -1) {
               break;
             }
-            this.total += (long) r;
             out.write(buffer, 0, r);
+            this.total += (long) r;
+            this.owner.rate.record(System.nanoTime(), (long) r);
             this.listener.onDownloadDataReceived(
               this, this.total, expected);
-          }
 
-          if (this.cancel.get()) {
-            this.log.debug("download cancelled");
-            this.listener.onDownloadCancelled(this);
-          } else {
-            if (this.total != expected) {
-              this.log.error(
-                "received {} bytes but expected {}",
-                Long.valueOf(this.total),
-                Long.valueOf(expected));
-              final OptionType<Throwable> none = Option.none();
-              this.listener.onDownloadFailed(
-                this, e.getStatus(), this.total, none);
-              this.failed();
-            } else {
-              this.log.debug("download completed");
-              this.listener.onDownloadCompleted(this, this.file);
+            if (this.total - saved >= DownloaderHTTP.PARTIAL_SAVE_INTERVAL) {
+              this.partial.save(validator, this.total);
+              saved = this.total;
             }
           }
-
         } finally {
           stream.close();
         }
-        return Unit.unit();
       } finally {
         out.close();
       }
+
+      if (this.cancel.get()) {
+        this.log.debug("download cancelled");
+        this.partial.delete();
+        this.owner.releasePartial(this);
+        this.listener.onDownloadCancelled(this);
+        return Unit.unit();
+      }
+
+      if (this.total != expected) {
+        this.log.error(
+          "received {} bytes but expected {}",
+          Long.valueOf(this.total),
+          Long.valueOf(expected));
+        if (expected >= 0L && this.total < expected) {
+          this.failedResumable();
+        } else {
+          this.failed();
+        }
+
+        final OptionType<Throwable> none = Option.none();
+        this.listener.onDownloadFailed(this, e.getStatus(), this.total, none);
+        return Unit.unit();
+      }
+
+      if (!data.renameTo(this.file)) {
+        throw new IOException(
+          String.format("Could not rename %s to %s", data, this.file));
+      }
+      this.partial.deleteMeta();
+      this.owner.releasePartial(this);
+
+      this.log.debug("download completed");
+      this.listener.onDownloadCompleted(this, this.file);
+      return Unit.unit();
     }
 
+    /**
+     * The download failed in a way that cannot be recovered by resuming it
+     * later, so any partial data is discarded.
+     */
+
     private void failed()
     {
+      this.partial.delete();
       this.file.delete();
+      this.owner.releasePartial(this);
+    }
+
+    /**
+     * The download failed in a way that may be transient (such as loss of
+     * network connectivity), so any partial data is kept so that the
+     * download can be resumed later.
+     */
+
+    private void failedResumable()
+    {
+      this.partial.failed(this.total, this.total > this.offset);
+      this.file.delete();
+      this.owner.releasePartial(this);
     }
 
     @Override public void cancel()
     {
       this.log.debug("cancelling download");
       this.cancel.set(true);
+
+      if (this.owner.cancelQueued(this)) {
+        this.log.debug("download cancelled before starting");
+        this.listener.onDownloadCancelled(this);
+      }
     }
 
     @Override public String getContentType()
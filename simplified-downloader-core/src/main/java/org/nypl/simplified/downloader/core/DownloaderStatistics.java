@@ -0,0 +1,62 @@
+package org.nypl.simplified.downloader.core;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * A snapshot of the state of a downloader.
+ */
+
+@AutoValue
+public abstract class DownloaderStatistics
+{
+  DownloaderStatistics()
+  {
+
+  }
+
+  /**
+   * Construct a snapshot.
+   *
+   * @param queued           The number of queued downloads
+   * @param active           The number of active downloads
+   * @param bytes_per_second The recent download rate
+   * @param bytes_total      The total number of bytes received
+   *
+   * @return A snapshot
+   */
+
+  public static DownloaderStatistics create(
+    final int queued,
+    final int active,
+    final long bytes_per_second,
+    final long bytes_total)
+  {
+    return new AutoValue_DownloaderStatistics(
+      queued, active, bytes_per_second, bytes_total);
+  }
+
+  /**
+   * @return The number of downloads waiting to start
+   */
+
+  public abstract int queued();
+
+  /**
+   * @return The number of downloads in progress
+   */
+
+  public abstract int active();
+
+  /**
+   * @return The combined rate of all downloads, averaged over the last few
+   * seconds
+   */
+
+  public abstract long bytesPerSecond();
+
+  /**
+   * @return The total number of bytes received by the downloader
+   */
+
+  public abstract long bytesTotal();
+}
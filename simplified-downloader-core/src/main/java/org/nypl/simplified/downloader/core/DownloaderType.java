@@ -12,7 +12,9 @@ import java.net.URI;
 public interface DownloaderType
 {
   /**
-   * Download the file at the given URI.
+   * Download the file at the given URI. This is equivalent to calling
+   * {@link #download(URI, OptionType, DownloadPriority, DownloadListenerType)}
+   * with {@link DownloadPriority#DOWNLOAD_PRIORITY_USER_INITIATED}.
    *
    * @param uri      The URI
    * @param auth     The authentication data, if any
@@ -25,4 +27,38 @@ public interface DownloaderType
     URI uri,
     OptionType<HTTPAuthType> auth,
     DownloadListenerType listener);
+
+  /**
+   * Download the file at the given URI. The download is queued until the
+   * downloader has capacity for it, and queued downloads are started in order
+   * of priority.
+   *
+   * @param uri      The URI
+   * @param auth     The authentication data, if any
+   * @param priority The download priority
+   * @param listener The listener
+   *
+   * @return A download
+   */
+
+  DownloadType download(
+    URI uri,
+    OptionType<HTTPAuthType> auth,
+    DownloadPriority priority,
+    DownloadListenerType listener);
+
+  /**
+   * @return A snapshot of the current state of the downloader
+   */
+
+  DownloaderStatistics statistics();
+
+  /**
+   * Shut down the downloader. Queued downloads are cancelled, and running
+   * downloads are cancelled and stop after their next read. If the downloader
+   * created its own thread pool, the pool is shut down. Downloads requested
+   * after the downloader has been shut down fail immediately.
+   */
+
+  void shutDown();
 }
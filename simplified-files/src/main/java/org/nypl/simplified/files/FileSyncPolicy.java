@@ -0,0 +1,23 @@
+package org.nypl.simplified.files;
+
+/**
+ * The policy used to decide whether data written to a file should be forced
+ * to the underlying storage device before the write is considered complete.
+ */
+
+public enum FileSyncPolicy
+{
+  /**
+   * Leave the data to be written back by the operating system at its
+   * leisure.
+   */
+
+  FILE_SYNC_NONE,
+
+  /**
+   * Force the file contents to the storage device exactly once, after the
+   * entire file has been written.
+   */
+
+  FILE_SYNC_ONCE
+}
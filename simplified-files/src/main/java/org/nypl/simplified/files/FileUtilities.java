@@ -13,7 +13,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
 import java.io.Writer;
+import java.nio.channels.FileChannel;
 import java.security.SecureRandom;
 
 /**
@@ -28,7 +30,8 @@ public final class FileUtilities
   }
 
   /**
-   * Copy the file {@code from} to {@code to}.
+   * Copy the file {@code from} to {@code to}. The data is left to be written
+   * back to storage by the operating system.
    *
    * @param from The source file
    * @param to   The target file
@@ -40,39 +43,129 @@ public final class FileUtilities
     final File from,
     final File to)
     throws IOException
+  {
+    FileUtilities.fileCopy(from, to, FileSyncPolicy.FILE_SYNC_NONE);
+  }
+
+  /**
+   * Copy the file {@code from} to {@code to}, forcing the copied data to
+   * storage according to {@code sync}. The data is transferred between file
+   * channels, allowing the platform to avoid copying it through user space
+   * where it is able to do so.
+   *
+   * @param from The source file
+   * @param to   The target file
+   * @param sync The sync policy
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static void fileCopy(
+    final File from,
+    final File to,
+    final FileSyncPolicy sync)
+    throws IOException
   {
     NullCheck.notNull(from);
     NullCheck.notNull(to);
+    NullCheck.notNull(sync);
 
-    final byte[] buffer = new byte[8192];
-
-    FileInputStream in = null;
+    final FileInputStream in = new FileInputStream(from);
     try {
-      in = new FileInputStream(from);
-
-      FileOutputStream out = null;
+      final FileOutputStream out = new FileOutputStream(to);
       try {
-        out = new FileOutputStream(to);
+        final FileChannel in_channel = in.getChannel();
+        final FileChannel out_channel = out.getChannel();
+        final long size = in_channel.size();
 
-        while (true) {
-          final int r = in.read(buffer);
-          if (r == -1) {
+        long position = 0L;
+        while (position < size) {
+          final long r =
+            in_channel.transferTo(position, size - position, out_channel);
+
+          /*
+           * Nothing can be transferred if the source file was truncated
+           * during the copy.
+           */
+
+          if (r <= 0L) {
             break;
           }
-          out.write(buffer, 0, r);
-          out.flush();
+          position += r;
         }
 
-      } finally {
-        if (out != null) {
-          out.flush();
-          out.close();
+        if (sync == FileSyncPolicy.FILE_SYNC_ONCE) {
+          out_channel.force(true);
         }
+      } finally {
+        out.close();
       }
     } finally {
-      if (in != null) {
-        in.close();
+      in.close();
+    }
+  }
+
+  /**
+   * <p>Move the file {@code from} to {@code to}, replacing {@code to} if it
+   * exists.</p>
+   *
+   * <p>If both files are on the same filesystem, the file is simply renamed
+   * and no data is copied. Otherwise, the data is copied to {@code to_tmp},
+   * which is then atomically renamed to {@code to}, and {@code from} is
+   * deleted. For portability, {@code to_tmp} and {@code to} should be in the
+   * same directory. In either case, the data of {@code to} is forced to
+   * storage according to {@code sync}.</p>
+   *
+   * @param from   The source file
+   * @param to     The target file
+   * @param to_tmp The temporary file used if the data must be copied
+   * @param sync   The sync policy
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static void fileMoveAtomically(
+    final File from,
+    final File to,
+    final File to_tmp,
+    final FileSyncPolicy sync)
+    throws IOException
+  {
+    NullCheck.notNull(from);
+    NullCheck.notNull(to);
+    NullCheck.notNull(to_tmp);
+    NullCheck.notNull(sync);
+
+    if (from.renameTo(to)) {
+      if (sync == FileSyncPolicy.FILE_SYNC_ONCE) {
+        FileUtilities.fileSync(to);
       }
+      return;
+    }
+
+    if (from.isFile() == false) {
+      throw new IOException(
+        String.format(
+          "Could not move '%s' to '%s' ('%s' does not exist or is not a file)",
+          from,
+          to,
+          from));
+    }
+
+    FileUtilities.fileCopy(from, to_tmp, sync);
+    FileUtilities.fileRename(to_tmp, to);
+    FileUtilities.fileDelete(from);
+  }
+
+  private static void fileSync(
+    final File file)
+    throws IOException
+  {
+    final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.getChannel().force(true);
+    } finally {
+      raf.close();
     }
   }
 
@@ -31,11 +31,27 @@ public final class HTTP implements HTTPType
     LOG = NullCheck.notNull(LoggerFactory.getLogger(HTTP.class));
   }
 
-  private final String user_agent;
+  /**
+   * The default read timeout.
+   */
+
+  static final int DEFAULT_READ_TIMEOUT_MILLISECONDS =
+    (int) TimeUnit.MILLISECONDS.convert(60L, TimeUnit.SECONDS);
+
+  private final String                user_agent;
+  private final OptionType<HTTPCache> cache;
+  private final int                   connect_timeout_ms;
+  private final int                   read_timeout_ms;
 
-  private HTTP()
+  private HTTP(
+    final OptionType<HTTPCache> in_cache,
+    final int in_connect_timeout_ms,
+    final int in_read_timeout_ms)
   {
     this.user_agent = HTTP.userAgent();
+    this.cache = NullCheck.notNull(in_cache);
+    this.connect_timeout_ms = in_connect_timeout_ms;
+    this.read_timeout_ms = in_read_timeout_ms;
   }
 
   private static String userAgent()
@@ -73,7 +89,46 @@ public final class HTTP implements HTTPType
 
   public static HTTPType newHTTP()
   {
-    return new HTTP();
+    return new HTTP(Option.<HTTPCache>none(), 0, DEFAULT_READ_TIMEOUT_MILLISECONDS);
+  }
+
+  /**
+   * Construct an HTTP interface that stores the responses to {@code GET}
+   * requests in the given cache. Every cached response is revalidated with
+   * a conditional request ({@code If-None-Match} or
+   * {@code If-Modified-Since}), and served from the cache if the server
+   * responds with {@code 304 Not Modified}. Requests for byte ranges bypass
+   * the cache.
+   *
+   * @param cache The response cache
+   *
+   * @return A new HTTP interface
+   */
+
+  public static HTTPType newHTTPWithCache(
+    final HTTPCache cache)
+  {
+    return new HTTP(
+      Option.some(NullCheck.notNull(cache)), 0, DEFAULT_READ_TIMEOUT_MILLISECONDS);
+  }
+
+  /**
+   * Construct an HTTP interface with the given timeouts. A timeout of zero
+   * is infinite.
+   *
+   * @param cache              The response cache, if any
+   * @param connect_timeout_ms The connection timeout in milliseconds
+   * @param read_timeout_ms    The read timeout in milliseconds
+   *
+   * @return A new HTTP interface
+   */
+
+  static HTTPType newHTTPWithTimeouts(
+    final OptionType<HTTPCache> cache,
+    final int connect_timeout_ms,
+    final int read_timeout_ms)
+  {
+    return new HTTP(cache, connect_timeout_ms, read_timeout_ms);
   }
 
   @Override public HTTPResultType<InputStream> get(
@@ -81,9 +136,24 @@ public final class HTTP implements HTTPType
     final URI uri,
     final long offset)
   {
+    final OptionType<String> if_range = Option.none();
     final OptionType<byte[]> data = Option.none();
     final OptionType<String> content_type = Option.none();
-    return this.requestInternal("GET", auth_opt, uri, offset, data, content_type);
+    return this.requestInternal(
+      "GET", auth_opt, uri, offset, if_range, data, content_type, true);
+  }
+
+  @Override public HTTPResultType<InputStream> get(
+    final OptionType<HTTPAuthType> auth_opt,
+    final URI uri,
+    final long offset,
+    final OptionType<String> if_range)
+  {
+    NullCheck.notNull(if_range);
+    final OptionType<byte[]> data = Option.none();
+    final OptionType<String> content_type = Option.none();
+    return this.requestInternal(
+      "GET", auth_opt, uri, offset, if_range, data, content_type, false);
   }
 
   @Override public HTTPResultType<InputStream> put(
@@ -92,7 +162,8 @@ public final class HTTP implements HTTPType
   {
     final OptionType<byte[]> data = Option.none();
     final OptionType<String> content_type = Option.none();
-    return this.requestInternal("PUT", auth_opt, uri, 0, data, content_type);
+    return this.requestInternal(
+      "PUT", auth_opt, uri, 0, Option.<String>none(), data, content_type, true);
   }
 
   @Override public HTTPResultType<InputStream> post(
@@ -101,7 +172,8 @@ public final class HTTP implements HTTPType
     final byte[] data,
     final String content_type)
   {
-    return this.requestInternal("POST", auth_opt, uri, 0, Option.some(data), Option.some(content_type));
+    return this.requestInternal(
+      "POST", auth_opt, uri, 0, Option.<String>none(), Option.some(data), Option.some(content_type), true);
   }
 
   @Override public HTTPResultType<InputStream> delete(
@@ -109,7 +181,8 @@ public final class HTTP implements HTTPType
     final URI uri,
     final String content_type)
   {
-    return this.requestInternal("DELETE", auth_opt, uri, 0, Option.<byte[]>none(), Option.some(content_type));
+    return this.requestInternal(
+      "DELETE", auth_opt, uri, 0, Option.<String>none(), Option.<byte[]>none(), Option.some(content_type), true);
   }
 
   private HTTPResultType<InputStream> requestInternal(
@@ -117,13 +190,23 @@ public final class HTTP implements HTTPType
       final OptionType<HTTPAuthType> auth_opt,
       final URI uri,
       final long offset,
+      final OptionType<String> if_range_opt,
       final OptionType<byte[]> data_opt,
-      final OptionType<String> content_type_opt)
+      final OptionType<String> content_type_opt,
+      final boolean compressible)
   {
     NullCheck.notNull(method);
     NullCheck.notNull(auth_opt);
     HTTP.checkURI(uri);
 
+    final OptionType<HTTPCacheRequest> cache_opt;
+    if (this.cache.isSome() && "GET".equals(method) && offset == 0L) {
+      cache_opt = Option.some(
+        HTTPCacheRequest.open(((Some<HTTPCache>) this.cache).get(), uri, auth_opt));
+    } else {
+      cache_opt = Option.none();
+    }
+
     try {
       HTTP.LOG.trace("{} {} (auth {})", method, uri, auth_opt);
 
@@ -134,13 +217,28 @@ public final class HTTP implements HTTPType
       conn.setInstanceFollowRedirects(false);
       conn.setRequestMethod(method);
       conn.setDoInput(true);
-      conn.setReadTimeout(
-        (int) TimeUnit.MILLISECONDS.convert(60L, TimeUnit.SECONDS));
+      conn.setConnectTimeout(this.connect_timeout_ms);
+      conn.setReadTimeout(this.read_timeout_ms);
       if (offset > 0) {
         conn.setRequestProperty("Range", "bytes=" + offset + "-");
+        if (if_range_opt.isSome()) {
+          conn.setRequestProperty("If-Range", ((Some<String>) if_range_opt).get());
+        }
       }
       conn.setRequestProperty("User-Agent", this.user_agent);
-      conn.setRequestProperty("Accept-Encoding", "identity");
+
+      /*
+       * Byte ranges refer to the entity as stored on the server, so ranged
+       * requests must not negotiate a compressed encoding.
+       */
+
+      if (compressible && offset == 0L) {
+        conn.setRequestProperty(
+          "Accept-Encoding", HTTPContentDecoding.ACCEPT_COMPRESSED);
+      } else {
+        conn.setRequestProperty(
+          "Accept-Encoding", HTTPContentDecoding.ACCEPT_IDENTITY);
+      }
 
       if (content_type_opt.isSome()) {
         conn.setRequestProperty("Content-Type", ((Some<String>) content_type_opt).get());
@@ -152,6 +250,10 @@ public final class HTTP implements HTTPType
         auth.setConnectionParameters(conn);
       }
 
+      if (cache_opt.isSome()) {
+        ((Some<HTTPCacheRequest>) cache_opt).get().setConnectionParameters(conn);
+      }
+
       if (data_opt.isSome()) {
         final Some<byte[]> data_some = (Some<byte[]>) data_opt;
         final byte[] data = data_some.get();
@@ -167,45 +269,125 @@ public final class HTTP implements HTTPType
       HTTP.LOG.trace(
           "{} {} (auth {}) (result {})", method, uri, auth_opt, code);
 
+      if (cache_opt.isSome()) {
+        final HTTPCacheRequest cache_request =
+          ((Some<HTTPCacheRequest>) cache_opt).get();
+        final OptionType<HTTPCacheEntry> entry_opt = cache_request.entry();
+
+        /*
+         * A 304 response describes only the exchange that revalidated the
+         * entry, so the result carries the headers of the cached response,
+         * exactly as if the server had sent it again.
+         */
+
+        if (code == HttpURLConnection.HTTP_NOT_MODIFIED && entry_opt.isSome()) {
+          HTTP.LOG.trace("{} {} (not modified, using cached response)", method, uri);
+          final HTTPCacheEntry entry = ((Some<HTTPCacheEntry>) entry_opt).get();
+          return new HTTPResultOK<InputStream>(
+            "OK",
+            HttpURLConnection.HTTP_OK,
+            cache_request.notModified(),
+            entry.getLength(),
+            0L,
+            entry.getHeaders(),
+            entry.getLastModifiedTime());
+        }
+
+        if (code == HttpURLConnection.HTTP_OK) {
+          return new HTTPResultOK<InputStream>(
+            NullCheck.notNull(conn.getResponseMessage()),
+            code,
+            cache_request.received(
+              conn, HTTP.getDecodedStream(conn, uri, conn.getInputStream())),
+            HTTP.getDecodedContentLength(conn),
+            (long) conn.getContentLength(),
+            NullCheck.notNull(conn.getHeaderFields()),
+            conn.getLastModified());
+        }
+
+        cache_request.discard();
+      }
+
       conn.getLastModified();
       if (code >= 400) {
+        final InputStream error_stream =
+            HTTP.getDecodedStream(conn, uri, this.getErrorStreamOrEmpty(conn));
         final OptionType<HTTPProblemReport> report =
-            this.getReportFromError(conn);
+            this.getReportFromError(conn, error_stream);
         return new HTTPResultError<InputStream>(
             code,
             NullCheck.notNull(conn.getResponseMessage()),
-            (long) conn.getContentLength(),
+            HTTP.getDecodedContentLength(conn),
             NullCheck.notNull(conn.getHeaderFields()),
             conn.getLastModified(),
-            this.getErrorStreamOrEmpty(conn),
+            error_stream,
             report);
       }
 
       return new HTTPResultOK<InputStream>(
           NullCheck.notNull(conn.getResponseMessage()),
           code,
-          conn.getInputStream(),
+          HTTP.getDecodedStream(conn, uri, conn.getInputStream()),
+          HTTP.getDecodedContentLength(conn),
           (long) conn.getContentLength(),
           NullCheck.notNull(conn.getHeaderFields()),
           conn.getLastModified());
     } catch (final MalformedURLException e) {
+      HTTP.discardCacheRequest(cache_opt);
       throw new IllegalArgumentException(e);
     } catch (final UnknownHostException e) {
+      HTTP.discardCacheRequest(cache_opt);
       return new HTTPResultException<InputStream>(uri, e);
     } catch (final IOException e) {
+      HTTP.discardCacheRequest(cache_opt);
       return new HTTPResultException<InputStream>(uri, e);
     }
   }
 
-  private OptionType<HTTPProblemReport> getReportFromError(
+  private static InputStream getDecodedStream(
+    final HttpURLConnection conn,
+    final URI uri,
+    final InputStream stream)
+    throws IOException
+  {
+    if (conn.getContentLength() == 0) {
+      return stream;
+    }
+    return HTTPContentDecoding.decode(uri, conn.getContentEncoding(), stream);
+  }
+
+  /*
+   * The length of a compressed body once decoded is not known until the
+   * body has been read.
+   */
+
+  private static long getDecodedContentLength(
     final HttpURLConnection conn)
+  {
+    if (HTTPContentDecoding.isEncoded(conn.getContentEncoding())) {
+      return -1L;
+    }
+    return (long) conn.getContentLength();
+  }
+
+  private static void discardCacheRequest(
+    final OptionType<HTTPCacheRequest> cache_opt)
+  {
+    if (cache_opt.isSome()) {
+      ((Some<HTTPCacheRequest>) cache_opt).get().discard();
+    }
+  }
+
+  private OptionType<HTTPProblemReport> getReportFromError(
+    final HttpURLConnection conn,
+    final InputStream error_stream)
     throws IOException
   {
     final OptionType<HTTPProblemReport> report;
     if ("application/api-problem+json".equals(conn.getContentType())) {
       if (conn.getErrorStream() != null) {
         final HTTPProblemReport r =
-          HTTPProblemReport.fromStream(conn.getErrorStream());
+          HTTPProblemReport.fromStream(error_stream);
         report = Option.some(r);
       }
       else
@@ -236,9 +418,16 @@ public final class HTTP implements HTTPType
       conn.setInstanceFollowRedirects(false);
       conn.setRequestMethod("HEAD");
       conn.setRequestProperty("User-Agent", this.user_agent);
-      conn.setReadTimeout(
-        (int) TimeUnit.MILLISECONDS.convert(60L, TimeUnit.SECONDS));
-      conn.setRequestProperty("Accept-Encoding", "identity");
+      conn.setConnectTimeout(this.connect_timeout_ms);
+      conn.setReadTimeout(this.read_timeout_ms);
+
+      /*
+       * A HEAD response has no body to compress, and asking for the identity
+       * encoding keeps the reported length equal to the size of the entity.
+       */
+
+      conn.setRequestProperty(
+        "Accept-Encoding", HTTPContentDecoding.ACCEPT_IDENTITY);
 
       if (auth_opt.isSome()) {
         final Some<HTTPAuthType> some = (Some<HTTPAuthType>) auth_opt;
@@ -253,15 +442,16 @@ public final class HTTP implements HTTPType
         "HEAD {} (auth {}) (result {})", uri, auth_opt, code);
 
       if (code >= 400) {
+        final InputStream error_stream = this.getErrorStreamOrEmpty(conn);
         final OptionType<HTTPProblemReport> report =
-          this.getReportFromError(conn);
+          this.getReportFromError(conn, error_stream);
         return new HTTPResultError<InputStream>(
           code,
           NullCheck.notNull(conn.getResponseMessage()),
           (long) conn.getContentLength(),
           NullCheck.notNull(conn.getHeaderFields()),
           conn.getLastModified(),
-          this.getErrorStreamOrEmpty(conn),
+          error_stream,
           report);
       }
 
@@ -0,0 +1,180 @@
+package org.nypl.simplified.http.core;
+
+import com.io7m.jnull.NullCheck;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * <p>A record of the origins (scheme, host, and port) that have required
+ * authentication.</p>
+ *
+ * <p>Once an origin has responded to a request with {@code 401}, an
+ * {@link HTTPRedirectFollower} that has credentials sends them with its
+ * first request to that origin, rather than waiting to be challenged again.
+ * Only the fact that an origin requires authentication is recorded, never
+ * the credentials themselves.</p>
+ */
+
+public final class HTTPAuthOrigins
+{
+  /**
+   * The maximum number of origins remembered. The least recently used
+   * origins are forgotten first.
+   */
+
+  public static final int MAXIMUM_ORIGINS = 256;
+
+  private static final HTTPAuthOrigins SHARED = new HTTPAuthOrigins();
+
+  private final Object                                     lock;
+  private final @GuardedBy("lock") Map<String, Boolean> origins;
+  private final AtomicLong                                 challenges;
+  private final AtomicLong                                 preemptive;
+  private final AtomicLong                                 avoided;
+
+  private HTTPAuthOrigins()
+  {
+    this.lock = new Object();
+    this.origins = new LinkedHashMap<String, Boolean>(16, 0.75f, true)
+    {
+      @Override protected boolean removeEldestEntry(
+        final Map.Entry<String, Boolean> eldest)
+      {
+        return this.size() > MAXIMUM_ORIGINS;
+      }
+    };
+    this.challenges = new AtomicLong(0L);
+    this.preemptive = new AtomicLong(0L);
+    this.avoided = new AtomicLong(0L);
+  }
+
+  /**
+   * @return A new, empty record
+   */
+
+  public static HTTPAuthOrigins create()
+  {
+    return new HTTPAuthOrigins();
+  }
+
+  /**
+   * @return The record shared by all redirect followers that are not given
+   * one explicitly
+   */
+
+  public static HTTPAuthOrigins shared()
+  {
+    return HTTPAuthOrigins.SHARED;
+  }
+
+  /**
+   * @param uri A URI
+   *
+   * @return The origin of the given URI, such as
+   * {@code https://example.com:443}
+   */
+
+  public static String origin(
+    final URI uri)
+  {
+    NullCheck.notNull(uri);
+
+    final String scheme = uri.getScheme();
+    final String scheme_lower =
+      scheme == null ? "" : scheme.toLowerCase(Locale.ROOT);
+    final String host = uri.getHost();
+
+    int port = uri.getPort();
+    if (port == -1) {
+      if ("http".equals(scheme_lower)) {
+        port = 80;
+      } else if ("https".equals(scheme_lower)) {
+        port = 443;
+      }
+    }
+
+    return String.format(
+      "%s://%s:%d",
+      scheme_lower,
+      host == null ? "" : host.toLowerCase(Locale.ROOT),
+      Integer.valueOf(port));
+  }
+
+  /**
+   * @param uri A URI
+   *
+   * @return {@code true} iff the origin of the given URI has required
+   * authentication
+   */
+
+  public boolean requiresAuthentication(
+    final URI uri)
+  {
+    final String origin = HTTPAuthOrigins.origin(uri);
+    synchronized (this.lock) {
+      return this.origins.containsKey(origin);
+    }
+  }
+
+  /**
+   * Record that a request to the given URI was answered with {@code 401}.
+   *
+   * @param uri The URI
+   */
+
+  public void challenged(
+    final URI uri)
+  {
+    final String origin = HTTPAuthOrigins.origin(uri);
+    this.challenges.incrementAndGet();
+    synchronized (this.lock) {
+      this.origins.put(origin, Boolean.TRUE);
+    }
+  }
+
+  void preemptiveSent()
+  {
+    this.preemptive.incrementAndGet();
+  }
+
+  void preemptiveAccepted()
+  {
+    this.avoided.incrementAndGet();
+  }
+
+  /**
+   * @return The number of {@code 401} responses recorded
+   */
+
+  public long challenges()
+  {
+    return this.challenges.get();
+  }
+
+  /**
+   * @return The number of requests sent with credentials before being
+   * challenged
+   */
+
+  public long preemptiveRequests()
+  {
+    return this.preemptive.get();
+  }
+
+  /**
+   * @return The number of requests sent with credentials before being
+   * challenged that were not answered with {@code 401}; each is a round
+   * trip that was saved
+   */
+
+  public long challengesAvoided()
+  {
+    return this.avoided.get();
+  }
+}
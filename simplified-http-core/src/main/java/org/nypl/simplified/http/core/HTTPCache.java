@@ -0,0 +1,588 @@
+package org.nypl.simplified.http.core;
+
+import com.io7m.jfunctional.Option;
+import com.io7m.jfunctional.OptionType;
+import com.io7m.jfunctional.Some;
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * <p>A persistent, size-bounded cache of HTTP responses.</p>
+ *
+ * <p>Each cached response is stored as a body file and a small properties
+ * file holding the validators ({@code ETag} and {@code Last-Modified}) that
+ * the server sent with it. Entries are keyed by the request URI and the
+ * identity of the credentials used to make the request, so responses are
+ * never shared between users. When the total size of the cached bodies
+ * exceeds the configured maximum, the least recently used entries are
+ * evicted.</p>
+ *
+ * <p>The cache does not decide whether a cached response is fresh; an
+ * {@link HTTPType} implementation using the cache is expected to revalidate
+ * every entry with a conditional request, and serve the cached body when the
+ * server answers {@code 304 Not Modified}.</p>
+ *
+ * @see HTTP#newHTTPWithCache(HTTPCache)
+ */
+
+public final class HTTPCache
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = NullCheck.notNull(LoggerFactory.getLogger(HTTPCache.class));
+  }
+
+  private static final String KEY_URI                = "uri";
+  private static final String KEY_ETAG               = "etag";
+  private static final String KEY_LAST_MODIFIED      = "last_modified";
+  private static final String KEY_LAST_MODIFIED_TIME = "last_modified_time";
+  private static final String KEY_LENGTH             = "length";
+  private static final String KEY_HEADER             = "header.";
+
+  private final File                        directory;
+  private final long                        maximum_size;
+  private final Object                      lock;
+  private final LinkedHashMap<String, Long> entries;
+  private       long                        size;
+
+  private HTTPCache(
+    final File in_directory,
+    final long in_maximum_size)
+  {
+    this.directory = NullCheck.notNull(in_directory);
+    this.maximum_size = in_maximum_size;
+    this.lock = new Object();
+    this.entries = new LinkedHashMap<String, Long>(64, 0.75f, true);
+    this.size = 0L;
+  }
+
+  /**
+   * Open a cache in the given directory, creating the directory if
+   * necessary. Entries left in the directory by a previous instance of the
+   * cache are retained, ordered by the time they were last used.
+   *
+   * @param directory    The cache directory
+   * @param maximum_size The maximum total size in bytes of cached bodies
+   *
+   * @return A cache
+   *
+   * @throws IOException If the directory cannot be created
+   */
+
+  public static HTTPCache open(
+    final File directory,
+    final long maximum_size)
+    throws IOException
+  {
+    NullCheck.notNull(directory);
+    if (maximum_size <= 0L) {
+      throw new IllegalArgumentException("Maximum size must be positive");
+    }
+
+    directory.mkdirs();
+    if (!directory.isDirectory()) {
+      throw new IOException("Not a directory: " + directory);
+    }
+
+    final HTTPCache cache = new HTTPCache(directory, maximum_size);
+    cache.load();
+    return cache;
+  }
+
+  /**
+   * Construct a cache key for a request.
+   *
+   * @param uri  The request URI
+   * @param auth The credentials used to make the request, if any
+   *
+   * @return A key that identifies the request URI and credentials
+   */
+
+  public static String key(
+    final URI uri,
+    final OptionType<HTTPAuthType> auth)
+  {
+    NullCheck.notNull(uri);
+    NullCheck.notNull(auth);
+
+    final StringBuilder sb = new StringBuilder(128);
+    sb.append(uri);
+    sb.append('\n');
+    if (auth.isSome()) {
+      sb.append(HTTPCache.authIdentity(((Some<HTTPAuthType>) auth).get()));
+    }
+    return HTTPHashing.sha256Hex(NullCheck.notNull(sb.toString()));
+  }
+
+  private static String authIdentity(
+    final HTTPAuthType auth)
+  {
+    return auth.matchAuthType(
+      new HTTPAuthMatcherType<String, UnreachableCodeException>()
+      {
+        @Override public String onAuthBasic(final HTTPAuthBasic b)
+        {
+          return "basic " + b.user() + ":" + b.password();
+        }
+
+        @Override public String onAuthOAuth(final HTTPAuthOAuth b)
+        {
+          return "oauth " + b.token().value();
+        }
+      });
+  }
+
+  private File bodyFile(
+    final String key)
+  {
+    return new File(this.directory, key + ".body");
+  }
+
+  private File metaFile(
+    final String key)
+  {
+    return new File(this.directory, key + ".properties");
+  }
+
+  private void load()
+  {
+    final File[] files = this.directory.listFiles();
+    if (files == null) {
+      return;
+    }
+
+    final List<File> bodies = new ArrayList<File>(files.length);
+    for (final File file : files) {
+      final String name = file.getName();
+      if (name.endsWith(".body")) {
+        bodies.add(file);
+      } else if (name.endsWith(".tmp")) {
+        file.delete();
+      }
+    }
+
+    Collections.sort(
+      bodies, new Comparator<File>()
+      {
+        @Override public int compare(
+          final File x,
+          final File y)
+        {
+          return Long.compare(x.lastModified(), y.lastModified());
+        }
+      });
+
+    synchronized (this.lock) {
+      for (final File body : bodies) {
+        final String name = body.getName();
+        final String key = name.substring(0, name.length() - ".body".length());
+        final OptionType<HTTPCacheEntry> entry = this.readEntry(key);
+        if (entry.isSome()) {
+          final long length = ((Some<HTTPCacheEntry>) entry).get().getLength();
+          this.entries.put(key, Long.valueOf(length));
+          this.size += length;
+        } else {
+          this.deleteFiles(key);
+        }
+      }
+
+      for (final File file : files) {
+        final String name = file.getName();
+        if (name.endsWith(".properties")) {
+          final String key =
+            name.substring(0, name.length() - ".properties".length());
+          if (!this.entries.containsKey(key)) {
+            file.delete();
+          }
+        }
+      }
+
+      this.evict();
+    }
+
+    HTTPCache.LOG.debug(
+      "opened cache {}: {} entries, {} bytes",
+      this.directory,
+      Integer.valueOf(this.entries.size()),
+      Long.valueOf(this.size));
+  }
+
+  private OptionType<HTTPCacheEntry> readEntry(
+    final String key)
+  {
+    final File file_body = this.bodyFile(key);
+    final File file_meta = this.metaFile(key);
+
+    try {
+      final Properties p = new Properties();
+      final InputStream is = new FileInputStream(file_meta);
+      try {
+        p.load(is);
+      } finally {
+        is.close();
+      }
+
+      final long length =
+        Long.parseLong(p.getProperty(HTTPCache.KEY_LENGTH, "-1"));
+      if (length < 0L || file_body.length() != length) {
+        return Option.none();
+      }
+
+      final OptionType<String> etag =
+        Option.of(p.getProperty(HTTPCache.KEY_ETAG));
+      final OptionType<String> last_modified =
+        Option.of(p.getProperty(HTTPCache.KEY_LAST_MODIFIED));
+      if (etag.isNone() && last_modified.isNone()) {
+        return Option.none();
+      }
+
+      final long last_modified_time =
+        Long.parseLong(p.getProperty(HTTPCache.KEY_LAST_MODIFIED_TIME, "0"));
+
+      return Option.some(
+        new HTTPCacheEntry(
+          file_body,
+          etag,
+          last_modified,
+          last_modified_time,
+          HTTPCache.readHeaders(p),
+          length));
+    } catch (final IOException | NumberFormatException e) {
+      return Option.none();
+    }
+  }
+
+  /**
+   * Headers are stored as numbered name and value pairs, one pair per value,
+   * so that repeated headers and their order are preserved.
+   */
+
+  private static Map<String, List<String>> readHeaders(
+    final Properties p)
+  {
+    final Map<String, List<String>> headers =
+      new LinkedHashMap<String, List<String>>();
+    for (int index = 0; true; ++index) {
+      final String prefix = HTTPCache.KEY_HEADER + index;
+      final String name = p.getProperty(prefix + ".name");
+      final String value = p.getProperty(prefix + ".value");
+      if (name == null || value == null) {
+        break;
+      }
+      List<String> values = headers.get(name);
+      if (values == null) {
+        values = new ArrayList<String>(1);
+        headers.put(name, values);
+      }
+      values.add(value);
+    }
+
+    for (final Map.Entry<String, List<String>> e : headers.entrySet()) {
+      e.setValue(Collections.unmodifiableList(e.getValue()));
+    }
+    return Collections.unmodifiableMap(headers);
+  }
+
+  private static void writeHeaders(
+    final Properties p,
+    final Map<String, List<String>> headers)
+  {
+    int index = 0;
+    for (final Map.Entry<String, List<String>> e : headers.entrySet()) {
+      final String name = e.getKey();
+
+      /*
+       * HttpURLConnection reports the status line as a header without a
+       * name. Cookies belong to the exchange that set them, and must not be
+       * replayed from the cache.
+       */
+
+      if (name == null
+        || "Set-Cookie".equalsIgnoreCase(name)
+        || "Set-Cookie2".equalsIgnoreCase(name)) {
+        continue;
+      }
+
+      for (final String value : e.getValue()) {
+        if (value == null) {
+          continue;
+        }
+        final String prefix = HTTPCache.KEY_HEADER + index;
+        p.setProperty(prefix + ".name", name);
+        p.setProperty(prefix + ".value", value);
+        ++index;
+      }
+    }
+  }
+
+  /**
+   * Look up the cached response for the given key. The entry is marked as
+   * recently used.
+   *
+   * @param key The cache key
+   *
+   * @return The cached response, if any
+   *
+   * @see #key(URI, OptionType)
+   */
+
+  public OptionType<HTTPCacheEntry> lookup(
+    final String key)
+  {
+    NullCheck.notNull(key);
+
+    synchronized (this.lock) {
+      if (!this.entries.containsKey(key)) {
+        return Option.none();
+      }
+
+      final OptionType<HTTPCacheEntry> entry = this.readEntry(key);
+      if (entry.isNone()) {
+        this.removeLocked(key);
+        return entry;
+      }
+
+      /*
+       * Record the time of use on disk, so that the order of use survives
+       * the cache being reopened.
+       */
+
+      this.entries.get(key);
+      this.bodyFile(key).setLastModified(System.currentTimeMillis());
+      return entry;
+    }
+  }
+
+  /**
+   * Store a response as it is read, without any headers other than its
+   * validators.
+   *
+   * @param key           The cache key
+   * @param uri           The request URI
+   * @param etag          The {@code ETag} of the response, if any
+   * @param last_modified The {@code Last-Modified} date of the response, if
+   *                      any
+   * @param stream        The response body
+   *
+   * @return A stream delivering the response body
+   *
+   * @see #store(String, URI, OptionType, OptionType, long, Map, InputStream)
+   */
+
+  public InputStream store(
+    final String key,
+    final URI uri,
+    final OptionType<String> etag,
+    final OptionType<String> last_modified,
+    final InputStream stream)
+  {
+    NullCheck.notNull(etag);
+    NullCheck.notNull(last_modified);
+
+    final Map<String, List<String>> headers =
+      new LinkedHashMap<String, List<String>>();
+    if (etag.isSome()) {
+      headers.put(
+        "ETag", Collections.singletonList(((Some<String>) etag).get()));
+    }
+    if (last_modified.isSome()) {
+      headers.put(
+        "Last-Modified",
+        Collections.singletonList(((Some<String>) last_modified).get()));
+    }
+    return this.store(key, uri, etag, last_modified, 0L, headers, stream);
+  }
+
+  /**
+   * Store a response as it is read. The returned stream delivers exactly the
+   * data read from {@code stream}; the response is added to the cache when
+   * the returned stream is closed after having been read to the end, and is
+   * discarded otherwise. At least one of {@code etag} and
+   * {@code last_modified} must be present, or nothing is cached. The headers
+   * are kept so that a response served from the cache carries the headers of
+   * the response that was cached.
+   *
+   * @param key                The cache key
+   * @param uri                The request URI
+   * @param etag               The {@code ETag} of the response, if any
+   * @param last_modified      The {@code Last-Modified} date of the response,
+   *                           if any
+   * @param last_modified_time The {@code Last-Modified} date of the response
+   *                           in milliseconds since the epoch, or {@code 0}
+   * @param headers            The headers of the response
+   * @param stream             The response body
+   *
+   * @return A stream delivering the response body
+   */
+
+  public InputStream store(
+    final String key,
+    final URI uri,
+    final OptionType<String> etag,
+    final OptionType<String> last_modified,
+    final long last_modified_time,
+    final Map<String, List<String>> headers,
+    final InputStream stream)
+  {
+    NullCheck.notNull(key);
+    NullCheck.notNull(uri);
+    NullCheck.notNull(etag);
+    NullCheck.notNull(last_modified);
+    NullCheck.notNull(headers);
+    NullCheck.notNull(stream);
+
+    if (etag.isNone() && last_modified.isNone()) {
+      this.remove(key);
+      return stream;
+    }
+
+    final Properties p = new Properties();
+    p.setProperty(HTTPCache.KEY_URI, uri.toString());
+    if (etag.isSome()) {
+      p.setProperty(HTTPCache.KEY_ETAG, ((Some<String>) etag).get());
+    }
+    if (last_modified.isSome()) {
+      p.setProperty(
+        HTTPCache.KEY_LAST_MODIFIED, ((Some<String>) last_modified).get());
+    }
+    p.setProperty(
+      HTTPCache.KEY_LAST_MODIFIED_TIME, Long.toString(last_modified_time));
+    HTTPCache.writeHeaders(p, headers);
+
+    try {
+      final File file_tmp = File.createTempFile("body-" + key, ".tmp", this.directory);
+      return new HTTPCacheInputStream(this, key, p, file_tmp, stream);
+    } catch (final IOException e) {
+      HTTPCache.LOG.error("could not create cache file: ", e);
+      return stream;
+    }
+  }
+
+  /**
+   * Commit a completely received response to the cache.
+   */
+
+  void commit(
+    final String key,
+    final Properties p,
+    final File file_body_tmp,
+    final long length)
+    throws IOException
+  {
+    p.setProperty(HTTPCache.KEY_LENGTH, Long.toString(length));
+
+    synchronized (this.lock) {
+      this.removeLocked(key);
+
+      final File file_meta_tmp =
+        new File(this.directory, key + ".properties.tmp");
+      final OutputStream os = new FileOutputStream(file_meta_tmp);
+      try {
+        p.store(os, null);
+        os.flush();
+      } finally {
+        os.close();
+      }
+
+      if (!file_body_tmp.renameTo(this.bodyFile(key))) {
+        file_meta_tmp.delete();
+        throw new IOException("Could not rename " + file_body_tmp);
+      }
+      if (!file_meta_tmp.renameTo(this.metaFile(key))) {
+        this.deleteFiles(key);
+        throw new IOException("Could not rename " + file_meta_tmp);
+      }
+
+      this.entries.put(key, Long.valueOf(length));
+      this.size += length;
+      this.evict();
+    }
+  }
+
+  /**
+   * Remove the cached response for the given key, if any.
+   *
+   * @param key The cache key
+   */
+
+  public void remove(
+    final String key)
+  {
+    NullCheck.notNull(key);
+    synchronized (this.lock) {
+      this.removeLocked(key);
+    }
+  }
+
+  /**
+   * @return The total size in bytes of the cached response bodies
+   */
+
+  public long size()
+  {
+    synchronized (this.lock) {
+      return this.size;
+    }
+  }
+
+  /**
+   * @return The maximum total size in bytes of the cached response bodies
+   */
+
+  public long maximumSize()
+  {
+    return this.maximum_size;
+  }
+
+  private void removeLocked(
+    final String key)
+  {
+    final Long length = this.entries.remove(key);
+    if (length != null) {
+      this.size -= length.longValue();
+    }
+    this.deleteFiles(key);
+  }
+
+  private void deleteFiles(
+    final String key)
+  {
+    this.metaFile(key).delete();
+    this.bodyFile(key).delete();
+  }
+
+  private void evict()
+  {
+    final Iterator<Map.Entry<String, Long>> iter =
+      this.entries.entrySet().iterator();
+    while (this.size > this.maximum_size && iter.hasNext()) {
+      final Map.Entry<String, Long> entry = iter.next();
+      final String key = entry.getKey();
+      final long length = entry.getValue().longValue();
+      HTTPCache.LOG.debug("evicting {} ({} bytes)", key, Long.valueOf(length));
+      iter.remove();
+      this.size -= length;
+      this.deleteFiles(key);
+    }
+  }
+}
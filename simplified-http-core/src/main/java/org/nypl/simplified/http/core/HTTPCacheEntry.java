@@ -0,0 +1,93 @@
+package org.nypl.simplified.http.core;
+
+import com.io7m.jfunctional.OptionType;
+import com.io7m.jnull.NullCheck;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A response held in an {@link HTTPCache}.
+ */
+
+public final class HTTPCacheEntry
+{
+  private final File               file;
+  private final OptionType<String> etag;
+  private final OptionType<String>        last_modified;
+  private final long                      last_modified_time;
+  private final Map<String, List<String>> headers;
+  private final long                      length;
+
+  HTTPCacheEntry(
+    final File in_file,
+    final OptionType<String> in_etag,
+    final OptionType<String> in_last_modified,
+    final long in_last_modified_time,
+    final Map<String, List<String>> in_headers,
+    final long in_length)
+  {
+    this.file = NullCheck.notNull(in_file);
+    this.etag = NullCheck.notNull(in_etag);
+    this.last_modified = NullCheck.notNull(in_last_modified);
+    this.last_modified_time = in_last_modified_time;
+    this.headers = NullCheck.notNull(in_headers);
+    this.length = in_length;
+  }
+
+  /**
+   * @return The file holding the response body
+   */
+
+  public File getFile()
+  {
+    return this.file;
+  }
+
+  /**
+   * @return The {@code ETag} of the response, if one was sent
+   */
+
+  public OptionType<String> getETag()
+  {
+    return this.etag;
+  }
+
+  /**
+   * @return The {@code Last-Modified} date of the response, if one was sent
+   */
+
+  public OptionType<String> getLastModified()
+  {
+    return this.last_modified;
+  }
+
+  /**
+   * @return The {@code Last-Modified} date of the response in milliseconds
+   * since the epoch, or {@code 0} if it is not known
+   */
+
+  public long getLastModifiedTime()
+  {
+    return this.last_modified_time;
+  }
+
+  /**
+   * @return The headers of the response
+   */
+
+  public Map<String, List<String>> getHeaders()
+  {
+    return this.headers;
+  }
+
+  /**
+   * @return The length in bytes of the response body
+   */
+
+  public long getLength()
+  {
+    return this.length;
+  }
+}
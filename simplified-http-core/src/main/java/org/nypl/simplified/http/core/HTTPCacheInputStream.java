@@ -0,0 +1,156 @@
+package org.nypl.simplified.http.core;
+
+import com.io7m.jnull.NullCheck;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * A stream that copies the data read from a response body into a temporary
+ * file, and adds the file to an {@link HTTPCache} if the body is read to the
+ * end.
+ */
+
+final class HTTPCacheInputStream extends FilterInputStream
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = NullCheck.notNull(
+      LoggerFactory.getLogger(HTTPCacheInputStream.class));
+  }
+
+  private final HTTPCache    cache;
+  private final String       key;
+  private final Properties   meta;
+  private final File         file_tmp;
+  private final OutputStream output;
+  private       long         length;
+  private       boolean      eof;
+  private       boolean      failed;
+  private       boolean      closed;
+
+  HTTPCacheInputStream(
+    final HTTPCache in_cache,
+    final String in_key,
+    final Properties in_meta,
+    final File in_file_tmp,
+    final InputStream in_stream)
+    throws IOException
+  {
+    super(NullCheck.notNull(in_stream));
+    this.cache = NullCheck.notNull(in_cache);
+    this.key = NullCheck.notNull(in_key);
+    this.meta = NullCheck.notNull(in_meta);
+    this.file_tmp = NullCheck.notNull(in_file_tmp);
+    this.output = new FileOutputStream(in_file_tmp);
+    this.length = 0L;
+    this.eof = false;
+    this.failed = false;
+    this.closed = false;
+  }
+
+  @Override public int read()
+    throws IOException
+  {
+    final int r = super.read();
+    if (r == -1) {
+      this.eof = true;
+    } else {
+      this.copy(new byte[]{(byte) r}, 0, 1);
+    }
+    return r;
+  }
+
+  @Override public int read(
+    final byte[] b,
+    final int off,
+    final int len)
+    throws IOException
+  {
+    final int r = super.read(b, off, len);
+    if (r == -1) {
+      this.eof = true;
+    } else {
+      this.copy(b, off, r);
+    }
+    return r;
+  }
+
+  /*
+   * Skipped data would be missing from the cached copy, so skipping is
+   * implemented by reading.
+   */
+
+  @Override public long skip(
+    final long n)
+    throws IOException
+  {
+    final byte[] buffer = new byte[4096];
+    long remaining = n;
+    while (remaining > 0L) {
+      final int r =
+        this.read(buffer, 0, (int) Math.min((long) buffer.length, remaining));
+      if (r == -1) {
+        break;
+      }
+      remaining -= (long) r;
+    }
+    return n - remaining;
+  }
+
+  @Override public boolean markSupported()
+  {
+    return false;
+  }
+
+  private void copy(
+    final byte[] b,
+    final int off,
+    final int len)
+  {
+    if (this.failed) {
+      return;
+    }
+
+    try {
+      this.output.write(b, off, len);
+      this.length += (long) len;
+    } catch (final IOException e) {
+      HTTPCacheInputStream.LOG.error("could not write cache file: ", e);
+      this.failed = true;
+    }
+  }
+
+  @Override public void close()
+    throws IOException
+  {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+
+    try {
+      super.close();
+    } finally {
+      try {
+        this.output.close();
+        if (this.eof && !this.failed) {
+          this.cache.commit(this.key, this.meta, this.file_tmp, this.length);
+        }
+      } catch (final IOException e) {
+        HTTPCacheInputStream.LOG.error("could not cache response: ", e);
+      } finally {
+        this.file_tmp.delete();
+      }
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package org.nypl.simplified.http.core;
+
+import com.io7m.jfunctional.Option;
+import com.io7m.jfunctional.OptionType;
+import com.io7m.jfunctional.Some;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+
+/**
+ * The use of an {@link HTTPCache} by a single {@code GET} request: the
+ * cached response (if any) is revalidated with a conditional request, and a
+ * new response is stored in the cache as it is read.
+ */
+
+final class HTTPCacheRequest
+{
+  private final HTTPCache                    cache;
+  private final String                       key;
+  private final URI                          uri;
+  private final OptionType<HTTPCacheEntry>   entry;
+  private @Nullable InputStream              entry_stream;
+
+  private HTTPCacheRequest(
+    final HTTPCache in_cache,
+    final String in_key,
+    final URI in_uri,
+    final OptionType<HTTPCacheEntry> in_entry,
+    final @Nullable InputStream in_entry_stream)
+  {
+    this.cache = NullCheck.notNull(in_cache);
+    this.key = NullCheck.notNull(in_key);
+    this.uri = NullCheck.notNull(in_uri);
+    this.entry = NullCheck.notNull(in_entry);
+    this.entry_stream = in_entry_stream;
+  }
+
+  /**
+   * Look up the cached response for a request. The cached body is opened
+   * immediately, so that it remains readable even if the entry is evicted
+   * while the request is in progress.
+   */
+
+  static HTTPCacheRequest open(
+    final HTTPCache cache,
+    final URI uri,
+    final OptionType<HTTPAuthType> auth)
+  {
+    final String key = HTTPCache.key(uri, auth);
+    final OptionType<HTTPCacheEntry> entry = cache.lookup(key);
+    if (entry.isSome()) {
+      try {
+        final HTTPCacheEntry e = ((Some<HTTPCacheEntry>) entry).get();
+        return new HTTPCacheRequest(
+          cache, key, uri, entry, new FileInputStream(e.getFile()));
+      } catch (final IOException e) {
+        cache.remove(key);
+      }
+    }
+    return new HTTPCacheRequest(
+      cache, key, uri, Option.<HTTPCacheEntry>none(), null);
+  }
+
+  /**
+   * Make the request conditional on the cached response, if any, having
+   * changed.
+   */
+
+  void setConnectionParameters(
+    final HttpURLConnection conn)
+  {
+    if (this.entry.isSome()) {
+      final HTTPCacheEntry e = ((Some<HTTPCacheEntry>) this.entry).get();
+      final OptionType<String> etag = e.getETag();
+      if (etag.isSome()) {
+        conn.setRequestProperty("If-None-Match", ((Some<String>) etag).get());
+      }
+      final OptionType<String> last_modified = e.getLastModified();
+      if (last_modified.isSome()) {
+        conn.setRequestProperty(
+          "If-Modified-Since", ((Some<String>) last_modified).get());
+      }
+    }
+  }
+
+  /**
+   * @return The cached response, if the request was conditional
+   */
+
+  OptionType<HTTPCacheEntry> entry()
+  {
+    return this.entry;
+  }
+
+  /**
+   * The server reported that the cached response has not changed. The
+   * caller becomes responsible for closing the returned stream.
+   *
+   * @return The cached response body
+   */
+
+  InputStream notModified()
+  {
+    final InputStream stream = NullCheck.notNull(this.entry_stream);
+    this.entry_stream = null;
+    return stream;
+  }
+
+  /**
+   * The server sent a new response. The response is stored in the cache as
+   * it is read, if it carries validators and does not forbid storage.
+   *
+   * @return A stream delivering the response body
+   */
+
+  InputStream received(
+    final HttpURLConnection conn,
+    final InputStream stream)
+  {
+    this.discard();
+
+    final String cache_control = conn.getHeaderField("Cache-Control");
+    if (cache_control != null && cache_control.contains("no-store")) {
+      this.cache.remove(this.key);
+      return stream;
+    }
+
+    return this.cache.store(
+      this.key,
+      this.uri,
+      Option.of(conn.getHeaderField("ETag")),
+      Option.of(conn.getHeaderField("Last-Modified")),
+      conn.getLastModified(),
+      NullCheck.notNull(conn.getHeaderFields()),
+      stream);
+  }
+
+  /**
+   * Release the cached response body, if it is still held.
+   */
+
+  void discard()
+  {
+    final InputStream stream = this.entry_stream;
+    this.entry_stream = null;
+    if (stream != null) {
+      try {
+        stream.close();
+      } catch (final IOException e) {
+        // Nothing can be done about this.
+      }
+    }
+  }
+}
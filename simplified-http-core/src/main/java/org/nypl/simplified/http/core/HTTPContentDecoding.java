@@ -0,0 +1,299 @@
+package org.nypl.simplified.http.core;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.URI;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Functions to decode response bodies according to their
+ * {@code Content-Encoding}.
+ */
+
+final class HTTPContentDecoding
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = NullCheck.notNull(
+      LoggerFactory.getLogger(HTTPContentDecoding.class));
+  }
+
+  /**
+   * The value of the {@code Accept-Encoding} header for requests that accept
+   * compressed responses.
+   */
+
+  static final String ACCEPT_COMPRESSED = "gzip, deflate";
+
+  /**
+   * The value of the {@code Accept-Encoding} header for requests that must
+   * receive the entity exactly as stored on the server.
+   */
+
+  static final String ACCEPT_IDENTITY = "identity";
+
+  private HTTPContentDecoding()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @param encoding The value of a {@code Content-Encoding} header, if any
+   *
+   * @return {@code true} iff the encoding is something other than identity
+   */
+
+  static boolean isEncoded(
+    final @Nullable String encoding)
+  {
+    if (encoding == null) {
+      return false;
+    }
+    final String e = encoding.trim();
+    return !e.isEmpty() && !"identity".equalsIgnoreCase(e);
+  }
+
+  /**
+   * Decode a response body.
+   *
+   * @param uri      The request URI, for diagnostics
+   * @param encoding The value of the {@code Content-Encoding} header, if any
+   * @param stream   The response body as received
+   *
+   * @return The decoded response body
+   *
+   * @throws IOException If the encoding is unsupported, or the body cannot
+   *                     be decoded
+   */
+
+  static InputStream decode(
+    final URI uri,
+    final @Nullable String encoding,
+    final InputStream stream)
+    throws IOException
+  {
+    NullCheck.notNull(uri);
+    NullCheck.notNull(stream);
+
+    if (!HTTPContentDecoding.isEncoded(encoding)) {
+      return stream;
+    }
+
+    final String e =
+      NullCheck.notNull(encoding).trim().toLowerCase(Locale.ROOT);
+    final CountingInputStream wire = new CountingInputStream(stream);
+
+    try {
+      if ("gzip".equals(e) || "x-gzip".equals(e)) {
+        return new DecodedInputStream(uri, e, wire, new GZIPInputStream(wire));
+      }
+
+      if ("deflate".equals(e)) {
+        return HTTPContentDecoding.inflate(uri, e, wire);
+      }
+    } catch (final IOException x) {
+      stream.close();
+      throw x;
+    }
+
+    stream.close();
+    throw new IOException("Unsupported content encoding: " + encoding);
+  }
+
+  /*
+   * The "deflate" content coding is meant to be zlib-wrapped data, but some
+   * servers send raw deflate data. A zlib stream is recognized by its header:
+   * the compression method is 8, and the first two bytes (as a big-endian
+   * number) are a multiple of 31.
+   */
+
+  private static InputStream inflate(
+    final URI uri,
+    final String encoding,
+    final CountingInputStream wire)
+    throws IOException
+  {
+    final PushbackInputStream pushback = new PushbackInputStream(wire, 2);
+    final byte[] header = new byte[2];
+    int count = 0;
+    while (count < header.length) {
+      final int r = pushback.read(header, count, header.length - count);
+      if (r == -1) {
+        break;
+      }
+      count += r;
+    }
+    pushback.unread(header, 0, count);
+
+    final int b0 = header[0] & 0xff;
+    final int b1 = header[1] & 0xff;
+    final boolean zlib =
+      count == 2 && (b0 & 0x0f) == 8 && ((b0 << 8) | b1) % 31 == 0;
+
+    final Inflater inflater = new Inflater(!zlib);
+    return new DecodedInputStream(
+      uri, encoding, wire, new InflaterInputStream(pushback, inflater), inflater);
+  }
+
+  private static final class CountingInputStream extends FilterInputStream
+  {
+    private long count;
+
+    CountingInputStream(
+      final InputStream in_stream)
+    {
+      super(in_stream);
+      this.count = 0L;
+    }
+
+    @Override public int read()
+      throws IOException
+    {
+      final int r = super.read();
+      if (r != -1) {
+        ++this.count;
+      }
+      return r;
+    }
+
+    @Override public int read(
+      final byte[] b,
+      final int off,
+      final int len)
+      throws IOException
+    {
+      final int r = super.read(b, off, len);
+      if (r > 0) {
+        this.count += (long) r;
+      }
+      return r;
+    }
+
+    @Override public long skip(
+      final long n)
+      throws IOException
+    {
+      final long r = super.skip(n);
+      this.count += r;
+      return r;
+    }
+
+    @Override public boolean markSupported()
+    {
+      return false;
+    }
+  }
+
+  /**
+   * A decoded response body. The numbers of bytes received and decoded are
+   * logged when the stream is closed.
+   */
+
+  private static final class DecodedInputStream extends FilterInputStream
+  {
+    private final URI                 uri;
+    private final String              encoding;
+    private final CountingInputStream wire;
+    private final @Nullable Inflater  inflater;
+    private       long                decoded;
+    private       boolean             closed;
+
+    DecodedInputStream(
+      final URI in_uri,
+      final String in_encoding,
+      final CountingInputStream in_wire,
+      final InputStream in_stream)
+    {
+      this(in_uri, in_encoding, in_wire, in_stream, null);
+    }
+
+    DecodedInputStream(
+      final URI in_uri,
+      final String in_encoding,
+      final CountingInputStream in_wire,
+      final InputStream in_stream,
+      final @Nullable Inflater in_inflater)
+    {
+      super(in_stream);
+      this.uri = NullCheck.notNull(in_uri);
+      this.encoding = NullCheck.notNull(in_encoding);
+      this.wire = NullCheck.notNull(in_wire);
+      this.inflater = in_inflater;
+      this.decoded = 0L;
+      this.closed = false;
+    }
+
+    @Override public int read()
+      throws IOException
+    {
+      final int r = super.read();
+      if (r != -1) {
+        ++this.decoded;
+      }
+      return r;
+    }
+
+    @Override public int read(
+      final byte[] b,
+      final int off,
+      final int len)
+      throws IOException
+    {
+      final int r = super.read(b, off, len);
+      if (r > 0) {
+        this.decoded += (long) r;
+      }
+      return r;
+    }
+
+    @Override public long skip(
+      final long n)
+      throws IOException
+    {
+      final long r = super.skip(n);
+      this.decoded += r;
+      return r;
+    }
+
+    @Override public boolean markSupported()
+    {
+      return false;
+    }
+
+    @Override public void close()
+      throws IOException
+    {
+      if (this.closed) {
+        return;
+      }
+      this.closed = true;
+
+      try {
+        super.close();
+      } finally {
+        if (this.inflater != null) {
+          this.inflater.end();
+        }
+        HTTPContentDecoding.LOG.debug(
+          "{}: received {} bytes ({}), decoded {} bytes",
+          this.uri,
+          Long.valueOf(this.wire.count),
+          this.encoding,
+          Long.valueOf(this.decoded));
+      }
+    }
+  }
+}
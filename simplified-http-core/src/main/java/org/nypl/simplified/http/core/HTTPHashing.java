@@ -0,0 +1,79 @@
+package org.nypl.simplified.http.core;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * <p>Functions to derive file names and identifiers from hashes.</p>
+ *
+ * <p>Cache entries, partial downloads, and book IDs are all named after the
+ * SHA-256 hash of a URI or other text. The hashes are computed frequently,
+ * so digests are reused per thread and encoded with a lookup table rather
+ * than formatted byte by byte.</p>
+ */
+
+public final class HTTPHashing
+{
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private static final ThreadLocal<MessageDigest> SHA256 =
+    new ThreadLocal<MessageDigest>()
+    {
+      @Override protected MessageDigest initialValue()
+      {
+        try {
+          return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    };
+
+  private HTTPHashing()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @param data The bytes
+   *
+   * @return The given bytes as a lowercase hexadecimal string
+   */
+
+  public static String hex(
+    final byte[] data)
+  {
+    NullCheck.notNull(data);
+
+    final char[] hex = new char[data.length * 2];
+    for (int index = 0; index < data.length; ++index) {
+      final int b = data[index] & 0xff;
+      hex[index * 2] = HTTPHashing.HEX[b >>> 4];
+      hex[(index * 2) + 1] = HTTPHashing.HEX[b & 0x0f];
+    }
+    return new String(hex);
+  }
+
+  /**
+   * @param text The text
+   *
+   * @return The SHA-256 hash of the UTF-8 encoding of the given text, as a
+   * lowercase hexadecimal string
+   */
+
+  public static String sha256Hex(
+    final String text)
+  {
+    NullCheck.notNull(text);
+
+    final MessageDigest md = HTTPHashing.SHA256.get();
+    md.reset();
+    return HTTPHashing.hex(md.digest(text.getBytes(HTTPHashing.UTF8)));
+  }
+}
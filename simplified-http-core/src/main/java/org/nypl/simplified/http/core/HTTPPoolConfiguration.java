@@ -0,0 +1,132 @@
+package org.nypl.simplified.http.core;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * The configuration of a pooled HTTP interface.
+ *
+ * @see HTTPPooled
+ */
+
+@AutoValue
+public abstract class HTTPPoolConfiguration {
+
+  HTTPPoolConfiguration() {
+
+  }
+
+  /**
+   * @return The time allowed to establish a connection, or to wait for a connection to a host
+   * that already has {@link #maximumConnectionsPerHost()} connections in use, in milliseconds
+   */
+
+  public abstract int connectTimeoutMilliseconds();
+
+  /**
+   * @return The time allowed between bytes read from a connection, in milliseconds
+   */
+
+  public abstract int readTimeoutMilliseconds();
+
+  /**
+   * @return The maximum number of connections in use at any one time to a single host
+   */
+
+  public abstract int maximumConnectionsPerHost();
+
+  /**
+   * @return The time for which an idle connection is kept open for reuse, in milliseconds
+   */
+
+  public abstract long keepAliveMilliseconds();
+
+  /**
+   * @return The current value as a mutable builder
+   */
+
+  public abstract Builder toBuilder();
+
+  /**
+   * A mutable builder for the type.
+   */
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+
+    Builder() {
+
+    }
+
+    /**
+     * @param timeout The timeout
+     * @return The current builder
+     * @see #connectTimeoutMilliseconds()
+     */
+
+    public abstract Builder setConnectTimeoutMilliseconds(
+        int timeout);
+
+    /**
+     * @param timeout The timeout
+     * @return The current builder
+     * @see #readTimeoutMilliseconds()
+     */
+
+    public abstract Builder setReadTimeoutMilliseconds(
+        int timeout);
+
+    /**
+     * @param count The maximum number of connections
+     * @return The current builder
+     * @see #maximumConnectionsPerHost()
+     */
+
+    public abstract Builder setMaximumConnectionsPerHost(
+        int count);
+
+    /**
+     * @param time The keep-alive time
+     * @return The current builder
+     * @see #keepAliveMilliseconds()
+     */
+
+    public abstract Builder setKeepAliveMilliseconds(
+        long time);
+
+    abstract HTTPPoolConfiguration autoBuild();
+
+    /**
+     * @return A configuration based on the given parameters
+     * @throws IllegalArgumentException If any of the parameters are out of range
+     */
+
+    public final HTTPPoolConfiguration build() {
+      final HTTPPoolConfiguration c = this.autoBuild();
+      if (c.connectTimeoutMilliseconds() < 0 || c.readTimeoutMilliseconds() < 0) {
+        throw new IllegalArgumentException("Timeouts must be non-negative");
+      }
+      if (c.maximumConnectionsPerHost() < 1) {
+        throw new IllegalArgumentException("At least one connection per host is required");
+      }
+      if (c.keepAliveMilliseconds() < 0L) {
+        throw new IllegalArgumentException("The keep-alive time must be non-negative");
+      }
+      return c;
+    }
+  }
+
+  /**
+   * The default configuration allows 15 seconds to connect, 60 seconds between reads, and four
+   * connections per host, each kept alive for five minutes.
+   *
+   * @return A mutable builder, initialized with the default configuration
+   */
+
+  public static HTTPPoolConfiguration.Builder builder() {
+    return new AutoValue_HTTPPoolConfiguration.Builder()
+        .setConnectTimeoutMilliseconds(15_000)
+        .setReadTimeoutMilliseconds(HTTP.DEFAULT_READ_TIMEOUT_MILLISECONDS)
+        .setMaximumConnectionsPerHost(4)
+        .setKeepAliveMilliseconds(300_000L);
+  }
+}
@@ -0,0 +1,674 @@
+package org.nypl.simplified.http.core;
+
+import com.io7m.jfunctional.Option;
+import com.io7m.jfunctional.OptionType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * <p>An implementation of the {@link HTTPType} type that manages the
+ * connections made to each host.</p>
+ *
+ * <p>Connections are made with the timeouts given in the
+ * {@link HTTPPoolConfiguration}, and at most
+ * {@link HTTPPoolConfiguration#maximumConnectionsPerHost()} requests to a
+ * given host are in progress at any one time; further requests wait for
+ * one of those to finish, for at most the connection timeout. A request is
+ * in progress until the response body has been read to the end or
+ * closed.</p>
+ *
+ * <p>When a response body is closed before it has been read to the end, up
+ * to {@link #DRAIN_LIMIT_BYTES} bytes of the remainder are read and
+ * discarded so that the platform can return the connection to its
+ * keep-alive pool rather than closing it. The platform pool is configured
+ * through the {@code http.keepAlive}, {@code http.maxConnections}, and
+ * {@code http.keepAliveDuration} system properties, which are read when the
+ * first connection is made; pooled interfaces should therefore be created
+ * before any other HTTP requests are made.</p>
+ *
+ * <p>Response bodies that are never closed are detected when they are
+ * garbage collected, and the requests they belonged to are then considered
+ * finished.</p>
+ */
+
+public final class HTTPPooled implements HTTPType
+{
+  /**
+   * The largest number of unread bytes that will be discarded when a
+   * response body is closed, in order to reuse its connection.
+   */
+
+  public static final long DRAIN_LIMIT_BYTES = 64L * 1024L;
+
+  private static final Logger LOG;
+
+  static {
+    LOG = NullCheck.notNull(LoggerFactory.getLogger(HTTPPooled.class));
+  }
+
+  private final HTTPType                        delegate;
+  private final HTTPPoolConfiguration           config;
+  private final ConcurrentHashMap<String, Host> hosts;
+  private final Set<Lease>                      leases;
+  private final ReferenceQueue<InputStream>     leaked;
+  private final AtomicLong                      requests;
+  private final AtomicLong                      reused;
+  private final AtomicLong                      waited;
+  private final AtomicLong                      timed_out;
+
+  private HTTPPooled(
+    final HTTPPoolConfiguration in_config)
+  {
+    this.config = NullCheck.notNull(in_config);
+    this.delegate = HTTP.newHTTPWithTimeouts(
+      Option.<HTTPCache>none(),
+      in_config.connectTimeoutMilliseconds(),
+      in_config.readTimeoutMilliseconds());
+    this.hosts = new ConcurrentHashMap<String, Host>(8);
+    this.leases =
+      Collections.newSetFromMap(new ConcurrentHashMap<Lease, Boolean>(16));
+    this.leaked = new ReferenceQueue<InputStream>();
+    this.requests = new AtomicLong(0L);
+    this.reused = new AtomicLong(0L);
+    this.waited = new AtomicLong(0L);
+    this.timed_out = new AtomicLong(0L);
+  }
+
+  private HTTPPooled(
+    final HTTPPooled in_pool,
+    final HTTPCache in_cache)
+  {
+    this.config = in_pool.config;
+    this.delegate = HTTP.newHTTPWithTimeouts(
+      Option.some(NullCheck.notNull(in_cache)),
+      in_pool.config.connectTimeoutMilliseconds(),
+      in_pool.config.readTimeoutMilliseconds());
+    this.hosts = in_pool.hosts;
+    this.leases = in_pool.leases;
+    this.leaked = in_pool.leaked;
+    this.requests = in_pool.requests;
+    this.reused = in_pool.reused;
+    this.waited = in_pool.waited;
+    this.timed_out = in_pool.timed_out;
+  }
+
+  /**
+   * Construct a pooled HTTP interface.
+   *
+   * @param config The pool configuration
+   *
+   * @return A new HTTP interface
+   */
+
+  public static HTTPPooled newHTTP(
+    final HTTPPoolConfiguration config)
+  {
+    HTTPPooled.configurePlatform(config);
+    return new HTTPPooled(config);
+  }
+
+  /**
+   * Construct a pooled HTTP interface that stores the responses to
+   * {@code GET} requests in the given cache. The returned interface shares
+   * the connections, limits, and statistics of this one: a request made
+   * through either counts towards the per-host limit of both.
+   *
+   * @param cache The response cache
+   *
+   * @return A new HTTP interface
+   *
+   * @see HTTP#newHTTPWithCache(HTTPCache)
+   */
+
+  public HTTPPooled withCache(
+    final HTTPCache cache)
+  {
+    return new HTTPPooled(this, cache);
+  }
+
+  private static void configurePlatform(
+    final HTTPPoolConfiguration config)
+  {
+    System.setProperty("http.keepAlive", "true");
+    System.setProperty(
+      "http.maxConnections",
+      Integer.toString(config.maximumConnectionsPerHost()));
+    System.setProperty(
+      "http.keepAliveDuration",
+      Long.toString(config.keepAliveMilliseconds()));
+  }
+
+  /**
+   * @return The configuration of the pool
+   */
+
+  public HTTPPoolConfiguration configuration()
+  {
+    return this.config;
+  }
+
+  /**
+   * @return The number of requests made
+   */
+
+  public long requests()
+  {
+    return this.requests.get();
+  }
+
+  /**
+   * @return The number of requests made when a connection to the same host
+   * had been released for reuse within the keep-alive time. This is an
+   * estimate: the platform, or the server, may close idle connections
+   * earlier.
+   */
+
+  public long connectionsReused()
+  {
+    return this.reused.get();
+  }
+
+  /**
+   * @return The number of requests that had to wait for another request to
+   * the same host to finish
+   */
+
+  public long connectionWaits()
+  {
+    return this.waited.get();
+  }
+
+  /**
+   * @return The number of requests that failed because no connection to the
+   * host became available within the connection timeout
+   */
+
+  public long connectionTimeouts()
+  {
+    return this.timed_out.get();
+  }
+
+  @Override public String toString()
+  {
+    return String.format(
+      "[HTTPPooled requests=%d reused=%d waited=%d timed_out=%d]",
+      Long.valueOf(this.requests.get()),
+      Long.valueOf(this.reused.get()),
+      Long.valueOf(this.waited.get()),
+      Long.valueOf(this.timed_out.get()));
+  }
+
+  @Override public HTTPResultType<InputStream> get(
+    final OptionType<HTTPAuthType> auth,
+    final URI uri,
+    final long offset)
+  {
+    return this.pooled(uri, true, () -> this.delegate.get(auth, uri, offset));
+  }
+
+  @Override public HTTPResultType<InputStream> get(
+    final OptionType<HTTPAuthType> auth,
+    final URI uri,
+    final long offset,
+    final OptionType<String> if_range)
+  {
+    return this.pooled(
+      uri, true, () -> this.delegate.get(auth, uri, offset, if_range));
+  }
+
+  @Override public HTTPResultType<InputStream> put(
+    final OptionType<HTTPAuthType> auth,
+    final URI uri)
+  {
+    return this.pooled(uri, true, () -> this.delegate.put(auth, uri));
+  }
+
+  @Override public HTTPResultType<InputStream> post(
+    final OptionType<HTTPAuthType> auth,
+    final URI uri,
+    final byte[] data,
+    final String content_type)
+  {
+    return this.pooled(
+      uri, true, () -> this.delegate.post(auth, uri, data, content_type));
+  }
+
+  @Override public HTTPResultType<InputStream> delete(
+    final OptionType<HTTPAuthType> auth,
+    final URI uri,
+    final String content_type)
+  {
+    return this.pooled(
+      uri, true, () -> this.delegate.delete(auth, uri, content_type));
+  }
+
+  @Override public HTTPResultType<InputStream> head(
+    final OptionType<HTTPAuthType> auth,
+    final URI uri)
+  {
+    return this.pooled(uri, false, () -> this.delegate.head(auth, uri));
+  }
+
+  private interface RequestType
+  {
+    HTTPResultType<InputStream> execute();
+  }
+
+  private HTTPResultType<InputStream> pooled(
+    final URI uri,
+    final boolean has_body,
+    final RequestType request)
+  {
+    NullCheck.notNull(uri);
+
+    final String name = HTTPPooled.hostName(uri);
+    Host host = this.hosts.get(name);
+    if (host == null) {
+      final Host created =
+        new Host(name, this.config.maximumConnectionsPerHost());
+      final Host existing = this.hosts.putIfAbsent(name, created);
+      host = existing != null ? existing : created;
+    }
+
+    this.requests.incrementAndGet();
+
+    try {
+      if (!this.acquire(host)) {
+        this.timed_out.incrementAndGet();
+        return new HTTPResultException<InputStream>(
+          uri,
+          new SocketTimeoutException(
+            "Timed out waiting for a connection to " + name));
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return new HTTPResultException<InputStream>(
+        uri,
+        new InterruptedIOException(
+          "Interrupted waiting for a connection to " + name));
+    }
+
+    if (host.takeIdle(this.config.keepAliveMilliseconds())) {
+      this.reused.incrementAndGet();
+    }
+
+    final Permit permit = new Permit(host, uri);
+    final HTTPResultType<InputStream> result;
+    try {
+      result = request.execute();
+    } catch (final RuntimeException e) {
+      this.release(permit, false);
+      throw e;
+    }
+
+    return result.matchResult(
+      new HTTPResultMatcherType<InputStream, HTTPResultType<InputStream>, RuntimeException>()
+      {
+        @Override public HTTPResultType<InputStream> onHTTPError(
+          final HTTPResultError<InputStream> e)
+        {
+          final boolean reusable =
+            HTTPPooled.isKeepAlive(e.getResponseHeaders());
+          if (e.getContentLength() == 0L) {
+            HTTPPooled.this.release(permit, reusable);
+            return e;
+          }
+
+          return new HTTPResultError<InputStream>(
+            e.getStatus(),
+            e.getMessage(),
+            e.getContentLength(),
+            e.getResponseHeaders(),
+            e.getLastModifiedTime(),
+            HTTPPooled.this.lease(e.getData(), permit, reusable),
+            e.getProblemReport());
+        }
+
+        @Override public HTTPResultType<InputStream> onHTTPException(
+          final HTTPResultException<InputStream> e)
+        {
+          HTTPPooled.this.release(permit, false);
+          return e;
+        }
+
+        @Override public HTTPResultType<InputStream> onHTTPOK(
+          final HTTPResultOKType<InputStream> e)
+        {
+          final boolean reusable =
+            HTTPPooled.isKeepAlive(e.getResponseHeaders());
+          if (!has_body || e.getContentLength() == 0L) {
+            HTTPPooled.this.release(permit, reusable);
+            return e;
+          }
+
+          return new HTTPResultOK<InputStream>(
+            e.getMessage(),
+            e.getStatus(),
+            HTTPPooled.this.lease(e.getValue(), permit, reusable),
+            e.getContentLength(),
+            e.getWireContentLength(),
+            e.getResponseHeaders(),
+            e.getLastModifiedTime());
+        }
+      });
+  }
+
+  /**
+   * Acquire a connection permit for the given host, waiting for at most the
+   * connection timeout (or indefinitely, if the timeout is zero).
+   *
+   * @return {@code false} if the timeout elapsed
+   */
+
+  private boolean acquire(
+    final Host host)
+    throws InterruptedException
+  {
+    this.reclaim();
+    if (host.permits.tryAcquire()) {
+      return true;
+    }
+
+    this.waited.incrementAndGet();
+    LOG.debug("waiting for a connection to {}", host.name);
+
+    /*
+     * The wait is made in short slices so that the permits of response
+     * bodies that were abandoned without being closed are reclaimed as soon
+     * as they are garbage collected.
+     */
+
+    final long timeout = this.config.connectTimeoutMilliseconds();
+    final long deadline = System.nanoTime()
+      + TimeUnit.NANOSECONDS.convert(timeout, TimeUnit.MILLISECONDS);
+
+    while (true) {
+      long slice = 100L;
+      if (timeout > 0L) {
+        final long remaining = TimeUnit.MILLISECONDS.convert(
+          deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (remaining <= 0L) {
+          return false;
+        }
+        slice = Math.min(slice, remaining);
+      }
+
+      if (host.permits.tryAcquire(slice, TimeUnit.MILLISECONDS)) {
+        return true;
+      }
+      this.reclaim();
+    }
+  }
+
+  /**
+   * Wrap the given response body so that the permit is released when the
+   * body has been read, closed, or abandoned.
+   */
+
+  private InputStream lease(
+    final InputStream body,
+    final Permit permit,
+    final boolean reusable)
+  {
+    final LeasedInputStream stream =
+      new LeasedInputStream(this, body, permit, reusable);
+    final Lease lease = new Lease(stream, permit, this.leaked);
+    permit.lease = lease;
+    this.leases.add(lease);
+    return stream;
+  }
+
+  private void reclaim()
+  {
+    while (true) {
+      final Lease lease = (Lease) this.leaked.poll();
+      if (lease == null) {
+        return;
+      }
+      if (this.release(lease.permit, false)) {
+        LOG.warn("response body for {} was not closed", lease.permit.uri);
+      }
+    }
+  }
+
+  private boolean release(
+    final Permit permit,
+    final boolean reusable)
+  {
+    if (permit.released.compareAndSet(false, true)) {
+      final Lease lease = permit.lease;
+      if (lease != null) {
+        this.leases.remove(lease);
+      }
+      permit.host.release(reusable, this.config.maximumConnectionsPerHost());
+      return true;
+    }
+    return false;
+  }
+
+  private static String hostName(
+    final URI uri)
+  {
+    final String scheme = uri.getScheme();
+    final String host = uri.getHost();
+    return String.format(
+      "%s://%s:%d",
+      scheme == null ? "" : scheme.toLowerCase(Locale.ROOT),
+      host == null ? "" : host.toLowerCase(Locale.ROOT),
+      Integer.valueOf(uri.getPort()));
+  }
+
+  private static boolean isKeepAlive(
+    final Map<String, List<String>> headers)
+  {
+    for (final Map.Entry<String, List<String>> e : headers.entrySet()) {
+      if ("Connection".equalsIgnoreCase(e.getKey())) {
+        for (final String value : e.getValue()) {
+          if ("close".equalsIgnoreCase(value.trim())) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  private static final class Host
+  {
+    private final String    name;
+    private final Semaphore permits;
+
+    /*
+     * The times at which connections were released for reuse, oldest first.
+     */
+
+    private final @GuardedBy("this") ArrayDeque<Long> idle;
+
+    Host(
+      final String in_name,
+      final int in_permits)
+    {
+      this.name = NullCheck.notNull(in_name);
+      this.permits = new Semaphore(in_permits, true);
+      this.idle = new ArrayDeque<Long>(in_permits);
+    }
+
+    synchronized boolean takeIdle(
+      final long keep_alive_ms)
+    {
+      final long oldest = System.nanoTime()
+        - TimeUnit.NANOSECONDS.convert(keep_alive_ms, TimeUnit.MILLISECONDS);
+      while (!this.idle.isEmpty()
+        && this.idle.peekFirst().longValue() - oldest < 0L) {
+        this.idle.removeFirst();
+      }
+      return this.idle.pollLast() != null;
+    }
+
+    void release(
+      final boolean reusable,
+      final int maximum_idle)
+    {
+      if (reusable) {
+        synchronized (this) {
+          this.idle.addLast(Long.valueOf(System.nanoTime()));
+          while (this.idle.size() > maximum_idle) {
+            this.idle.removeFirst();
+          }
+        }
+      }
+      this.permits.release();
+    }
+  }
+
+  /**
+   * The connection permit held by a request that is in progress.
+   */
+
+  private static final class Permit
+  {
+    private final Host                host;
+    private final URI                 uri;
+    private final AtomicBoolean       released;
+    private volatile @Nullable Lease  lease;
+
+    Permit(
+      final Host in_host,
+      final URI in_uri)
+    {
+      this.host = NullCheck.notNull(in_host);
+      this.uri = NullCheck.notNull(in_uri);
+      this.released = new AtomicBoolean(false);
+    }
+  }
+
+  /**
+   * A weak reference to a response body, enqueued when the body becomes
+   * unreachable so that its permit can be released if it was never closed.
+   */
+
+  private static final class Lease extends WeakReference<InputStream>
+  {
+    private final Permit permit;
+
+    Lease(
+      final InputStream in_stream,
+      final Permit in_permit,
+      final ReferenceQueue<InputStream> queue)
+    {
+      super(in_stream, queue);
+      this.permit = NullCheck.notNull(in_permit);
+    }
+  }
+
+  private static final class LeasedInputStream extends FilterInputStream
+  {
+    private final HTTPPooled pool;
+    private final Permit     permit;
+    private final boolean    reusable;
+
+    LeasedInputStream(
+      final HTTPPooled in_pool,
+      final InputStream in_stream,
+      final Permit in_permit,
+      final boolean in_reusable)
+    {
+      super(NullCheck.notNull(in_stream));
+      this.pool = NullCheck.notNull(in_pool);
+      this.permit = NullCheck.notNull(in_permit);
+      this.reusable = in_reusable;
+    }
+
+    @Override public int read()
+      throws IOException
+    {
+      try {
+        final int r = super.read();
+        if (r == -1) {
+          this.pool.release(this.permit, this.reusable);
+        }
+        return r;
+      } catch (final IOException e) {
+        this.pool.release(this.permit, false);
+        throw e;
+      }
+    }
+
+    @Override public int read(
+      final byte[] buffer,
+      final int offset,
+      final int length)
+      throws IOException
+    {
+      try {
+        final int r = super.read(buffer, offset, length);
+        if (r == -1) {
+          this.pool.release(this.permit, this.reusable);
+        }
+        return r;
+      } catch (final IOException e) {
+        this.pool.release(this.permit, false);
+        throw e;
+      }
+    }
+
+    @Override public void close()
+      throws IOException
+    {
+      try {
+        if (!this.permit.released.get()) {
+          this.pool.release(this.permit, this.reusable && this.drain());
+        }
+      } finally {
+        super.close();
+      }
+    }
+
+    /**
+     * @return {@code true} if the remainder of the body was read
+     */
+
+    private boolean drain()
+    {
+      try {
+        final byte[] buffer = new byte[4096];
+        long total = 0L;
+        while (total <= DRAIN_LIMIT_BYTES) {
+          final int r = this.in.read(buffer);
+          if (r == -1) {
+            return true;
+          }
+          total += (long) r;
+        }
+        return false;
+      } catch (final IOException e) {
+        return false;
+      }
+    }
+  }
+}
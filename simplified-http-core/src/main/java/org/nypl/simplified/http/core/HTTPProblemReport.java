@@ -17,9 +17,9 @@
 package org.nypl.simplified.http.core;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.io7m.jnull.NullCheck;
+import org.nypl.simplified.json.core.JSONMappers;
 import org.nypl.simplified.json.core.JSONParserUtilities;
 
 import java.io.IOException;
@@ -58,8 +58,7 @@ public final class HTTPProblemReport
     throws IOException
   {
     NullCheck.notNull(s);
-    final ObjectMapper jom = new ObjectMapper();
-    final JsonNode n = jom.readTree(s);
+    final JsonNode n = JSONMappers.treeReader().readTree(s);
     final ObjectNode o = JSONParserUtilities.checkObject(null, n);
     return new HTTPProblemReport(o);
   }
@@ -73,8 +72,7 @@ public final class HTTPProblemReport
     throws IOException
   {
     NullCheck.notNull(s);
-    final ObjectMapper jom = new ObjectMapper();
-    final JsonNode n = jom.readTree(s);
+    final JsonNode n = JSONMappers.treeReader().readTree(s);
     final ObjectNode o = JSONParserUtilities.checkObject(null, n);
     return new HTTPProblemReport(o);
   }
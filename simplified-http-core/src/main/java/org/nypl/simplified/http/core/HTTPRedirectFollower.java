@@ -16,8 +16,14 @@ import java.util.Map;
 import java.util.Set;
 
 /**
- * A function to follow redirects and make some attempt to correctly handle
- * authentication.
+ * <p>A function to follow redirects and make some attempt to correctly handle
+ * authentication.</p>
+ *
+ * <p>Credentials are sent to an origin only once it has asked for them.
+ * Origins that have answered with {@code 401} are remembered in an
+ * {@link HTTPAuthOrigins} record, and later requests to those origins, by
+ * this or any other follower sharing the record, carry the credentials from
+ * the first request so that the challenge round trip is avoided.</p>
  */
 
 public final class HTTPRedirectFollower
@@ -25,16 +31,20 @@ public final class HTTPRedirectFollower
   Exception>
 {
   private final long                     byte_offset;
+  private final OptionType<String>       if_range;
+  private final boolean                  resumable;
   private final HTTPType                 http;
   private final String                   method;
   private final int                      max_redirects;
   private final OptionType<HTTPAuthType> target_auth;
   private final Set<URI>                 tried_auth;
   private final Logger                   logger;
+  private final HTTPAuthOrigins          origins;
   private       int                      cur_redirects;
   private       OptionType<HTTPAuthType> current_auth;
   private       URI                      current_uri;
   private       boolean                  used;
+  private       boolean                  current_preemptive;
 
   /**
    * Construct a redirect follower capable of making a request to the given
@@ -57,6 +67,151 @@ public final class HTTPRedirectFollower
     final int in_max_redirects,
     final URI in_uri,
     final long in_byte_offset)
+  {
+    this(
+      in_logger,
+      in_http,
+      in_method,
+      in_auth,
+      in_max_redirects,
+      in_uri,
+      in_byte_offset,
+      HTTPAuthOrigins.shared());
+  }
+
+  /**
+   * Construct a redirect follower capable of making a request to the given
+   * URI, recording the origins that require authentication in
+   * {@code in_origins}.
+   *
+   * @param in_logger        A log interface
+   * @param in_http          An HTTP interface
+   * @param in_method        HTTP method to use (GET/PUT)
+   * @param in_auth          Authentication info
+   * @param in_max_redirects The maximum number of redirects to follow
+   * @param in_uri           The target URI
+   * @param in_byte_offset   The byte offset of the request
+   * @param in_origins       The origins known to require authentication
+   */
+
+  public HTTPRedirectFollower(
+    final Logger in_logger,
+    final HTTPType in_http,
+    final String in_method,
+    final OptionType<HTTPAuthType> in_auth,
+    final int in_max_redirects,
+    final URI in_uri,
+    final long in_byte_offset,
+    final HTTPAuthOrigins in_origins)
+  {
+    this(
+      in_logger,
+      in_http,
+      in_method,
+      in_auth,
+      in_max_redirects,
+      in_uri,
+      in_byte_offset,
+      Option.<String>none(),
+      false,
+      in_origins);
+  }
+
+  /**
+   * Construct a redirect follower capable of making a request to the given
+   * URI. If {@code in_byte_offset} is positive, {@code GET} requests ask for
+   * the content starting at that offset, conditional on the validator
+   * {@code in_if_range} (if any) still matching the remote entity. The
+   * content is always requested with the identity encoding, so that offsets
+   * and lengths refer to the bytes of the remote entity; this is the
+   * constructor to use for downloads.
+   *
+   * @param in_logger        A log interface
+   * @param in_http          An HTTP interface
+   * @param in_method        HTTP method to use (GET/PUT)
+   * @param in_auth          Authentication info
+   * @param in_max_redirects The maximum number of redirects to follow
+   * @param in_uri           The target URI
+   * @param in_byte_offset   The byte offset of the request
+   * @param in_if_range      The validator for ranged requests, if any
+   *
+   * @see HTTPType#get(OptionType, URI, long, OptionType)
+   */
+
+  public HTTPRedirectFollower(
+    final Logger in_logger,
+    final HTTPType in_http,
+    final String in_method,
+    final OptionType<HTTPAuthType> in_auth,
+    final int in_max_redirects,
+    final URI in_uri,
+    final long in_byte_offset,
+    final OptionType<String> in_if_range)
+  {
+    this(
+      in_logger,
+      in_http,
+      in_method,
+      in_auth,
+      in_max_redirects,
+      in_uri,
+      in_byte_offset,
+      in_if_range,
+      HTTPAuthOrigins.shared());
+  }
+
+  /**
+   * Construct a redirect follower for downloads, as with
+   * {@link #HTTPRedirectFollower(Logger, HTTPType, String, OptionType, int,
+   * URI, long, OptionType)}, recording the origins that require
+   * authentication in {@code in_origins}.
+   *
+   * @param in_logger        A log interface
+   * @param in_http          An HTTP interface
+   * @param in_method        HTTP method to use (GET/PUT)
+   * @param in_auth          Authentication info
+   * @param in_max_redirects The maximum number of redirects to follow
+   * @param in_uri           The target URI
+   * @param in_byte_offset   The byte offset of the request
+   * @param in_if_range      The validator for ranged requests, if any
+   * @param in_origins       The origins known to require authentication
+   */
+
+  public HTTPRedirectFollower(
+    final Logger in_logger,
+    final HTTPType in_http,
+    final String in_method,
+    final OptionType<HTTPAuthType> in_auth,
+    final int in_max_redirects,
+    final URI in_uri,
+    final long in_byte_offset,
+    final OptionType<String> in_if_range,
+    final HTTPAuthOrigins in_origins)
+  {
+    this(
+      in_logger,
+      in_http,
+      in_method,
+      in_auth,
+      in_max_redirects,
+      in_uri,
+      in_byte_offset,
+      in_if_range,
+      true,
+      in_origins);
+  }
+
+  private HTTPRedirectFollower(
+    final Logger in_logger,
+    final HTTPType in_http,
+    final String in_method,
+    final OptionType<HTTPAuthType> in_auth,
+    final int in_max_redirects,
+    final URI in_uri,
+    final long in_byte_offset,
+    final OptionType<String> in_if_range,
+    final boolean in_resumable,
+    final HTTPAuthOrigins in_origins)
   {
     this.logger = NullCheck.notNull(in_logger);
     this.http = NullCheck.notNull(in_http);
@@ -67,7 +222,10 @@ public final class HTTPRedirectFollower
     this.max_redirects = in_max_redirects;
     this.cur_redirects = 0;
     this.byte_offset = in_byte_offset;
+    this.if_range = NullCheck.notNull(in_if_range);
+    this.resumable = in_resumable;
     this.tried_auth = new HashSet<URI>(32);
+    this.origins = NullCheck.notNull(in_origins);
   }
 
   /**
@@ -127,6 +285,7 @@ public final class HTTPRedirectFollower
 
     switch (code) {
       case HttpURLConnection.HTTP_UNAUTHORIZED: {
+        this.origins.challenged(this.current_uri);
         if (this.tried_auth.contains(this.current_uri)) {
           this.logger.error(
             "already tried authenticating for {}", this.current_uri);
@@ -139,6 +298,7 @@ public final class HTTPRedirectFollower
       }
 
       case HttpURLConnection.HTTP_FORBIDDEN: {
+        this.onPreemptiveAccepted();
         return e;
       }
     }
@@ -160,6 +320,7 @@ public final class HTTPRedirectFollower
   {
     final int code = e.getStatus();
     this.logger.debug("received {} for {}", code, this.current_uri);
+    this.onPreemptiveAccepted();
 
     if (code >= 200 && code < 300) {
       return e;
@@ -172,6 +333,13 @@ public final class HTTPRedirectFollower
       case 308: {
         this.current_auth = Option.none();
 
+        /*
+         * The body of a redirect is not used, but it must be closed so that
+         * the connection can be reused for the next request.
+         */
+
+        e.getValue().close();
+
         final Map<String, List<String>> headers =
           NullCheck.notNull(e.getResponseHeaders());
         final List<String> locations =
@@ -207,15 +375,45 @@ public final class HTTPRedirectFollower
       throw new IOException("Reached redirect limit");
     }
 
+    /*
+     * Send credentials without waiting to be challenged if the origin has
+     * required them before. Credentials that have been sent to a URI are not
+     * sent again after a 401 for the same URI, whether or not they were
+     * sent preemptively.
+     */
+
+    this.current_preemptive = false;
+    if (this.current_auth.isNone()
+      && this.target_auth.isSome()
+      && this.origins.requiresAuthentication(this.current_uri)) {
+      this.logger.debug(
+        "sending credentials preemptively to {}", this.current_uri);
+      this.current_auth = this.target_auth;
+      this.current_preemptive = true;
+      this.tried_auth.add(this.current_uri);
+      this.origins.preemptiveSent();
+    }
+
     final HTTPResultType<InputStream> r;
     if ("PUT".equals(this.method)) {
       r = this.http.put(this.current_auth, this.current_uri);
+    } else if (this.resumable) {
+      r = this.http.get(
+        this.current_auth, this.current_uri, this.byte_offset, this.if_range);
     } else {
-      r = this.http.get(this.current_auth, this.current_uri, 0L);
+      r = this.http.get(this.current_auth, this.current_uri, this.byte_offset);
     }
     return r.matchResult(this);
   }
 
+  private void onPreemptiveAccepted()
+  {
+    if (this.current_preemptive) {
+      this.current_preemptive = false;
+      this.origins.preemptiveAccepted();
+    }
+  }
+
   private abstract static class DownloadErrorFlattener<A, B>
     implements HTTPResultMatcherType<A, B, Exception>
   {
@@ -19,7 +19,9 @@ public interface HTTPResultConnectedType<A> extends HTTPResultType<A>
   long getLastModifiedTime();
 
   /**
-   * @return The size in bytes of the remote file
+   * @return The size in bytes of the remote file, or {@code -1} if the size
+   * is not known (for example, because the content was compressed and has
+   * not yet been decoded)
    */
 
   long getContentLength();
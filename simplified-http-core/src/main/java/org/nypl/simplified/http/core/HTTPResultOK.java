@@ -17,6 +17,7 @@ public final class HTTPResultOK<A> implements HTTPResultOKType<A>
 {
   private final long                      last_modified;
   private final long                      content_length;
+  private final long                      wire_content_length;
   private final Map<String, List<String>> headers;
   private final String                    message;
   private final int                       status;
@@ -40,10 +41,44 @@ public final class HTTPResultOK<A> implements HTTPResultOKType<A>
     final long in_content_length,
     final Map<String, List<String>> in_headers,
     final long in_last_modified)
+  {
+    this(
+      in_message,
+      in_status,
+      in_value,
+      in_content_length,
+      in_content_length,
+      in_headers,
+      in_last_modified);
+  }
+
+  /**
+   * Construct a result for content that may have been transferred in a
+   * compressed encoding.
+   *
+   * @param in_message             The server message
+   * @param in_status              The status code
+   * @param in_value               The resulting value
+   * @param in_content_length      The decoded content length, or {@code -1}
+   *                               if not known
+   * @param in_wire_content_length The content length as transferred
+   * @param in_headers             The headers
+   * @param in_last_modified       The last-modified time of the remote data
+   */
+
+  public HTTPResultOK(
+    final String in_message,
+    final int in_status,
+    final A in_value,
+    final long in_content_length,
+    final long in_wire_content_length,
+    final Map<String, List<String>> in_headers,
+    final long in_last_modified)
   {
     this.message = NullCheck.notNull(in_message);
     this.status = in_status;
     this.content_length = in_content_length;
+    this.wire_content_length = in_wire_content_length;
     this.value = NullCheck.notNull(in_value);
     this.headers = NullCheck.notNull(in_headers);
     this.last_modified = in_last_modified;
@@ -66,6 +101,9 @@ public final class HTTPResultOK<A> implements HTTPResultOKType<A>
     if (this.content_length != that.content_length) {
       return false;
     }
+    if (this.wire_content_length != that.wire_content_length) {
+      return false;
+    }
     if (this.status != that.status) {
       return false;
     }
@@ -83,6 +121,8 @@ public final class HTTPResultOK<A> implements HTTPResultOKType<A>
     int result = (int) (this.last_modified ^ (this.last_modified >>> 32));
     result =
       31 * result + (int) (this.content_length ^ (this.content_length >>> 32));
+    result = 31 * result + (int) (
+      this.wire_content_length ^ (this.wire_content_length >>> 32));
     result = 31 * result + this.headers.hashCode();
     result = 31 * result + this.message.hashCode();
     result = 31 * result + this.status;
@@ -106,6 +146,11 @@ public final class HTTPResultOK<A> implements HTTPResultOKType<A>
     return this.content_length;
   }
 
+  @Override public long getWireContentLength()
+  {
+    return this.wire_content_length;
+  }
+
   @Override public String getMessage()
   {
     return this.message;
@@ -16,4 +16,11 @@ public interface HTTPResultOKType<A>
    */
 
   A getValue();
+
+  /**
+   * @return The number of bytes of the body as transferred, which differs
+   * from {@link #getContentLength()} if the body was compressed
+   */
+
+  long getWireContentLength();
 }
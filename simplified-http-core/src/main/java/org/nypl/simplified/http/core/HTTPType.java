@@ -14,7 +14,9 @@ public interface HTTPType
   /**
    * Retrieve the content at {@code uri}, using authentication details
    * {@code auth}. The content returned will have been requested with the
-   * initial byte offset {@code offset}.
+   * initial byte offset {@code offset}. If {@code offset} is zero, the
+   * content may be transferred in a compressed encoding, in which case it is
+   * decoded transparently.
    *
    * @param auth   The authentication details, if any
    * @param uri    The URI
@@ -28,6 +30,33 @@ public interface HTTPType
     final URI uri,
     final long offset);
 
+  /**
+   * Retrieve the content at {@code uri}, using authentication details
+   * {@code auth}. The content returned will have been requested with the
+   * initial byte offset {@code offset}. If {@code offset} is positive and
+   * {@code if_range} is present, the request is made conditional on the
+   * remote entity still matching the given validator (an entity tag or an
+   * HTTP date) by sending it as an {@code If-Range} header. A server that
+   * honours the range returns a {@code 206} status, whilst a server that
+   * considers the entity changed returns the entire entity with a
+   * {@code 200} status. The content is always requested with the identity
+   * encoding, so that offsets and lengths refer to the bytes of the remote
+   * entity.
+   *
+   * @param auth     The authentication details, if any
+   * @param uri      The URI
+   * @param offset   The byte offset
+   * @param if_range The validator for the range, if any
+   *
+   * @return A result
+   */
+
+  HTTPResultType<InputStream> get(
+    final OptionType<HTTPAuthType> auth,
+    final URI uri,
+    final long offset,
+    final OptionType<String> if_range);
+
   /**
    * Make a put request to {@code uri}, and return the results,
    * using authentication details {@code auth}.
@@ -0,0 +1,94 @@
+package org.nypl.simplified.json.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.io7m.junreachable.UnreachableCodeException;
+
+/**
+ * <p>Shared, preconfigured Jackson mappers.</p>
+ *
+ * <p>Creating an {@link ObjectMapper} is expensive, and each new mapper
+ * rebuilds its serializer and deserializer caches from scratch. The
+ * instances returned here are created once and are safe to use from any
+ * thread. {@link ObjectReader} and {@link ObjectWriter} instances are
+ * immutable; the shared {@link ObjectMapper} is provided for the existing
+ * functions that accept one, and must not be reconfigured.</p>
+ */
+
+public final class JSONMappers
+{
+  private static final ObjectMapper MAPPER;
+  private static final ObjectReader TREE_READER;
+  private static final ObjectWriter WRITER;
+  private static final ObjectWriter PRETTY_WRITER;
+
+  static {
+    MAPPER = new ObjectMapper();
+    TREE_READER = JSONMappers.MAPPER.readerFor(JsonNode.class);
+    WRITER = JSONMappers.MAPPER.writer();
+    PRETTY_WRITER = JSONMappers.MAPPER.writerWithDefaultPrettyPrinter();
+  }
+
+  private JSONMappers()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @return The shared mapper, which must not be reconfigured
+   */
+
+  public static ObjectMapper mapper()
+  {
+    return JSONMappers.MAPPER;
+  }
+
+  /**
+   * @return A reader that parses documents into {@link JsonNode} trees
+   */
+
+  public static ObjectReader treeReader()
+  {
+    return JSONMappers.TREE_READER;
+  }
+
+  /**
+   * @return A writer that produces compact JSON
+   */
+
+  public static ObjectWriter writer()
+  {
+    return JSONMappers.WRITER;
+  }
+
+  /**
+   * @return A writer that produces pretty-printed JSON
+   */
+
+  public static ObjectWriter prettyWriter()
+  {
+    return JSONMappers.PRETTY_WRITER;
+  }
+
+  /**
+   * @return A new, empty object node
+   */
+
+  public static ObjectNode createObjectNode()
+  {
+    return JSONMappers.MAPPER.createObjectNode();
+  }
+
+  /**
+   * @return A new, empty array node
+   */
+
+  public static ArrayNode createArrayNode()
+  {
+    return JSONMappers.MAPPER.createArrayNode();
+  }
+}
@@ -6,10 +6,19 @@ import com.io7m.jnull.NullCheck;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Observer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * A parameterized version of {@link java.util.Observable}.
+ * <p>The default implementation of the {@link ObservableType} interface.</p>
+ *
+ * <p>Subscribers are held in an array that is replaced wholesale whenever a subscriber is added
+ * or removed. Sending a value reads the current array and calls each subscriber in turn, without
+ * taking any locks or copying anything, so values may be sent from many threads at once.
+ * Subscribing and unsubscribing are comparatively expensive, and are expected to be rare.</p>
  *
  * @param <T> The type of observable values
  */
@@ -18,24 +27,13 @@ public final class Observable<T> implements ObservableType<T> {
 
   private static final Logger LOG = LoggerFactory.getLogger(Observable.class);
 
-  private final ObservableWrapper<T> observable;
+  private static final Subscription<?>[] EMPTY = new Subscription<?>[0];
 
-  private Observable() {
-    this.observable = new ObservableWrapper<>();
-  }
+  private final AtomicReference<Subscription<T>[]> subscriptions;
 
-  private static final class ObservableWrapper<T> extends java.util.Observable {
-
-    public void send(
-        final T value) {
-      this.setChanged();
-      this.notifyObservers(value);
-    }
-
-    ObservableWrapper()
-    {
-
-    }
+  @SuppressWarnings("unchecked")
+  private Observable() {
+    this.subscriptions = new AtomicReference<>((Subscription<T>[]) EMPTY);
   }
 
   /**
@@ -54,57 +52,179 @@ public final class Observable<T> implements ObservableType<T> {
       final ProcedureType<T> receiver) {
 
     NullCheck.notNull(receiver, "Receiver");
+    return this.add(new Subscription<>(this, receiver));
+  }
 
-    /*
-     * Note: This is specifically *not* a lambda because, depending on the translation
-     * strategy the compiler uses for lambdas, the use of a lambda might result in registering
-     * the "same" observer over and over. In other words, we cannot implicitly rely on two instances
-     * of a lambda expression actually being different with regards to == or Object.equals().
-     * See JLS section 15.27.4, Run-time Evaluation of Lambda Expressions:
-     */
-
-    final Observer observer = new Observer() {
-      @Override
-      public void update(
-          final java.util.Observable observable,
-          final Object o) {
-        try {
-          receiver.call((T) o);
-        } catch (final Exception e) {
-          LOG.error("observer raised exception: ", e);
-        }
-      }
-    };
+  @Override
+  public ObservableSubscriptionType<T> subscribe(
+      final ProcedureType<T> receiver,
+      final Executor executor) {
 
-    this.observable.addObserver(observer);
-    return new Subscription<>(this.observable, observer);
+    NullCheck.notNull(receiver, "Receiver");
+    NullCheck.notNull(executor, "Executor");
+    return this.add(new SubscriptionAsynchronous<>(this, receiver, executor));
   }
 
   @Override
   public int count() {
-    return this.observable.countObservers();
+    return this.subscriptions.get().length;
   }
 
   @Override
   public void send(final T value) {
-    this.observable.send(NullCheck.notNull(value, "Value"));
+    NullCheck.notNull(value, "Value");
+
+    final Subscription<T>[] current = this.subscriptions.get();
+    for (int index = 0; index < current.length; ++index) {
+      current[index].deliver(value);
+    }
+  }
+
+  private Subscription<T> add(
+      final Subscription<T> subscription) {
+
+    while (true) {
+      final Subscription<T>[] current = this.subscriptions.get();
+      final Subscription<T>[] updated = newArray(current.length + 1);
+      System.arraycopy(current, 0, updated, 0, current.length);
+      updated[current.length] = subscription;
+      if (this.subscriptions.compareAndSet(current, updated)) {
+        return subscription;
+      }
+    }
+  }
+
+  private void remove(
+      final Subscription<T> subscription) {
+
+    while (true) {
+      final Subscription<T>[] current = this.subscriptions.get();
+
+      int found = -1;
+      for (int index = 0; index < current.length; ++index) {
+        if (current[index] == subscription) {
+          found = index;
+          break;
+        }
+      }
+      if (found == -1) {
+        return;
+      }
+
+      final Subscription<T>[] updated = newArray(current.length - 1);
+      System.arraycopy(current, 0, updated, 0, found);
+      System.arraycopy(current, found + 1, updated, found, current.length - found - 1);
+      if (this.subscriptions.compareAndSet(current, updated)) {
+        return;
+      }
+    }
   }
 
-  private static final class Subscription<T> implements ObservableSubscriptionType<T> {
+  @SuppressWarnings("unchecked")
+  private static <T> Subscription<T>[] newArray(final int size) {
+    return (Subscription<T>[]) new Subscription<?>[size];
+  }
+
+  /**
+   * A subscription that calls its receiver on the sending thread.
+   */
+
+  private static class Subscription<T> implements ObservableSubscriptionType<T> {
 
-    private final ObservableWrapper<T> observable;
-    private final Observer observer;
+    private final Observable<T> observable;
+    private final ProcedureType<T> receiver;
+    private volatile boolean active;
 
     Subscription(
-        final ObservableWrapper<T> observable,
-        final Observer observer) {
-      this.observable = NullCheck.notNull(observable, "Observable");
-      this.observer = NullCheck.notNull(observer, "Observer");
+        final Observable<T> in_observable,
+        final ProcedureType<T> in_receiver) {
+      this.observable = NullCheck.notNull(in_observable, "Observable");
+      this.receiver = NullCheck.notNull(in_receiver, "Receiver");
+      this.active = true;
+    }
+
+    void deliver(final T value) {
+      this.call(value);
+    }
+
+    final void call(final T value) {
+      if (!this.active) {
+        return;
+      }
+
+      try {
+        this.receiver.call(value);
+      } catch (final Exception e) {
+        LOG.error("observer raised exception: ", e);
+      }
     }
 
     @Override
-    public void unsubscribe() {
-      this.observable.deleteObserver(this.observer);
+    public final void unsubscribe() {
+      this.active = false;
+      this.observable.remove(this);
+    }
+  }
+
+  /**
+   * A subscription that calls its receiver on an executor. Values are queued and are delivered
+   * by at most one task at a time, so the receiver sees values in the order in which they were
+   * sent and is never called concurrently with itself.
+   */
+
+  private static final class SubscriptionAsynchronous<T> extends Subscription<T>
+      implements Runnable {
+
+    private final Executor executor;
+    private final ConcurrentLinkedQueue<T> queue;
+    private final AtomicInteger queued;
+
+    SubscriptionAsynchronous(
+        final Observable<T> in_observable,
+        final ProcedureType<T> in_receiver,
+        final Executor in_executor) {
+      super(in_observable, in_receiver);
+      this.executor = NullCheck.notNull(in_executor, "Executor");
+      this.queue = new ConcurrentLinkedQueue<>();
+      this.queued = new AtomicInteger(0);
+    }
+
+    @Override
+    void deliver(final T value) {
+      this.queue.offer(value);
+
+      /*
+       * Only the value that finds the queue idle submits a task; any values that arrive while the
+       * task is running are picked up by that task before it finishes.
+       */
+
+      if (this.queued.getAndIncrement() == 0) {
+        try {
+          this.executor.execute(this);
+        } catch (final RejectedExecutionException e) {
+          LOG.error("executor rejected delivery, delivering on the sending thread: ", e);
+          this.run();
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      int missed = 1;
+      while (true) {
+        while (true) {
+          final T value = this.queue.poll();
+          if (value == null) {
+            break;
+          }
+          this.call(value);
+        }
+
+        missed = this.queued.addAndGet(-missed);
+        if (missed == 0) {
+          return;
+        }
+      }
     }
   }
 }
@@ -2,6 +2,8 @@ package org.nypl.simplified.observable;
 
 import com.io7m.jfunctional.ProcedureType;
 
+import java.util.concurrent.Executor;
+
 /**
  * A parameterized version of {@link java.util.Observable}.
  *
@@ -21,6 +23,20 @@ public interface ObservableReadableType<T> {
   ObservableSubscriptionType<T> subscribe(
       ProcedureType<T> receiver);
 
+  /**
+   * Subscribe to the observable. The given {@code receiver} method will receive values of
+   * type {@code T} on the given executor, in the order in which they were sent. The receiver
+   * is never called concurrently with itself.
+   *
+   * @param receiver The receiver method
+   * @param executor The executor on which the receiver is called
+   * @return A subscription
+   */
+
+  ObservableSubscriptionType<T> subscribe(
+      ProcedureType<T> receiver,
+      Executor executor);
+
   /**
    * @return The number of subscribers to the observable
    */
@@ -100,6 +100,35 @@ public final class OPDSAcquisitionFeed implements Serializable
     return new Builder(in_uri, in_title, in_id, in_updated);
   }
 
+  /**
+   * Construct an acquisition feed builder that is initialized with the ID,
+   * title, links, facets and licensor of an existing feed. Entries and groups
+   * are not copied.
+   *
+   * @param f The existing feed
+   *
+   * @return A new builder
+   */
+
+  public static OPDSAcquisitionFeedBuilderType newBuilderFromFeedHeader(
+    final OPDSAcquisitionFeed f)
+  {
+    NullCheck.notNull(f);
+
+    final OPDSAcquisitionFeedBuilderType b =
+      OPDSAcquisitionFeed.newBuilder(f.uri, f.id, f.updated, f.title);
+    b.setNextOption(f.next);
+    b.setSearchOption(f.search);
+    for (final OPDSFacet facet : f.facets_order) {
+      b.addFacet(NullCheck.notNull(facet));
+    }
+    b.setAboutOption(f.about);
+    b.setTermsOfServiceOption(f.terms_of_service);
+    b.setPrivacyPolicyOption(f.privacy_policy);
+    b.setLisensor(f.licensor);
+    return b;
+  }
+
   @Override public boolean equals(
     final @Nullable Object obj)
   {
@@ -1,13 +1,13 @@
 package org.nypl.simplified.opds.core;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.io7m.jfunctional.OptionType;
 import com.io7m.jfunctional.PartialFunctionType;
 import com.io7m.jfunctional.Unit;
 import com.io7m.jnull.NullCheck;
 
+import org.nypl.simplified.json.core.JSONMappers;
 import org.nypl.simplified.json.core.JSONParseException;
 import org.nypl.simplified.json.core.JSONParserUtilities;
 
@@ -147,9 +147,8 @@ public final class OPDSAuthenticationDocumentParser
     NullCheck.notNull(s);
 
     try {
-      final ObjectMapper jom = new ObjectMapper();
       return this.parseFromNode(
-        JSONParserUtilities.checkObject(null, jom.readTree(s)));
+        JSONParserUtilities.checkObject(null, JSONMappers.treeReader().readTree(s)));
     } catch (final JsonProcessingException e) {
       throw new OPDSParseException(e);
     } catch (final IOException e) {
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.node.BigIntegerNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.io7m.jfunctional.ProcedureType;
 import com.io7m.jnull.NullCheck;
+import org.nypl.simplified.json.core.JSONMappers;
 import org.nypl.simplified.json.core.JSONSerializerUtilities;
 
 import java.io.IOException;
@@ -41,7 +42,7 @@ public final class OPDSAuthenticationDocumentSerializer
   {
     NullCheck.notNull(e);
 
-    final ObjectMapper jom = new ObjectMapper();
+    final ObjectMapper jom = JSONMappers.mapper();
     final ObjectNode je = jom.createObjectNode();
 
     je.put("id", e.getId());
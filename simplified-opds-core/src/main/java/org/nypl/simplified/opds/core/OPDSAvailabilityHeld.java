@@ -7,7 +7,6 @@ import com.io7m.jnull.NullCheck;
 import org.nypl.simplified.rfc3339.core.RFC3339Formatter;
 
 import java.net.URI;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 
 /**
@@ -124,7 +123,6 @@ public final class OPDSAvailabilityHeld implements OPDSAvailabilityType
 
   @Override public String toString()
   {
-    final SimpleDateFormat fmt = RFC3339Formatter.newDateFormatter();
     final StringBuilder b = new StringBuilder(256);
     b.append("[OPDSAvailabilityHeld position=");
     b.append(this.position);
@@ -135,7 +133,7 @@ public final class OPDSAvailabilityHeld implements OPDSAvailabilityType
         @Override
         public Unit call(final Calendar e)
         {
-          b.append(fmt.format(e.getTime()));
+          b.append(RFC3339Formatter.formatRFC3339Date(e));
           return Unit.unit();
         }
       });
@@ -145,7 +143,7 @@ public final class OPDSAvailabilityHeld implements OPDSAvailabilityType
       {
         @Override public Unit call(final Calendar e)
         {
-          b.append(fmt.format(e.getTime()));
+          b.append(RFC3339Formatter.formatRFC3339Date(e));
           return Unit.unit();
         }
       });
@@ -7,7 +7,6 @@ import com.io7m.jnull.NullCheck;
 import org.nypl.simplified.rfc3339.core.RFC3339Formatter;
 
 import java.net.URI;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 
 /**
@@ -88,7 +87,6 @@ public final class OPDSAvailabilityHeldReady implements OPDSAvailabilityType
 
   @Override public String toString()
   {
-    final SimpleDateFormat fmt = RFC3339Formatter.newDateFormatter();
     final StringBuilder b = new StringBuilder(128);
     b.append("[OPDSAvailabilityHeldReady end_date=");
     this.end_date.map(
@@ -96,7 +94,7 @@ public final class OPDSAvailabilityHeldReady implements OPDSAvailabilityType
       {
         @Override public Unit call(final Calendar e)
         {
-          b.append(fmt.format(e.getTime()));
+          b.append(RFC3339Formatter.formatRFC3339Date(e));
           return Unit.unit();
         }
       });
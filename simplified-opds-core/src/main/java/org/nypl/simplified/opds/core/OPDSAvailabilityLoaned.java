@@ -7,7 +7,6 @@ import com.io7m.jnull.Nullable;
 import org.nypl.simplified.rfc3339.core.RFC3339Formatter;
 
 import java.net.URI;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 
 /**
@@ -111,7 +110,6 @@ public final class OPDSAvailabilityLoaned implements OPDSAvailabilityType
 
   @Override public String toString()
   {
-    final SimpleDateFormat fmt = RFC3339Formatter.newDateFormatter();
     final StringBuilder b = new StringBuilder(128);
     b.append("[OPDSAvailabilityLoaned end_date=");
     b.append(
@@ -121,7 +119,7 @@ public final class OPDSAvailabilityLoaned implements OPDSAvailabilityType
           @Override public String call(
             final Calendar c)
           {
-            return NullCheck.notNull(fmt.format(c.getTime()));
+            return NullCheck.notNull(RFC3339Formatter.formatRFC3339Date(c));
           }
         }));
     b.append(" start_date=");
@@ -133,7 +131,7 @@ public final class OPDSAvailabilityLoaned implements OPDSAvailabilityType
           public String call(
             final Calendar c)
           {
-            return NullCheck.notNull(fmt.format(c.getTime()));
+            return NullCheck.notNull(RFC3339Formatter.formatRFC3339Date(c));
           }
         }));
     b.append(" revoke=");
@@ -20,9 +20,7 @@ import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.text.ParseException;
-import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -312,11 +310,8 @@ public final class OPDSFeedParser implements OPDSFeedParserType
   {
     OPDSFeedParser.LOG.debug("parsing feed as single entry: {}", uri);
 
-    final String id = "urn:simplified-entry";
-    final Calendar updated = Calendar.getInstance();
-    final String title = "Entry";
     final OPDSAcquisitionFeedBuilderType b =
-      OPDSAcquisitionFeed.newBuilder(uri, id, updated, title);
+      OPDSFeedParser.newSingleEntryFeedBuilder(uri);
     b.addEntry(this.entry_parser.parseEntry(e));
     return b.build();
   }
@@ -331,6 +326,68 @@ public final class OPDSFeedParser implements OPDSFeedParserType
     final Element e_feed = OPDSXML.nodeAsElementWithName(
       root, OPDSFeedConstants.ATOM_URI, "feed");
 
+    final OPDSAcquisitionFeedBuilderType b =
+      OPDSFeedParser.parseFeedHeader(uri, e_feed);
+
+    final NodeList children = e_feed.getChildNodes();
+    for (int index = 0; index < children.getLength(); ++index) {
+      final Node child = NullCheck.notNull(children.item(index));
+
+      /**
+       * Entries.
+       */
+
+      if (child instanceof Element) {
+        if (OPDSXML.nodeHasName(
+          (Element) child, OPDSFeedConstants.ATOM_URI, "entry")) {
+          final Element e = OPDSXML.nodeAsElement(child);
+          b.addEntry(this.entry_parser.parseEntry(e));
+        }
+      }
+    }
+
+    return b.build();
+  }
+
+  /**
+   * Create a builder for the synthetic feed that is produced when the
+   * document being parsed consists of a single entry.
+   *
+   * @param uri The URI of the feed
+   *
+   * @return A new feed builder
+   */
+
+  static OPDSAcquisitionFeedBuilderType newSingleEntryFeedBuilder(
+    final URI uri)
+  {
+    final String id = "urn:simplified-entry";
+    final Calendar updated = Calendar.getInstance();
+    final String title = "Entry";
+    return OPDSAcquisitionFeed.newBuilder(uri, id, updated, title);
+  }
+
+  /**
+   * Parse everything in the given feed element except for the entries.
+   * Entries are ignored, and so this can be used on feed elements that have
+   * had their entries removed (or never had them added).
+   *
+   * @param uri    The URI of the feed
+   * @param e_feed The feed element
+   *
+   * @return A feed builder populated with the ID, title, links, facets and
+   * licensor of the feed
+   *
+   * @throws OPDSParseException On errors
+   * @throws ParseException     On date parse errors
+   * @throws URISyntaxException On malformed links
+   */
+
+  static OPDSAcquisitionFeedBuilderType parseFeedHeader(
+    final URI uri,
+    final Element e_feed)
+    throws OPDSParseException, ParseException, URISyntaxException
+  {
     final String id = OPDSAtom.findID(e_feed);
     final String title = OPDSAtom.findTitle(e_feed);
     final Calendar updated = OPDSAtom.findUpdated(e_feed);
@@ -338,9 +395,7 @@ public final class OPDSFeedParser implements OPDSFeedParserType
     final OPDSAcquisitionFeedBuilderType b =
       OPDSAcquisitionFeed.newBuilder(uri, id, updated, title);
 
-    final List<Element> links = new ArrayList<Element>(32);
     final NodeList children = e_feed.getChildNodes();
-
     for (int index = 0; index < children.getLength(); ++index) {
       final Node child = NullCheck.notNull(children.item(index));
 
@@ -352,146 +407,149 @@ public final class OPDSFeedParser implements OPDSFeedParserType
 
         if (OPDSXML.nodeHasName(
           (Element) child, OPDSFeedConstants.ATOM_URI, "link")) {
+          OPDSFeedParser.parseLink(b, OPDSXML.nodeAsElement(child));
+          continue;
+        }
 
-          final Element e = OPDSXML.nodeAsElement(child);
-          links.add(e);
-
-          /**
-           * Search links.
-           */
-
-          {
-            final OptionType<OPDSSearchLink> search_opt =
-              OPDSFeedParser.parseSearchLink(e);
-            if (search_opt.isSome()) {
-              b.setSearchOption(search_opt);
-              continue;
-            }
+        /**
+         * Licensor.
+         */
+
+        if (OPDSXML.nodeHasName(
+          (Element) child, OPDSFeedConstants.DRM_URI, "licensor")) {
+          final OptionType<DRMLicensor> licensor_opt =
+            OPDSFeedParser.parseLicensor(OPDSXML.nodeAsElement(child));
+          if (licensor_opt.isSome()) {
+            b.setLisensor(licensor_opt);
           }
+        }
+      }
+    }
 
-          /**
-           * Next links.
-           */
+    return b;
+  }
 
-          {
-            final OptionType<URI> next_opt = OPDSFeedParser.parseNextLink(e);
-            if (next_opt.isSome()) {
-              b.setNextOption(next_opt);
-              continue;
-            }
-          }
+  private static void parseLink(
+    final OPDSAcquisitionFeedBuilderType b,
+    final Element e)
+    throws URISyntaxException
+  {
+    /**
+     * Search links.
+     */
+
+    {
+      final OptionType<OPDSSearchLink> search_opt =
+        OPDSFeedParser.parseSearchLink(e);
+      if (search_opt.isSome()) {
+        b.setSearchOption(search_opt);
+        return;
+      }
+    }
 
-          /**
-           * Facet links.
-           */
-
-          {
-            final OptionType<OPDSFacet> facet_opt =
-              OPDSFeedParser.parseFacet(e);
-            if (facet_opt.isSome()) {
-              b.addFacet(((Some<OPDSFacet>) facet_opt).get());
-              continue;
-            }
-          }
+    /**
+     * Next links.
+     */
 
-          /**
-           * App About links.
-           */
-
-          {
-            final OptionType<URI> about_opt =
-                    OPDSFeedParser.parseAbout(e);
-            if (about_opt.isSome()) {
-              b.setAboutOption(about_opt);
-              continue;
-            }
-          }
+    {
+      final OptionType<URI> next_opt = OPDSFeedParser.parseNextLink(e);
+      if (next_opt.isSome()) {
+        b.setNextOption(next_opt);
+        return;
+      }
+    }
 
-          /**
-           * Terms of service links.
-           */
-
-          {
-            final OptionType<URI> tos_opt =
-              OPDSFeedParser.parseTermsOfService(e);
-            if (tos_opt.isSome()) {
-              b.setTermsOfServiceOption(tos_opt);
-              continue;
-            }
-          }
+    /**
+     * Facet links.
+     */
 
-          /**
-           * Privacy policy links.
-           */
+    {
+      final OptionType<OPDSFacet> facet_opt =
+        OPDSFeedParser.parseFacet(e);
+      if (facet_opt.isSome()) {
+        b.addFacet(((Some<OPDSFacet>) facet_opt).get());
+        return;
+      }
+    }
 
-          {
-            final OptionType<URI> pp_opt = OPDSFeedParser.parsePrivacyPolicy(e);
-            if (pp_opt.isSome()) {
-              b.setPrivacyPolicyOption(pp_opt);
-              continue;
-            }
-          }
+    /**
+     * App About links.
+     */
 
-          continue;
-        }
+    {
+      final OptionType<URI> about_opt =
+              OPDSFeedParser.parseAbout(e);
+      if (about_opt.isSome()) {
+        b.setAboutOption(about_opt);
+        return;
+      }
+    }
 
-        // parse licensor
-        {
-          if (OPDSXML.nodeHasName(
-            (Element) child, OPDSFeedConstants.DRM_URI, "licensor")) {
-            final Element e = OPDSXML.nodeAsElement(child);
-            final String  in_vendor = e.getAttribute("drm:vendor");
-            String in_client_token = null;
-            OptionType<String> in_device_manager = Option.none();
-            for (int i = 0; i < e.getChildNodes().getLength(); ++i)
-            {
-              final Node node = e.getChildNodes().item(i);
-
-              if (node.getNodeName().contains("clientToken"))
-              {
-                in_client_token =  node.getFirstChild().getNodeValue();
-              }
-
-              if (node.getNodeName().contains("link"))
-              {
-              final Element element = OPDSXML.nodeAsElement(node);
-
-                final boolean has_everything =
-                  element.hasAttribute("rel") && element.hasAttribute("href");
-
-                if (has_everything) {
-                  final String r = NullCheck.notNull(element.getAttribute("rel"));
-                  final String h = NullCheck.notNull(element.getAttribute("href"));
-
-                  if ("http://librarysimplified.org/terms/drm/rel/devices".equals(r)) {
-
-                    in_device_manager = Option.some(h);
-
-                  }
-                }
-              }
-              if (in_vendor != null && in_client_token != null) {
-                final DRMLicensor licensor = new DRMLicensor(in_vendor, in_client_token, in_device_manager);
-                b.setLisensor(Option.some(licensor));
-              }
-            }
-          }
+    /**
+     * Terms of service links.
+     */
 
-        }
+    {
+      final OptionType<URI> tos_opt =
+        OPDSFeedParser.parseTermsOfService(e);
+      if (tos_opt.isSome()) {
+        b.setTermsOfServiceOption(tos_opt);
+        return;
+      }
+    }
 
-        /**
-         * Entries.
-         */
+    /**
+     * Privacy policy links.
+     */
 
-        if (OPDSXML.nodeHasName(
-          (Element) child, OPDSFeedConstants.ATOM_URI, "entry")) {
-          final Element e = OPDSXML.nodeAsElement(child);
-          b.addEntry(this.entry_parser.parseEntry(e));
-//          continue;
+    {
+      final OptionType<URI> pp_opt = OPDSFeedParser.parsePrivacyPolicy(e);
+      if (pp_opt.isSome()) {
+        b.setPrivacyPolicyOption(pp_opt);
+      }
+    }
+  }
+
+  private static OptionType<DRMLicensor> parseLicensor(
+    final Element e)
+    throws OPDSParseException
+  {
+    final String  in_vendor = e.getAttribute("drm:vendor");
+    String in_client_token = null;
+    OptionType<String> in_device_manager = Option.none();
+    for (int i = 0; i < e.getChildNodes().getLength(); ++i)
+    {
+      final Node node = e.getChildNodes().item(i);
+
+      if (node.getNodeName().contains("clientToken"))
+      {
+        in_client_token =  node.getFirstChild().getNodeValue();
+      }
+
+      if (node.getNodeName().contains("link"))
+      {
+      final Element element = OPDSXML.nodeAsElement(node);
+
+        final boolean has_everything =
+          element.hasAttribute("rel") && element.hasAttribute("href");
+
+        if (has_everything) {
+          final String r = NullCheck.notNull(element.getAttribute("rel"));
+          final String h = NullCheck.notNull(element.getAttribute("href"));
+
+          if ("http://librarysimplified.org/terms/drm/rel/devices".equals(r)) {
+
+            in_device_manager = Option.some(h);
+
+          }
         }
       }
     }
 
-    return b.build();
+    if (in_vendor != null && in_client_token != null) {
+      return Option.some(
+        new DRMLicensor(in_vendor, in_client_token, in_device_manager));
+    }
+    return Option.none();
   }
 }
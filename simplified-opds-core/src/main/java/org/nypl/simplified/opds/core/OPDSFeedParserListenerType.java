@@ -0,0 +1,30 @@
+package org.nypl.simplified.opds.core;
+
+/**
+ * The type of listeners that receive the parts of a feed as they are parsed
+ * by an {@link OPDSFeedStreamingParserType}.
+ */
+
+public interface OPDSFeedParserListenerType
+{
+  /**
+   * The header of the feed has been parsed. The header is delivered as a feed
+   * that contains the ID, title, links, facets and licensor seen so far, but
+   * no entries. This method is called exactly once per parsed feed, before
+   * any call to {@link #onFeedEntry(OPDSAcquisitionFeedEntry)}.
+   *
+   * @param header The feed header
+   */
+
+  void onFeedHeader(
+    OPDSAcquisitionFeed header);
+
+  /**
+   * An entry has been parsed.
+   *
+   * @param entry The feed entry
+   */
+
+  void onFeedEntry(
+    OPDSAcquisitionFeedEntry entry);
+}
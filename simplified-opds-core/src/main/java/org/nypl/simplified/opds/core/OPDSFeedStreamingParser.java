@@ -0,0 +1,520 @@
+package org.nypl.simplified.opds.core;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * <p> A streaming implementation of the {@link OPDSFeedParserType}. </p> <p>
+ * Unlike {@link OPDSFeedParser}, this implementation never constructs a DOM
+ * for the whole feed. The document is read with a SAX parser, and a small DOM
+ * is constructed for each individual entry so that the existing {@link
+ * OPDSAcquisitionFeedEntryParserType} can be used unchanged. Each entry DOM
+ * becomes garbage as soon as the entry has been parsed. Feed-level elements
+ * (the ID, title, update time, links and licensor) are retained until the end
+ * of the document and are interpreted exactly as {@link OPDSFeedParser}
+ * interprets them. </p>
+ */
+
+public final class OPDSFeedStreamingParser implements OPDSFeedStreamingParserType
+{
+  private static final Logger LOG;
+  private static final String NAMESPACE_PREFIXES_FEATURE;
+
+  static {
+    LOG = NullCheck.notNull(
+      LoggerFactory.getLogger(OPDSFeedStreamingParser.class));
+    NAMESPACE_PREFIXES_FEATURE =
+      "http://xml.org/sax/features/namespace-prefixes";
+  }
+
+  private final OPDSAcquisitionFeedEntryParserType entry_parser;
+  private final SAXParserFactory sax_factory;
+  private final DocumentBuilderFactory dom_factory;
+
+  private OPDSFeedStreamingParser(
+    final OPDSAcquisitionFeedEntryParserType in_entry_parser)
+  {
+    this.entry_parser = NullCheck.notNull(in_entry_parser);
+
+    this.sax_factory = NullCheck.notNull(SAXParserFactory.newInstance());
+    this.sax_factory.setNamespaceAware(true);
+    this.dom_factory = NullCheck.notNull(DocumentBuilderFactory.newInstance());
+    this.dom_factory.setNamespaceAware(true);
+  }
+
+  /**
+   * @param in_entry_parser A feed entry parser
+   *
+   * @return A new streaming feed parser
+   */
+
+  public static OPDSFeedStreamingParserType newParser(
+    final OPDSAcquisitionFeedEntryParserType in_entry_parser)
+  {
+    return new OPDSFeedStreamingParser(in_entry_parser);
+  }
+
+  @Override public OPDSAcquisitionFeed parse(
+    final URI uri,
+    final InputStream s)
+    throws OPDSParseException
+  {
+    final List<OPDSAcquisitionFeedEntry> entries =
+      new ArrayList<OPDSAcquisitionFeedEntry>(32);
+
+    final Handler h = this.run(uri, s, new OPDSFeedParserListenerType()
+    {
+      @Override public void onFeedHeader(
+        final OPDSAcquisitionFeed header)
+      {
+        // Nothing required
+      }
+
+      @Override public void onFeedEntry(
+        final OPDSAcquisitionFeedEntry entry)
+      {
+        entries.add(entry);
+      }
+    });
+
+    final OPDSAcquisitionFeedBuilderType b = h.newHeaderBuilder();
+    for (final OPDSAcquisitionFeedEntry e : entries) {
+      b.addEntry(NullCheck.notNull(e));
+    }
+    return b.build();
+  }
+
+  @Override public OPDSAcquisitionFeed parseStreaming(
+    final URI uri,
+    final InputStream s,
+    final OPDSFeedParserListenerType listener)
+    throws OPDSParseException
+  {
+    return this.run(uri, s, listener).newHeaderBuilder().build();
+  }
+
+  private Handler run(
+    final URI uri,
+    final InputStream s,
+    final OPDSFeedParserListenerType listener)
+    throws OPDSParseException
+  {
+    NullCheck.notNull(uri);
+    NullCheck.notNull(s);
+    NullCheck.notNull(listener);
+
+    final long time_pre_parse = System.nanoTime();
+
+    try {
+      OPDSFeedStreamingParser.LOG.debug("parsing: {}", uri);
+
+      /*
+       * The JAXP factories are not guaranteed to be thread-safe, so access
+       * to them is serialized. The parser and document instances they
+       * produce are private to this call.
+       */
+
+      final XMLReader reader;
+      final Document document;
+      synchronized (this.sax_factory) {
+        reader = this.sax_factory.newSAXParser().getXMLReader();
+      }
+      synchronized (this.dom_factory) {
+        document = this.dom_factory.newDocumentBuilder().newDocument();
+      }
+
+      reader.setFeature(OPDSFeedStreamingParser.NAMESPACE_PREFIXES_FEATURE, true);
+
+      final Handler h =
+        new Handler(uri, this.entry_parser, document, listener);
+      reader.setContentHandler(h);
+      reader.parse(new InputSource(s));
+      return h;
+
+    } catch (final SAXException e) {
+      final Exception cause = e.getException();
+      if (cause instanceof OPDSParseException) {
+        throw (OPDSParseException) cause;
+      }
+      if (cause != null) {
+        throw new OPDSParseException(cause);
+      }
+      throw new OPDSParseException(e);
+    } catch (final ParserConfigurationException e) {
+      throw new OPDSParseException(e);
+    } catch (final OPDSParseException e) {
+      throw e;
+    } catch (final IOException e) {
+      throw new OPDSParseException(e);
+    } catch (final DOMException e) {
+      throw new OPDSParseException(e);
+    } finally {
+      final long time_now = System.nanoTime();
+      OPDSFeedStreamingParser.LOG.debug(
+        "parsing completed ({}ms): {}",
+        TimeUnit.MILLISECONDS.convert(
+          time_now - time_pre_parse, TimeUnit.NANOSECONDS),
+        uri);
+    }
+  }
+
+  private enum RootKind
+  {
+    ROOT_UNKNOWN,
+    ROOT_FEED,
+    ROOT_ENTRY
+  }
+
+  /**
+   * A SAX handler that builds a small DOM for each feed child element of
+   * interest.
+   */
+
+  private static final class Handler extends DefaultHandler
+  {
+    private final URI uri;
+    private final OPDSAcquisitionFeedEntryParserType entry_parser;
+    private final Document document;
+    private final OPDSFeedParserListenerType listener;
+    private final Element header;
+    private final Deque<Element> stack;
+    private final StringBuilder text;
+    private final List<OPDSAcquisitionFeedEntry> pending;
+    private RootKind root;
+    private int depth;
+    private boolean header_delivered;
+    private boolean header_has_id;
+    private boolean header_has_title;
+    private boolean header_has_updated;
+    private @Nullable Element current;
+
+    Handler(
+      final URI in_uri,
+      final OPDSAcquisitionFeedEntryParserType in_entry_parser,
+      final Document in_document,
+      final OPDSFeedParserListenerType in_listener)
+    {
+      this.uri = NullCheck.notNull(in_uri);
+      this.entry_parser = NullCheck.notNull(in_entry_parser);
+      this.document = NullCheck.notNull(in_document);
+      this.listener = NullCheck.notNull(in_listener);
+      this.header = NullCheck.notNull(
+        this.document.createElementNS(
+          OPDSFeedConstants.ATOM_URI.toString(), "feed"));
+      this.stack = new ArrayDeque<Element>(16);
+      this.text = new StringBuilder(256);
+      this.pending = new ArrayList<OPDSAcquisitionFeedEntry>(8);
+      this.root = RootKind.ROOT_UNKNOWN;
+      this.depth = 0;
+      this.header_delivered = false;
+      this.current = null;
+    }
+
+    private static boolean isWanted(
+      final String namespace,
+      final String name)
+    {
+      if (OPDSFeedConstants.ATOM_URI.toString().equals(namespace)) {
+        return "entry".equals(name)
+               || "link".equals(name)
+               || "id".equals(name)
+               || "title".equals(name)
+               || "updated".equals(name);
+      }
+      if (OPDSFeedConstants.DRM_URI_TEXT.equals(namespace)) {
+        return "licensor".equals(name);
+      }
+      return false;
+    }
+
+    private static SAXException wrap(
+      final Exception e)
+    {
+      return new SAXException(e);
+    }
+
+    OPDSAcquisitionFeedBuilderType newHeaderBuilder()
+      throws OPDSParseException
+    {
+      switch (this.root) {
+        case ROOT_ENTRY:
+          return OPDSFeedParser.newSingleEntryFeedBuilder(this.uri);
+        case ROOT_FEED:
+          try {
+            return OPDSFeedParser.parseFeedHeader(this.uri, this.header);
+          } catch (final ParseException e) {
+            throw new OPDSParseException(e);
+          } catch (final URISyntaxException e) {
+            throw new OPDSParseException(e);
+          }
+        case ROOT_UNKNOWN:
+          break;
+      }
+      throw new OPDSParseException("Feed root is not 'feed' or 'entry'");
+    }
+
+    @Override public void startElement(
+      final String namespace,
+      final String local_name,
+      final String qualified_name,
+      final Attributes attributes)
+      throws SAXException
+    {
+      this.flushText();
+
+      if (this.depth == 0) {
+        this.startRoot(namespace, local_name);
+      }
+
+      final int element_depth = this.depth;
+      this.depth = this.depth + 1;
+
+      /*
+       * In a feed, only the direct children of the root that are actually
+       * interpreted are retained. Everything else is skipped.
+       */
+
+      if (this.root == RootKind.ROOT_FEED) {
+        if (element_depth == 0) {
+          return;
+        }
+        if (element_depth == 1) {
+          if (!Handler.isWanted(namespace, local_name)) {
+            return;
+          }
+        } else if (this.current == null) {
+          return;
+        }
+      }
+
+      final Element e =
+        this.newElement(namespace, local_name, qualified_name, attributes);
+      if (this.current != null) {
+        this.current.appendChild(e);
+        this.stack.push(this.current);
+      }
+      this.current = e;
+    }
+
+    private void startRoot(
+      final String namespace,
+      final String local_name)
+      throws SAXException
+    {
+      if (OPDSFeedConstants.ATOM_URI.toString().equals(namespace)) {
+        if ("feed".equals(local_name)) {
+          OPDSFeedStreamingParser.LOG.debug(
+            "parsing feed as ordinary feed: {}", this.uri);
+          this.root = RootKind.ROOT_FEED;
+          return;
+        }
+        if ("entry".equals(local_name)) {
+          OPDSFeedStreamingParser.LOG.debug(
+            "parsing feed as single entry: {}", this.uri);
+          this.root = RootKind.ROOT_ENTRY;
+          return;
+        }
+      }
+
+      throw Handler.wrap(
+        new OPDSParseException(
+          String.format(
+            "Feed root is '%s', expected 'feed' or 'entry'", local_name)));
+    }
+
+    private Element newElement(
+      final String namespace,
+      final String local_name,
+      final String qualified_name,
+      final Attributes attributes)
+    {
+      final String ns = namespace.isEmpty() ? null : namespace;
+      final String name = qualified_name.isEmpty() ? local_name : qualified_name;
+      final Element e = NullCheck.notNull(this.document.createElementNS(ns, name));
+
+      for (int index = 0; index < attributes.getLength(); ++index) {
+        final String a_qname = attributes.getQName(index);
+        final String a_name =
+          a_qname.isEmpty() ? attributes.getLocalName(index) : a_qname;
+        final String a_ns;
+        if ("xmlns".equals(a_name) || a_name.startsWith("xmlns:")) {
+          a_ns = XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+        } else {
+          final String a_uri = attributes.getURI(index);
+          a_ns = a_uri.isEmpty() ? null : a_uri;
+        }
+        e.setAttributeNS(a_ns, a_name, attributes.getValue(index));
+      }
+      return e;
+    }
+
+    @Override public void endElement(
+      final String namespace,
+      final String local_name,
+      final String qualified_name)
+      throws SAXException
+    {
+      this.flushText();
+      this.depth = this.depth - 1;
+
+      final Element e = this.current;
+      if (e == null) {
+        return;
+      }
+
+      if (!this.stack.isEmpty()) {
+        this.current = this.stack.pop();
+        return;
+      }
+
+      this.current = null;
+      try {
+        switch (this.root) {
+          case ROOT_FEED:
+            this.finishFeedChild(e);
+            break;
+          case ROOT_ENTRY:
+            this.deliverHeader();
+            this.listener.onFeedEntry(this.entry_parser.parseEntry(e));
+            break;
+          case ROOT_UNKNOWN:
+            break;
+        }
+      } catch (final OPDSParseException x) {
+        throw Handler.wrap(x);
+      }
+    }
+
+    private void finishFeedChild(
+      final Element e)
+      throws OPDSParseException
+    {
+      if (OPDSXML.nodeHasName(e, OPDSFeedConstants.ATOM_URI, "entry")) {
+        final OPDSAcquisitionFeedEntry entry = this.entry_parser.parseEntry(e);
+        if (this.header_delivered) {
+          this.listener.onFeedEntry(entry);
+          return;
+        }
+
+        /*
+         * The builder for the feed header cannot be created until the
+         * required ID, title and update time have been seen. They almost
+         * always precede the first entry; if they don't, entries are held
+         * until the end of the document.
+         */
+
+        if (this.header_has_id && this.header_has_title && this.header_has_updated) {
+          this.deliverHeader();
+          this.listener.onFeedEntry(entry);
+        } else {
+          this.pending.add(entry);
+        }
+        return;
+      }
+
+      if (OPDSXML.nodeHasName(e, OPDSFeedConstants.ATOM_URI, "id")) {
+        if (this.header_has_id) {
+          return;
+        }
+        this.header_has_id = true;
+      } else if (OPDSXML.nodeHasName(e, OPDSFeedConstants.ATOM_URI, "title")) {
+        if (this.header_has_title) {
+          return;
+        }
+        this.header_has_title = true;
+      } else if (OPDSXML.nodeHasName(e, OPDSFeedConstants.ATOM_URI, "updated")) {
+        if (this.header_has_updated) {
+          return;
+        }
+        this.header_has_updated = true;
+      }
+
+      this.header.appendChild(e);
+    }
+
+    private void deliverHeader()
+      throws OPDSParseException
+    {
+      if (!this.header_delivered) {
+        this.header_delivered = true;
+        this.listener.onFeedHeader(this.newHeaderBuilder().build());
+      }
+    }
+
+    @Override public void endDocument()
+      throws SAXException
+    {
+      try {
+        this.deliverHeader();
+        for (final OPDSAcquisitionFeedEntry entry : this.pending) {
+          this.listener.onFeedEntry(NullCheck.notNull(entry));
+        }
+        this.pending.clear();
+      } catch (final OPDSParseException e) {
+        throw Handler.wrap(e);
+      }
+    }
+
+    @Override public void characters(
+      final char[] ch,
+      final int start,
+      final int length)
+    {
+      if (this.current != null) {
+        this.text.append(ch, start, length);
+      }
+    }
+
+    @Override public void ignorableWhitespace(
+      final char[] ch,
+      final int start,
+      final int length)
+    {
+      this.characters(ch, start, length);
+    }
+
+    /*
+     * SAX parsers are free to split character data into any number of
+     * chunks. Coalescing them here gives the same single text nodes that a
+     * DOM parser would produce.
+     */
+
+    private void flushText()
+    {
+      if (this.text.length() > 0) {
+        final Element e = this.current;
+        if (e != null) {
+          e.appendChild(this.document.createTextNode(this.text.toString()));
+        }
+        this.text.setLength(0);
+      }
+    }
+  }
+}
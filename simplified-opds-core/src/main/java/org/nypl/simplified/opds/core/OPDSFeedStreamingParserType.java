@@ -0,0 +1,43 @@
+package org.nypl.simplified.opds.core;
+
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * <p>
+ * The type of parsers that can deliver the entries of a feed incrementally,
+ * as they are read from the stream, rather than producing one complete feed
+ * at the end.
+ * </p>
+ * <p>
+ * Implementations are required to be able to accept requests from any number
+ * of threads simultaneously.
+ * </p>
+ */
+
+public interface OPDSFeedStreamingParserType extends OPDSFeedParserType
+{
+  /**
+   * Parse the feed associated with the given stream {@code s}, delivering
+   * the header and entries to {@code listener} as they are read. The feed is
+   * assumed to exist at {@code uri}. Entries are not retained by the parser
+   * after they have been delivered.
+   *
+   * @param uri
+   *          The URI of the feed
+   * @param s
+   *          The input stream
+   * @param listener
+   *          The listener that will receive the feed header and entries
+   * @return The complete feed header, including any links that appeared
+   *         after the first entry, but without entries
+   * @throws OPDSParseException
+   *           On errors
+   */
+
+  OPDSAcquisitionFeed parseStreaming(
+    final URI uri,
+    final InputStream s,
+    final OPDSFeedParserListenerType listener)
+      throws OPDSParseException;
+}
@@ -2,7 +2,6 @@ package org.nypl.simplified.opds.core;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.io7m.jfunctional.Option;
@@ -10,6 +9,7 @@ import com.io7m.jfunctional.OptionType;
 import com.io7m.jfunctional.PartialFunctionType;
 import com.io7m.jfunctional.Unit;
 import com.io7m.jnull.NullCheck;
+import org.nypl.simplified.json.core.JSONMappers;
 import org.nypl.simplified.json.core.JSONParseException;
 import org.nypl.simplified.json.core.JSONParserUtilities;
 import org.nypl.simplified.opds.core.OPDSAcquisition.Type;
@@ -412,10 +412,9 @@ public final class OPDSJSONParser implements OPDSJSONParserType
     throws OPDSParseException
   {
     try {
-      final ObjectMapper jom = new ObjectMapper();
       return this.parseAcquisitionFeedEntry(
         JSONParserUtilities.checkObject(
-          null, jom.readTree(s)));
+          null, JSONMappers.treeReader().readTree(s)));
     } catch (final JsonProcessingException e) {
       throw new OPDSParseException(e);
     } catch (final IOException e) {
@@ -428,10 +427,9 @@ public final class OPDSJSONParser implements OPDSJSONParserType
     throws OPDSParseException
   {
     try {
-      final ObjectMapper jom = new ObjectMapper();
       return this.parseAcquisitionFeed(
         JSONParserUtilities.checkObject(
-          null, jom.readTree(s)));
+          null, JSONMappers.treeReader().readTree(s)));
     } catch (final JsonProcessingException e) {
       throw new OPDSParseException(e);
     } catch (final IOException e) {
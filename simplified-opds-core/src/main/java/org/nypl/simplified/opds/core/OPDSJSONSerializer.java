@@ -10,13 +10,13 @@ import com.io7m.jfunctional.Some;
 import com.io7m.jfunctional.Unit;
 import com.io7m.jnull.NullCheck;
 import com.io7m.junreachable.UnreachableCodeException;
+import org.nypl.simplified.json.core.JSONMappers;
 import org.nypl.simplified.json.core.JSONSerializerUtilities;
 import org.nypl.simplified.rfc3339.core.RFC3339Formatter;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Set;
 
@@ -45,7 +45,7 @@ public final class OPDSJSONSerializer implements OPDSJSONSerializerType
   {
     NullCheck.notNull(a);
 
-    final ObjectMapper jom = new ObjectMapper();
+    final ObjectMapper jom = JSONMappers.mapper();
     final ObjectNode je = jom.createObjectNode();
     je.put("type", a.getType().toString());
     je.put("uri", a.getURI().toString());
@@ -57,8 +57,7 @@ public final class OPDSJSONSerializer implements OPDSJSONSerializerType
   {
     NullCheck.notNull(av);
 
-    final SimpleDateFormat fmt = RFC3339Formatter.newDateFormatter();
-    final ObjectMapper jom = new ObjectMapper();
+    final ObjectMapper jom = JSONMappers.mapper();
     return av.matchAvailability(
       new OPDSAvailabilityMatcherType<ObjectNode, UnreachableCodeException>()
       {
@@ -72,7 +71,7 @@ public final class OPDSJSONSerializer implements OPDSJSONSerializerType
               @Override public Unit call(
                 final Calendar t)
               {
-                oh.put("end_date", fmt.format(t.getTime()));
+                oh.put("end_date", RFC3339Formatter.formatRFC3339Date(t));
                 return Unit.unit();
               }
             });
@@ -100,7 +99,7 @@ public final class OPDSJSONSerializer implements OPDSJSONSerializerType
               public Unit call(
                 final Calendar t)
               {
-                oh.put("start_date", fmt.format(t.getTime()));
+                oh.put("start_date", RFC3339Formatter.formatRFC3339Date(t));
                 return Unit.unit();
               }
             });
@@ -154,7 +153,7 @@ public final class OPDSJSONSerializer implements OPDSJSONSerializerType
               public Unit call(
                 final Calendar t)
               {
-                oh.put("start_date", fmt.format(t.getTime()));
+                oh.put("start_date", RFC3339Formatter.formatRFC3339Date(t));
                 return Unit.unit();
               }
             });
@@ -164,7 +163,7 @@ public final class OPDSJSONSerializer implements OPDSJSONSerializerType
               @Override public Unit call(
                 final Calendar t)
               {
-                oh.put("end_date", fmt.format(t.getTime()));
+                oh.put("end_date", RFC3339Formatter.formatRFC3339Date(t));
                 return Unit.unit();
               }
             });
@@ -215,7 +214,7 @@ public final class OPDSJSONSerializer implements OPDSJSONSerializerType
   {
     NullCheck.notNull(c);
 
-    final ObjectMapper jom = new ObjectMapper();
+    final ObjectMapper jom = JSONMappers.mapper();
     final ObjectNode je = jom.createObjectNode();
     je.put("scheme", c.getScheme());
     je.put("term", c.getTerm());
@@ -233,7 +232,7 @@ public final class OPDSJSONSerializer implements OPDSJSONSerializerType
   public ObjectNode serializeLicensor(final DRMLicensor l) {
     NullCheck.notNull(l);
 
-    final ObjectMapper jom = new ObjectMapper();
+    final ObjectMapper jom = JSONMappers.mapper();
     final ObjectNode je = jom.createObjectNode();
     je.put("vendor", l.getVendor());
     je.put("clientToken", l.getClientToken());
@@ -249,9 +248,8 @@ public final class OPDSJSONSerializer implements OPDSJSONSerializerType
     final OPDSAcquisitionFeedEntry e)
     throws OPDSSerializationException
   {
-    final ObjectMapper jom = new ObjectMapper();
+    final ObjectMapper jom = JSONMappers.mapper();
     final ObjectNode je = jom.createObjectNode();
-    final SimpleDateFormat fmt = RFC3339Formatter.newDateFormatter();
 
     {
       final ArrayNode ja = jom.createArrayNode();
@@ -319,7 +317,7 @@ public final class OPDSJSONSerializer implements OPDSJSONSerializerType
         @Override public Unit call(
           final Calendar c)
         {
-          je.put("published", fmt.format(c.getTime()));
+          je.put("published", RFC3339Formatter.formatRFC3339Date(c));
           return Unit.unit();
         }
       });
@@ -374,7 +372,7 @@ public final class OPDSJSONSerializer implements OPDSJSONSerializerType
         }
       });
 
-    je.put("updated", fmt.format(e.getUpdated().getTime()));
+    je.put("updated", RFC3339Formatter.formatRFC3339Date(e.getUpdated()));
     return NullCheck.notNull(je);
   }
 
@@ -384,9 +382,8 @@ public final class OPDSJSONSerializer implements OPDSJSONSerializerType
   {
     NullCheck.notNull(e);
 
-    final ObjectMapper jom = new ObjectMapper();
+    final ObjectMapper jom = JSONMappers.mapper();
     final ObjectNode je = jom.createObjectNode();
-    final SimpleDateFormat fmt = RFC3339Formatter.newDateFormatter();
 
     je.put("id", e.getFeedID());
     je.put("title", e.getFeedTitle());
@@ -437,7 +434,7 @@ public final class OPDSJSONSerializer implements OPDSJSONSerializerType
         }
       });
 
-    je.put("updated", fmt.format(e.getFeedUpdated().getTime()));
+    je.put("updated", RFC3339Formatter.formatRFC3339Date(e.getFeedUpdated()));
     je.put("uri", e.getFeedURI().toString());
     return NullCheck.notNull(je);
   }
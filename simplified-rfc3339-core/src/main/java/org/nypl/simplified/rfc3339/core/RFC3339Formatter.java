@@ -10,11 +10,22 @@ import java.util.Date;
 import java.util.TimeZone;
 
 /**
- * Parser for RFC3339 dates.
+ * <p>Parser and formatter for RFC3339 dates.</p>
+ *
+ * <p>Both the parser and the formatter work directly on characters and do
+ * not use {@link SimpleDateFormat}, so they are safe to call from any number
+ * of threads at once and allocate nothing beyond their results.</p>
  */
 
 public final class RFC3339Formatter
 {
+  private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+  private static final long MILLIS_PER_SECOND = 1000L;
+  private static final long MILLIS_PER_MINUTE = 60L * MILLIS_PER_SECOND;
+  private static final long MILLIS_PER_HOUR = 60L * MILLIS_PER_MINUTE;
+  private static final long MILLIS_PER_DAY = 24L * MILLIS_PER_HOUR;
+
   private RFC3339Formatter()
   {
     throw new UnreachableCodeException();
@@ -22,15 +33,125 @@ public final class RFC3339Formatter
 
   /**
    * @return A new RFC3339 date formatter
+   *
+   * @deprecated The returned formatter formats dates in the default time
+   * zone, but labels them as UTC. Use {@link #formatRFC3339Date(Calendar)}.
    */
 
+  @Deprecated
   public static SimpleDateFormat newDateFormatter()
   {
     return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
   }
 
   /**
-   * Parse the given timestamp to an RFC3339 date in the UTC timezone.
+   * Format the given date as an RFC3339 timestamp in UTC, with whole
+   * seconds, such as {@code 2015-05-01T23:11:15Z}.
+   *
+   * @param date The date
+   *
+   * @return A formatted timestamp
+   */
+
+  public static String formatRFC3339Date(
+    final Calendar date)
+  {
+    NullCheck.notNull(date);
+    return RFC3339Formatter.formatRFC3339Millis(date.getTimeInMillis());
+  }
+
+  /**
+   * Format the given date as an RFC3339 timestamp in UTC, with whole
+   * seconds, such as {@code 2015-05-01T23:11:15Z}.
+   *
+   * @param date The date
+   *
+   * @return A formatted timestamp
+   */
+
+  public static String formatRFC3339Date(
+    final Date date)
+  {
+    NullCheck.notNull(date);
+    return RFC3339Formatter.formatRFC3339Millis(date.getTime());
+  }
+
+  private static String formatRFC3339Millis(
+    final long millis)
+  {
+    long days = millis / MILLIS_PER_DAY;
+    long time = millis % MILLIS_PER_DAY;
+    if (time < 0L) {
+      days -= 1L;
+      time += MILLIS_PER_DAY;
+    }
+
+    /*
+     * Convert days since the epoch to a civil date in the proleptic
+     * Gregorian calendar. See Howard Hinnant, "chrono-Compatible Low-Level
+     * Date Algorithms" (civil_from_days).
+     */
+
+    final long z = days + 719468L;
+    final long era = (z >= 0L ? z : z - 146096L) / 146097L;
+    final long doe = z - (era * 146097L);
+    final long yoe = (doe - (doe / 1460L) + (doe / 36524L) - (doe / 146096L)) / 365L;
+    final long doy = doe - ((365L * yoe) + (yoe / 4L) - (yoe / 100L));
+    final long mp = ((5L * doy) + 2L) / 153L;
+    final int day = (int) (doy - (((153L * mp) + 2L) / 5L) + 1L);
+    final int month = (int) (mp < 10L ? mp + 3L : mp - 9L);
+    final long year = yoe + (era * 400L) + (month <= 2 ? 1L : 0L);
+
+    final int hour = (int) (time / MILLIS_PER_HOUR);
+    final int minute = (int) ((time % MILLIS_PER_HOUR) / MILLIS_PER_MINUTE);
+    final int second = (int) ((time % MILLIS_PER_MINUTE) / MILLIS_PER_SECOND);
+
+    if (year < 0L || year > 9999L) {
+      return String.format(
+        "%04d-%02d-%02dT%02d:%02d:%02dZ",
+        Long.valueOf(year),
+        Integer.valueOf(month),
+        Integer.valueOf(day),
+        Integer.valueOf(hour),
+        Integer.valueOf(minute),
+        Integer.valueOf(second));
+    }
+
+    final char[] c = new char[20];
+    RFC3339Formatter.putDigits(c, 0, (int) year, 4);
+    c[4] = '-';
+    RFC3339Formatter.putDigits(c, 5, month, 2);
+    c[7] = '-';
+    RFC3339Formatter.putDigits(c, 8, day, 2);
+    c[10] = 'T';
+    RFC3339Formatter.putDigits(c, 11, hour, 2);
+    c[13] = ':';
+    RFC3339Formatter.putDigits(c, 14, minute, 2);
+    c[16] = ':';
+    RFC3339Formatter.putDigits(c, 17, second, 2);
+    c[19] = 'Z';
+    return new String(c);
+  }
+
+  private static void putDigits(
+    final char[] c,
+    final int offset,
+    final int value,
+    final int count)
+  {
+    int v = value;
+    for (int index = offset + count - 1; index >= offset; --index) {
+      c[index] = (char) ('0' + (v % 10));
+      v /= 10;
+    }
+  }
+
+  /**
+   * <p>Parse the given timestamp to an RFC3339 date in the UTC timezone.</p>
+   *
+   * <p>The timestamp may end with {@code Z} or with a numeric offset such as
+   * {@code -05:00}, and may have any number of fractional second digits;
+   * digits beyond milliseconds are truncated.</p>
    *
    * @param text The timestamp
    *
@@ -45,60 +166,200 @@ public final class RFC3339Formatter
   {
     NullCheck.notNull(text);
 
-    Date d = new Date();
-
-    final TimeZone utc = TimeZone.getTimeZone("UTC");
-    if (text.endsWith("Z")) {
-      final SimpleDateFormat df0 =
-        new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
-      df0.setTimeZone(utc);
-      try {
-        d = df0.parse(text);
-      } catch (final java.text.ParseException pe) {
-        final SimpleDateFormat df1 =
-          new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'");
-        df1.setTimeZone(utc);
-        df1.setLenient(true);
-        d = df1.parse(text);
+    final int length = text.length();
+
+    /*
+     * date-fullyear "-" date-month "-" date-mday
+     */
+
+    final int year = RFC3339Formatter.digits(text, 0, 4);
+    RFC3339Formatter.expect(text, 4, '-');
+    final int month = RFC3339Formatter.digits(text, 5, 2);
+    RFC3339Formatter.expect(text, 7, '-');
+    final int day = RFC3339Formatter.digits(text, 8, 2);
+
+    if (month < 1 || month > 12) {
+      throw new ParseException("Month out of range: " + text, 5);
+    }
+    if (day < 1 || day > RFC3339Formatter.daysInMonth(year, month)) {
+      throw new ParseException("Day out of range: " + text, 8);
+    }
+
+    /*
+     * "T" time-hour ":" time-minute ":" time-second. RFC3339 permits a
+     * lowercase "t", or a space, as the separator.
+     */
+
+    if (length <= 10) {
+      throw new ParseException("Missing time: " + text, length);
+    }
+    final char sep = text.charAt(10);
+    if (sep != 'T' && sep != 't' && sep != ' ') {
+      throw new ParseException("Expected 'T': " + text, 10);
+    }
+
+    final int hour = RFC3339Formatter.digits(text, 11, 2);
+    RFC3339Formatter.expect(text, 13, ':');
+    final int minute = RFC3339Formatter.digits(text, 14, 2);
+    RFC3339Formatter.expect(text, 16, ':');
+    final int second = RFC3339Formatter.digits(text, 17, 2);
+
+    if (hour > 23) {
+      throw new ParseException("Hour out of range: " + text, 11);
+    }
+    if (minute > 59) {
+      throw new ParseException("Minute out of range: " + text, 14);
+    }
+    if (second > 60) {
+      throw new ParseException("Second out of range: " + text, 17);
+    }
+
+    /*
+     * [ "." 1*DIGIT ]
+     */
+
+    int position = 19;
+    int millis = 0;
+    if (position < length && text.charAt(position) == '.') {
+      ++position;
+      final int start = position;
+      int scale = 100;
+      while (position < length) {
+        final char c = text.charAt(position);
+        if (c < '0' || c > '9') {
+          break;
+        }
+        millis += (c - '0') * scale;
+        scale /= 10;
+        ++position;
+      }
+      if (position == start) {
+        throw new ParseException("Missing fractional seconds: " + text, start);
       }
-      return RFC3339Formatter.toCal(NullCheck.notNull(d));
     }
 
-    /**
-     * Remove timezone.
+    /*
+     * time-offset = "Z" / ( "+" / "-" ) time-hour ":" time-minute
      */
 
-    final String pre = text.substring(0, text.lastIndexOf('-'));
+    if (position >= length) {
+      throw new ParseException("Missing time offset: " + text, position);
+    }
+
+    long offset = 0L;
+    final char zone = text.charAt(position);
+    if (zone == 'Z' || zone == 'z') {
+      ++position;
+    } else if (zone == '+' || zone == '-') {
+      final int offset_hour = RFC3339Formatter.digits(text, position + 1, 2);
+      int next = position + 3;
+      if (next < length && text.charAt(next) == ':') {
+        ++next;
+      }
+      final int offset_minute = RFC3339Formatter.digits(text, next, 2);
+      if (offset_hour > 23 || offset_minute > 59) {
+        throw new ParseException("Time offset out of range: " + text, position);
+      }
+
+      offset = (offset_hour * MILLIS_PER_HOUR) + (offset_minute * MILLIS_PER_MINUTE);
+      if (zone == '-') {
+        offset = -offset;
+      }
+      position = next + 2;
+    } else {
+      throw new ParseException("Expected a time offset: " + text, position);
+    }
+
+    if (position != length) {
+      throw new ParseException("Trailing characters: " + text, position);
+    }
+
+    final long time =
+      (RFC3339Formatter.daysFromCivil(year, month, day) * MILLIS_PER_DAY)
+        + (hour * MILLIS_PER_HOUR)
+        + (minute * MILLIS_PER_MINUTE)
+        + (second * MILLIS_PER_SECOND)
+        + millis
+        - offset;
+
+    final Calendar cal = Calendar.getInstance(RFC3339Formatter.UTC);
+    cal.setTimeInMillis(time);
+    return cal;
+  }
 
-    /**
-     * Remove colon from timezone offset.
+  /**
+   * @return The number of days since the epoch of the given civil date
+   */
+
+  private static long daysFromCivil(
+    final int year,
+    final int month,
+    final int day)
+  {
+    /*
+     * See Howard Hinnant, "chrono-Compatible Low-Level Date Algorithms"
+     * (days_from_civil).
      */
 
-    String post = text.substring(text.lastIndexOf('-'));
-    post = post.substring(0, post.indexOf(':')) + post.substring(
-      post.indexOf(':') + 1);
+    final long y = month <= 2 ? year - 1L : year;
+    final long era = (y >= 0L ? y : y - 399L) / 400L;
+    final long yoe = y - (era * 400L);
+    final long mp = month > 2 ? month - 3L : month + 9L;
+    final long doy = (((153L * mp) + 2L) / 5L) + day - 1L;
+    final long doe = (yoe * 365L) + (yoe / 4L) - (yoe / 100L) + doy;
+    return (era * 146097L) + doe - 719468L;
+  }
 
-    final String new_date = pre + post;
-    final SimpleDateFormat df0 = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
-    df0.setTimeZone(utc);
-    try {
-      d = df0.parse(new_date);
-    } catch (final java.text.ParseException pe) {
-      final SimpleDateFormat df1 =
-        new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSSZ");
-      df1.setTimeZone(utc);
-      df1.setLenient(true);
-      d = df1.parse(new_date);
+  private static int daysInMonth(
+    final int year,
+    final int month)
+  {
+    switch (month) {
+      case 2: {
+        final boolean leap =
+          (year % 4 == 0) && ((year % 100 != 0) || (year % 400 == 0));
+        return leap ? 29 : 28;
+      }
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  private static int digits(
+    final String text,
+    final int offset,
+    final int count)
+    throws ParseException
+  {
+    if (offset + count > text.length()) {
+      throw new ParseException("Unexpected end of timestamp: " + text, text.length());
     }
 
-    return RFC3339Formatter.toCal(NullCheck.notNull(d));
+    int value = 0;
+    for (int index = offset; index < offset + count; ++index) {
+      final char c = text.charAt(index);
+      if (c < '0' || c > '9') {
+        throw new ParseException("Expected a digit: " + text, index);
+      }
+      value = (value * 10) + (c - '0');
+    }
+    return value;
   }
 
-  private static Calendar toCal(
-    final Date d)
+  private static void expect(
+    final String text,
+    final int offset,
+    final char expected)
+    throws ParseException
   {
-    final Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
-    cal.setTime(d);
-    return cal;
+    if (offset >= text.length() || text.charAt(offset) != expected) {
+      throw new ParseException(
+        "Expected '" + expected + "': " + text, Math.min(offset, text.length()));
+    }
   }
 }
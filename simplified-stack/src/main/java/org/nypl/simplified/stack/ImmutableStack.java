@@ -1,7 +1,12 @@
 package org.nypl.simplified.stack;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.io7m.jfunctional.Pair;
@@ -9,7 +14,17 @@ import com.io7m.jnull.NullCheck;
 import com.io7m.jnull.Nullable;
 
 /**
- * An immutable stack.
+ * <p>An immutable stack.</p>
+ *
+ * <p>The stack is a persistent linked list: each stack holds its top element
+ * and a reference to the stack beneath it. Pushing an element creates a
+ * single new stack that shares all of the existing elements with the
+ * original stack, and popping an element returns the stack beneath it, so
+ * {@link #push(Object)}, {@link #pop()}, and {@link #peek()} take constant
+ * time regardless of the depth of the stack.</p>
+ *
+ * <p>Stacks are compared, hashed, printed, and serialized as the list of
+ * their elements from the bottom of the stack to the top.</p>
  *
  * @param <T> The type of elements.
  */
@@ -18,22 +33,46 @@ public final class ImmutableStack<T> implements Serializable
 {
   private static final long serialVersionUID = 1L;
 
+  /**
+   * The serialized form of the stack is the list of its elements, bottom
+   * first, as it was when the stack was backed by an array list.
+   */
+
+  private static final ObjectStreamField[] serialPersistentFields = {
+    new ObjectStreamField("elements", List.class),
+  };
+
+  private static final ImmutableStack<?> EMPTY =
+    new ImmutableStack<Object>(null, null, 0);
+
   /**
    * @return A new empty stack
    * @param <T> The type of stack elements
    */
 
+  @SuppressWarnings("unchecked")
   public static <T> ImmutableStack<T> empty()
   {
-    return new ImmutableStack<T>(new ArrayList<T>());
+    return (ImmutableStack<T>) ImmutableStack.EMPTY;
   }
 
-  private final List<T> elements;
+  /*
+   * These fields are only assigned outside of the constructor when
+   * deserializing, before the stack has been published.
+   */
+
+  private transient @Nullable T                 head;
+  private transient @Nullable ImmutableStack<T> tail;
+  private transient int                         size;
 
   private ImmutableStack(
-    final List<T> in_e)
+    final @Nullable T in_head,
+    final @Nullable ImmutableStack<T> in_tail,
+    final int in_size)
   {
-    this.elements = NullCheck.notNull(in_e);
+    this.head = in_head;
+    this.tail = in_tail;
+    this.size = in_size;
   }
 
   @Override public boolean equals(
@@ -48,13 +87,50 @@ public final class ImmutableStack<T> implements Serializable
     if (this.getClass() != obj.getClass()) {
       return false;
     }
+
     final ImmutableStack<?> other = (ImmutableStack<?>) obj;
-    return this.elements.equals(other.elements);
+    if (this.size != other.size) {
+      return false;
+    }
+
+    /*
+     * Stacks of equal size that share a tail are equal from that point
+     * downwards, so the comparison can stop there.
+     */
+
+    ImmutableStack<?> x = this;
+    ImmutableStack<?> y = other;
+    while (x != y) {
+      if (!NullCheck.notNull(x.head).equals(y.head)) {
+        return false;
+      }
+      x = NullCheck.notNull(x.tail);
+      y = NullCheck.notNull(y.tail);
+    }
+    return true;
   }
 
+  /**
+   * The hash code is that of the list of elements of the stack, bottom first,
+   * as specified by {@link List#hashCode()}.
+   */
+
   @Override public int hashCode()
   {
-    return this.elements.hashCode();
+    /*
+     * An element at depth d from the top of the stack contributes its hash
+     * code multiplied by 31^d, and the empty list contributes 31^size.
+     */
+
+    int hash = 0;
+    int power = 1;
+    ImmutableStack<T> s = this;
+    while (s.size > 0) {
+      hash += NullCheck.notNull(s.head).hashCode() * power;
+      power *= 31;
+      s = NullCheck.notNull(s.tail);
+    }
+    return hash + power;
   }
 
   /**
@@ -63,7 +139,30 @@ public final class ImmutableStack<T> implements Serializable
 
   public boolean isEmpty()
   {
-    return this.elements.isEmpty();
+    return this.size == 0;
+  }
+
+  /**
+   * @return The number of elements in the stack
+   */
+
+  public int size()
+  {
+    return this.size;
+  }
+
+  /**
+   * @return The last element pushed to the stack
+   * @throws IllegalStateException
+   *           If the current stack is empty
+   */
+
+  public T peek()
+  {
+    if (this.size == 0) {
+      throw new IllegalStateException("Empty stack");
+    }
+    return NullCheck.notNull(this.head);
   }
 
   /**
@@ -77,13 +176,12 @@ public final class ImmutableStack<T> implements Serializable
 
   public Pair<T, ImmutableStack<T>> pop()
   {
-    if (this.elements.isEmpty()) {
+    if (this.size == 0) {
       throw new IllegalStateException("Empty stack");
     }
 
-    final List<T> r = new ArrayList<T>(this.elements);
-    final T last = NullCheck.notNull(r.remove(r.size() - 1));
-    return Pair.pair(last, new ImmutableStack<T>(r));
+    return Pair.pair(
+      NullCheck.notNull(this.head), NullCheck.notNull(this.tail));
   }
 
   /**
@@ -98,14 +196,65 @@ public final class ImmutableStack<T> implements Serializable
     final T x)
   {
     NullCheck.notNull(x);
+    return new ImmutableStack<T>(x, this, this.size + 1);
+  }
 
-    final List<T> r = new ArrayList<T>(this.elements);
-    r.add(x);
-    return new ImmutableStack<T>(r);
+  /**
+   * @return The elements of the stack, bottom first
+   */
+
+  private List<T> toList()
+  {
+    final List<T> r = new ArrayList<T>(this.size);
+    ImmutableStack<T> s = this;
+    while (s.size > 0) {
+      r.add(NullCheck.notNull(s.head));
+      s = NullCheck.notNull(s.tail);
+    }
+    Collections.reverse(r);
+    return r;
   }
 
   @Override public String toString()
   {
-    return NullCheck.notNull(this.elements.toString());
+    return NullCheck.notNull(this.toList().toString());
+  }
+
+  private void writeObject(
+    final ObjectOutputStream out)
+    throws IOException
+  {
+    final ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("elements", this.toList());
+    out.writeFields();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void readObject(
+    final ObjectInputStream in)
+    throws IOException, ClassNotFoundException
+  {
+    final ObjectInputStream.GetField fields = in.readFields();
+    final List<T> elements = (List<T>) fields.get("elements", null);
+    if (elements == null) {
+      throw new IOException("Missing stack elements");
+    }
+
+    ImmutableStack<T> s = ImmutableStack.empty();
+    for (final T x : elements) {
+      s = s.push(x);
+    }
+
+    this.head = s.head;
+    this.tail = s.tail;
+    this.size = s.size;
+  }
+
+  private Object readResolve()
+  {
+    if (this.size == 0) {
+      return ImmutableStack.EMPTY;
+    }
+    return this;
   }
 }
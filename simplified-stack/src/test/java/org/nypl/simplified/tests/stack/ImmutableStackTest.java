@@ -1,6 +1,17 @@
 package org.nypl.simplified.tests.stack;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 import org.nypl.simplified.stack.ImmutableStack;
 
@@ -8,6 +19,37 @@ import com.io7m.jfunctional.Pair;
 
 @SuppressWarnings({ "null", "static-method" }) public final class ImmutableStackTest
 {
+  /**
+   * The stack [a, b, c], as serialized by the original array-backed
+   * implementation.
+   */
+
+  private static final String SERIALIZED_ABC =
+    "rO0ABXNyAChvcmcubnlwbC5zaW1wbGlmaWVkLnN0YWNrLkltbXV0YWJsZVN0YWNrAAAAAAAA"
+    + "AAECAAFMAAhlbGVtZW50c3QAEExqYXZhL3V0aWwvTGlzdDt4cHNyABNqYXZhLnV0aWwuQXJy"
+    + "YXlMaXN0eIHSHZnHYZ0DAAFJAARzaXpleHAAAAADdwQAAAADdAABYXQAAWJ0AAFjeA==";
+
+  private static byte[] serialize(
+    final Object o)
+    throws Exception
+  {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(o);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Object deserialize(
+    final byte[] data)
+    throws Exception
+  {
+    try (ObjectInputStream in =
+           new ObjectInputStream(new ByteArrayInputStream(data))) {
+      return in.readObject();
+    }
+  }
+
   @Test public void testEmpty()
   {
     final ImmutableStack<Integer> s0 = ImmutableStack.empty();
@@ -38,4 +80,142 @@ import com.io7m.jfunctional.Pair;
     Assert.assertEquals(p2.getRight(), s0);
     Assert.assertEquals(p2.getLeft(), Integer.valueOf(23));
   }
+
+  @Test(expected = IllegalStateException.class) public void testPeekEmptyBad()
+  {
+    final ImmutableStack<Integer> s0 = ImmutableStack.empty();
+    s0.peek();
+  }
+
+  @Test public void testPeek()
+  {
+    final ImmutableStack<Integer> s0 = ImmutableStack.empty();
+    final ImmutableStack<Integer> s1 = s0.push(Integer.valueOf(23));
+    final ImmutableStack<Integer> s2 = s1.push(Integer.valueOf(24));
+
+    Assert.assertEquals(Integer.valueOf(23), s1.peek());
+    Assert.assertEquals(Integer.valueOf(24), s2.peek());
+    Assert.assertEquals(0, s0.size());
+    Assert.assertEquals(1, s1.size());
+    Assert.assertEquals(2, s2.size());
+  }
+
+  @Test public void testStructureShared()
+  {
+    final ImmutableStack<Integer> s0 =
+      ImmutableStack.<Integer>empty().push(Integer.valueOf(1));
+    final ImmutableStack<Integer> s1 = s0.push(Integer.valueOf(2));
+    final ImmutableStack<Integer> s2 = s0.push(Integer.valueOf(3));
+
+    Assert.assertSame(s0, s1.pop().getRight());
+    Assert.assertSame(s0, s2.pop().getRight());
+    Assert.assertNotEquals(s1, s2);
+    Assert.assertEquals("[1]", s0.toString());
+    Assert.assertEquals("[1, 2]", s1.toString());
+    Assert.assertEquals("[1, 3]", s2.toString());
+  }
+
+  @Test public void testEqualsList()
+  {
+    final List<Integer> list = new ArrayList<Integer>();
+    ImmutableStack<Integer> s0 = ImmutableStack.empty();
+    ImmutableStack<Integer> s1 = ImmutableStack.empty();
+
+    for (int index = 0; index < 100; ++index) {
+      Assert.assertEquals(list.hashCode(), s0.hashCode());
+      Assert.assertEquals(list.toString(), s0.toString());
+      Assert.assertEquals(s0, s1);
+
+      list.add(Integer.valueOf(index));
+      s0 = s0.push(Integer.valueOf(index));
+      s1 = s1.push(Integer.valueOf(index));
+    }
+
+    Assert.assertNotEquals(s0, s1.push(Integer.valueOf(100)));
+    Assert.assertNotEquals(s0, s1.pop().getRight().push(Integer.valueOf(100)));
+  }
+
+  @Test public void testSerializeRoundTrip()
+    throws Exception
+  {
+    ImmutableStack<String> s = ImmutableStack.empty();
+    for (int index = 0; index < 100; ++index) {
+      s = s.push("x" + index);
+    }
+
+    Assert.assertEquals(s, deserialize(serialize(s)));
+    Assert.assertSame(
+      ImmutableStack.empty(), deserialize(serialize(ImmutableStack.empty())));
+  }
+
+  @Test public void testSerializeCompatible()
+    throws Exception
+  {
+    final ImmutableStack<String> s =
+      ImmutableStack.<String>empty().push("a").push("b").push("c");
+    final byte[] original = Base64.getDecoder().decode(SERIALIZED_ABC);
+
+    Assert.assertEquals(s, deserialize(original));
+
+    final ObjectStreamClass c = ObjectStreamClass.lookup(ImmutableStack.class);
+    Assert.assertEquals(1L, c.getSerialVersionUID());
+    Assert.assertEquals(1, c.getFields().length);
+    Assert.assertEquals("elements", c.getFields()[0].getName());
+    Assert.assertEquals(List.class, c.getFields()[0].getType());
+  }
+
+  @Test public void testPushAllocationConstant()
+  {
+    final java.lang.management.ThreadMXBean bean =
+      ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+
+    final com.sun.management.ThreadMXBean threads =
+      (com.sun.management.ThreadMXBean) bean;
+    Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+
+    final Integer x = Integer.valueOf(23);
+    final int pushes = 10000;
+
+    ImmutableStack<Integer> deep = ImmutableStack.empty();
+    for (int index = 0; index < 100000; ++index) {
+      deep = deep.push(x);
+    }
+
+    final long thread = Thread.currentThread().getId();
+    final long[] allocated = new long[2];
+    final ImmutableStack<?>[] bases = { ImmutableStack.<Integer>empty(), deep };
+
+    /*
+     * Measure each case several times and keep the smallest figure, so that
+     * allocations made by the JIT compiler or the runtime on this thread do
+     * not disturb the result.
+     */
+
+    for (int base = 0; base < bases.length; ++base) {
+      allocated[base] = Long.MAX_VALUE;
+      for (int attempt = 0; attempt < 5; ++attempt) {
+        @SuppressWarnings("unchecked") ImmutableStack<Integer> s =
+          (ImmutableStack<Integer>) bases[base];
+        final long before = threads.getThreadAllocatedBytes(thread);
+        for (int index = 0; index < pushes; ++index) {
+          s = s.push(x);
+        }
+        final long after = threads.getThreadAllocatedBytes(thread);
+        Assert.assertEquals(bases[base].size() + pushes, s.size());
+        allocated[base] = Math.min(allocated[base], after - before);
+      }
+    }
+
+    final double per_push_shallow = (double) allocated[0] / pushes;
+    final double per_push_deep = (double) allocated[1] / pushes;
+    Assert.assertTrue(
+      "Allocation per push " + per_push_deep + " at depth 100000 must match "
+        + per_push_shallow + " at depth 0",
+      per_push_deep <= (per_push_shallow * 1.5) + 8.0);
+    Assert.assertTrue(
+      "Allocation per push " + per_push_deep + " must be small",
+      per_push_deep < 128.0);
+  }
 }
@@ -0,0 +1,14 @@
+package org.nypl.simplified.tests.android.books.analytics;
+
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.runner.RunWith;
+import org.nypl.simplified.tests.books.analytics.CirculationAnalyticsDispatcherContract;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public final class CirculationAnalyticsDispatcherTest
+    extends CirculationAnalyticsDispatcherContract {
+
+}
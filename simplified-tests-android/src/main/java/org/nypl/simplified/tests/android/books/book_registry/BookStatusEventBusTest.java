@@ -0,0 +1,13 @@
+package org.nypl.simplified.tests.android.books.book_registry;
+
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.runner.RunWith;
+import org.nypl.simplified.tests.books.book_registry.BookStatusEventBusContract;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public final class BookStatusEventBusTest extends BookStatusEventBusContract {
+
+}
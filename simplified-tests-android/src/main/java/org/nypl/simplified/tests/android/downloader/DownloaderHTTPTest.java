@@ -0,0 +1,13 @@
+package org.nypl.simplified.tests.android.downloader;
+
+import android.support.test.filters.MediumTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.runner.RunWith;
+import org.nypl.simplified.tests.downloader.DownloaderHTTPContract;
+
+@RunWith(AndroidJUnit4.class)
+@MediumTest
+public final class DownloaderHTTPTest extends DownloaderHTTPContract {
+
+}
@@ -0,0 +1,5 @@
+/**
+ * Android frontend for the downloader test suite.
+ */
+
+package org.nypl.simplified.tests.android.downloader;
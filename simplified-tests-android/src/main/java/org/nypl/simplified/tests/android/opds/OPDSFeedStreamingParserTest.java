@@ -0,0 +1,13 @@
+package org.nypl.simplified.tests.android.opds;
+
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.runner.RunWith;
+import org.nypl.simplified.tests.opds.OPDSFeedStreamingParserContract;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public final class OPDSFeedStreamingParserTest extends OPDSFeedStreamingParserContract {
+
+}
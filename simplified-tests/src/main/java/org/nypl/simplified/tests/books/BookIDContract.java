@@ -13,10 +13,37 @@ import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntryBuilderType;
 import org.nypl.simplified.opds.core.OPDSAvailabilityOpenAccess;
 
 import java.net.URI;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public abstract class BookIDContract
 {
+  /**
+   * The original implementation of {@link BookIDs#newFromText(String)}, with an explicit
+   * (rather than platform default) character set.
+   */
+
+  private static String referenceID(
+    final String text)
+    throws Exception
+  {
+    final MessageDigest md = MessageDigest.getInstance("SHA-256");
+    md.update(text.getBytes(Charset.forName("UTF-8")));
+    final byte[] dg = md.digest();
+
+    final StringBuilder b = new StringBuilder(64);
+    for (int index = 0; index < dg.length; ++index) {
+      b.append(String.format("%02x", dg[index]));
+    }
+    return b.toString();
+  }
+
   @Test
   public void testBookIDNew()
   {
@@ -44,4 +71,70 @@ public abstract class BookIDContract
       "http://circulation.alpha.librarysimplified.org/loans/Gutenberg/18405");
     System.out.println(b);
   }
+
+  @Test public void testBookIDMatchesReference()
+    throws Exception
+  {
+    final String[] texts = {
+      "",
+      "urn:librarysimplified.org/terms/id/Gutenberg%20ID/18405",
+      "http://circulation.alpha.librarysimplified.org/loans/Gutenberg/18405",
+      "urn:isbn:9780375706677",
+      "été 日本語 📚",
+    };
+
+    for (final String text : texts) {
+      Assert.assertEquals(
+        BookIDContract.referenceID(text), BookIDs.newFromText(text).value());
+      Assert.assertEquals(
+        BookIDContract.referenceID(text), BookIDs.newFromTextInterned(text).value());
+    }
+  }
+
+  @Test public void testBookIDInterned()
+  {
+    final String text = "urn:librarysimplified.org/terms/id/Gutenberg%20ID/interned";
+    final BookID b0 = BookIDs.newFromTextInterned(text);
+    final BookID b1 = BookIDs.newFromTextInterned(text);
+    Assert.assertSame(b0, b1);
+    Assert.assertEquals(BookIDs.newFromText(text), b0);
+  }
+
+  @Test public void testBookIDInternedBounded()
+  {
+    final String text = "urn:librarysimplified.org/terms/id/Gutenberg%20ID/evicted";
+    final BookID b0 = BookIDs.newFromTextInterned(text);
+
+    for (int index = 0; index < BookIDs.INTERN_CACHE_SIZE; ++index) {
+      BookIDs.newFromTextInterned("urn:example:" + index);
+    }
+
+    final BookID b1 = BookIDs.newFromTextInterned(text);
+    Assert.assertNotSame(b0, b1);
+    Assert.assertEquals(b0, b1);
+  }
+
+  @Test public void testBookIDConcurrent()
+    throws Exception
+  {
+    final ExecutorService exec = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 4; ++thread) {
+        futures.add(exec.submit(() -> {
+          for (int index = 0; index < 1000; ++index) {
+            final String text = "urn:example:concurrent:" + index;
+            Assert.assertEquals(
+              BookIDContract.referenceID(text), BookIDs.newFromText(text).value());
+          }
+          return null;
+        }));
+      }
+      for (final Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      exec.shutdown();
+    }
+  }
 }
@@ -0,0 +1,460 @@
+package org.nypl.simplified.tests.books.analytics;
+
+import com.io7m.jfunctional.Option;
+import com.io7m.jfunctional.OptionType;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.nypl.simplified.books.analytics.AnalyticsLogger;
+import org.nypl.simplified.books.analytics.AnalyticsLoggerConfiguration;
+import org.nypl.simplified.files.DirectoryUtilities;
+import org.nypl.simplified.files.FileUtilities;
+import org.nypl.simplified.http.core.HTTPAuthType;
+import org.nypl.simplified.http.core.HTTPResultError;
+import org.nypl.simplified.http.core.HTTPResultOK;
+import org.nypl.simplified.http.core.HTTPResultType;
+import org.nypl.simplified.http.core.HTTPType;
+import org.nypl.simplified.tests.http.MockingHTTP;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public abstract class AnalyticsLoggerContract {
+
+  private static final URI SERVER = URI.create("http://example.com/upload.log");
+
+  private ExecutorService executor;
+  private ExecutorService executor_upload;
+  private File directory;
+
+  private static HTTPResultType<InputStream> ok() {
+    return new HTTPResultOK<>(
+        "OK", 200, new ByteArrayInputStream(new byte[0]), 0L, Collections.emptyMap(), 0L);
+  }
+
+  private static HTTPResultType<InputStream> error(final int status) {
+    return new HTTPResultError<>(
+        status,
+        "Error",
+        0L,
+        Collections.emptyMap(),
+        0L,
+        new ByteArrayInputStream(new byte[0]),
+        Option.none());
+  }
+
+  private static AnalyticsLoggerConfiguration.Builder configuration() {
+    return AnalyticsLoggerConfiguration.builder()
+        .setServerURI(SERVER)
+        .setSegmentSizeLimitBytes(1024L)
+        .setTotalSizeLimitBytes(4096L)
+        .setPushSizeLimitBytes(0L);
+  }
+
+  /**
+   * Wait for everything submitted to the executors so far to finish, including any writes
+   * submitted by uploads.
+   */
+
+  private void awaitExecutor() throws Exception {
+    this.executor.submit(() -> { }).get(10L, TimeUnit.SECONDS);
+    this.executor_upload.submit(() -> { }).get(10L, TimeUnit.SECONDS);
+    this.executor.submit(() -> { }).get(10L, TimeUnit.SECONDS);
+  }
+
+  private static void block(
+      final ExecutorService executor,
+      final CountDownLatch latch) {
+    executor.execute(() -> {
+      try {
+        latch.await();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+  }
+
+  private List<File> closedSegments() {
+    final List<File> segments = new ArrayList<>();
+    for (final File file : this.directory.listFiles()) {
+      if (file.getName().matches("analytics_log\\.[0-9]+\\.txt")) {
+        segments.add(file);
+      }
+    }
+    Collections.sort(segments);
+    return segments;
+  }
+
+  private List<String> currentLines() throws Exception {
+    final File current = new File(this.directory, "analytics_log.txt");
+    if (!current.isFile()) {
+      return Collections.emptyList();
+    }
+    return lines(read(current));
+  }
+
+  private static String read(final File file) throws Exception {
+    return new String(FileUtilities.fileReadBytes(file), StandardCharsets.UTF_8);
+  }
+
+  private static List<String> lines(final String text) {
+    if (text.isEmpty()) {
+      return Collections.emptyList();
+    }
+    return Arrays.asList(text.split("\n"));
+  }
+
+  private static void checkEvents(
+      final List<String> lines,
+      final int first,
+      final int count) {
+    Assert.assertEquals(count, lines.size());
+    for (int index = 0; index < count; ++index) {
+      final String line = lines.get(index);
+      final String pattern =
+          "[0-9]{4}-[0-9]{2}-[0-9]{2} [0-9]{2}:[0-9]{2}:[0-9]{2},event-" + (first + index);
+      Assert.assertTrue(line, line.matches(pattern));
+    }
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    this.executor = Executors.newSingleThreadExecutor();
+    this.executor_upload = Executors.newSingleThreadExecutor();
+    this.directory = DirectoryUtilities.directoryCreateTemporary();
+  }
+
+  @After
+  public void tearDown() {
+    this.executor.shutdownNow();
+    this.executor_upload.shutdownNow();
+  }
+
+  @Test
+  public final void testEventsWrittenInOrder() throws Exception {
+    final AnalyticsLogger logger = AnalyticsLogger.create(
+        AnalyticsLoggerConfiguration.builder().build(),
+        this.directory,
+        new MockingHTTP(),
+        this.executor,
+        this.executor_upload);
+
+    for (int index = 0; index < 100; ++index) {
+      logger.logToAnalytics("event-" + index);
+    }
+
+    this.awaitExecutor();
+    checkEvents(this.currentLines(), 0, 100);
+    Assert.assertEquals(0L, logger.dropped());
+  }
+
+  @Test
+  public final void testSegmentsRotatedAndBounded() throws Exception {
+    final AnalyticsLogger logger = AnalyticsLogger.create(
+        configuration().build(), this.directory, new MockingHTTP(), this.executor, this.executor_upload);
+
+    for (int index = 0; index < 1000; ++index) {
+      logger.logToAnalytics("event-" + index);
+    }
+    this.awaitExecutor();
+
+    final List<File> segments = this.closedSegments();
+    Assert.assertFalse(segments.isEmpty());
+
+    long total = 0L;
+    for (final File segment : segments) {
+      Assert.assertTrue(segment.length() >= 1024L);
+      total += segment.length();
+    }
+    Assert.assertTrue("Total " + total, total <= 4096L);
+
+    final List<String> current = this.currentLines();
+    if (current.isEmpty()) {
+      final List<String> last = lines(read(segments.get(segments.size() - 1)));
+      Assert.assertTrue(last.get(last.size() - 1).endsWith(",event-999"));
+    } else {
+      Assert.assertTrue(current.get(current.size() - 1).endsWith(",event-999"));
+    }
+  }
+
+  @Test
+  public final void testUploadKeepsEventsLoggedMeanwhile() throws Exception {
+    final MockingHTTP http = new MockingHTTP();
+    for (int index = 0; index < 20; ++index) {
+      http.addResponse(SERVER, ok());
+    }
+
+    final AnalyticsLogger logger =
+        AnalyticsLogger.create(
+            configuration().build(), this.directory, http, this.executor, this.executor_upload);
+
+    for (int index = 0; index < 50; ++index) {
+      logger.logToAnalytics("event-" + index);
+    }
+    logger.attemptToPushAnalytics("device");
+    for (int index = 50; index < 100; ++index) {
+      logger.logToAnalytics("event-" + index);
+    }
+    this.awaitExecutor();
+    logger.attemptToPushAnalytics("device");
+    this.awaitExecutor();
+
+    final StringBuilder uploaded = new StringBuilder();
+    for (final byte[] body : http.requestBodies()) {
+      uploaded.append(new String(body, StandardCharsets.UTF_8));
+    }
+
+    checkEvents(lines(uploaded.toString()), 0, 100);
+    Assert.assertEquals((long) http.requestBodies().size(), logger.segmentsUploaded());
+    Assert.assertEquals(Collections.emptyList(), this.closedSegments());
+    Assert.assertEquals(Collections.emptyList(), this.currentLines());
+  }
+
+  @Test
+  public final void testUploadFailureKeepsSegments() throws Exception {
+    final MockingHTTP http = new MockingHTTP();
+    http.addResponse(SERVER, error(500));
+
+    final AnalyticsLogger logger =
+        AnalyticsLogger.create(
+            configuration().build(), this.directory, http, this.executor, this.executor_upload);
+
+    for (int index = 0; index < 10; ++index) {
+      logger.logToAnalytics("event-" + index);
+    }
+    logger.writeToAnalyticsServer("device");
+    this.awaitExecutor();
+
+    Assert.assertEquals(1, http.requestBodies().size());
+    Assert.assertEquals(0L, logger.segmentsUploaded());
+
+    final List<File> segments = this.closedSegments();
+    Assert.assertEquals(1, segments.size());
+    checkEvents(lines(read(segments.get(0))), 0, 10);
+  }
+
+  @Test
+  public final void testFullBufferDropsOldest() throws Exception {
+    final AnalyticsLogger logger = AnalyticsLogger.create(
+        configuration().setBufferCapacity(10).build(),
+        this.directory,
+        new MockingHTTP(),
+        this.executor,
+        this.executor_upload);
+
+    final CountDownLatch latch = new CountDownLatch(1);
+    block(this.executor, latch);
+
+    for (int index = 0; index < 25; ++index) {
+      logger.logToAnalytics("event-" + index);
+    }
+    latch.countDown();
+    this.awaitExecutor();
+
+    Assert.assertEquals(15L, logger.dropped());
+    checkEvents(this.currentLines(), 15, 10);
+  }
+
+  @Test
+  public final void testForcedUploadWhileUploadScheduled() throws Exception {
+    final MockingHTTP http = new MockingHTTP();
+    http.addResponse(SERVER, ok());
+
+    final AnalyticsLogger logger = AnalyticsLogger.create(
+        configuration().setPushSizeLimitBytes(1024L * 1024L).build(),
+        this.directory,
+        http,
+        this.executor,
+        this.executor_upload);
+
+    final CountDownLatch latch = new CountDownLatch(1);
+    block(this.executor_upload, latch);
+
+    /*
+     * The forced upload is requested while the unforced upload has not yet finished, and must
+     * not be lost.
+     */
+
+    for (int index = 0; index < 10; ++index) {
+      logger.logToAnalytics("event-" + index);
+    }
+    logger.attemptToPushAnalytics("device");
+    logger.writeToAnalyticsServer("device");
+    latch.countDown();
+    this.awaitExecutor();
+    this.awaitExecutor();
+
+    Assert.assertEquals(1, http.requestBodies().size());
+    Assert.assertEquals(1L, logger.segmentsUploaded());
+    checkEvents(lines(new String(http.requestBodies().get(0), StandardCharsets.UTF_8)), 0, 10);
+    Assert.assertEquals(Collections.emptyList(), this.currentLines());
+  }
+
+  @Test
+  public final void testLoggingDuringBlockedUpload() throws Exception {
+    final MockingHTTP mock = new MockingHTTP();
+    for (int index = 0; index < 20; ++index) {
+      mock.addResponse(SERVER, ok());
+    }
+    final BlockingHTTP http = new BlockingHTTP(mock);
+
+    final AnalyticsLogger logger = AnalyticsLogger.create(
+        configuration()
+            .setBufferCapacity(10)
+            .setTotalSizeLimitBytes(1024L * 1024L)
+            .build(),
+        this.directory,
+        http,
+        this.executor,
+        this.executor_upload);
+
+    for (int index = 0; index < 10; ++index) {
+      logger.logToAnalytics("event-" + index);
+    }
+    logger.writeToAnalyticsServer("device");
+    Assert.assertTrue(http.posting.await(10L, TimeUnit.SECONDS));
+
+    /*
+     * Many more events than the buffer can hold are logged while the upload is waiting for the
+     * server, and none of them may be dropped.
+     */
+
+    for (int index = 10; index < 100; ++index) {
+      logger.logToAnalytics("event-" + index);
+      if (index % 5 == 0) {
+        this.executor.submit(() -> { }).get(10L, TimeUnit.SECONDS);
+      }
+    }
+    this.executor.submit(() -> { }).get(10L, TimeUnit.SECONDS);
+    Assert.assertEquals(0L, logger.dropped());
+
+    http.release.countDown();
+    this.awaitExecutor();
+    logger.writeToAnalyticsServer("device");
+    this.awaitExecutor();
+
+    final StringBuilder uploaded = new StringBuilder();
+    for (final byte[] body : mock.requestBodies()) {
+      uploaded.append(new String(body, StandardCharsets.UTF_8));
+    }
+    checkEvents(lines(uploaded.toString()), 0, 100);
+    Assert.assertEquals(0L, logger.dropped());
+  }
+
+  @Test
+  public final void testOversizedCurrentSegmentSplit() throws Exception {
+    final StringBuilder legacy = new StringBuilder();
+    for (int index = 0; index < 200; ++index) {
+      legacy.append("2018-03-11 12:00:00,event-");
+      legacy.append(index);
+      legacy.append('\n');
+    }
+    FileUtilities.fileWriteUTF8(
+        new File(this.directory, "analytics_log.txt"), legacy.toString());
+
+    final AnalyticsLogger logger = AnalyticsLogger.create(
+        configuration().setTotalSizeLimitBytes(1024L * 1024L).build(),
+        this.directory,
+        new MockingHTTP(),
+        this.executor,
+        this.executor_upload);
+
+    logger.logToAnalytics("event-200");
+    this.awaitExecutor();
+
+    final List<File> segments = this.closedSegments();
+    Assert.assertTrue(segments.size() > 1);
+
+    final StringBuilder split = new StringBuilder();
+    for (final File segment : segments) {
+      Assert.assertTrue(segment.length() < 1024L + 64L);
+      split.append(read(segment));
+    }
+    checkEvents(lines(split.toString()), 0, 200);
+    checkEvents(this.currentLines(), 200, 1);
+  }
+
+  /**
+   * An HTTP interface that blocks every {@code POST} until it is released.
+   */
+
+  private static final class BlockingHTTP implements HTTPType {
+
+    private final HTTPType delegate;
+    private final CountDownLatch posting;
+    private final CountDownLatch release;
+
+    BlockingHTTP(final HTTPType delegate) {
+      this.delegate = delegate;
+      this.posting = new CountDownLatch(1);
+      this.release = new CountDownLatch(1);
+    }
+
+    @Override
+    public HTTPResultType<InputStream> get(
+        final OptionType<HTTPAuthType> auth,
+        final URI uri,
+        final long offset) {
+      return this.delegate.get(auth, uri, offset);
+    }
+
+    @Override
+    public HTTPResultType<InputStream> get(
+        final OptionType<HTTPAuthType> auth,
+        final URI uri,
+        final long offset,
+        final OptionType<String> if_range) {
+      return this.delegate.get(auth, uri, offset, if_range);
+    }
+
+    @Override
+    public HTTPResultType<InputStream> put(
+        final OptionType<HTTPAuthType> auth,
+        final URI uri) {
+      return this.delegate.put(auth, uri);
+    }
+
+    @Override
+    public HTTPResultType<InputStream> post(
+        final OptionType<HTTPAuthType> auth,
+        final URI uri,
+        final byte[] data,
+        final String content_type) {
+      this.posting.countDown();
+      try {
+        this.release.await();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return this.delegate.post(auth, uri, data, content_type);
+    }
+
+    @Override
+    public HTTPResultType<InputStream> delete(
+        final OptionType<HTTPAuthType> auth,
+        final URI uri,
+        final String content_type) {
+      return this.delegate.delete(auth, uri, content_type);
+    }
+
+    @Override
+    public HTTPResultType<InputStream> head(
+        final OptionType<HTTPAuthType> auth,
+        final URI uri) {
+      return this.delegate.head(auth, uri);
+    }
+  }
+}
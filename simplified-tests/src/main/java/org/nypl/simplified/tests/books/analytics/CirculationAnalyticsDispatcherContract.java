@@ -0,0 +1,257 @@
+package org.nypl.simplified.tests.books.analytics;
+
+import com.io7m.jfunctional.Option;
+import com.io7m.jfunctional.OptionType;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.nypl.simplified.books.analytics.CirculationAnalyticsDispatcher;
+import org.nypl.simplified.files.DirectoryUtilities;
+import org.nypl.simplified.files.FileUtilities;
+import org.nypl.simplified.http.core.HTTPAuthBasic;
+import org.nypl.simplified.http.core.HTTPAuthType;
+import org.nypl.simplified.http.core.HTTPResultError;
+import org.nypl.simplified.http.core.HTTPResultOK;
+import org.nypl.simplified.http.core.HTTPResultType;
+import org.nypl.simplified.tests.http.MockingHTTP;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+public abstract class CirculationAnalyticsDispatcherContract {
+
+  private static final URI ENDPOINT = URI.create("http://example.com/analytics/book0");
+
+  private static final URI ENDPOINT_OTHER = URI.create("http://example.org/analytics/book0");
+
+  private static final String ACCOUNT = "account0";
+
+  private static final String ACCOUNT_OTHER = "account1";
+
+  private static final OptionType<HTTPAuthType> AUTH =
+      Option.some(HTTPAuthBasic.create("user", "password"));
+
+  private static final OptionType<HTTPAuthType> AUTH_OTHER =
+      Option.some(HTTPAuthBasic.create("other", "password"));
+
+  private ScheduledExecutorService executor;
+  private File directory;
+
+  private static HTTPResultType<InputStream> ok() {
+    return new HTTPResultOK<>(
+        "OK", 200, new ByteArrayInputStream(new byte[0]), 0L, Collections.emptyMap(), 0L);
+  }
+
+  private static HTTPResultType<InputStream> error(final int status) {
+    return new HTTPResultError<>(
+        status,
+        "Error",
+        0L,
+        Collections.emptyMap(),
+        0L,
+        new ByteArrayInputStream(new byte[0]),
+        Option.none());
+  }
+
+  private static void await(final BooleanSupplier condition) throws Exception {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+    while (!condition.getAsBoolean()) {
+      Assert.assertTrue("Timed out", System.nanoTime() < deadline);
+      Thread.sleep(10L);
+    }
+  }
+
+  /**
+   * Wait for everything submitted to the executor so far to finish.
+   */
+
+  private void awaitExecutor() throws Exception {
+    this.executor.submit(() -> { }).get(10L, TimeUnit.SECONDS);
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    this.executor = Executors.newSingleThreadScheduledExecutor();
+    this.directory = DirectoryUtilities.directoryCreateTemporary();
+  }
+
+  @After
+  public void tearDown() {
+    this.executor.shutdownNow();
+  }
+
+  @Test
+  public final void testEventsDelivered() throws Exception {
+    final MockingHTTP http = new MockingHTTP();
+    http.addResponse(ENDPOINT + "/open_book", ok());
+    http.addResponse(ENDPOINT + "/open_book", ok());
+    http.addResponse(ENDPOINT + "/circulation_return", ok());
+
+    final CirculationAnalyticsDispatcher dispatcher =
+        CirculationAnalyticsDispatcher.create(http, this.executor, this.directory);
+    dispatcher.post(ACCOUNT, ENDPOINT, "open_book", AUTH);
+    dispatcher.post(ACCOUNT, ENDPOINT, "open_book", AUTH);
+    dispatcher.post(ACCOUNT, ENDPOINT, "circulation_return", AUTH);
+
+    await(() -> dispatcher.delivered() == 3L);
+    Assert.assertEquals(0, dispatcher.pending());
+    Assert.assertEquals(0L, dispatcher.dropped());
+    Assert.assertEquals(
+        Collections.nCopies(3, AUTH), http.requestAuthentications());
+  }
+
+  @Test
+  public final void testRejectedEventDropped() throws Exception {
+    final MockingHTTP http = new MockingHTTP();
+    http.addResponse(ENDPOINT + "/open_book", error(404));
+
+    final CirculationAnalyticsDispatcher dispatcher =
+        CirculationAnalyticsDispatcher.create(http, this.executor, this.directory);
+    dispatcher.post(ACCOUNT, ENDPOINT, "open_book", AUTH);
+
+    await(() -> dispatcher.dropped() == 1L);
+    Assert.assertEquals(0, dispatcher.pending());
+    Assert.assertEquals(0L, dispatcher.delivered());
+  }
+
+  @Test
+  public final void testFailedEventRetriedAfterRestart() throws Exception {
+    final MockingHTTP http0 = new MockingHTTP();
+    http0.addResponse(ENDPOINT + "/open_book", error(503));
+
+    final CirculationAnalyticsDispatcher dispatcher0 =
+        CirculationAnalyticsDispatcher.create(http0, this.executor, this.directory);
+    dispatcher0.post(ACCOUNT, ENDPOINT, "open_book", AUTH);
+    dispatcher0.post(ACCOUNT, ENDPOINT, "open_book", AUTH);
+
+    await(() -> http0.requestAuthentications().size() == 1);
+    this.awaitExecutor();
+    Assert.assertEquals(2, dispatcher0.pending());
+    Assert.assertEquals(0L, dispatcher0.delivered());
+    this.executor.shutdownNow();
+
+    /*
+     * A new dispatcher reads the saved event back, but cannot send it until credentials are
+     * given for the same account and origin.
+     */
+
+    this.executor = Executors.newSingleThreadScheduledExecutor();
+
+    final MockingHTTP http1 = new MockingHTTP();
+    http1.addResponse(ENDPOINT + "/open_book", ok());
+    http1.addResponse(ENDPOINT + "/open_book", ok());
+    http1.addResponse(ENDPOINT + "/circulation_return", ok());
+
+    final CirculationAnalyticsDispatcher dispatcher1 =
+        CirculationAnalyticsDispatcher.create(http1, this.executor, this.directory);
+
+    this.awaitExecutor();
+    Assert.assertEquals(2, dispatcher1.pending());
+    Assert.assertEquals(0, http1.requestAuthentications().size());
+
+    dispatcher1.post(ACCOUNT, ENDPOINT, "circulation_return", AUTH);
+    await(() -> dispatcher1.delivered() == 3L);
+    Assert.assertEquals(0, dispatcher1.pending());
+    Assert.assertEquals(
+        Collections.nCopies(3, AUTH), http1.requestAuthentications());
+  }
+
+  @Test
+  public final void testQueueBounded() throws Exception {
+
+    /*
+     * No responses are configured, so every request fails and the events stay queued.
+     */
+
+    final MockingHTTP http = new MockingHTTP();
+    final CirculationAnalyticsDispatcher dispatcher =
+        CirculationAnalyticsDispatcher.create(http, this.executor, this.directory);
+
+    final int extra = 10;
+    for (int index = 0; index < CirculationAnalyticsDispatcher.MAXIMUM_PENDING + extra; ++index) {
+      dispatcher.post(ACCOUNT, ENDPOINT, "open_book", AUTH);
+    }
+
+    this.awaitExecutor();
+    Assert.assertEquals(CirculationAnalyticsDispatcher.MAXIMUM_PENDING, dispatcher.pending());
+    Assert.assertEquals((long) extra, dispatcher.dropped());
+    Assert.assertEquals(0L, dispatcher.delivered());
+  }
+
+  @Test
+  public final void testCredentialsPerAccount() throws Exception {
+    final MockingHTTP http = new MockingHTTP();
+    http.addResponse(ENDPOINT + "/open_book", error(503));
+    http.addResponse(ENDPOINT + "/open_book", ok());
+    http.addResponse(ENDPOINT + "/open_book", ok());
+
+    final CirculationAnalyticsDispatcher dispatcher0 =
+        CirculationAnalyticsDispatcher.create(http, this.executor, this.directory);
+    dispatcher0.post(ACCOUNT, ENDPOINT, "open_book", AUTH);
+    await(() -> http.requestAuthentications().size() == 1);
+    this.awaitExecutor();
+    this.executor.shutdownNow();
+
+    /*
+     * The event read back from disk belongs to the first account, and must not be sent with the
+     * credentials of an event posted by another account for the same origin.
+     */
+
+    this.executor = Executors.newSingleThreadScheduledExecutor();
+    final CirculationAnalyticsDispatcher dispatcher1 =
+        CirculationAnalyticsDispatcher.create(http, this.executor, this.directory);
+    this.awaitExecutor();
+    Assert.assertEquals(1, dispatcher1.pending());
+
+    dispatcher1.post(ACCOUNT_OTHER, ENDPOINT, "open_book", AUTH_OTHER);
+    await(() -> dispatcher1.delivered() == 1L);
+    this.awaitExecutor();
+    Assert.assertEquals(1, dispatcher1.pending());
+    Assert.assertEquals(AUTH_OTHER, http.requestAuthentications().get(1));
+
+    dispatcher1.post(ACCOUNT, ENDPOINT, "open_book", AUTH);
+    await(() -> dispatcher1.delivered() == 2L);
+    Assert.assertEquals(AUTH, http.requestAuthentications().get(2));
+  }
+
+  @Test
+  public final void testQueueFullDropsOldest() throws Exception {
+    final MockingHTTP http = new MockingHTTP();
+    http.addResponse(ENDPOINT + "/open_book", ok());
+
+    final CirculationAnalyticsDispatcher dispatcher =
+        CirculationAnalyticsDispatcher.create(http, this.executor, this.directory);
+    dispatcher.post(ACCOUNT, ENDPOINT, "open_book", AUTH);
+    await(() -> dispatcher.delivered() == 1L);
+
+    /*
+     * The queue for the first origin is now empty, and the remaining events fail. The event
+     * posted last to the first origin is the newest, and so must survive the queue overflowing.
+     */
+
+    for (int index = 0; index < CirculationAnalyticsDispatcher.MAXIMUM_PENDING - 1; ++index) {
+      dispatcher.post(ACCOUNT, ENDPOINT_OTHER, "open_book", AUTH);
+    }
+    dispatcher.post(ACCOUNT, ENDPOINT, "circulation_return", AUTH);
+    dispatcher.post(ACCOUNT, ENDPOINT_OTHER, "open_book", AUTH);
+
+    await(() -> dispatcher.dropped() == 1L);
+    this.awaitExecutor();
+    Assert.assertEquals(CirculationAnalyticsDispatcher.MAXIMUM_PENDING, dispatcher.pending());
+
+    final String saved = new String(
+        FileUtilities.fileReadBytes(new File(this.directory, "circulation_events.txt")),
+        StandardCharsets.UTF_8);
+    Assert.assertTrue(saved, saved.contains(ENDPOINT + "/circulation_return " + ACCOUNT));
+  }
+}
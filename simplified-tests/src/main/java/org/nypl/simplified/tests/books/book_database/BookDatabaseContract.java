@@ -1,15 +1,18 @@
 package org.nypl.simplified.tests.books.book_database;
 
 import com.io7m.jfunctional.Option;
+import com.io7m.jfunctional.Some;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.nypl.simplified.books.accounts.AccountID;
 import org.nypl.simplified.books.book_database.BookDatabase;
 import org.nypl.simplified.books.book_database.BookDatabaseEntryType;
+import org.nypl.simplified.books.book_database.BookDatabaseException;
 import org.nypl.simplified.books.book_database.BookDatabaseType;
 import org.nypl.simplified.books.book_database.BookID;
 import org.nypl.simplified.files.DirectoryUtilities;
+import org.nypl.simplified.files.FileUtilities;
 import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntry;
 import org.nypl.simplified.opds.core.OPDSAvailabilityOpenAccess;
 import org.nypl.simplified.opds.core.OPDSJSONParser;
@@ -18,7 +21,11 @@ import org.nypl.simplified.opds.core.OPDSJSONSerializer;
 import org.nypl.simplified.opds.core.OPDSJSONSerializerType;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.util.Calendar;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public abstract class BookDatabaseContract {
 
@@ -118,4 +125,332 @@ public abstract class BookDatabaseContract {
     db_entry.delete();
     Assert.assertEquals(0, db0.books().size());
   }
+
+  @Test
+  public final void adoptEPUB()
+      throws Exception {
+
+    final OPDSJSONParserType parser = OPDSJSONParser.newParser();
+    final OPDSJSONSerializerType serializer = OPDSJSONSerializer.newSerializer();
+
+    final File directory =
+        DirectoryUtilities.directoryCreateTemporary();
+    final BookDatabaseType db0 =
+        BookDatabase.open(parser, serializer, AccountID.create(1), directory);
+
+    final OPDSAcquisitionFeedEntry entry0 =
+        OPDSAcquisitionFeedEntry.newBuilder(
+            "a",
+            "Title",
+            Calendar.getInstance(),
+            OPDSAvailabilityOpenAccess.get(Option.none()))
+            .build();
+
+    final BookID id0 = BookID.create("a");
+    final BookDatabaseEntryType db_entry = db0.createOrUpdate(id0, entry0);
+
+    final File download =
+        new File(DirectoryUtilities.directoryCreateTemporary(), "download.data");
+    FileUtilities.fileWriteUTF8(download, "EPUB");
+
+    db_entry.adoptEPUB(download);
+    Assert.assertFalse(download.exists());
+
+    final File file = ((Some<File>) db_entry.book().file()).get();
+    Assert.assertEquals("EPUB", FileUtilities.fileReadUTF8(file));
+  }
+
+  @Test
+  public final void openCreateReopenParallel()
+      throws Exception {
+
+    final OPDSJSONParserType parser = OPDSJSONParser.newParser();
+    final OPDSJSONSerializerType serializer = OPDSJSONSerializer.newSerializer();
+    final ExecutorService exec = Executors.newFixedThreadPool(4);
+
+    try {
+      final File directory =
+          DirectoryUtilities.directoryCreateTemporary();
+      final BookDatabaseType db0 =
+          BookDatabase.open(parser, serializer, AccountID.create(1), directory);
+
+      for (int index = 0; index < 32; ++index) {
+        final OPDSAcquisitionFeedEntry entry =
+            OPDSAcquisitionFeedEntry.newBuilder(
+                "id" + index,
+                "Title " + index,
+                Calendar.getInstance(),
+                OPDSAvailabilityOpenAccess.get(Option.none()))
+                .build();
+        db0.createOrUpdate(BookID.create("book" + index), entry);
+      }
+
+      final BookDatabaseType db1 =
+          BookDatabase.openInParallel(parser, serializer, AccountID.create(1), directory, exec);
+
+      Assert.assertEquals(db0.books().keySet(), db1.books().keySet());
+      for (final BookID id : db0.books().keySet()) {
+        Assert.assertEquals(
+            db0.books().get(id).entry().getTitle(),
+            db1.books().get(id).entry().getTitle());
+      }
+    } finally {
+      exec.shutdown();
+    }
+  }
+
+  @Test
+  public final void openParallelErrorsAggregated()
+      throws Exception {
+
+    final OPDSJSONParserType parser = OPDSJSONParser.newParser();
+    final OPDSJSONSerializerType serializer = OPDSJSONSerializer.newSerializer();
+    final ExecutorService exec = Executors.newFixedThreadPool(4);
+
+    try {
+      final File directory =
+          DirectoryUtilities.directoryCreateTemporary();
+      final BookDatabaseType db0 =
+          BookDatabase.open(parser, serializer, AccountID.create(1), directory);
+
+      for (int index = 0; index < 4; ++index) {
+        final OPDSAcquisitionFeedEntry entry =
+            OPDSAcquisitionFeedEntry.newBuilder(
+                "id" + index,
+                "Title " + index,
+                Calendar.getInstance(),
+                OPDSAvailabilityOpenAccess.get(Option.none()))
+                .build();
+        db0.createOrUpdate(BookID.create("book" + index), entry);
+      }
+
+      FileUtilities.fileWriteUTF8(new File(new File(directory, "book1"), "meta.json"), "{");
+      FileUtilities.fileWriteUTF8(new File(new File(directory, "book3"), "meta.json"), "[]");
+
+      try {
+        BookDatabase.openInParallel(parser, serializer, AccountID.create(1), directory, exec);
+        Assert.fail();
+      } catch (final BookDatabaseException e) {
+        Assert.assertEquals(2L, (long) e.causes().size());
+      }
+    } finally {
+      exec.shutdown();
+    }
+  }
+
+  @Test
+  public final void openIndexedCreateReopen()
+      throws Exception {
+
+    final OPDSJSONParserType parser = OPDSJSONParser.newParser();
+    final OPDSJSONSerializerType serializer = OPDSJSONSerializer.newSerializer();
+
+    final File directory =
+        DirectoryUtilities.directoryCreateTemporary();
+    final BookDatabaseType db0 =
+        BookDatabase.openIndexed(parser, serializer, AccountID.create(1), directory, Option.none());
+
+    for (int index = 0; index < 4; ++index) {
+      final OPDSAcquisitionFeedEntry entry =
+          OPDSAcquisitionFeedEntry.newBuilder(
+              "id" + index,
+              "Title " + index,
+              Calendar.getInstance(),
+              OPDSAvailabilityOpenAccess.get(Option.none()))
+              .build();
+      db0.createOrUpdate(BookID.create("book" + index), entry);
+    }
+
+    final File download =
+        new File(DirectoryUtilities.directoryCreateTemporary(), "download.data");
+    FileUtilities.fileWriteUTF8(download, "EPUB");
+    db0.entry(BookID.create("book1")).adoptEPUB(download);
+    db0.entry(BookID.create("book2")).delete();
+
+    Assert.assertTrue(new File(directory, "index.jsonl").isFile());
+
+    final BookDatabaseType db1 =
+        BookDatabase.openIndexed(parser, serializer, AccountID.create(1), directory, Option.none());
+    final BookDatabaseType db2 =
+        BookDatabase.open(parser, serializer, AccountID.create(1), directory);
+
+    Assert.assertEquals(3, db1.books().size());
+    Assert.assertEquals(db2.books().keySet(), db1.books().keySet());
+    for (final BookID id : db2.books().keySet()) {
+      Assert.assertEquals(
+          db2.books().get(id).entry().getTitle(),
+          db1.books().get(id).entry().getTitle());
+      Assert.assertEquals(
+          db2.books().get(id).file(),
+          db1.books().get(id).file());
+      Assert.assertEquals(
+          db2.books().get(id).cover(),
+          db1.books().get(id).cover());
+    }
+
+    Assert.assertTrue(db1.books().get(BookID.create("book1")).file().isSome());
+
+    /*
+     * Opening the database without the index discards the index, as it will not be maintained.
+     */
+
+    Assert.assertFalse(new File(directory, "index.jsonl").exists());
+  }
+
+  @Test
+  public final void openIndexedReadsOnlyIndex()
+      throws Exception {
+
+    final OPDSJSONParserType parser = OPDSJSONParser.newParser();
+    final OPDSJSONSerializerType serializer = OPDSJSONSerializer.newSerializer();
+
+    final File directory =
+        DirectoryUtilities.directoryCreateTemporary();
+    final BookDatabaseType db0 =
+        BookDatabase.openIndexed(parser, serializer, AccountID.create(1), directory, Option.none());
+
+    final OPDSAcquisitionFeedEntry entry0 =
+        OPDSAcquisitionFeedEntry.newBuilder(
+            "a",
+            "Title",
+            Calendar.getInstance(),
+            OPDSAvailabilityOpenAccess.get(Option.none()))
+            .build();
+
+    final BookID id0 = BookID.create("a");
+    db0.createOrUpdate(id0, entry0);
+
+    /*
+     * A corrupted entry directory is not read when the index is up to date.
+     */
+
+    writeKeepingModificationTime(new File(new File(directory, "a"), "meta.json"), "{");
+
+    final BookDatabaseType db1 =
+        BookDatabase.openIndexed(parser, serializer, AccountID.create(1), directory, Option.none());
+    Assert.assertEquals("a", db1.books().get(id0).entry().getID());
+  }
+
+  @Test
+  public final void openIndexedRebuildsStaleIndex()
+      throws Exception {
+
+    final OPDSJSONParserType parser = OPDSJSONParser.newParser();
+    final OPDSJSONSerializerType serializer = OPDSJSONSerializer.newSerializer();
+
+    final File directory =
+        DirectoryUtilities.directoryCreateTemporary();
+    final BookDatabaseType db0 =
+        BookDatabase.openIndexed(parser, serializer, AccountID.create(1), directory, Option.none());
+
+    final OPDSAcquisitionFeedEntry entry0 =
+        OPDSAcquisitionFeedEntry.newBuilder(
+            "a",
+            "Title",
+            Calendar.getInstance(),
+            OPDSAvailabilityOpenAccess.get(Option.none()))
+            .build();
+
+    db0.createOrUpdate(BookID.create("a"), entry0);
+
+    /*
+     * A book directory that the index does not know about causes the index to be rebuilt.
+     */
+
+    final File dir_b = new File(directory, "b");
+    DirectoryUtilities.directoryCreate(dir_b);
+    FileUtilities.fileCopy(
+        new File(new File(directory, "a"), "meta.json"), new File(dir_b, "meta.json"));
+    FileUtilities.fileWriteUTF8(new File(dir_b, "cover.jpg"), "JPEG");
+    FileUtilities.fileWriteUTF8(new File(directory, "unrelated.txt"), "");
+
+    final BookDatabaseType db1 =
+        BookDatabase.openIndexed(parser, serializer, AccountID.create(1), directory, Option.none());
+    Assert.assertEquals(2, db1.books().size());
+    Assert.assertTrue(db1.books().get(BookID.create("b")).cover().isSome());
+
+    /*
+     * A partially written record causes the index to be rebuilt.
+     */
+
+    final File index = new File(directory, "index.jsonl");
+    FileUtilities.fileWriteUTF8(index, FileUtilities.fileReadUTF8(index) + "{\"type\":");
+
+    final BookDatabaseType db2 =
+        BookDatabase.openIndexed(parser, serializer, AccountID.create(1), directory, Option.none());
+    Assert.assertEquals(db1.books().keySet(), db2.books().keySet());
+    Assert.assertTrue(db2.books().get(BookID.create("b")).cover().isSome());
+
+    /*
+     * The rebuilt index is used from then on.
+     */
+
+    writeKeepingModificationTime(new File(dir_b, "meta.json"), "{");
+    final BookDatabaseType db3 =
+        BookDatabase.openIndexed(parser, serializer, AccountID.create(1), directory, Option.none());
+    Assert.assertEquals(db1.books().keySet(), db3.books().keySet());
+  }
+
+  @Test
+  public final void openIndexedRereadsModifiedEntry()
+      throws Exception {
+
+    final OPDSJSONParserType parser = OPDSJSONParser.newParser();
+    final OPDSJSONSerializerType serializer = OPDSJSONSerializer.newSerializer();
+
+    final File directory =
+        DirectoryUtilities.directoryCreateTemporary();
+    final BookDatabaseType db0 =
+        BookDatabase.openIndexed(parser, serializer, AccountID.create(1), directory, Option.none());
+
+    final BookID id0 = BookID.create("a");
+    db0.createOrUpdate(id0, OPDSAcquisitionFeedEntry.newBuilder(
+        "a",
+        "Title",
+        Calendar.getInstance(),
+        OPDSAvailabilityOpenAccess.get(Option.none()))
+        .build());
+
+    /*
+     * An entry whose meta.json was modified without updating the index is read from its
+     * directory, and the index is updated.
+     */
+
+    final File meta = new File(new File(directory, "a"), "meta.json");
+    final long stamp = meta.lastModified();
+    try (OutputStream stream = new FileOutputStream(meta)) {
+      serializer.serializeToStream(
+          serializer.serializeFeedEntry(OPDSAcquisitionFeedEntry.newBuilder(
+              "a",
+              "Other Title",
+              Calendar.getInstance(),
+              OPDSAvailabilityOpenAccess.get(Option.none()))
+              .build()),
+          stream);
+    }
+    Assert.assertTrue(meta.setLastModified(stamp + 10_000L));
+
+    final BookDatabaseType db1 =
+        BookDatabase.openIndexed(parser, serializer, AccountID.create(1), directory, Option.none());
+    Assert.assertEquals("Other Title", db1.books().get(id0).entry().getTitle());
+
+    writeKeepingModificationTime(meta, "{");
+    final BookDatabaseType db2 =
+        BookDatabase.openIndexed(parser, serializer, AccountID.create(1), directory, Option.none());
+    Assert.assertEquals("Other Title", db2.books().get(id0).entry().getTitle());
+  }
+
+  /**
+   * Replace the contents of a file without changing its modification time, so that an index
+   * that recorded the time still considers the file up to date.
+   */
+
+  private static void writeKeepingModificationTime(
+      final File file,
+      final String text)
+      throws Exception {
+    final long time = file.lastModified();
+    FileUtilities.fileWriteUTF8(file, text);
+    Assert.assertTrue(file.setLastModified(time));
+  }
 }
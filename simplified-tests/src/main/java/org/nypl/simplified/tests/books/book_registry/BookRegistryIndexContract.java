@@ -0,0 +1,193 @@
+package org.nypl.simplified.tests.books.book_registry;
+
+import com.io7m.jfunctional.Option;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.nypl.simplified.books.accounts.AccountID;
+import org.nypl.simplified.books.book_database.Book;
+import org.nypl.simplified.books.book_database.BookID;
+import org.nypl.simplified.books.book_database.BookIDs;
+import org.nypl.simplified.books.book_registry.BookRegistry;
+import org.nypl.simplified.books.book_registry.BookRegistryIndex;
+import org.nypl.simplified.books.book_registry.BookRegistryType;
+import org.nypl.simplified.books.book_registry.BookStatus;
+import org.nypl.simplified.books.book_registry.BookWithStatus;
+import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntry;
+import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntryBuilderType;
+import org.nypl.simplified.opds.core.OPDSAvailabilityOpenAccess;
+import org.nypl.simplified.opds.core.OPDSCategory;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+
+import static org.nypl.simplified.books.book_registry.BookRegistryIndex.SortBy.SORT_BY_AUTHOR;
+import static org.nypl.simplified.books.book_registry.BookRegistryIndex.SortBy.SORT_BY_TITLE;
+
+public abstract class BookRegistryIndexContract {
+
+  private BookRegistryType registry;
+
+  @Before
+  public final void setUp() {
+    this.registry = BookRegistry.create();
+  }
+
+  private static BookWithStatus book(
+      final String id,
+      final String title,
+      final String author,
+      final String publisher,
+      final String category) {
+
+    final OPDSAcquisitionFeedEntryBuilderType eb =
+        OPDSAcquisitionFeedEntry.newBuilder(
+            id,
+            title,
+            Calendar.getInstance(),
+            OPDSAvailabilityOpenAccess.get(Option.none()));
+
+    if (!author.isEmpty()) {
+      eb.addAuthor(author);
+    }
+    eb.setPublisherOption(Option.some(publisher));
+    eb.addCategory(new OPDSCategory(category, "http://example.com/genres", Option.none()));
+
+    final OPDSAcquisitionFeedEntry entry = eb.build();
+    final Book book =
+        Book.builder(BookIDs.newFromOPDSEntry(entry), AccountID.create(1), entry).build();
+    return BookWithStatus.create(book, BookStatus.fromBook(book));
+  }
+
+  private static BookID id(final BookWithStatus book) {
+    return book.book().id();
+  }
+
+  @Test
+  public final void testSearchAccentsAndCase() {
+    final BookWithStatus b0 = book("a", "Les Misérables", "Victor Hugo", "Penguin", "Fiction");
+    final BookWithStatus b1 = book("b", "Moby Dick", "Herman Melville", "Penguin", "Fiction");
+    this.registry.update(b0);
+    this.registry.update(b1);
+
+    final BookRegistryIndex index = BookRegistryIndex.create(this.registry);
+    Assert.assertEquals(2, index.size());
+
+    Assert.assertEquals(
+        Collections.singletonList(id(b0)),
+        index.search(Option.some("MISERABLES"), SORT_BY_TITLE));
+    Assert.assertEquals(
+        Collections.singletonList(id(b0)),
+        index.search(Option.some("misé"), SORT_BY_TITLE));
+    Assert.assertEquals(
+        Collections.singletonList(id(b1)),
+        index.search(Option.some("melv"), SORT_BY_TITLE));
+    Assert.assertEquals(
+        Collections.emptyList(),
+        index.search(Option.some("erables"), SORT_BY_TITLE));
+  }
+
+  @Test
+  public final void testSearchPublisherAndCategory() {
+    final BookWithStatus b0 = book("a", "Dune", "Frank Herbert", "Chilton", "Science Fiction");
+    final BookWithStatus b1 = book("b", "Emma", "Jane Austen", "John Murray", "Romance");
+    this.registry.update(b0);
+    this.registry.update(b1);
+
+    final BookRegistryIndex index = BookRegistryIndex.create(this.registry);
+    Assert.assertEquals(
+        Collections.singletonList(id(b0)),
+        index.search(Option.some("chilton"), SORT_BY_TITLE));
+    Assert.assertEquals(
+        Collections.singletonList(id(b1)),
+        index.search(Option.some("romance"), SORT_BY_TITLE));
+  }
+
+  @Test
+  public final void testSearchAnyTerm() {
+    final BookWithStatus b0 = book("a", "Dune", "Frank Herbert", "Chilton", "Fiction");
+    final BookWithStatus b1 = book("b", "Emma", "Jane Austen", "John Murray", "Fiction");
+    final BookWithStatus b2 = book("c", "Ulysses", "James Joyce", "Shakespeare", "Fiction");
+    this.registry.update(b0);
+    this.registry.update(b1);
+    this.registry.update(b2);
+
+    final BookRegistryIndex index = BookRegistryIndex.create(this.registry);
+    Assert.assertEquals(
+        Arrays.asList(id(b0), id(b1)),
+        index.search(Option.some("dune  emma"), SORT_BY_TITLE));
+    Assert.assertEquals(
+        Arrays.asList(id(b0), id(b1), id(b2)),
+        index.search(Option.some("  "), SORT_BY_TITLE));
+    Assert.assertEquals(
+        Arrays.asList(id(b0), id(b1), id(b2)),
+        index.search(Option.none(), SORT_BY_TITLE));
+  }
+
+  @Test
+  public final void testSortOrders() {
+    final BookWithStatus b0 = book("a", "Zebra", "Alice", "P", "C");
+    final BookWithStatus b1 = book("b", "Apple", "Carol", "P", "C");
+    final BookWithStatus b2 = book("c", "Mango", "", "P", "C");
+    final BookWithStatus b3 = book("d", "Kiwi", "Bob", "P", "C");
+    this.registry.update(b0);
+    this.registry.update(b1);
+    this.registry.update(b2);
+    this.registry.update(b3);
+
+    final BookRegistryIndex index = BookRegistryIndex.create(this.registry);
+    Assert.assertEquals(
+        Arrays.asList(id(b1), id(b3), id(b2), id(b0)),
+        index.search(Option.none(), SORT_BY_TITLE));
+    Assert.assertEquals(
+        Arrays.asList(id(b0), id(b3), id(b1), id(b2)),
+        index.search(Option.none(), SORT_BY_AUTHOR));
+  }
+
+  @Test
+  public final void testIncrementalUpdates() {
+    final BookRegistryIndex index = BookRegistryIndex.create(this.registry);
+    Assert.assertEquals(0, index.size());
+
+    final BookWithStatus b0 = book("a", "Dune", "Frank Herbert", "Chilton", "Fiction");
+    final BookWithStatus b1 = book("b", "Emma", "Jane Austen", "John Murray", "Fiction");
+    this.registry.update(b0);
+    this.registry.update(b1);
+    Assert.assertEquals(2, index.size());
+    Assert.assertEquals(
+        Collections.singletonList(id(b0)),
+        index.search(Option.some("dune"), SORT_BY_TITLE));
+
+    /*
+     * Replacing the entry of a book replaces its indexed words.
+     */
+
+    final BookWithStatus b0_renamed = 
+        book("a", "Children of Dune", "Frank Herbert", "Putnam", "Fiction");
+    this.registry.update(b0_renamed);
+    Assert.assertEquals(2, index.size());
+    Assert.assertEquals(
+        Collections.emptyList(),
+        index.search(Option.some("chilton"), SORT_BY_TITLE));
+    Assert.assertEquals(
+        Collections.singletonList(id(b0)),
+        index.search(Option.some("putnam"), SORT_BY_TITLE));
+    Assert.assertEquals(
+        Arrays.asList(id(b0), id(b1)),
+        index.search(Option.none(), SORT_BY_TITLE));
+
+    this.registry.clearFor(id(b0));
+    Assert.assertEquals(1, index.size());
+    Assert.assertEquals(
+        Collections.emptyList(),
+        index.search(Option.some("dune"), SORT_BY_TITLE));
+
+    this.registry.clear();
+    Assert.assertEquals(0, index.size());
+    Assert.assertEquals(
+        Collections.emptyList(),
+        index.search(Option.none(), SORT_BY_AUTHOR));
+  }
+}
@@ -0,0 +1,136 @@
+package org.nypl.simplified.tests.books.book_registry;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.nypl.simplified.books.book_database.BookID;
+import org.nypl.simplified.books.book_registry.BookStatusEvent;
+import org.nypl.simplified.books.book_registry.BookStatusEventBus;
+import org.nypl.simplified.books.book_registry.BookStatusEventBusType;
+import org.nypl.simplified.observable.Observable;
+import org.nypl.simplified.observable.ObservableSubscriptionType;
+import org.nypl.simplified.observable.ObservableType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.nypl.simplified.books.book_registry.BookStatusEvent.Type.BOOK_CHANGED;
+import static org.nypl.simplified.books.book_registry.BookStatusEvent.Type.BOOK_REMOVED;
+
+public abstract class BookStatusEventBusContract {
+
+  private static final long WINDOW_MS = 100L;
+
+  private static final BookID BOOK_0 = BookID.create("a");
+  private static final BookID BOOK_1 = BookID.create("b");
+
+  private ScheduledExecutorService exec;
+  private ObservableType<BookStatusEvent> events;
+  private BookStatusEventBusType bus;
+
+  @Before
+  public final void setUp() {
+    this.exec = Executors.newSingleThreadScheduledExecutor();
+    this.events = Observable.create();
+    this.bus = BookStatusEventBus.create(this.events, this.exec, WINDOW_MS, TimeUnit.MILLISECONDS);
+  }
+
+  @After
+  public final void tearDown() {
+    this.exec.shutdown();
+  }
+
+  /**
+   * Wait until any deliveries scheduled so far have run.
+   */
+
+  private void quiesce() throws Exception {
+    this.exec.schedule(() -> { }, WINDOW_MS * 2L, TimeUnit.MILLISECONDS).get(10L, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public final void testBurstCoalesced() throws Exception {
+    final List<BookStatusEvent> received = Collections.synchronizedList(new ArrayList<>());
+    this.bus.subscribe(BOOK_0, received::add);
+
+    for (int index = 0; index < 100; ++index) {
+      this.events.send(BookStatusEvent.create(BOOK_0, BOOK_CHANGED));
+    }
+    this.events.send(BookStatusEvent.create(BOOK_0, BOOK_REMOVED));
+    this.quiesce();
+
+    Assert.assertEquals(1, received.size());
+    Assert.assertEquals(BookStatusEvent.create(BOOK_0, BOOK_REMOVED), received.get(0));
+  }
+
+  @Test
+  public final void testSeparateBurstsDelivered() throws Exception {
+    final List<BookStatusEvent> received = Collections.synchronizedList(new ArrayList<>());
+    this.bus.subscribe(BOOK_0, received::add);
+
+    this.events.send(BookStatusEvent.create(BOOK_0, BOOK_CHANGED));
+    this.quiesce();
+    this.events.send(BookStatusEvent.create(BOOK_0, BOOK_CHANGED));
+    this.quiesce();
+
+    Assert.assertEquals(2, received.size());
+  }
+
+  @Test
+  public final void testSubscribePerBook() throws Exception {
+    final List<BookStatusEvent> received_0 = Collections.synchronizedList(new ArrayList<>());
+    final List<BookStatusEvent> received_all = Collections.synchronizedList(new ArrayList<>());
+    this.bus.subscribe(BOOK_0, received_0::add);
+    this.bus.subscribeAll(received_all::add);
+    Assert.assertEquals(2, this.bus.count());
+
+    for (int index = 0; index < 10; ++index) {
+      this.events.send(BookStatusEvent.create(BOOK_0, BOOK_CHANGED));
+      this.events.send(BookStatusEvent.create(BOOK_1, BOOK_CHANGED));
+    }
+    this.quiesce();
+
+    Assert.assertEquals(1, received_0.size());
+    Assert.assertEquals(BOOK_0, received_0.get(0).book());
+    Assert.assertEquals(2, received_all.size());
+  }
+
+  @Test
+  public final void testUnsubscribe() throws Exception {
+    final List<BookStatusEvent> received_0 = Collections.synchronizedList(new ArrayList<>());
+    final List<BookStatusEvent> received_all = Collections.synchronizedList(new ArrayList<>());
+    final ObservableSubscriptionType<BookStatusEvent> sub_0 =
+        this.bus.subscribe(BOOK_0, received_0::add);
+    final ObservableSubscriptionType<BookStatusEvent> sub_all =
+        this.bus.subscribeAll(received_all::add);
+
+    sub_0.unsubscribe();
+    sub_all.unsubscribe();
+    Assert.assertEquals(0, this.bus.count());
+
+    this.events.send(BookStatusEvent.create(BOOK_0, BOOK_CHANGED));
+    this.quiesce();
+
+    Assert.assertEquals(0, received_0.size());
+    Assert.assertEquals(0, received_all.size());
+  }
+
+  @Test
+  public final void testSubscriberExceptionIsolated() throws Exception {
+    final List<BookStatusEvent> received = Collections.synchronizedList(new ArrayList<>());
+    this.bus.subscribe(BOOK_0, e -> {
+      throw new IllegalStateException("Failing subscriber");
+    });
+    this.bus.subscribe(BOOK_0, received::add);
+
+    this.events.send(BookStatusEvent.create(BOOK_0, BOOK_CHANGED));
+    this.quiesce();
+
+    Assert.assertEquals(1, received.size());
+  }
+}
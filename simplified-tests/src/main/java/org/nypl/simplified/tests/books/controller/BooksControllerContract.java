@@ -47,6 +47,9 @@ import org.nypl.simplified.books.profiles.ProfileEvent;
 import org.nypl.simplified.books.profiles.ProfileType;
 import org.nypl.simplified.books.profiles.ProfilesDatabase;
 import org.nypl.simplified.books.profiles.ProfilesDatabaseType;
+import org.nypl.simplified.downloader.core.DownloadListenerType;
+import org.nypl.simplified.downloader.core.DownloadType;
+import org.nypl.simplified.downloader.core.DownloaderConfiguration;
 import org.nypl.simplified.downloader.core.DownloaderHTTP;
 import org.nypl.simplified.downloader.core.DownloaderType;
 import org.nypl.simplified.files.DirectoryUtilities;
@@ -61,6 +64,7 @@ import org.nypl.simplified.opds.core.OPDSFeedTransportType;
 import org.nypl.simplified.opds.core.OPDSParseException;
 import org.nypl.simplified.opds.core.OPDSSearchParser;
 import org.nypl.simplified.tests.EventAssertions;
+import org.nypl.simplified.tests.http.BlockingInputStream;
 import org.nypl.simplified.tests.http.MockingHTTP;
 
 import java.io.ByteArrayInputStream;
@@ -76,6 +80,7 @@ import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -167,7 +172,7 @@ public abstract class BooksControllerContract {
         new File("/tmp/aulfa-android-tests");
 
     final AnalyticsLogger analytics_logger =
-        AnalyticsLogger.create(analytics_directory);
+        AnalyticsLogger.create(analytics_directory, http, exec, exec);
 
     return Controller.create(
         exec,
@@ -412,6 +417,107 @@ public abstract class BooksControllerContract {
         e -> Assert.assertEquals(e.type(), BookStatusEvent.Type.BOOK_CHANGED));
   }
 
+  /**
+   * Syncing completes while a slow book download is in progress, even if the controller has only
+   * a single thread on which to run tasks.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test(timeout = 5_000L)
+  public final void testBooksSyncDuringSlowDownload() throws Exception {
+
+    final ExecutorService executor_single = Executors.newSingleThreadExecutor();
+    final DownloaderType downloader =
+        DownloaderHTTP.newDownloaderWithConfiguration(
+            DownloaderConfiguration.builder()
+                .setThreadFactory(r -> {
+                  final Thread t = new Thread(r);
+                  t.setDaemon(true);
+                  return t;
+                })
+                .build(),
+            this.directory_downloads,
+            this.http);
+
+    try {
+      final BooksControllerType controller =
+          controller(executor_single, http, this.book_registry, this.profiles, downloader, BooksControllerContract::accountProviders, this.executor_timer);
+
+      final AccountProvider provider = fakeAuthProvider("urn:fake-auth:0");
+      final ProfileType profile = this.profiles.createProfile(provider, "Kermit");
+      this.profiles.setProfileCurrent(profile.id());
+      final AccountType account = profile.createAccount(provider);
+      account.setCredentials(correctCredentials());
+
+      final byte[] data = new byte[]{0x1, 0x2, 0x3, 0x4};
+      final BlockingInputStream slow = new BlockingInputStream(data);
+      this.http.addResponse(
+          "http://example.com/book.epub",
+          new HTTPResultOK<>("OK", 200, slow, (long) data.length, new HashMap<>(), 0L));
+
+      this.http.addResponse(
+          "urn:fake-auth:0",
+          new HTTPResultOK<>(
+              "OK",
+              200,
+              resource("testBooksSyncNewEntries.xml"),
+              resourceSize("testBooksSyncNewEntries.xml"),
+              new HashMap<>(),
+              0L));
+
+      final CountDownLatch download_started = new CountDownLatch(1);
+      final CountDownLatch download_completed = new CountDownLatch(1);
+      downloader.download(
+          URI.create("http://example.com/book.epub"),
+          Option.none(),
+          new DownloadListenerType() {
+            @Override
+            public void onDownloadStarted(final DownloadType d, final long expected_total) {
+              download_started.countDown();
+            }
+
+            @Override
+            public void onDownloadDataReceived(
+                final DownloadType d, final long running_total, final long expected_total) {
+
+            }
+
+            @Override
+            public void onDownloadCancelled(final DownloadType d) {
+
+            }
+
+            @Override
+            public void onDownloadFailed(
+                final DownloadType d,
+                final int status,
+                final long running_total,
+                final OptionType<Throwable> exception) {
+
+            }
+
+            @Override
+            public void onDownloadCompleted(final DownloadType d, final File file) {
+              download_completed.countDown();
+            }
+          });
+
+      download_started.await();
+
+      controller.booksSync(account).get();
+      Assert.assertEquals(3L, this.book_registry.books().size());
+      Assert.assertEquals(1L, download_completed.getCount());
+      Assert.assertEquals(1L, (long) downloader.statistics().active());
+
+      slow.release();
+      download_completed.await();
+    } finally {
+      downloader.shutDown();
+      executor_single.shutdown();
+    }
+  }
+
   /**
    * If the remote side returns few books than the account has, database entries are removed.
    *
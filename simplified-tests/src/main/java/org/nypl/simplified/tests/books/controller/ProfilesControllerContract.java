@@ -133,7 +133,7 @@ public abstract class ProfilesControllerContract {
         new File("/tmp/aulfa-android-tests");
 
     final AnalyticsLogger analytics_logger =
-        AnalyticsLogger.create(analytics_directory);
+        AnalyticsLogger.create(analytics_directory, http, task_exec, task_exec);
 
     return Controller.create(
         task_exec,
@@ -0,0 +1,469 @@
+package org.nypl.simplified.tests.books.feeds;
+
+import com.io7m.jfunctional.Option;
+import com.io7m.jfunctional.OptionType;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.nypl.simplified.books.book_registry.BookRegistry;
+import org.nypl.simplified.books.bundled_content.BundledContentResolverType;
+import org.nypl.simplified.books.feeds.FeedLoader;
+import org.nypl.simplified.books.feeds.FeedLoaderAuthenticationListenerType;
+import org.nypl.simplified.books.feeds.FeedLoaderConfiguration;
+import org.nypl.simplified.books.feeds.FeedEntryType;
+import org.nypl.simplified.books.feeds.FeedLoaderListenerType;
+import org.nypl.simplified.books.feeds.FeedLoaderStreamingListenerType;
+import org.nypl.simplified.books.feeds.FeedLoaderType;
+import org.nypl.simplified.books.feeds.FeedType;
+import org.nypl.simplified.books.feeds.FeedWithoutGroups;
+import org.nypl.simplified.http.core.HTTPAuthType;
+import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntryParser;
+import org.nypl.simplified.opds.core.OPDSFeedParser;
+import org.nypl.simplified.opds.core.OPDSFeedParserType;
+import org.nypl.simplified.opds.core.OPDSFeedStreamingParser;
+import org.nypl.simplified.opds.core.OPDSFeedTransportType;
+import org.nypl.simplified.opds.core.OPDSSearchParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public abstract class FeedLoaderContract {
+
+  private static final URI FEED_URI = URI.create("http://example.com/feed");
+  private static final String SEARCH_DOCUMENT =
+      "<OpenSearchDescription xmlns=\"http://a9.com/-/spec/opensearch/1.1/\">"
+          + "<Url type=\"application/atom+xml\""
+          + " template=\"http://example.com/search?q={searchTerms}\"/>"
+          + "</OpenSearchDescription>";
+
+  private ExecutorService exec;
+  private AtomicReference<byte[]> content;
+  private AtomicInteger requests;
+  private LinkedBlockingQueue<FeedType> received;
+  private LinkedBlockingQueue<FeedType> revalidated;
+
+  private static byte[] getResource(
+      final String name)
+      throws Exception {
+
+    final String path = "/org/nypl/simplified/tests/opds/" + name;
+    final URL url = FeedLoaderContract.class.getResource(path);
+    if (url == null) {
+      throw new FileNotFoundException(path);
+    }
+
+    try (InputStream stream = url.openStream()) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[4096];
+      while (true) {
+        final int r = stream.read(buffer);
+        if (r == -1) {
+          break;
+        }
+        out.write(buffer, 0, r);
+      }
+      return out.toByteArray();
+    }
+  }
+
+  /**
+   * @param count The number of entries
+   * @return A feed without groups containing {@code count} open access entries
+   */
+
+  private static byte[] feedWithEntries(
+      final int count) {
+
+    final StringBuilder sb = new StringBuilder(256 * count);
+    sb.append("<feed xmlns=\"http://www.w3.org/2005/Atom\">\n");
+    sb.append("  <id>http://example.com/feed</id>\n");
+    sb.append("  <title>Feed</title>\n");
+    sb.append("  <updated>2015-06-26T18:48:49Z</updated>\n");
+    sb.append("  <link href=\"http://example.com/search\" rel=\"search\"");
+    sb.append(" type=\"application/opensearchdescription+xml\"/>\n");
+    for (int index = 0; index < count; ++index) {
+      sb.append("  <entry>\n");
+      sb.append("    <id>urn:example:").append(index).append("</id>\n");
+      sb.append("    <title>Book ").append(index).append("</title>\n");
+      sb.append("    <updated>2015-06-26T18:48:49Z</updated>\n");
+      sb.append("    <link href=\"http://example.com/books/").append(index);
+      sb.append(".epub\" rel=\"http://opds-spec.org/acquisition/open-access\"");
+      sb.append(" type=\"application/epub+zip\"/>\n");
+      sb.append("  </entry>\n");
+    }
+    sb.append("</feed>\n");
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Before
+  public final void setUp() {
+    this.exec = Executors.newFixedThreadPool(1);
+    this.content = new AtomicReference<>();
+    this.requests = new AtomicInteger();
+    this.received = new LinkedBlockingQueue<>();
+    this.revalidated = new LinkedBlockingQueue<>();
+  }
+
+  @After
+  public final void tearDown() {
+    this.exec.shutdown();
+  }
+
+  private FeedLoaderType loader(
+      final FeedLoaderConfiguration configuration) {
+    return this.loader(
+        configuration, OPDSFeedParser.newParser(OPDSAcquisitionFeedEntryParser.newParser()));
+  }
+
+  private FeedLoaderType loader(
+      final FeedLoaderConfiguration configuration,
+      final OPDSFeedParserType parser) {
+
+    final OPDSFeedTransportType<OptionType<HTTPAuthType>> transport = (auth, uri, method) -> {
+      if (!FEED_URI.equals(uri)) {
+        return new ByteArrayInputStream(SEARCH_DOCUMENT.getBytes(StandardCharsets.UTF_8));
+      }
+      this.requests.incrementAndGet();
+      return new ByteArrayInputStream(this.content.get());
+    };
+
+    final BundledContentResolverType bundled_content = uri -> {
+      throw new FileNotFoundException(uri.toString());
+    };
+
+    return FeedLoader.newFeedLoader(
+        this.exec,
+        BookRegistry.create(),
+        bundled_content,
+        parser,
+        transport,
+        OPDSSearchParser.newParser(),
+        configuration);
+  }
+
+  private FeedLoaderListenerType listener() {
+    return new FeedLoaderListenerType() {
+      @Override
+      public void onFeedLoadSuccess(
+          final URI u,
+          final FeedType f) {
+        FeedLoaderContract.this.received.add(f);
+      }
+
+      @Override
+      public void onFeedLoadRevalidated(
+          final URI u,
+          final FeedType f) {
+        FeedLoaderContract.this.revalidated.add(f);
+        FeedLoaderContract.this.received.add(f);
+      }
+
+      @Override
+      public void onFeedRequiresAuthentication(
+          final URI u,
+          final int attempts,
+          final FeedLoaderAuthenticationListenerType listener) {
+        listener.onAuthenticationNotProvided();
+      }
+
+      @Override
+      public void onFeedLoadFailure(
+          final URI u,
+          final Throwable x) {
+        throw new AssertionError(x);
+      }
+    };
+  }
+
+  private FeedType load(
+      final FeedLoaderType loader)
+      throws Exception {
+    final OptionType<HTTPAuthType> none = Option.none();
+    return loader.fromURI(FEED_URI, none, this.listener()).get(10L, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Wait for any background work submitted so far to complete.
+   */
+
+  private void quiesce()
+      throws Exception {
+    this.exec.submit(() -> {
+    }).get(10L, TimeUnit.SECONDS);
+  }
+
+  /**
+   * A fresh cached feed is delivered without a request being made.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testFreshFromCache()
+      throws Exception {
+
+    this.content.set(getResource("loans.xml"));
+
+    final FeedLoaderType loader =
+        this.loader(FeedLoaderConfiguration.builder().build());
+
+    final FeedType f0 = this.load(loader);
+    final FeedType f1 = this.load(loader);
+    this.quiesce();
+
+    Assert.assertSame(f0, f1);
+    Assert.assertEquals(1, this.requests.get());
+    Assert.assertEquals(2, this.received.size());
+  }
+
+  /**
+   * A stale feed is delivered immediately, and the refreshed feed is
+   * delivered afterwards if it differs.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testStaleChanged()
+      throws Exception {
+
+    this.content.set(getResource("acquisition-licensor-0.xml"));
+
+    final FeedLoaderType loader =
+        this.loader(FeedLoaderConfiguration.builder()
+            .setSoftTTLMilliseconds(1L)
+            .setHardTTLMilliseconds(TimeUnit.HOURS.toMillis(1L))
+            .build());
+
+    final FeedType f0 = this.load(loader);
+    Assert.assertSame(f0, this.received.take());
+
+    Thread.sleep(10L);
+    this.content.set(getResource("loans.xml"));
+
+    final FeedType f1 = this.load(loader);
+    Assert.assertSame(f0, f1);
+    Assert.assertSame(f0, this.received.take());
+
+    final FeedType f2 = this.received.poll(10L, TimeUnit.SECONDS);
+    Assert.assertNotNull(f2);
+    Assert.assertNotSame(f0, f2);
+    Assert.assertEquals(2, this.requests.get());
+    Assert.assertEquals(1, this.revalidated.size());
+    Assert.assertSame(f2, this.revalidated.take());
+
+    this.quiesce();
+    Assert.assertSame(f2, this.load(loader));
+  }
+
+  /**
+   * A stale feed that has not changed is delivered only once.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testStaleUnchanged()
+      throws Exception {
+
+    this.content.set(getResource("loans.xml"));
+
+    final FeedLoaderType loader =
+        this.loader(FeedLoaderConfiguration.builder()
+            .setSoftTTLMilliseconds(1L)
+            .setHardTTLMilliseconds(TimeUnit.HOURS.toMillis(1L))
+            .build());
+
+    final FeedType f0 = this.load(loader);
+    Thread.sleep(10L);
+    final FeedType f1 = this.load(loader);
+    this.quiesce();
+
+    Assert.assertSame(f0, f1);
+    Assert.assertEquals(2, this.requests.get());
+    Assert.assertEquals(2, this.received.size());
+  }
+
+  /**
+   * Feeds are not delivered stale if the soft TTL is not less than the hard
+   * TTL.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testNotStaleWithoutRevalidation()
+      throws Exception {
+
+    this.content.set(getResource("loans.xml"));
+
+    final FeedLoaderConfiguration configuration =
+        FeedLoaderConfiguration.builder()
+            .setSoftTTLMilliseconds(1L)
+            .setHardTTLMilliseconds(1L)
+            .build();
+
+    Assert.assertFalse(configuration.staleWhileRevalidate());
+
+    final FeedLoaderType loader = this.loader(configuration);
+    this.load(loader);
+    Thread.sleep(100L);
+    this.load(loader);
+    this.quiesce();
+
+    Assert.assertEquals(2, this.requests.get());
+    Assert.assertEquals(2, this.received.size());
+  }
+
+  /**
+   * A streaming listener that records everything delivered to it.
+   */
+
+  private static final class RecordingStreamingListener
+      implements FeedLoaderStreamingListenerType {
+    private final List<FeedWithoutGroups> headers = new ArrayList<>();
+    private final List<List<FeedEntryType>> batches = new ArrayList<>();
+    private final LinkedBlockingQueue<FeedType> succeeded = new LinkedBlockingQueue<>();
+    private final LinkedBlockingQueue<Throwable> failed = new LinkedBlockingQueue<>();
+
+    @Override
+    public void onFeedLoadHeader(
+        final URI u,
+        final FeedWithoutGroups header) {
+      this.headers.add(header);
+    }
+
+    @Override
+    public void onFeedLoadEntries(
+        final URI u,
+        final List<FeedEntryType> entries) {
+      this.batches.add(entries);
+    }
+
+    @Override
+    public void onFeedLoadSuccess(
+        final URI u,
+        final FeedType f) {
+      this.succeeded.add(f);
+    }
+
+    @Override
+    public void onFeedRequiresAuthentication(
+        final URI u,
+        final int attempts,
+        final FeedLoaderAuthenticationListenerType listener) {
+      listener.onAuthenticationNotProvided();
+    }
+
+    @Override
+    public void onFeedLoadFailure(
+        final URI u,
+        final Throwable x) {
+      this.failed.add(x);
+    }
+  }
+
+  /**
+   * The entries of a feed without groups are delivered in batches, in feed
+   * order, before the complete feed.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testStreamingEntries()
+      throws Exception {
+
+    this.content.set(feedWithEntries(20));
+
+    final FeedLoaderType loader =
+        this.loader(
+            FeedLoaderConfiguration.builder().build(),
+            OPDSFeedStreamingParser.newParser(OPDSAcquisitionFeedEntryParser.newParser()));
+
+    final RecordingStreamingListener listener = new RecordingStreamingListener();
+    final OptionType<HTTPAuthType> none = Option.none();
+    final FeedType feed =
+        loader.fromURIWithBookRegistryEntriesStreaming(FEED_URI, none, listener)
+            .get(10L, TimeUnit.SECONDS);
+
+    Assert.assertTrue(feed instanceof FeedWithoutGroups);
+    Assert.assertSame(feed, listener.succeeded.poll(10L, TimeUnit.SECONDS));
+    Assert.assertTrue(listener.failed.isEmpty());
+
+    Assert.assertEquals(1, listener.headers.size());
+    Assert.assertEquals(0, listener.headers.get(0).size());
+    Assert.assertEquals(feed.getFeedTitle(), listener.headers.get(0).getFeedTitle());
+
+    Assert.assertTrue(listener.batches.size() > 1);
+    final List<FeedEntryType> streamed = new ArrayList<>();
+    for (final List<FeedEntryType> batch : listener.batches) {
+      streamed.addAll(batch);
+    }
+
+    final FeedWithoutGroups complete = (FeedWithoutGroups) feed;
+    Assert.assertEquals(20, complete.size());
+    Assert.assertEquals(complete.size(), streamed.size());
+    for (int index = 0; index < complete.size(); ++index) {
+      Assert.assertEquals(complete.get(index).getBookID(), streamed.get(index).getBookID());
+    }
+  }
+
+  /**
+   * A malformed stream fails the load, is reported to the listener, and is
+   * not cached.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public final void testStreamingMalformed()
+      throws Exception {
+
+    final byte[] data = feedWithEntries(20);
+    final byte[] truncated = new byte[data.length / 2];
+    System.arraycopy(data, 0, truncated, 0, truncated.length);
+    this.content.set(truncated);
+
+    final FeedLoaderType loader =
+        this.loader(
+            FeedLoaderConfiguration.builder().build(),
+            OPDSFeedStreamingParser.newParser(OPDSAcquisitionFeedEntryParser.newParser()));
+
+    final RecordingStreamingListener listener = new RecordingStreamingListener();
+    final OptionType<HTTPAuthType> none = Option.none();
+    try {
+      loader.fromURIWithBookRegistryEntriesStreaming(FEED_URI, none, listener)
+          .get(10L, TimeUnit.SECONDS);
+      Assert.fail("Expected the load to fail");
+    } catch (final ExecutionException e) {
+      Assert.assertNotNull(e.getCause());
+    }
+
+    Assert.assertNotNull(listener.failed.poll(10L, TimeUnit.SECONDS));
+    Assert.assertTrue(listener.succeeded.isEmpty());
+
+    this.content.set(data);
+    final RecordingStreamingListener retry = new RecordingStreamingListener();
+    loader.fromURIWithBookRegistryEntriesStreaming(FEED_URI, none, retry)
+        .get(10L, TimeUnit.SECONDS);
+    Assert.assertEquals(2, this.requests.get());
+    Assert.assertNotNull(retry.succeeded.poll(10L, TimeUnit.SECONDS));
+  }
+}
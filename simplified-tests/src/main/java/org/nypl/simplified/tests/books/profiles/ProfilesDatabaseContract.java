@@ -1,5 +1,7 @@
 package org.nypl.simplified.tests.books.profiles;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
 import com.io7m.jfunctional.Option;
 
 import org.hamcrest.BaseMatcher;
@@ -14,28 +16,48 @@ import org.nypl.simplified.books.accounts.AccountProvider;
 import org.nypl.simplified.books.accounts.AccountProviderCollection;
 import org.nypl.simplified.books.accounts.AccountProviderCollectionType;
 import org.nypl.simplified.books.accounts.AccountType;
+import org.nypl.simplified.books.accounts.AccountsDatabaseException;
 import org.nypl.simplified.books.accounts.AccountsDatabaseFactoryType;
+import org.nypl.simplified.books.accounts.AccountsDatabaseIOException;
 import org.nypl.simplified.books.accounts.AccountsDatabaseLastAccountException;
 import org.nypl.simplified.books.accounts.AccountsDatabaseNonexistentException;
+import org.nypl.simplified.books.accounts.AccountsDatabaseType;
 import org.nypl.simplified.books.accounts.AccountsDatabases;
+import org.nypl.simplified.books.book_database.BookDatabaseFactoryType;
+import org.nypl.simplified.books.book_database.BookID;
 import org.nypl.simplified.books.core.LogUtilities;
 import org.nypl.simplified.books.profiles.ProfileAnonymousDisabledException;
 import org.nypl.simplified.books.profiles.ProfileAnonymousEnabledException;
+import org.nypl.simplified.books.profiles.ProfileDatabaseAccountsException;
 import org.nypl.simplified.books.profiles.ProfileDatabaseException;
+import org.nypl.simplified.books.profiles.ProfileDatabaseOpenException;
+import org.nypl.simplified.books.profiles.ProfileDescription;
+import org.nypl.simplified.books.profiles.ProfileDescriptionJSON;
 import org.nypl.simplified.books.profiles.ProfileID;
 import org.nypl.simplified.books.profiles.ProfileNonexistentException;
 import org.nypl.simplified.books.profiles.ProfileType;
 import org.nypl.simplified.books.profiles.ProfilesDatabase;
 import org.nypl.simplified.books.profiles.ProfilesDatabaseType;
+import org.nypl.simplified.books.reader.ReaderBookLocation;
+import org.nypl.simplified.books.reader.ReaderBookmarks;
 import org.nypl.simplified.files.DirectoryUtilities;
 import org.nypl.simplified.files.FileUtilities;
 import org.slf4j.Logger;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.net.URI;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class ProfilesDatabaseContract {
 
@@ -297,6 +319,381 @@ public abstract class ProfilesDatabaseContract {
         p0.preferences().dateOfBirth());
   }
 
+  @Test
+  public final void testBookmarksReopen()
+      throws Exception {
+    final File f_tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File f_pro = new File(f_tmp, "profiles");
+
+    final AccountProviderCollectionType account_providers = accountProviders();
+    final ProfilesDatabaseType db0 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+
+    final AccountProvider acc = fakeProvider("http://www.example.com/accounts0/");
+    final ProfileType p0 = db0.createProfile(acc, "Kermit");
+
+    final BookID b0 = BookID.create("a");
+    final BookID b1 = BookID.create("b");
+    final ReaderBookLocation l0 = ReaderBookLocation.create(Option.none(), "x0");
+    final ReaderBookLocation l1 = ReaderBookLocation.create(Option.some("/4/2"), "x1");
+    final ReaderBookLocation l2 = ReaderBookLocation.create(Option.none(), "x2");
+
+    p0.bookmarkSet(b0, l0);
+    p0.bookmarkSet(b1, l1);
+    p0.bookmarkSet(b0, l2);
+
+    Assert.assertEquals(l2, p0.preferences().readerBookmarks().bookmarks().get(b0));
+    Assert.assertEquals(l1, p0.preferences().readerBookmarks().bookmarks().get(b1));
+
+    final ProfilesDatabaseType db1 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+
+    final ProfileType pr0 = db1.profiles().get(p0.id());
+    Assert.assertEquals(p0.preferences(), pr0.preferences());
+    Assert.assertEquals(2, pr0.preferences().readerBookmarks().bookmarks().size());
+
+    final String text = FileUtilities.fileReadUTF8(new File(p0.directory(), "profile.json"));
+    Assert.assertFalse(text.contains("x1"));
+  }
+
+  private static int lineCount(final File file)
+      throws IOException {
+    int count = 0;
+    try (BufferedReader reader =
+             new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"))) {
+      while (reader.readLine() != null) {
+        ++count;
+      }
+    }
+    return count;
+  }
+
+  @Test
+  public final void testBookmarksCompacted()
+      throws Exception {
+    final File f_tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File f_pro = new File(f_tmp, "profiles");
+
+    final AccountProviderCollectionType account_providers = accountProviders();
+    final ProfilesDatabaseType db0 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+
+    final AccountProvider acc = fakeProvider("http://www.example.com/accounts0/");
+    final ProfileType p0 = db0.createProfile(acc, "Kermit");
+
+    final BookID b0 = BookID.create("a");
+    for (int index = 0; index < 500; ++index) {
+      p0.bookmarkSet(b0, ReaderBookLocation.create(Option.none(), "x" + index));
+    }
+
+    Assert.assertTrue(lineCount(new File(p0.directory(), "bookmarks.jsonl")) < 100);
+
+    final ProfilesDatabaseType db1 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+
+    Assert.assertEquals(
+        ReaderBookLocation.create(Option.none(), "x499"),
+        db1.profiles().get(p0.id()).preferences().readerBookmarks().bookmarks().get(b0));
+  }
+
+  @Test
+  public final void testBookmarksPreferencesUpdate()
+      throws Exception {
+    final File f_tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File f_pro = new File(f_tmp, "profiles");
+
+    final AccountProviderCollectionType account_providers = accountProviders();
+    final ProfilesDatabaseType db0 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+
+    final AccountProvider acc = fakeProvider("http://www.example.com/accounts0/");
+    final ProfileType p0 = db0.createProfile(acc, "Kermit");
+
+    final BookID b0 = BookID.create("a");
+    final BookID b1 = BookID.create("b");
+    final ReaderBookLocation l0 = ReaderBookLocation.create(Option.none(), "x0");
+
+    p0.bookmarkSet(b0, l0);
+    p0.preferencesUpdate(
+        p0.preferences().withReaderBookmarks(
+            ReaderBookmarks.create(ImmutableMap.of(b1, l0))));
+
+    final ProfilesDatabaseType db1 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+
+    Assert.assertEquals(
+        ImmutableMap.of(b1, l0),
+        db1.profiles().get(p0.id()).preferences().readerBookmarks().bookmarks());
+  }
+
+  @Test
+  public final void testBookmarksLegacyMigrated()
+      throws Exception {
+    final File f_tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File f_pro = new File(f_tmp, "profiles");
+
+    final AccountProviderCollectionType account_providers = accountProviders();
+    final ProfilesDatabaseType db0 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+
+    final AccountProvider acc = fakeProvider("http://www.example.com/accounts0/");
+    final ProfileType p0 = db0.createProfile(acc, "Kermit");
+
+    /*
+     * Write a profile description in the format used before bookmarks were journalled.
+     */
+
+    final BookID b0 = BookID.create("a");
+    final ReaderBookLocation l0 = ReaderBookLocation.create(Option.none(), "legacy");
+    final ProfileDescription legacy =
+        ProfileDescription.builder(
+            "Kermit",
+            p0.preferences().withReaderBookmarks(
+                ReaderBookmarks.create(ImmutableMap.of(b0, l0))))
+            .build();
+
+    final File profile_file = new File(p0.directory(), "profile.json");
+    FileUtilities.fileWriteUTF8(
+        profile_file, ProfileDescriptionJSON.serializeToString(new ObjectMapper(), legacy));
+
+    final ProfilesDatabaseType db1 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+
+    Assert.assertEquals(
+        l0, db1.profiles().get(p0.id()).preferences().readerBookmarks().bookmarks().get(b0));
+    Assert.assertFalse(FileUtilities.fileReadUTF8(profile_file).contains("legacy"));
+
+    final ProfilesDatabaseType db2 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+
+    Assert.assertEquals(
+        l0, db2.profiles().get(p0.id()).preferences().readerBookmarks().bookmarks().get(b0));
+  }
+
+  @Test
+  public final void testBookmarksTruncatedRecord()
+      throws Exception {
+    final File f_tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File f_pro = new File(f_tmp, "profiles");
+
+    final AccountProviderCollectionType account_providers = accountProviders();
+    final ProfilesDatabaseType db0 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+
+    final AccountProvider acc = fakeProvider("http://www.example.com/accounts0/");
+    final ProfileType p0 = db0.createProfile(acc, "Kermit");
+
+    final BookID b0 = BookID.create("a");
+    final BookID b1 = BookID.create("b");
+    final ReaderBookLocation l0 = ReaderBookLocation.create(Option.none(), "x0");
+    final ReaderBookLocation l1 = ReaderBookLocation.create(Option.none(), "x1");
+    p0.bookmarkSet(b0, l0);
+
+    /*
+     * Simulate a record that was only partially written.
+     */
+
+    final File journal = new File(p0.directory(), "bookmarks.jsonl");
+    try (OutputStream stream = new FileOutputStream(journal, true)) {
+      stream.write("{\"type\":\"bookmark\",\"id\":\"b".getBytes("UTF-8"));
+    }
+
+    final ProfilesDatabaseType db1 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+    final ProfileType pr0 = db1.profiles().get(p0.id());
+    Assert.assertEquals(ImmutableMap.of(b0, l0), pr0.preferences().readerBookmarks().bookmarks());
+
+    pr0.bookmarkSet(b1, l1);
+
+    final ProfilesDatabaseType db2 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+    Assert.assertEquals(
+        ImmutableMap.of(b0, l0, b1, l1),
+        db2.profiles().get(p0.id()).preferences().readerBookmarks().bookmarks());
+  }
+
+  @Test
+  public final void testBookmarksMalformedRecords()
+      throws Exception {
+    final File f_tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File f_pro = new File(f_tmp, "profiles");
+
+    final AccountProviderCollectionType account_providers = accountProviders();
+    final ProfilesDatabaseType db0 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+
+    final AccountProvider acc = fakeProvider("http://www.example.com/accounts0/");
+    final ProfileType p0 = db0.createProfile(acc, "Kermit");
+
+    final BookID b0 = BookID.create("a");
+    final ReaderBookLocation l0 = ReaderBookLocation.create(Option.none(), "x0");
+    p0.bookmarkSet(b0, l0);
+
+    /*
+     * Records that are well-formed JSON but are not valid bookmarks are skipped.
+     */
+
+    final File journal = new File(p0.directory(), "bookmarks.jsonl");
+    try (OutputStream stream = new FileOutputStream(journal, true)) {
+      stream.write((
+          "\n"
+              + "null\n"
+              + "[]\n"
+              + "{\"type\":\"bookmark\",\"id\":\"b\"}\n"
+              + "{\"type\":\"bookmark\",\"id\":\"c\",\"location\":23}\n"
+              + "{\"type\":\"bookmark\",\"location\":{\"idref\":\"x1\"}}\n")
+          .getBytes("UTF-8"));
+    }
+
+    final ProfilesDatabaseType db1 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+    Assert.assertEquals(
+        ImmutableMap.of(b0, l0),
+        db1.profiles().get(p0.id()).preferences().readerBookmarks().bookmarks());
+
+    /*
+     * The journal is rewritten without the malformed records.
+     */
+
+    Assert.assertEquals(2, lineCount(journal));
+  }
+
+  @Test
+  public final void testWriteBehindCoalesced()
+      throws Exception {
+    final File f_tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File f_pro = new File(f_tmp, "profiles");
+
+    final AccountProviderCollectionType account_providers = accountProviders();
+    final ProfilesDatabaseType db0 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+
+    final ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor();
+    try {
+      db0.enableWriteBehind(exec, 1L, TimeUnit.HOURS);
+
+      final AccountProvider acc = fakeProvider("http://www.example.com/accounts0/");
+      final ProfileType p0 = db0.createProfile(acc, "Kermit");
+
+      final BookID b0 = BookID.create("a");
+      for (int index = 0; index < 10; ++index) {
+        p0.bookmarkSet(b0, ReaderBookLocation.create(Option.none(), "x" + index));
+      }
+      p0.preferencesUpdate(
+          p0.preferences()
+              .toBuilder()
+              .setDateOfBirth(new LocalDate(2010, 10, 30))
+              .build());
+
+      final ReaderBookLocation last = ReaderBookLocation.create(Option.none(), "x9");
+      Assert.assertEquals(last, p0.preferences().readerBookmarks().bookmarks().get(b0));
+      Assert.assertEquals(Option.some(new LocalDate(2010, 10, 30)), p0.preferences().dateOfBirth());
+
+      final ProfilesDatabaseType db1 =
+          ProfilesDatabase.openWithAnonymousAccountDisabled(
+              account_providers, accountsDatabases(), f_pro);
+      Assert.assertTrue(db1.profiles().get(p0.id()).preferences().dateOfBirth().isNone());
+      Assert.assertTrue(
+          db1.profiles().get(p0.id()).preferences().readerBookmarks().bookmarks().isEmpty());
+
+      p0.preferencesFlush();
+      Assert.assertEquals(2, lineCount(new File(p0.directory(), "bookmarks.jsonl")));
+
+      final ProfilesDatabaseType db2 =
+          ProfilesDatabase.openWithAnonymousAccountDisabled(
+              account_providers, accountsDatabases(), f_pro);
+      Assert.assertEquals(p0.preferences(), db2.profiles().get(p0.id()).preferences());
+    } finally {
+      exec.shutdownNow();
+    }
+  }
+
+  @Test
+  public final void testWriteBehindScheduled()
+      throws Exception {
+    final File f_tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File f_pro = new File(f_tmp, "profiles");
+
+    final AccountProviderCollectionType account_providers = accountProviders();
+    final ProfilesDatabaseType db0 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+
+    final ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor();
+    db0.enableWriteBehind(exec, 100L, TimeUnit.MILLISECONDS);
+
+    final AccountProvider acc = fakeProvider("http://www.example.com/accounts0/");
+    final ProfileType p0 = db0.createProfile(acc, "Kermit");
+
+    final BookID b0 = BookID.create("a");
+    final ReaderBookLocation l0 = ReaderBookLocation.create(Option.none(), "x0");
+    p0.bookmarkSet(b0, l0);
+
+    /*
+     * Delayed tasks still run after shutdown, so this waits for the deferred write.
+     */
+
+    exec.shutdown();
+    Assert.assertTrue(exec.awaitTermination(10L, TimeUnit.SECONDS));
+
+    final ProfilesDatabaseType db1 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+    Assert.assertEquals(
+        l0, db1.profiles().get(p0.id()).preferences().readerBookmarks().bookmarks().get(b0));
+  }
+
+  @Test
+  public final void testWriteBehindDeselect()
+      throws Exception {
+    final File f_tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File f_pro = new File(f_tmp, "profiles");
+
+    final AccountProviderCollectionType account_providers = accountProviders();
+    final ProfilesDatabaseType db0 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+
+    final ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor();
+    try {
+      db0.enableWriteBehind(exec, 1L, TimeUnit.HOURS);
+
+      final AccountProvider acc = fakeProvider("http://www.example.com/accounts0/");
+      final ProfileType p0 = db0.createProfile(acc, "Kermit");
+      final ProfileType p1 = db0.createProfile(acc, "Gonzo");
+
+      final BookID b0 = BookID.create("a");
+      final ReaderBookLocation l0 = ReaderBookLocation.create(Option.none(), "x0");
+
+      db0.setProfileCurrent(p0.id());
+      p0.bookmarkSet(b0, l0);
+      db0.setProfileCurrent(p1.id());
+
+      final ProfilesDatabaseType db1 =
+          ProfilesDatabase.openWithAnonymousAccountDisabled(
+              account_providers, accountsDatabases(), f_pro);
+      Assert.assertEquals(
+          l0, db1.profiles().get(p0.id()).preferences().readerBookmarks().bookmarks().get(b0));
+    } finally {
+      exec.shutdownNow();
+    }
+  }
+
   @Test
   public final void testCreateProfileDuplicate()
       throws Exception {
@@ -350,6 +747,185 @@ public abstract class ProfilesDatabaseContract {
     Assert.assertEquals(Option.some(p0), db0.currentProfile());
   }
 
+  /**
+   * An accounts database factory that counts the databases that it opens.
+   */
+
+  private static final class CountingAccountsDatabases implements AccountsDatabaseFactoryType {
+    private final AccountsDatabaseFactoryType delegate = AccountsDatabases.get();
+    private final AtomicInteger opened = new AtomicInteger(0);
+
+    @Override
+    public AccountsDatabaseType openDatabase(
+        final BookDatabaseFactoryType book_databases,
+        final AccountProviderCollectionType account_providers,
+        final File directory)
+        throws AccountsDatabaseException {
+      this.opened.incrementAndGet();
+      return this.delegate.openDatabase(book_databases, account_providers, directory);
+    }
+
+    @Override
+    public AccountsDatabaseType openDatabase(
+        final AccountProviderCollectionType account_providers,
+        final File directory)
+        throws AccountsDatabaseException {
+      this.opened.incrementAndGet();
+      return this.delegate.openDatabase(account_providers, directory);
+    }
+  }
+
+  @Test
+  public final void testAccountsOpenedLazily()
+      throws Exception {
+    final File f_tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File f_pro = new File(f_tmp, "profiles");
+
+    final AccountProviderCollectionType account_providers = accountProviders();
+    final ProfilesDatabaseType db0 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+
+    final AccountProvider acc = fakeProvider("http://www.example.com/accounts0/");
+    final ProfileType p0 = db0.createProfile(acc, "Kermit");
+    final ProfileType p1 = db0.createProfile(acc, "Gonzo");
+    db0.createProfile(acc, "Beaker");
+
+    final CountingAccountsDatabases counting = new CountingAccountsDatabases();
+    final ProfilesDatabaseType db1 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(account_providers, counting, f_pro);
+
+    Assert.assertEquals(3, db1.profiles().size());
+    Assert.assertEquals("Gonzo", db1.profiles().get(p1.id()).displayName());
+    Assert.assertEquals(0, counting.opened.get());
+
+    db1.setProfileCurrent(p0.id());
+    Assert.assertEquals(1, counting.opened.get());
+
+    Assert.assertEquals(
+        acc.id(), db1.profiles().get(p1.id()).accountCurrent().provider().id());
+    Assert.assertEquals(2, counting.opened.get());
+
+    db1.profiles().get(p1.id()).accounts();
+    db1.currentProfileUnsafe().accountCurrent();
+    Assert.assertEquals(2, counting.opened.get());
+  }
+
+  @Test
+  public final void testAccountsPrewarmed()
+      throws Exception {
+    final File f_tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File f_pro = new File(f_tmp, "profiles");
+
+    final AccountProviderCollectionType account_providers = accountProviders();
+    final ProfilesDatabaseType db0 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+
+    final AccountProvider acc = fakeProvider("http://www.example.com/accounts0/");
+    db0.createProfile(acc, "Kermit");
+    db0.createProfile(acc, "Gonzo");
+    db0.createProfile(acc, "Beaker");
+
+    final CountingAccountsDatabases counting = new CountingAccountsDatabases();
+    final ProfilesDatabaseType db1 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(account_providers, counting, f_pro);
+
+    Assert.assertEquals(0, counting.opened.get());
+    db1.prewarm(Runnable::run);
+    Assert.assertEquals(3, counting.opened.get());
+
+    for (final ProfileType profile : db1.profiles().values()) {
+      profile.accountCurrent();
+    }
+    Assert.assertEquals(3, counting.opened.get());
+  }
+
+  /**
+   * An accounts database factory that always fails.
+   */
+
+  private static final class FailingAccountsDatabases implements AccountsDatabaseFactoryType {
+    @Override
+    public AccountsDatabaseType openDatabase(
+        final BookDatabaseFactoryType book_databases,
+        final AccountProviderCollectionType account_providers,
+        final File directory)
+        throws AccountsDatabaseException {
+      throw new AccountsDatabaseIOException("Failed", new IOException("Failed: " + directory));
+    }
+
+    @Override
+    public AccountsDatabaseType openDatabase(
+        final AccountProviderCollectionType account_providers,
+        final File directory)
+        throws AccountsDatabaseException {
+      throw new AccountsDatabaseIOException("Failed", new IOException("Failed: " + directory));
+    }
+  }
+
+  @Test
+  public final void testAccountsOpenFailureSetCurrent()
+      throws Exception {
+    final File f_tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File f_pro = new File(f_tmp, "profiles");
+
+    final AccountProviderCollectionType account_providers = accountProviders();
+    final ProfilesDatabaseType db0 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, accountsDatabases(), f_pro);
+
+    final AccountProvider acc = fakeProvider("http://www.example.com/accounts0/");
+    final ProfileType p0 = db0.createProfile(acc, "Kermit");
+    final ProfileType p1 = db0.createProfile(acc, "Gonzo");
+
+    final ProfilesDatabaseType db1 =
+        ProfilesDatabase.openWithAnonymousAccountDisabled(
+            account_providers, new FailingAccountsDatabases(), f_pro);
+
+    Assert.assertEquals(2, db1.profiles().size());
+    db1.prewarm(Runnable::run);
+
+    try {
+      db1.setProfileCurrent(p0.id());
+      Assert.fail("Expected an exception");
+    } catch (final ProfileDatabaseAccountsException e) {
+      Assert.assertTrue(e.causes().get(0) instanceof AccountsDatabaseIOException);
+    }
+    Assert.assertEquals(Option.none(), db1.currentProfile());
+
+    try {
+      db1.profiles().get(p1.id()).accountCurrent();
+      Assert.fail("Expected an exception");
+    } catch (final IllegalStateException e) {
+      Assert.assertTrue(e.getCause() instanceof AccountsDatabaseIOException);
+    }
+
+    try {
+      db1.profiles().get(p1.id()).createAccount(
+          fakeProvider("http://www.example.com/accounts1/"));
+      Assert.fail("Expected an exception");
+    } catch (final AccountsDatabaseIOException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public final void testAccountsOpenFailureAnonymous()
+      throws Exception {
+    final File f_tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File f_pro = new File(f_tmp, "profiles");
+
+    ProfilesDatabase.openWithAnonymousAccountEnabled(
+        accountProviders(), accountsDatabases(), exampleAccountProvider(), f_pro);
+
+    expected.expect(ProfileDatabaseOpenException.class);
+    expected.expect(new CausesContains<>(
+        ProfileDatabaseAccountsException.class, "Could not open the accounts of profile 0"));
+    ProfilesDatabase.openWithAnonymousAccountEnabled(
+        accountProviders(), new FailingAccountsDatabases(), exampleAccountProvider(), f_pro);
+  }
+
   @Test
   public final void testSetCurrentNonexistent()
       throws Exception {
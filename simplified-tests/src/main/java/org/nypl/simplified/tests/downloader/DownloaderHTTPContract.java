@@ -0,0 +1,689 @@
+package org.nypl.simplified.tests.downloader;
+
+import com.io7m.jfunctional.Option;
+import com.io7m.jfunctional.OptionType;
+import com.io7m.jfunctional.Some;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.nypl.simplified.downloader.core.DownloadListenerType;
+import org.nypl.simplified.downloader.core.DownloadPriority;
+import org.nypl.simplified.downloader.core.DownloadType;
+import org.nypl.simplified.downloader.core.DownloaderConfiguration;
+import org.nypl.simplified.downloader.core.DownloaderHTTP;
+import org.nypl.simplified.downloader.core.DownloaderStatistics;
+import org.nypl.simplified.downloader.core.DownloaderType;
+import org.nypl.simplified.files.DirectoryUtilities;
+import org.nypl.simplified.files.FileUtilities;
+import org.nypl.simplified.http.core.HTTPAuthType;
+import org.nypl.simplified.http.core.HTTPResultError;
+import org.nypl.simplified.http.core.HTTPResultOK;
+import org.nypl.simplified.http.core.HTTPResultType;
+import org.nypl.simplified.http.core.HTTPType;
+import org.nypl.simplified.tests.http.BlockingInputStream;
+import org.nypl.simplified.tests.http.MockingHTTP;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public abstract class DownloaderHTTPContract {
+
+  private List<DownloaderType> downloaders;
+  private File directory_downloads;
+  private MockingHTTP http;
+
+  @Before
+  public void setUp() throws Exception {
+    this.http = new MockingHTTP();
+    this.downloaders = new ArrayList<>();
+    this.directory_downloads = DirectoryUtilities.directoryCreateTemporary();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    for (final DownloaderType d : this.downloaders) {
+      d.shutDown();
+    }
+  }
+
+  private DownloaderType downloader(
+      final int max,
+      final int max_host) {
+    return this.downloader(
+        DownloaderConfiguration.builder()
+            .setMaximumConcurrentDownloads(max)
+            .setMaximumConcurrentDownloadsPerHost(max_host),
+        this.http);
+  }
+
+  private DownloaderType downloader(
+      final HTTPType in_http) {
+    return this.downloader(DownloaderConfiguration.builder(), in_http);
+  }
+
+  private DownloaderType downloader(
+      final DownloaderConfiguration.Builder configuration,
+      final HTTPType in_http) {
+    final DownloaderType d =
+        DownloaderHTTP.newDownloaderWithConfiguration(
+            configuration
+                .setThreadFactory(r -> {
+                  final Thread t = new Thread(r);
+                  t.setDaemon(true);
+                  return t;
+                })
+                .build(),
+            this.directory_downloads,
+            in_http);
+    this.downloaders.add(d);
+    return d;
+  }
+
+  /**
+   * Wait for the downloader to release the slots of all finished downloads. Slots are released
+   * just after the listeners of the downloads have been called.
+   */
+
+  private static void awaitIdle(final DownloaderType d) throws InterruptedException {
+    while (true) {
+      final DownloaderStatistics stats = d.statistics();
+      if (stats.active() == 0 && stats.queued() == 0) {
+        return;
+      }
+      Thread.sleep(10L);
+    }
+  }
+
+  private BlockingInputStream addBlockingResponse(final String uri) {
+    final byte[] data = new byte[]{0x1, 0x2, 0x3, 0x4};
+    final BlockingInputStream stream = new BlockingInputStream(data);
+    this.http.addResponse(
+        uri,
+        new HTTPResultOK<>("OK", 200, stream, (long) data.length, new HashMap<>(), 0L));
+    return stream;
+  }
+
+  /**
+   * Configurations with non-positive limits are rejected.
+   */
+
+  @Test(expected = IllegalArgumentException.class)
+  public final void testConfigurationInvalid() {
+    DownloaderConfiguration.builder()
+        .setMaximumConcurrentDownloads(0)
+        .build();
+  }
+
+  /**
+   * No more than the configured number of downloads run for a single host, but downloads for other
+   * hosts are not held up by it.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test(timeout = 5_000L)
+  public final void testPerHostLimit() throws Exception {
+    final DownloaderType d = this.downloader(4, 1);
+
+    final BlockingInputStream s0 = this.addBlockingResponse("http://a.example.com/0");
+    final BlockingInputStream s1 = this.addBlockingResponse("http://a.example.com/1");
+    final BlockingInputStream s2 = this.addBlockingResponse("http://b.example.com/2");
+
+    final RecordingListener listener = new RecordingListener(3);
+    d.download(URI.create("http://a.example.com/0"), Option.none(), listener);
+    d.download(URI.create("http://a.example.com/1"), Option.none(), listener);
+    d.download(URI.create("http://b.example.com/2"), Option.none(), listener);
+
+    listener.awaitStarted(2);
+
+    final DownloaderStatistics stats = d.statistics();
+    Assert.assertEquals(2L, (long) stats.active());
+    Assert.assertEquals(1L, (long) stats.queued());
+
+    s0.release();
+    s1.release();
+    s2.release();
+    listener.awaitFinished();
+
+    Assert.assertEquals(3L, (long) listener.completed.size());
+    awaitIdle(d);
+    Assert.assertEquals(12L, d.statistics().bytesTotal());
+  }
+
+  /**
+   * Queued user-initiated downloads start before queued background downloads.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test(timeout = 5_000L)
+  public final void testPriority() throws Exception {
+    final DownloaderType d = this.downloader(1, 1);
+
+    final BlockingInputStream s0 = this.addBlockingResponse("http://example.com/0");
+    final BlockingInputStream s1 = this.addBlockingResponse("http://example.com/1");
+    final BlockingInputStream s2 = this.addBlockingResponse("http://example.com/2");
+    s1.release();
+    s2.release();
+
+    final RecordingListener listener = new RecordingListener(3);
+    d.download(
+        URI.create("http://example.com/0"),
+        Option.none(),
+        DownloadPriority.DOWNLOAD_PRIORITY_BACKGROUND,
+        listener);
+    listener.awaitStarted(1);
+
+    d.download(
+        URI.create("http://example.com/1"),
+        Option.none(),
+        DownloadPriority.DOWNLOAD_PRIORITY_BACKGROUND,
+        listener);
+    d.download(
+        URI.create("http://example.com/2"),
+        Option.none(),
+        DownloadPriority.DOWNLOAD_PRIORITY_USER_INITIATED,
+        listener);
+
+    Assert.assertEquals(2L, (long) d.statistics().queued());
+    s0.release();
+    listener.awaitFinished();
+
+    Assert.assertEquals(3L, (long) listener.completed.size());
+    Assert.assertEquals(
+        "0000000000000001.data", listener.completed.get(0).getName());
+    Assert.assertEquals(
+        "0000000000000003.data", listener.completed.get(1).getName());
+    Assert.assertEquals(
+        "0000000000000002.data", listener.completed.get(2).getName());
+  }
+
+  /**
+   * Cancelling a queued download removes it from the queue without it ever starting.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test(timeout = 5_000L)
+  public final void testCancelQueued() throws Exception {
+    final DownloaderType d = this.downloader(1, 1);
+
+    final BlockingInputStream s0 = this.addBlockingResponse("http://example.com/0");
+
+    final RecordingListener listener = new RecordingListener(2);
+    d.download(URI.create("http://example.com/0"), Option.none(), listener);
+    listener.awaitStarted(1);
+
+    final DownloadType queued =
+        d.download(URI.create("http://example.com/1"), Option.none(), listener);
+    Assert.assertEquals(1L, (long) d.statistics().queued());
+
+    queued.cancel();
+    Assert.assertEquals(0L, (long) d.statistics().queued());
+
+    s0.release();
+    listener.awaitFinished();
+
+    Assert.assertEquals(1L, (long) listener.completed.size());
+    Assert.assertEquals(1L, (long) listener.cancelled.size());
+  }
+
+  /**
+   * Shutting down cancels queued and running downloads, and downloads requested afterwards fail.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test(timeout = 5_000L)
+  public final void testShutDown() throws Exception {
+    final DownloaderType d = this.downloader(1, 1);
+
+    final BlockingInputStream s0 = this.addBlockingResponse("http://example.com/0");
+
+    final RecordingListener listener = new RecordingListener(3);
+    d.download(URI.create("http://example.com/0"), Option.none(), listener);
+    listener.awaitStarted(1);
+    d.download(URI.create("http://example.com/1"), Option.none(), listener);
+    Assert.assertEquals(1L, (long) d.statistics().queued());
+
+    d.shutDown();
+    Assert.assertEquals(0L, (long) d.statistics().queued());
+    Assert.assertEquals(1L, (long) listener.cancelled.size());
+
+    d.download(URI.create("http://example.com/2"), Option.none(), listener);
+    Assert.assertEquals(1L, (long) listener.failed.size());
+
+    s0.release();
+    listener.awaitFinished();
+    awaitIdle(d);
+
+    Assert.assertEquals(0L, (long) listener.completed.size());
+    Assert.assertEquals(2L, (long) listener.cancelled.size());
+  }
+
+  /**
+   * A download that is interrupted part way through is resumed from where it stopped, using a
+   * range request that is conditional on the entity tag of the original response.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test(timeout = 5_000L)
+  public final void testResumeAfterFailure() throws Exception {
+    final RecordingHTTP recording = new RecordingHTTP(this.http);
+    final DownloaderType d = this.downloader(recording);
+
+    final URI uri = URI.create("http://example.com/book.epub");
+
+    final HashMap<String, List<String>> headers0 = new HashMap<>();
+    headers0.put("ETag", Collections.singletonList("\"abcd\""));
+    this.http.addResponse(
+        uri,
+        new HTTPResultOK<>(
+            "OK", 200, new FailingInputStream(new byte[]{0x0, 0x1, 0x2, 0x3}), 8L, headers0, 0L));
+
+    final HashMap<String, List<String>> headers1 = new HashMap<>();
+    headers1.put("ETag", Collections.singletonList("\"abcd\""));
+    headers1.put("Content-Range", Collections.singletonList("bytes 4-7/8"));
+    this.http.addResponse(
+        uri,
+        new HTTPResultOK<>(
+            "Partial Content",
+            206,
+            new ByteArrayInputStream(new byte[]{0x4, 0x5, 0x6, 0x7}),
+            4L,
+            headers1,
+            0L));
+
+    final RecordingListener listener0 = new RecordingListener(1);
+    d.download(uri, Option.none(), listener0);
+    listener0.awaitFinished();
+    Assert.assertEquals(1L, (long) listener0.failed.size());
+
+    final RecordingListener listener1 = new RecordingListener(1);
+    d.download(uri, Option.none(), listener1);
+    listener1.awaitFinished();
+    Assert.assertEquals(1L, (long) listener1.completed.size());
+
+    Assert.assertEquals(2L, (long) recording.requests.size());
+    Assert.assertEquals("0 none", recording.requests.get(0));
+    Assert.assertEquals("4 \"abcd\"", recording.requests.get(1));
+
+    Assert.assertArrayEquals(
+        new byte[]{0x0, 0x1, 0x2, 0x3, 0x4, 0x5, 0x6, 0x7},
+        FileUtilities.fileReadBytes(listener1.completed.get(0)));
+  }
+
+  /**
+   * A server error while resuming a download may be transient, so the partial data is kept and a
+   * later attempt continues from the saved offset.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test(timeout = 5_000L)
+  public final void testResumeAfterServerError() throws Exception {
+    final RecordingHTTP recording = new RecordingHTTP(this.http);
+    final DownloaderType d = this.downloader(recording);
+
+    final URI uri = URI.create("http://example.com/book.epub");
+
+    final HashMap<String, List<String>> headers0 = new HashMap<>();
+    headers0.put("ETag", Collections.singletonList("\"abcd\""));
+    this.http.addResponse(
+        uri,
+        new HTTPResultOK<>(
+            "OK", 200, new FailingInputStream(new byte[]{0x0, 0x1, 0x2, 0x3}), 8L, headers0, 0L));
+
+    this.http.addResponse(
+        uri,
+        new HTTPResultError<>(
+            503,
+            "Service Unavailable",
+            0L,
+            Collections.emptyMap(),
+            0L,
+            new ByteArrayInputStream(new byte[0]),
+            Option.none()));
+
+    final HashMap<String, List<String>> headers2 = new HashMap<>();
+    headers2.put("ETag", Collections.singletonList("\"abcd\""));
+    headers2.put("Content-Range", Collections.singletonList("bytes 4-7/8"));
+    this.http.addResponse(
+        uri,
+        new HTTPResultOK<>(
+            "Partial Content",
+            206,
+            new ByteArrayInputStream(new byte[]{0x4, 0x5, 0x6, 0x7}),
+            4L,
+            headers2,
+            0L));
+
+    final RecordingListener listener0 = new RecordingListener(1);
+    d.download(uri, Option.none(), listener0);
+    listener0.awaitFinished();
+    Assert.assertEquals(1L, (long) listener0.failed.size());
+
+    final RecordingListener listener1 = new RecordingListener(1);
+    d.download(uri, Option.none(), listener1);
+    listener1.awaitFinished();
+    Assert.assertEquals(1L, (long) listener1.failed.size());
+
+    final RecordingListener listener2 = new RecordingListener(1);
+    d.download(uri, Option.none(), listener2);
+    listener2.awaitFinished();
+    Assert.assertEquals(1L, (long) listener2.completed.size());
+
+    Assert.assertEquals(3L, (long) recording.requests.size());
+    Assert.assertEquals("0 none", recording.requests.get(0));
+    Assert.assertEquals("4 \"abcd\"", recording.requests.get(1));
+    Assert.assertEquals("4 \"abcd\"", recording.requests.get(2));
+
+    Assert.assertArrayEquals(
+        new byte[]{0x0, 0x1, 0x2, 0x3, 0x4, 0x5, 0x6, 0x7},
+        FileUtilities.fileReadBytes(listener2.completed.get(0)));
+  }
+
+  /**
+   * If the remote entity has changed since a download was interrupted, the server sends the entire
+   * entity and the partial data is discarded.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test(timeout = 5_000L)
+  public final void testResumeEntityChanged() throws Exception {
+    final DownloaderType d = this.downloader(this.http);
+
+    final URI uri = URI.create("http://example.com/book.epub");
+
+    final HashMap<String, List<String>> headers0 = new HashMap<>();
+    headers0.put("Last-Modified", Collections.singletonList("Wed, 21 Oct 2015 07:28:00 GMT"));
+    this.http.addResponse(
+        uri,
+        new HTTPResultOK<>(
+            "OK", 200, new FailingInputStream(new byte[]{0x0, 0x1, 0x2, 0x3}), 8L, headers0, 0L));
+
+    final HashMap<String, List<String>> headers1 = new HashMap<>();
+    headers1.put("Last-Modified", Collections.singletonList("Thu, 22 Oct 2015 07:28:00 GMT"));
+    this.http.addResponse(
+        uri,
+        new HTTPResultOK<>(
+            "OK",
+            200,
+            new ByteArrayInputStream(new byte[]{0x7, 0x6, 0x5, 0x4, 0x3}),
+            5L,
+            headers1,
+            0L));
+
+    final RecordingListener listener0 = new RecordingListener(1);
+    d.download(uri, Option.none(), listener0);
+    listener0.awaitFinished();
+    Assert.assertEquals(1L, (long) listener0.failed.size());
+
+    final RecordingListener listener1 = new RecordingListener(1);
+    d.download(uri, Option.none(), listener1);
+    listener1.awaitFinished();
+    Assert.assertEquals(1L, (long) listener1.completed.size());
+
+    Assert.assertArrayEquals(
+        new byte[]{0x7, 0x6, 0x5, 0x4, 0x3},
+        FileUtilities.fileReadBytes(listener1.completed.get(0)));
+  }
+
+  /**
+   * Cancelling a download discards any partial data, so a later download starts from the
+   * beginning.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test(timeout = 5_000L)
+  public final void testCancelDiscardsPartial() throws Exception {
+    final RecordingHTTP recording = new RecordingHTTP(this.http);
+    final DownloaderType d = this.downloader(recording);
+
+    final URI uri = URI.create("http://example.com/book.epub");
+
+    final HashMap<String, List<String>> headers0 = new HashMap<>();
+    headers0.put("ETag", Collections.singletonList("\"abcd\""));
+    final BlockingInputStream stream = new BlockingInputStream(new byte[]{0x0, 0x1, 0x2, 0x3});
+    this.http.addResponse(uri, new HTTPResultOK<>("OK", 200, stream, 4L, headers0, 0L));
+    this.http.addResponse(
+        uri,
+        new HTTPResultOK<>(
+            "OK", 200, new ByteArrayInputStream(new byte[]{0x0, 0x1, 0x2, 0x3}), 4L, headers0, 0L));
+
+    final RecordingListener listener0 = new RecordingListener(1);
+    final DownloadType download = d.download(uri, Option.none(), listener0);
+    listener0.awaitStarted(1);
+    download.cancel();
+    stream.release();
+    listener0.awaitFinished();
+    Assert.assertEquals(1L, (long) listener0.cancelled.size());
+
+    final RecordingListener listener1 = new RecordingListener(1);
+    d.download(uri, Option.none(), listener1);
+    listener1.awaitFinished();
+    Assert.assertEquals(1L, (long) listener1.completed.size());
+    Assert.assertEquals("0 none", recording.requests.get(1));
+  }
+
+  /**
+   * Two downloads of the same URI that are in progress at the same time do not share partial
+   * files, so each completes with exactly the data it received and nothing is left behind.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test(timeout = 5_000L)
+  public final void testConcurrentSameURI() throws Exception {
+    final DownloaderType d = this.downloader(2, 2);
+
+    final URI uri = URI.create("http://example.com/book.epub");
+
+    final HashMap<String, List<String>> headers = new HashMap<>();
+    headers.put("ETag", Collections.singletonList("\"abcd\""));
+    final BlockingInputStream s0 =
+        new BlockingInputStream(new byte[]{0x0, 0x1, 0x2, 0x3, 0x4, 0x5});
+    final BlockingInputStream s1 =
+        new BlockingInputStream(new byte[]{0x6, 0x7, 0x8});
+    this.http.addResponse(uri, new HTTPResultOK<>("OK", 200, s0, 6L, headers, 0L));
+    this.http.addResponse(uri, new HTTPResultOK<>("OK", 200, s1, 3L, headers, 0L));
+
+    final RecordingListener listener0 = new RecordingListener(1);
+    final RecordingListener listener1 = new RecordingListener(1);
+    d.download(uri, Option.none(), listener0);
+    listener0.awaitStarted(1);
+    d.download(uri, Option.none(), listener1);
+    listener1.awaitStarted(1);
+
+    s1.release();
+    listener1.awaitFinished();
+    s0.release();
+    listener0.awaitFinished();
+    awaitIdle(d);
+
+    Assert.assertEquals(1L, (long) listener0.completed.size());
+    Assert.assertEquals(1L, (long) listener1.completed.size());
+    Assert.assertArrayEquals(
+        new byte[]{0x0, 0x1, 0x2, 0x3, 0x4, 0x5},
+        FileUtilities.fileReadBytes(listener0.completed.get(0)));
+    Assert.assertArrayEquals(
+        new byte[]{0x6, 0x7, 0x8},
+        FileUtilities.fileReadBytes(listener1.completed.get(0)));
+
+    final String[] names = this.directory_downloads.list();
+    Assert.assertNotNull(names);
+    for (final String name : names) {
+      Assert.assertFalse(name, name.startsWith("partial-"));
+    }
+  }
+
+  /**
+   * An input stream that yields the given data and then fails as if the connection was lost.
+   */
+
+  private static final class FailingInputStream extends InputStream {
+
+    private final ByteArrayInputStream data;
+
+    FailingInputStream(final byte[] data) {
+      this.data = new ByteArrayInputStream(data);
+    }
+
+    @Override
+    public int read() throws IOException {
+      final int r = this.data.read();
+      if (r == -1) {
+        throw new IOException("Connection reset");
+      }
+      return r;
+    }
+  }
+
+  /**
+   * An HTTP interface that records the offset and validator of each {@code GET} request.
+   */
+
+  private static final class RecordingHTTP implements HTTPType {
+
+    private final HTTPType delegate;
+    private final List<String> requests;
+
+    RecordingHTTP(final HTTPType delegate) {
+      this.delegate = delegate;
+      this.requests = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @Override
+    public HTTPResultType<InputStream> get(
+        final OptionType<HTTPAuthType> auth,
+        final URI uri,
+        final long offset) {
+      return this.get(auth, uri, offset, Option.none());
+    }
+
+    @Override
+    public HTTPResultType<InputStream> get(
+        final OptionType<HTTPAuthType> auth,
+        final URI uri,
+        final long offset,
+        final OptionType<String> if_range) {
+      if (if_range.isSome()) {
+        this.requests.add(offset + " " + ((Some<String>) if_range).get());
+      } else {
+        this.requests.add(offset + " none");
+      }
+      return this.delegate.get(auth, uri, offset, if_range);
+    }
+
+    @Override
+    public HTTPResultType<InputStream> put(
+        final OptionType<HTTPAuthType> auth,
+        final URI uri) {
+      return this.delegate.put(auth, uri);
+    }
+
+    @Override
+    public HTTPResultType<InputStream> post(
+        final OptionType<HTTPAuthType> auth,
+        final URI uri,
+        final byte[] data,
+        final String content_type) {
+      return this.delegate.post(auth, uri, data, content_type);
+    }
+
+    @Override
+    public HTTPResultType<InputStream> delete(
+        final OptionType<HTTPAuthType> auth,
+        final URI uri,
+        final String content_type) {
+      return this.delegate.delete(auth, uri, content_type);
+    }
+
+    @Override
+    public HTTPResultType<InputStream> head(
+        final OptionType<HTTPAuthType> auth,
+        final URI uri) {
+      return this.delegate.head(auth, uri);
+    }
+  }
+
+  private static final class RecordingListener implements DownloadListenerType {
+
+    private final List<File> completed;
+    private final List<DownloadType> failed;
+    private final List<DownloadType> cancelled;
+    private final List<DownloadType> started;
+    private final CountDownLatch finished;
+
+    RecordingListener(final int expected) {
+      this.completed = Collections.synchronizedList(new ArrayList<>());
+      this.failed = Collections.synchronizedList(new ArrayList<>());
+      this.cancelled = Collections.synchronizedList(new ArrayList<>());
+      this.started = Collections.synchronizedList(new ArrayList<>());
+      this.finished = new CountDownLatch(expected);
+    }
+
+    void awaitStarted(final int count) throws InterruptedException {
+      while (this.started.size() < count) {
+        Thread.sleep(10L);
+      }
+    }
+
+    void awaitFinished() throws InterruptedException {
+      Assert.assertTrue(this.finished.await(5L, TimeUnit.SECONDS));
+    }
+
+    @Override
+    public void onDownloadStarted(
+        final DownloadType d,
+        final long expected_total) {
+      this.started.add(d);
+    }
+
+    @Override
+    public void onDownloadDataReceived(
+        final DownloadType d,
+        final long running_total,
+        final long expected_total) {
+
+    }
+
+    @Override
+    public void onDownloadCancelled(final DownloadType d) {
+      this.cancelled.add(d);
+      this.finished.countDown();
+    }
+
+    @Override
+    public void onDownloadFailed(
+        final DownloadType d,
+        final int status,
+        final long running_total,
+        final OptionType<Throwable> exception) {
+      this.failed.add(d);
+      this.finished.countDown();
+    }
+
+    @Override
+    public void onDownloadCompleted(
+        final DownloadType d,
+        final File file) {
+      this.completed.add(file);
+      this.finished.countDown();
+    }
+  }
+}
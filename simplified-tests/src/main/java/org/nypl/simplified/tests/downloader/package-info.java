@@ -0,0 +1,5 @@
+/**
+ * Test contracts for the downloader package.
+ */
+
+package org.nypl.simplified.tests.downloader;
@@ -3,9 +3,11 @@ package org.nypl.simplified.tests.files;
 import org.junit.Assert;
 import org.junit.Test;
 import org.nypl.simplified.files.DirectoryUtilities;
+import org.nypl.simplified.files.FileSyncPolicy;
 import org.nypl.simplified.files.FileUtilities;
 
 import java.io.File;
+import java.io.IOException;
 
 public abstract class FilesContract {
 
@@ -26,4 +28,95 @@ public abstract class FilesContract {
     Assert.assertFalse(file0 + " does not exist", file0.exists());
   }
 
+  @Test
+  public final void testCopy()
+      throws Exception
+  {
+    final File tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File file0 = new File(tmp, "file0.bin");
+    final File file1 = new File(tmp, "file1.bin");
+
+    final byte[] data = new byte[100_000];
+    for (int index = 0; index < data.length; ++index) {
+      data[index] = (byte) index;
+    }
+
+    FileUtilities.fileWriteBytes(data, file0);
+    FileUtilities.fileCopy(file0, file1, FileSyncPolicy.FILE_SYNC_ONCE);
+    Assert.assertTrue(file0 + " is file", file0.isFile());
+    Assert.assertArrayEquals(data, FileUtilities.fileReadBytes(file1));
+  }
+
+  @Test
+  public final void testMoveAtomically()
+      throws Exception
+  {
+    final File tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File file0 = new File(tmp, "file0.txt");
+    final File file1 = new File(tmp, "file1.txt");
+    final File file1_tmp = new File(tmp, "file1.txt.tmp");
+
+    FileUtilities.fileWriteUTF8(file0, "Hello.");
+    FileUtilities.fileWriteUTF8(file1, "Goodbye.");
+    FileUtilities.fileMoveAtomically(file0, file1, file1_tmp, FileSyncPolicy.FILE_SYNC_ONCE);
+
+    Assert.assertFalse(file0 + " does not exist", file0.exists());
+    Assert.assertFalse(file1_tmp + " does not exist", file1_tmp.exists());
+    Assert.assertEquals("Hello.", FileUtilities.fileReadUTF8(file1));
+  }
+
+  /**
+   * If the file cannot be renamed (as happens when the files are on different filesystems), the
+   * data is copied to the temporary file, which is renamed to the target, and the source is
+   * deleted.
+   */
+
+  @Test
+  public final void testMoveAtomicallyCopied()
+      throws Exception
+  {
+    final File tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File file1 = new File(tmp, "file1.bin");
+    final File file1_tmp = new File(tmp, "file1.bin.tmp");
+    final File file0 = new File(tmp, "file0.bin") {
+      @Override
+      public boolean renameTo(final File dest) {
+        return !dest.equals(file1) && super.renameTo(dest);
+      }
+    };
+
+    final byte[] data = new byte[100_000];
+    for (int index = 0; index < data.length; ++index) {
+      data[index] = (byte) index;
+    }
+
+    FileUtilities.fileWriteBytes(data, file0);
+    FileUtilities.fileWriteUTF8(file1, "Goodbye.");
+    FileUtilities.fileMoveAtomically(file0, file1, file1_tmp, FileSyncPolicy.FILE_SYNC_ONCE);
+
+    Assert.assertFalse(file0 + " does not exist", file0.exists());
+    Assert.assertFalse(file1_tmp + " does not exist", file1_tmp.exists());
+    Assert.assertArrayEquals(data, FileUtilities.fileReadBytes(file1));
+
+    final String[] names = tmp.list();
+    Assert.assertNotNull(names);
+    Assert.assertEquals(1L, (long) names.length);
+  }
+
+  @Test
+  public final void testMoveAtomicallyMissing()
+      throws Exception
+  {
+    final File tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File file0 = new File(tmp, "file0.txt");
+    final File file1 = new File(tmp, "file1.txt");
+    final File file1_tmp = new File(tmp, "file1.txt.tmp");
+
+    try {
+      FileUtilities.fileMoveAtomically(file0, file1, file1_tmp, FileSyncPolicy.FILE_SYNC_NONE);
+      Assert.fail();
+    } catch (final IOException e) {
+      Assert.assertFalse(file1 + " does not exist", file1.exists());
+    }
+  }
 }
@@ -0,0 +1,48 @@
+package org.nypl.simplified.tests.http;
+
+import com.io7m.jnull.NullCheck;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * An input stream that blocks on the first read until it is released, and then yields the given
+ * data. This simulates a slow remote server for responses returned by {@link MockingHTTP}.
+ */
+
+public final class BlockingInputStream extends InputStream {
+
+  private final CountDownLatch release;
+  private final ByteArrayInputStream data;
+
+  /**
+   * Construct a stream.
+   *
+   * @param data The data that will be returned once the stream is released
+   */
+
+  public BlockingInputStream(final byte[] data) {
+    this.data = new ByteArrayInputStream(NullCheck.notNull(data, "data"));
+    this.release = new CountDownLatch(1);
+  }
+
+  /**
+   * Allow any blocked and future reads to proceed.
+   */
+
+  public void release() {
+    this.release.countDown();
+  }
+
+  @Override
+  public int read() throws IOException {
+    try {
+      this.release.await();
+    } catch (final InterruptedException e) {
+      throw new IOException(e);
+    }
+    return this.data.read();
+  }
+}
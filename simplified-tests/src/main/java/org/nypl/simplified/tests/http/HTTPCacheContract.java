@@ -0,0 +1,222 @@
+package org.nypl.simplified.tests.http;
+
+import com.io7m.jfunctional.Option;
+import com.io7m.jfunctional.OptionType;
+import com.io7m.jfunctional.Some;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.nypl.simplified.files.DirectoryUtilities;
+import org.nypl.simplified.files.FileUtilities;
+import org.nypl.simplified.http.core.HTTPAuthBasic;
+import org.nypl.simplified.http.core.HTTPAuthType;
+import org.nypl.simplified.http.core.HTTPCache;
+import org.nypl.simplified.http.core.HTTPCacheEntry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public abstract class HTTPCacheContract {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static String readAll(final InputStream stream) throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[3];
+    while (true) {
+      final int r = stream.read(buffer);
+      if (r == -1) {
+        break;
+      }
+      out.write(buffer, 0, r);
+    }
+    stream.close();
+    return new String(out.toByteArray(), UTF8);
+  }
+
+  private static void store(
+      final HTTPCache cache,
+      final String key,
+      final String etag,
+      final String body) throws Exception {
+    final InputStream stream = cache.store(
+        key,
+        URI.create("http://example.com/" + key),
+        Option.some(etag),
+        Option.none(),
+        new ByteArrayInputStream(body.getBytes(UTF8)));
+    Assert.assertEquals(body, readAll(stream));
+  }
+
+  @Test
+  public final void testStoreLookup() throws Exception {
+    final File directory = DirectoryUtilities.directoryCreateTemporary();
+    final HTTPCache cache = HTTPCache.open(directory, 1000L);
+
+    final String key = HTTPCache.key(URI.create("http://example.com/feed"), Option.none());
+    Assert.assertTrue(cache.lookup(key).isNone());
+
+    store(cache, key, "\"abc\"", "Hello, world.");
+
+    final OptionType<HTTPCacheEntry> entry_opt = cache.lookup(key);
+    Assert.assertTrue(entry_opt.isSome());
+    final HTTPCacheEntry entry = ((Some<HTTPCacheEntry>) entry_opt).get();
+    Assert.assertEquals(Option.some("\"abc\""), entry.getETag());
+    Assert.assertTrue(entry.getLastModified().isNone());
+    Assert.assertEquals(13L, entry.getLength());
+    Assert.assertEquals("Hello, world.", FileUtilities.fileReadUTF8(entry.getFile()));
+    Assert.assertEquals(13L, cache.size());
+  }
+
+  @Test
+  public final void testStoreHeaders() throws Exception {
+    final File directory = DirectoryUtilities.directoryCreateTemporary();
+    final HTTPCache cache0 = HTTPCache.open(directory, 1000L);
+
+    final Map<String, List<String>> headers = new LinkedHashMap<>();
+    headers.put(null, Collections.singletonList("HTTP/1.1 200 OK"));
+    headers.put("Content-Type", Collections.singletonList("application/atom+xml"));
+    headers.put("Last-Modified", Collections.singletonList("Wed, 21 Oct 2015 07:28:00 GMT"));
+    headers.put("Link", Arrays.asList("<a>; rel=next", "<b>; rel=prev"));
+    headers.put("Set-Cookie", Collections.singletonList("session=1234"));
+
+    final String key = HTTPCache.key(URI.create("http://example.com/feed"), Option.none());
+    final InputStream stream = cache0.store(
+        key,
+        URI.create("http://example.com/feed"),
+        Option.none(),
+        Option.some("Wed, 21 Oct 2015 07:28:00 GMT"),
+        1445412480000L,
+        headers,
+        new ByteArrayInputStream("Hello, world.".getBytes(UTF8)));
+    Assert.assertEquals("Hello, world.", readAll(stream));
+
+    /*
+     * The headers survive reopening the cache, except for the status line and cookies.
+     */
+
+    final HTTPCache cache1 = HTTPCache.open(directory, 1000L);
+    final HTTPCacheEntry entry = ((Some<HTTPCacheEntry>) cache1.lookup(key)).get();
+    Assert.assertEquals(1445412480000L, entry.getLastModifiedTime());
+
+    final Map<String, List<String>> expected = new LinkedHashMap<>(headers);
+    expected.remove(null);
+    expected.remove("Set-Cookie");
+    Assert.assertEquals(expected, entry.getHeaders());
+  }
+
+  @Test
+  public final void testIncompleteNotStored() throws Exception {
+    final File directory = DirectoryUtilities.directoryCreateTemporary();
+    final HTTPCache cache = HTTPCache.open(directory, 1000L);
+
+    final String key = HTTPCache.key(URI.create("http://example.com/feed"), Option.none());
+    final InputStream stream = cache.store(
+        key,
+        URI.create("http://example.com/feed"),
+        Option.some("\"abc\""),
+        Option.none(),
+        new ByteArrayInputStream("Hello, world.".getBytes(UTF8)));
+
+    Assert.assertEquals('H', stream.read());
+    stream.close();
+
+    Assert.assertTrue(cache.lookup(key).isNone());
+    Assert.assertEquals(0L, cache.size());
+  }
+
+  @Test
+  public final void testNoValidatorsNotStored() throws Exception {
+    final File directory = DirectoryUtilities.directoryCreateTemporary();
+    final HTTPCache cache = HTTPCache.open(directory, 1000L);
+
+    final String key = HTTPCache.key(URI.create("http://example.com/feed"), Option.none());
+    final InputStream stream = cache.store(
+        key,
+        URI.create("http://example.com/feed"),
+        Option.none(),
+        Option.none(),
+        new ByteArrayInputStream("Hello, world.".getBytes(UTF8)));
+
+    Assert.assertEquals("Hello, world.", readAll(stream));
+    Assert.assertTrue(cache.lookup(key).isNone());
+  }
+
+  @Test
+  public final void testKeyIncludesCredentials() throws Exception {
+    final URI uri = URI.create("http://example.com/loans");
+    final OptionType<HTTPAuthType> auth_a = Option.some(HTTPAuthBasic.create("a", "1234"));
+    final OptionType<HTTPAuthType> auth_b = Option.some(HTTPAuthBasic.create("b", "1234"));
+
+    Assert.assertEquals(HTTPCache.key(uri, auth_a), HTTPCache.key(uri, auth_a));
+    Assert.assertNotEquals(HTTPCache.key(uri, auth_a), HTTPCache.key(uri, auth_b));
+    Assert.assertNotEquals(HTTPCache.key(uri, auth_a), HTTPCache.key(uri, Option.none()));
+  }
+
+  @Test
+  public final void testEvictLeastRecentlyUsed() throws Exception {
+    final File directory = DirectoryUtilities.directoryCreateTemporary();
+    final HTTPCache cache = HTTPCache.open(directory, 30L);
+
+    store(cache, "a", "\"a\"", "0123456789");
+    store(cache, "b", "\"b\"", "0123456789");
+    store(cache, "c", "\"c\"", "0123456789");
+    Assert.assertEquals(30L, cache.size());
+
+    /*
+     * Using "a" makes "b" the least recently used entry.
+     */
+
+    Assert.assertTrue(cache.lookup("a").isSome());
+    store(cache, "d", "\"d\"", "0123456789");
+
+    Assert.assertEquals(30L, cache.size());
+    Assert.assertTrue(cache.lookup("a").isSome());
+    Assert.assertTrue(cache.lookup("b").isNone());
+    Assert.assertTrue(cache.lookup("c").isSome());
+    Assert.assertTrue(cache.lookup("d").isSome());
+  }
+
+  @Test
+  public final void testReplace() throws Exception {
+    final File directory = DirectoryUtilities.directoryCreateTemporary();
+    final HTTPCache cache = HTTPCache.open(directory, 1000L);
+
+    store(cache, "a", "\"1\"", "0123456789");
+    store(cache, "a", "\"2\"", "01234");
+
+    final HTTPCacheEntry entry = ((Some<HTTPCacheEntry>) cache.lookup("a")).get();
+    Assert.assertEquals(Option.some("\"2\""), entry.getETag());
+    Assert.assertEquals(5L, cache.size());
+  }
+
+  @Test
+  public final void testReopen() throws Exception {
+    final File directory = DirectoryUtilities.directoryCreateTemporary();
+    final HTTPCache cache0 = HTTPCache.open(directory, 1000L);
+
+    store(cache0, "a", "\"a\"", "0123456789");
+    store(cache0, "b", "\"b\"", "01234");
+
+    final HTTPCache cache1 = HTTPCache.open(directory, 1000L);
+    Assert.assertEquals(15L, cache1.size());
+    Assert.assertTrue(cache1.lookup("a").isSome());
+    Assert.assertTrue(cache1.lookup("b").isSome());
+
+    /*
+     * Reopening with a smaller maximum size evicts entries.
+     */
+
+    final HTTPCache cache2 = HTTPCache.open(directory, 10L);
+    Assert.assertTrue(cache2.size() <= 10L);
+  }
+}
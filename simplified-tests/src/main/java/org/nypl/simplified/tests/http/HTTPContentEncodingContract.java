@@ -0,0 +1,157 @@
+package org.nypl.simplified.tests.http;
+
+import com.io7m.jfunctional.Option;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.nypl.simplified.http.core.HTTP;
+import org.nypl.simplified.http.core.HTTPResultOKType;
+import org.nypl.simplified.http.core.HTTPResultType;
+import org.nypl.simplified.http.core.HTTPType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+public abstract class HTTPContentEncodingContract {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final String FEED;
+
+  static {
+    final StringBuilder sb = new StringBuilder(8192);
+    sb.append("<feed xmlns=\"http://www.w3.org/2005/Atom\">");
+    for (int index = 0; index < 100; ++index) {
+      sb.append("<entry><id>").append(index).append("</id><title>Title</title></entry>");
+    }
+    sb.append("</feed>");
+    FEED = sb.toString();
+  }
+
+  private static byte[] gzip(final byte[] data) throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+      gz.write(data);
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] deflate(final byte[] data, final boolean raw) throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, raw);
+    try (DeflaterOutputStream df = new DeflaterOutputStream(out, deflater)) {
+      df.write(data);
+    } finally {
+      deflater.end();
+    }
+    return out.toByteArray();
+  }
+
+  private static String readAll(final InputStream stream) throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[1024];
+    while (true) {
+      final int r = stream.read(buffer);
+      if (r == -1) {
+        break;
+      }
+      out.write(buffer, 0, r);
+    }
+    stream.close();
+    return new String(out.toByteArray(), UTF8);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static HTTPResultOKType<InputStream> ok(final HTTPResultType<InputStream> r) {
+    Assert.assertTrue(r.toString(), r instanceof HTTPResultOKType);
+    return (HTTPResultOKType<InputStream>) r;
+  }
+
+  private static void checkEncoded(
+      final String encoding,
+      final byte[] encoded) throws Exception {
+    try (LocalHTTPServer server = LocalHTTPServer.start()) {
+      final Map<String, String> headers = Collections.singletonMap("Content-Encoding", encoding);
+      server.setResponse(200, headers, encoded);
+
+      final HTTPType http = HTTP.newHTTP();
+      final HTTPResultOKType<InputStream> r = ok(http.get(Option.none(), server.uri("/feed"), 0L));
+
+      Assert.assertEquals("gzip, deflate", server.requestHeaders().get("accept-encoding"));
+      Assert.assertEquals(-1L, r.getContentLength());
+      Assert.assertEquals((long) encoded.length, r.getWireContentLength());
+      Assert.assertEquals(FEED, readAll(r.getValue()));
+    }
+  }
+
+  @Test
+  public final void testGzip() throws Exception {
+    checkEncoded("gzip", gzip(FEED.getBytes(UTF8)));
+  }
+
+  @Test
+  public final void testDeflateZlib() throws Exception {
+    checkEncoded("deflate", deflate(FEED.getBytes(UTF8), false));
+  }
+
+  @Test
+  public final void testDeflateRaw() throws Exception {
+    checkEncoded("deflate", deflate(FEED.getBytes(UTF8), true));
+  }
+
+  @Test
+  public final void testIdentity() throws Exception {
+    try (LocalHTTPServer server = LocalHTTPServer.start()) {
+      final byte[] data = FEED.getBytes(UTF8);
+      server.setResponse(200, Collections.emptyMap(), data);
+
+      final HTTPType http = HTTP.newHTTP();
+      final HTTPResultOKType<InputStream> r = ok(http.get(Option.none(), server.uri("/feed"), 0L));
+
+      Assert.assertEquals((long) data.length, r.getContentLength());
+      Assert.assertEquals((long) data.length, r.getWireContentLength());
+      Assert.assertEquals(FEED, readAll(r.getValue()));
+    }
+  }
+
+  @Test
+  public final void testRangesUseIdentity() throws Exception {
+    try (LocalHTTPServer server = LocalHTTPServer.start()) {
+      server.setResponse(206, Collections.emptyMap(), "data".getBytes(UTF8));
+
+      final HTTPType http = HTTP.newHTTP();
+      ok(http.get(Option.none(), server.uri("/book"), 10L));
+      Assert.assertEquals("identity", server.requestHeaders().get("accept-encoding"));
+      Assert.assertEquals("bytes=10-", server.requestHeaders().get("range"));
+    }
+  }
+
+  @Test
+  public final void testResumableRequestsUseIdentity() throws Exception {
+    try (LocalHTTPServer server = LocalHTTPServer.start()) {
+      server.setResponse(200, Collections.emptyMap(), "data".getBytes(UTF8));
+
+      final HTTPType http = HTTP.newHTTP();
+      ok(http.get(Option.none(), server.uri("/book"), 0L, Option.none()));
+      Assert.assertEquals("identity", server.requestHeaders().get("accept-encoding"));
+    }
+  }
+
+  @Test
+  public final void testUnsupportedEncoding() throws Exception {
+    try (LocalHTTPServer server = LocalHTTPServer.start()) {
+      server.setResponse(
+          200, Collections.singletonMap("Content-Encoding", "br"), "data".getBytes(UTF8));
+
+      final HTTPType http = HTTP.newHTTP();
+      final HTTPResultType<InputStream> r = http.get(Option.none(), server.uri("/feed"), 0L);
+      Assert.assertFalse(r instanceof HTTPResultOKType);
+    }
+  }
+}
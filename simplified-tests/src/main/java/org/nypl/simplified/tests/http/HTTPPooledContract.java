@@ -0,0 +1,217 @@
+package org.nypl.simplified.tests.http;
+
+import com.io7m.jfunctional.Option;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.nypl.simplified.files.DirectoryUtilities;
+import org.nypl.simplified.http.core.HTTPCache;
+import org.nypl.simplified.http.core.HTTPPoolConfiguration;
+import org.nypl.simplified.http.core.HTTPPooled;
+import org.nypl.simplified.http.core.HTTPResultException;
+import org.nypl.simplified.http.core.HTTPResultOKType;
+import org.nypl.simplified.http.core.HTTPResultType;
+
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public abstract class HTTPPooledContract {
+
+  private static final byte[] BODY = new byte[10000];
+
+  @SuppressWarnings("unchecked")
+  private static HTTPResultOKType<InputStream> ok(final HTTPResultType<InputStream> r) {
+    Assert.assertTrue(r.toString(), r instanceof HTTPResultOKType);
+    return (HTTPResultOKType<InputStream>) r;
+  }
+
+  private static int readAll(final InputStream stream) throws Exception {
+    final byte[] buffer = new byte[1024];
+    int total = 0;
+    while (true) {
+      final int r = stream.read(buffer);
+      if (r == -1) {
+        break;
+      }
+      total += r;
+    }
+    stream.close();
+    return total;
+  }
+
+  private static Exception error(final HTTPResultType<InputStream> r) {
+    Assert.assertTrue(r.toString(), r instanceof HTTPResultException);
+    return ((HTTPResultException<InputStream>) r).getError();
+  }
+
+  @Test
+  public final void testConnectionReused() throws Exception {
+    try (LocalHTTPServer server = LocalHTTPServer.startKeepAlive()) {
+      server.setResponse(200, Collections.emptyMap(), BODY);
+
+      final HTTPPooled http = HTTPPooled.newHTTP(HTTPPoolConfiguration.builder().build());
+      for (int index = 0; index < 5; ++index) {
+        final InputStream stream = ok(http.get(Option.none(), server.uri("/x"), 0L)).getValue();
+        Assert.assertEquals(BODY.length, readAll(stream));
+      }
+
+      Assert.assertEquals(1, server.connections());
+      Assert.assertEquals(5L, http.requests());
+      Assert.assertEquals(4L, http.connectionsReused());
+      Assert.assertEquals(0L, http.connectionWaits());
+    }
+  }
+
+  @Test
+  public final void testUnreadBodyDrained() throws Exception {
+    try (LocalHTTPServer server = LocalHTTPServer.startKeepAlive()) {
+      server.setResponse(200, Collections.emptyMap(), BODY);
+
+      final HTTPPooled http = HTTPPooled.newHTTP(HTTPPoolConfiguration.builder().build());
+      for (int index = 0; index < 3; ++index) {
+        final InputStream stream = ok(http.get(Option.none(), server.uri("/x"), 0L)).getValue();
+        Assert.assertNotEquals(-1, stream.read(new byte[10]));
+        stream.close();
+      }
+
+      Assert.assertEquals(1, server.connections());
+    }
+  }
+
+  @Test
+  public final void testPerHostLimit() throws Exception {
+    try (LocalHTTPServer server = LocalHTTPServer.startKeepAlive()) {
+      server.setResponse(200, Collections.emptyMap(), BODY);
+      server.setResponseDelay(200L);
+
+      final HTTPPooled http = HTTPPooled.newHTTP(
+          HTTPPoolConfiguration.builder()
+              .setMaximumConnectionsPerHost(2)
+              .build());
+
+      final ExecutorService exec = Executors.newFixedThreadPool(6);
+      try {
+        final URI uri = server.uri("/x");
+        final List<Future<Integer>> results = new ArrayList<>();
+        for (int index = 0; index < 6; ++index) {
+          results.add(exec.submit(
+              () -> readAll(ok(http.get(Option.none(), uri, 0L)).getValue())));
+        }
+        for (final Future<Integer> result : results) {
+          Assert.assertEquals(BODY.length, result.get(10L, TimeUnit.SECONDS).intValue());
+        }
+      } finally {
+        exec.shutdown();
+      }
+
+      Assert.assertTrue(
+          "At most two concurrent requests",
+          server.maximumConcurrentRequests() <= 2);
+      Assert.assertTrue(
+          "Some requests waited",
+          http.connectionWaits() > 0L);
+      Assert.assertEquals(0L, http.connectionTimeouts());
+    }
+  }
+
+  @Test
+  public final void testPerHostLimitSharedWithCache() throws Exception {
+    try (LocalHTTPServer server = LocalHTTPServer.startKeepAlive()) {
+      server.setResponse(200, Collections.emptyMap(), BODY);
+      server.setResponseDelay(200L);
+
+      final HTTPPooled http = HTTPPooled.newHTTP(
+          HTTPPoolConfiguration.builder()
+              .setMaximumConnectionsPerHost(2)
+              .build());
+      final HTTPPooled cached =
+          http.withCache(HTTPCache.open(DirectoryUtilities.directoryCreateTemporary(), 100000L));
+
+      final ExecutorService exec = Executors.newFixedThreadPool(6);
+      try {
+        final List<Future<Integer>> results = new ArrayList<>();
+        for (int index = 0; index < 6; ++index) {
+          final URI uri = server.uri("/x" + index);
+          final HTTPPooled target = index % 2 == 0 ? http : cached;
+          results.add(exec.submit(
+              () -> readAll(ok(target.get(Option.none(), uri, 0L)).getValue())));
+        }
+        for (final Future<Integer> result : results) {
+          Assert.assertEquals(BODY.length, result.get(10L, TimeUnit.SECONDS).intValue());
+        }
+      } finally {
+        exec.shutdown();
+      }
+
+      Assert.assertTrue(
+          "At most two concurrent requests",
+          server.maximumConcurrentRequests() <= 2);
+      Assert.assertEquals(6L, http.requests());
+      Assert.assertEquals(6L, cached.requests());
+    }
+  }
+
+  @Test
+  public final void testReadTimeout() throws Exception {
+    try (LocalHTTPServer server = LocalHTTPServer.startKeepAlive()) {
+      server.setResponse(200, Collections.emptyMap(), BODY);
+      server.setResponseDelay(2000L);
+
+      final HTTPPooled http = HTTPPooled.newHTTP(
+          HTTPPoolConfiguration.builder()
+              .setReadTimeoutMilliseconds(100)
+              .setMaximumConnectionsPerHost(1)
+              .build());
+
+      final Exception e = error(http.get(Option.none(), server.uri("/x"), 0L));
+      Assert.assertTrue(e.toString(), e instanceof SocketTimeoutException);
+
+      /*
+       * The failed request no longer counts against the limit.
+       */
+
+      server.setResponseDelay(0L);
+      final InputStream stream = ok(http.get(Option.none(), server.uri("/x"), 0L)).getValue();
+      Assert.assertEquals(BODY.length, readAll(stream));
+    }
+  }
+
+  @Test
+  public final void testWaitTimeout() throws Exception {
+    try (LocalHTTPServer server = LocalHTTPServer.startKeepAlive()) {
+      server.setResponse(200, Collections.emptyMap(), BODY);
+
+      final HTTPPooled http = HTTPPooled.newHTTP(
+          HTTPPoolConfiguration.builder()
+              .setConnectTimeoutMilliseconds(200)
+              .setMaximumConnectionsPerHost(1)
+              .build());
+
+      final InputStream held = ok(http.get(Option.none(), server.uri("/x"), 0L)).getValue();
+
+      final Exception e = error(http.get(Option.none(), server.uri("/y"), 0L));
+      Assert.assertTrue(e.toString(), e instanceof SocketTimeoutException);
+      Assert.assertEquals(1L, http.connectionWaits());
+      Assert.assertEquals(1L, http.connectionTimeouts());
+
+      held.close();
+      final InputStream stream = ok(http.get(Option.none(), server.uri("/z"), 0L)).getValue();
+      Assert.assertEquals(BODY.length, readAll(stream));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public final void testConfigurationInvalid() {
+    HTTPPoolConfiguration.builder()
+        .setMaximumConnectionsPerHost(0)
+        .build();
+  }
+}
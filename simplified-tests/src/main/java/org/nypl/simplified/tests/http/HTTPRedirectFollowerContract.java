@@ -0,0 +1,163 @@
+package org.nypl.simplified.tests.http;
+
+import com.io7m.jfunctional.Option;
+import com.io7m.jfunctional.OptionType;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.nypl.simplified.http.core.HTTPAuthBasic;
+import org.nypl.simplified.http.core.HTTPAuthOrigins;
+import org.nypl.simplified.http.core.HTTPAuthType;
+import org.nypl.simplified.http.core.HTTPRedirectFollower;
+import org.nypl.simplified.http.core.HTTPResultError;
+import org.nypl.simplified.http.core.HTTPResultOK;
+import org.nypl.simplified.http.core.HTTPResultOKType;
+import org.nypl.simplified.http.core.HTTPResultType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public abstract class HTTPRedirectFollowerContract {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HTTPRedirectFollowerContract.class);
+
+  private static final OptionType<HTTPAuthType> AUTH =
+      Option.some(HTTPAuthBasic.create("user", "password"));
+
+  private static HTTPResultType<InputStream> ok() {
+    return new HTTPResultOK<>(
+        "OK", 200, new ByteArrayInputStream(new byte[0]), 0L, Collections.emptyMap(), 0L);
+  }
+
+  private static HTTPResultType<InputStream> redirect(final String location) {
+    final Map<String, List<String>> headers =
+        Collections.singletonMap("Location", Collections.singletonList(location));
+    return new HTTPResultOK<>(
+        "Found", 302, new ByteArrayInputStream(new byte[0]), 0L, headers, 0L);
+  }
+
+  private static HTTPResultType<InputStream> unauthorized() {
+    return new HTTPResultError<>(
+        401,
+        "Unauthorized",
+        0L,
+        Collections.emptyMap(),
+        0L,
+        new ByteArrayInputStream(new byte[0]),
+        Option.none());
+  }
+
+  private static HTTPResultType<InputStream> follow(
+      final MockingHTTP http,
+      final HTTPAuthOrigins origins,
+      final OptionType<HTTPAuthType> auth,
+      final String uri) {
+    return new HTTPRedirectFollower(
+        LOG, http, "GET", auth, 5, URI.create(uri), 0L, origins).run();
+  }
+
+  @Test
+  public final void testChallengedOriginReceivesCredentials() {
+    final MockingHTTP http = new MockingHTTP();
+    final HTTPAuthOrigins origins = HTTPAuthOrigins.create();
+
+    http.addResponse("http://example.com/a", unauthorized());
+    http.addResponse("http://example.com/a", ok());
+    http.addResponse("http://example.com/b", ok());
+
+    Assert.assertTrue(
+        follow(http, origins, AUTH, "http://example.com/a") instanceof HTTPResultOKType);
+    Assert.assertEquals(2, http.requestAuthentications().size());
+    Assert.assertTrue(http.requestAuthentications().get(0).isNone());
+    Assert.assertEquals(AUTH, http.requestAuthentications().get(1));
+    Assert.assertEquals(1L, origins.challenges());
+    Assert.assertEquals(0L, origins.preemptiveRequests());
+
+    Assert.assertTrue(
+        follow(http, origins, AUTH, "http://example.com/b") instanceof HTTPResultOKType);
+    Assert.assertEquals(3, http.requestAuthentications().size());
+    Assert.assertEquals(AUTH, http.requestAuthentications().get(2));
+    Assert.assertEquals(1L, origins.challenges());
+    Assert.assertEquals(1L, origins.preemptiveRequests());
+    Assert.assertEquals(1L, origins.challengesAvoided());
+  }
+
+  @Test
+  public final void testRedirectWithinOriginKeepsCredentials() {
+    final MockingHTTP http = new MockingHTTP();
+    final HTTPAuthOrigins origins = HTTPAuthOrigins.create();
+    origins.challenged(URI.create("https://example.com/"));
+
+    http.addResponse("https://example.com:443/a", redirect("https://example.com/b"));
+    http.addResponse("https://example.com/b", ok());
+
+    Assert.assertTrue(
+        follow(http, origins, AUTH, "https://example.com:443/a") instanceof HTTPResultOKType);
+    Assert.assertEquals(2, http.requestAuthentications().size());
+    Assert.assertEquals(AUTH, http.requestAuthentications().get(0));
+    Assert.assertEquals(AUTH, http.requestAuthentications().get(1));
+    Assert.assertEquals(2L, origins.challengesAvoided());
+  }
+
+  @Test
+  public final void testRedirectToOtherOriginDropsCredentials() {
+    final MockingHTTP http = new MockingHTTP();
+    final HTTPAuthOrigins origins = HTTPAuthOrigins.create();
+    origins.challenged(URI.create("http://example.com/"));
+
+    http.addResponse("http://example.com/a", redirect("http://cdn.example.com/a"));
+    http.addResponse("http://cdn.example.com/a", ok());
+
+    Assert.assertTrue(
+        follow(http, origins, AUTH, "http://example.com/a") instanceof HTTPResultOKType);
+    Assert.assertEquals(AUTH, http.requestAuthentications().get(0));
+    Assert.assertTrue(http.requestAuthentications().get(1).isNone());
+    Assert.assertEquals(1L, origins.preemptiveRequests());
+  }
+
+  @Test
+  public final void testRejectedPreemptiveCredentialsNotRetried() {
+    final MockingHTTP http = new MockingHTTP();
+    final HTTPAuthOrigins origins = HTTPAuthOrigins.create();
+    origins.challenged(URI.create("http://example.com/"));
+
+    http.addResponse("http://example.com/a", unauthorized());
+
+    final HTTPResultType<InputStream> r = follow(http, origins, AUTH, "http://example.com/a");
+    Assert.assertTrue(r instanceof HTTPResultError);
+    Assert.assertEquals(1, http.requestAuthentications().size());
+    Assert.assertEquals(1L, origins.preemptiveRequests());
+    Assert.assertEquals(0L, origins.challengesAvoided());
+  }
+
+  @Test
+  public final void testNoCredentialsNothingSent() {
+    final MockingHTTP http = new MockingHTTP();
+    final HTTPAuthOrigins origins = HTTPAuthOrigins.create();
+    origins.challenged(URI.create("http://example.com/"));
+
+    http.addResponse("http://example.com/a", ok());
+
+    Assert.assertTrue(
+        follow(http, origins, Option.none(), "http://example.com/a") instanceof HTTPResultOKType);
+    Assert.assertTrue(http.requestAuthentications().get(0).isNone());
+    Assert.assertEquals(0L, origins.preemptiveRequests());
+  }
+
+  @Test
+  public final void testOrigin() {
+    Assert.assertEquals(
+        "http://example.com:80", HTTPAuthOrigins.origin(URI.create("HTTP://Example.COM/x")));
+    Assert.assertEquals(
+        "https://example.com:443", HTTPAuthOrigins.origin(URI.create("https://example.com")));
+    Assert.assertEquals(
+        "https://example.com:8443",
+        HTTPAuthOrigins.origin(URI.create("https://example.com:8443/")));
+  }
+}
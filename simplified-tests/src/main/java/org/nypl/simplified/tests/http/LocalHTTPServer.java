@@ -0,0 +1,234 @@
+package org.nypl.simplified.tests.http;
+
+import com.io7m.jnull.NullCheck;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A minimal HTTP server on the loopback interface that answers every request with the same
+ * canned response, and records the headers of the most recent request. By default, connections
+ * are closed after each response; a server started with {@link #startKeepAlive()} instead serves
+ * each connection on its own thread until the client closes it.
+ */
+
+public final class LocalHTTPServer implements Closeable {
+
+  private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+  private final ServerSocket socket;
+  private final Thread thread;
+  private final boolean keep_alive;
+  private final AtomicInteger connections;
+  private final AtomicInteger active;
+  private final AtomicInteger active_max;
+  private volatile int status;
+  private volatile Map<String, String> headers;
+  private volatile byte[] body;
+  private volatile long delay_ms;
+  private volatile Map<String, String> request_headers;
+
+  private LocalHTTPServer(
+      final ServerSocket socket,
+      final boolean keep_alive) {
+    this.socket = NullCheck.notNull(socket, "socket");
+    this.keep_alive = keep_alive;
+    this.connections = new AtomicInteger(0);
+    this.active = new AtomicInteger(0);
+    this.active_max = new AtomicInteger(0);
+    this.status = 200;
+    this.headers = Collections.emptyMap();
+    this.body = new byte[0];
+    this.delay_ms = 0L;
+    this.request_headers = Collections.emptyMap();
+    this.thread = new Thread(this::serve, "local-http-server");
+    this.thread.setDaemon(true);
+  }
+
+  /**
+   * @return A new server listening on an unused port
+   * @throws IOException On I/O errors
+   */
+
+  public static LocalHTTPServer start() throws IOException {
+    final LocalHTTPServer server =
+        new LocalHTTPServer(new ServerSocket(0, 8, InetAddress.getByName("127.0.0.1")), false);
+    server.thread.start();
+    return server;
+  }
+
+  /**
+   * @return A new server listening on an unused port, that keeps connections open between
+   * requests
+   * @throws IOException On I/O errors
+   */
+
+  public static LocalHTTPServer startKeepAlive() throws IOException {
+    final LocalHTTPServer server =
+        new LocalHTTPServer(new ServerSocket(0, 8, InetAddress.getByName("127.0.0.1")), true);
+    server.thread.start();
+    return server;
+  }
+
+  /**
+   * @param path A path, starting with {@code /}
+   * @return A URI for the given path on this server
+   */
+
+  public URI uri(final String path) {
+    return URI.create("http://127.0.0.1:" + this.socket.getLocalPort() + path);
+  }
+
+  /**
+   * Set the response to subsequent requests. A {@code Content-Length} header is added
+   * automatically.
+   *
+   * @param status  The status code
+   * @param headers The response headers
+   * @param body    The response body, exactly as it will be sent
+   */
+
+  public void setResponse(
+      final int status,
+      final Map<String, String> headers,
+      final byte[] body) {
+    this.headers = NullCheck.notNull(headers, "headers");
+    this.body = NullCheck.notNull(body, "body");
+    this.status = status;
+  }
+
+  /**
+   * Delay each response by the given time.
+   *
+   * @param delay_ms The delay in milliseconds
+   */
+
+  public void setResponseDelay(final long delay_ms) {
+    this.delay_ms = delay_ms;
+  }
+
+  /**
+   * @return The headers of the most recent request, with lower case names
+   */
+
+  public Map<String, String> requestHeaders() {
+    return this.request_headers;
+  }
+
+  /**
+   * @return The number of connections accepted
+   */
+
+  public int connections() {
+    return this.connections.get();
+  }
+
+  /**
+   * @return The largest number of requests that were being answered at the same time
+   */
+
+  public int maximumConcurrentRequests() {
+    return this.active_max.get();
+  }
+
+  private void serve() {
+    while (!this.socket.isClosed()) {
+      try {
+        final Socket client = this.socket.accept();
+        this.connections.incrementAndGet();
+        if (this.keep_alive) {
+          final Thread t = new Thread(() -> this.serveClient(client), "local-http-client");
+          t.setDaemon(true);
+          t.start();
+        } else {
+          this.serveClient(client);
+        }
+      } catch (final IOException e) {
+        if (this.socket.isClosed()) {
+          return;
+        }
+      }
+    }
+  }
+
+  private void serveClient(final Socket client) {
+    try (Socket c = client) {
+      final BufferedReader reader =
+          new BufferedReader(new InputStreamReader(c.getInputStream(), US_ASCII));
+      final OutputStream out = c.getOutputStream();
+
+      do {
+        if (reader.readLine() == null) {
+          return;
+        }
+
+        final Map<String, String> received = new HashMap<>();
+        while (true) {
+          final String line = reader.readLine();
+          if (line == null || line.isEmpty()) {
+            break;
+          }
+          final int colon = line.indexOf(':');
+          if (colon > 0) {
+            received.put(
+                line.substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                line.substring(colon + 1).trim());
+          }
+        }
+        this.request_headers = received;
+
+        /*
+         * A request counts as being answered until its response starts to be sent, so that a
+         * client that has read a response cannot be counted as having a concurrent request.
+         */
+
+        final int now_active = this.active.incrementAndGet();
+        this.active_max.accumulateAndGet(now_active, Math::max);
+        try {
+          final long delay = this.delay_ms;
+          if (delay > 0L) {
+            Thread.sleep(delay);
+          }
+        } finally {
+          this.active.decrementAndGet();
+        }
+
+        final byte[] data = this.body;
+        final StringBuilder sb = new StringBuilder(128);
+        sb.append("HTTP/1.1 ").append(this.status).append(" Status\r\n");
+        for (final Map.Entry<String, String> e : this.headers.entrySet()) {
+          sb.append(e.getKey()).append(": ").append(e.getValue()).append("\r\n");
+        }
+        sb.append("Content-Length: ").append(data.length).append("\r\n");
+        if (!this.keep_alive) {
+          sb.append("Connection: close\r\n");
+        }
+        sb.append("\r\n");
+
+        out.write(sb.toString().getBytes(US_ASCII));
+        out.write(data);
+        out.flush();
+      } while (this.keep_alive);
+    } catch (final IOException | InterruptedException e) {
+      /* The client went away. */
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.socket.close();
+  }
+}
@@ -24,9 +24,33 @@ public final class MockingHTTP implements HTTPType {
 
   private static final Logger LOG = LoggerFactory.getLogger(MockingHTTP.class);
   private final HashMap<URI, List<HTTPResultType<InputStream>>> responses;
+  private final List<OptionType<HTTPAuthType>> auths;
+  private final List<byte[]> bodies;
 
   public MockingHTTP() {
     this.responses = new HashMap<>();
+    this.auths = new ArrayList<>();
+    this.bodies = new ArrayList<>();
+  }
+
+  /**
+   * @return The authentication information given with each request made so far, in order
+   */
+
+  public List<OptionType<HTTPAuthType>> requestAuthentications() {
+    synchronized (this.responses) {
+      return new ArrayList<>(this.auths);
+    }
+  }
+
+  /**
+   * @return The data given with each {@code POST} request made so far, in order
+   */
+
+  public List<byte[]> requestBodies() {
+    synchronized (this.responses) {
+      return new ArrayList<>(this.bodies);
+    }
   }
 
   /**
@@ -76,11 +100,25 @@ public final class MockingHTTP implements HTTPType {
       final long offset) {
 
     LOG.debug("get: {} {} {}", auth, uri, offset);
-    return response(uri);
+    return response(auth, uri);
+  }
+
+  @Override
+  public HTTPResultType<InputStream> get(
+      final OptionType<HTTPAuthType> auth,
+      final URI uri,
+      final long offset,
+      final OptionType<String> if_range) {
+
+    LOG.debug("get: {} {} {} {}", auth, uri, offset, if_range);
+    return response(auth, uri);
   }
 
-  private HTTPResultType<InputStream> response(final URI uri) {
+  private HTTPResultType<InputStream> response(
+      final OptionType<HTTPAuthType> auth,
+      final URI uri) {
     synchronized (this.responses) {
+      this.auths.add(auth);
       final List<HTTPResultType<InputStream>> xs = this.responses.get(uri);
       if (xs != null && !xs.isEmpty()) {
         return xs.remove(0);
@@ -95,7 +133,7 @@ public final class MockingHTTP implements HTTPType {
       final URI uri) {
 
     LOG.debug("put: {} {}", auth, uri);
-    return response(uri);
+    return response(auth, uri);
   }
 
   @Override
@@ -106,7 +144,10 @@ public final class MockingHTTP implements HTTPType {
       final String content_type) {
 
     LOG.debug("post: {} {} {} {}", auth, uri, data, content_type);
-    return response(uri);
+    synchronized (this.responses) {
+      this.bodies.add(data);
+    }
+    return response(auth, uri);
   }
 
   @Override
@@ -116,7 +157,7 @@ public final class MockingHTTP implements HTTPType {
       final String content_type) {
 
     LOG.debug("delete: {} {} {}", auth, uri, content_type);
-    return response(uri);
+    return response(auth, uri);
   }
 
   @Override
@@ -125,6 +166,6 @@ public final class MockingHTTP implements HTTPType {
       final URI uri) {
 
     LOG.debug("head: {} {}", auth, uri);
-    return response(uri);
+    return response(auth, uri);
   }
 }
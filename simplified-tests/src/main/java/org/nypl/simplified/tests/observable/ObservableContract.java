@@ -11,7 +11,14 @@ import org.nypl.simplified.observable.ObservableType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -73,4 +80,130 @@ public abstract class ObservableContract {
       Assert.assertTrue("Values must contain " + index, values.contains(index));
     }
   }
+
+  @Test
+  public final void testSubscribeExecutorOrdered() throws Exception {
+
+    final ObservableType<Integer> o = Observable.create();
+    final ExecutorService exec = Executors.newFixedThreadPool(4);
+    try {
+      final List<Integer> values = Collections.synchronizedList(new ArrayList<>());
+      final AtomicInteger running = new AtomicInteger();
+      final AtomicInteger overlaps = new AtomicInteger();
+
+      o.subscribe(x -> {
+        if (running.incrementAndGet() > 1) {
+          overlaps.incrementAndGet();
+        }
+        values.add(x);
+        running.decrementAndGet();
+      }, exec);
+
+      for (int index = 0; index < 1000; ++index) {
+        o.send(index);
+      }
+
+      exec.shutdown();
+      Assert.assertTrue(exec.awaitTermination(10L, TimeUnit.SECONDS));
+
+      Assert.assertEquals(0, overlaps.get());
+      Assert.assertEquals(1000, values.size());
+      for (int index = 0; index < 1000; ++index) {
+        Assert.assertEquals(Integer.valueOf(index), values.get(index));
+      }
+    } finally {
+      exec.shutdownNow();
+    }
+  }
+
+  @Test
+  public final void testSubscribeExecutorUnsubscribe() throws Exception {
+
+    final ObservableType<Integer> o = Observable.create();
+    final ExecutorService exec = Executors.newSingleThreadExecutor();
+    try {
+      final CountDownLatch blocked = new CountDownLatch(1);
+      exec.execute(() -> {
+        try {
+          blocked.await();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+
+      final AtomicInteger calls = new AtomicInteger();
+      final ObservableSubscriptionType<Integer> s = o.subscribe(x -> calls.incrementAndGet(), exec);
+      Assert.assertEquals(1, o.count());
+
+      o.send(23);
+      s.unsubscribe();
+      Assert.assertEquals(0, o.count());
+      blocked.countDown();
+
+      exec.shutdown();
+      Assert.assertTrue(exec.awaitTermination(10L, TimeUnit.SECONDS));
+      Assert.assertEquals(0, calls.get());
+    } finally {
+      exec.shutdownNow();
+    }
+  }
+
+  @Test
+  public final void testReceiverException() throws Exception {
+
+    final ObservableType<Integer> o = Observable.create();
+    final AtomicInteger calls = new AtomicInteger();
+
+    o.subscribe(x -> {
+      throw new IllegalStateException("Failing receiver");
+    });
+    o.subscribe(x -> calls.incrementAndGet());
+
+    o.send(23);
+    Assert.assertEquals(1, calls.get());
+  }
+
+  @Test
+  public final void testSendConcurrent() throws Exception {
+
+    final ObservableType<Integer> o = Observable.create();
+    final AtomicInteger calls = new AtomicInteger();
+    o.subscribe(x -> calls.incrementAndGet());
+
+    final ExecutorService exec = Executors.newFixedThreadPool(4);
+    try {
+      final CountDownLatch start = new CountDownLatch(1);
+      for (int thread = 0; thread < 4; ++thread) {
+        exec.execute(() -> {
+          try {
+            start.await();
+          } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+
+          /*
+           * Subscribe and unsubscribe continuously while sending, to check that
+           * concurrent changes to the subscribers are neither lost nor observed
+           * partially by senders.
+           */
+
+          for (int index = 0; index < 1000; ++index) {
+            final ObservableSubscriptionType<Integer> s = o.subscribe(x -> { });
+            o.send(index);
+            s.unsubscribe();
+          }
+        });
+      }
+
+      start.countDown();
+      exec.shutdown();
+      Assert.assertTrue(exec.awaitTermination(10L, TimeUnit.SECONDS));
+    } finally {
+      exec.shutdownNow();
+    }
+
+    Assert.assertEquals(4000, calls.get());
+    Assert.assertEquals(1, o.count());
+  }
 }
@@ -0,0 +1,248 @@
+package org.nypl.simplified.tests.opds;
+
+import com.io7m.jfunctional.Some;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.nypl.simplified.opds.core.DRMLicensor;
+import org.nypl.simplified.opds.core.OPDSAcquisitionFeed;
+import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntry;
+import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntryParser;
+import org.nypl.simplified.opds.core.OPDSFeedParser;
+import org.nypl.simplified.opds.core.OPDSFeedParserListenerType;
+import org.nypl.simplified.opds.core.OPDSFeedParserType;
+import org.nypl.simplified.opds.core.OPDSFeedStreamingParser;
+import org.nypl.simplified.opds.core.OPDSFeedStreamingParserType;
+import org.nypl.simplified.opds.core.OPDSParseException;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+public abstract class OPDSFeedStreamingParserContract {
+
+  private static final String[] FEEDS = {
+      "acquisition-categories-0.xml",
+      "acquisition-facets-0.xml",
+      "acquisition-fiction-0.xml",
+      "acquisition-groups-0.xml",
+      "acquisition-licensor-0.xml",
+      "acquisition-paginated-0.xml",
+      "empty-0.xml",
+      "loans.xml",
+      "navigation-0.xml",
+  };
+
+  private static final String[] ENTRIES = {
+      "entry-0.xml",
+      "entry-availability-held-indefinite-queued.xml",
+      "entry-availability-held-indefinite.xml",
+      "entry-availability-held-timed-queued.xml",
+      "entry-availability-held-timed.xml",
+      "entry-availability-heldready-specific0.xml",
+      "entry-availability-heldready-timed.xml",
+      "entry-availability-heldready.xml",
+      "entry-availability-holdable.xml",
+      "entry-availability-loanable.xml",
+      "entry-availability-loaned-indefinite.xml",
+      "entry-availability-loaned-timed.xml",
+      "entry-availability-open-access.xml",
+  };
+
+  private static final String[] FAILURES = {
+      "bad-not-xml.xml",
+      "bad-uri-syntax.xml",
+      "namespaces-0.xml",
+  };
+
+  @Rule
+  public ExpectedException expected = ExpectedException.none();
+
+  private static InputStream getResource(
+      final String name)
+      throws Exception {
+
+    final String path = "/org/nypl/simplified/tests/opds/" + name;
+    final URL url = OPDSFeedStreamingParserContract.class.getResource(path);
+    if (url == null) {
+      throw new FileNotFoundException(path);
+    }
+    return url.openStream();
+  }
+
+  private static OPDSFeedParserType domParser() {
+    return OPDSFeedParser.newParser(OPDSAcquisitionFeedEntryParser.newParser());
+  }
+
+  private static OPDSFeedStreamingParserType streamingParser() {
+    return OPDSFeedStreamingParser.newParser(
+        OPDSAcquisitionFeedEntryParser.newParser());
+  }
+
+  private static OPDSAcquisitionFeed parseWith(
+      final OPDSFeedParserType p,
+      final String name)
+      throws Exception {
+    final URI uri = URI.create("http://example.com/" + name);
+    try (InputStream s = getResource(name)) {
+      return p.parse(uri, s);
+    }
+  }
+
+  /**
+   * Every feed fixture must parse to exactly the same feed with both the DOM
+   * and the streaming parser.
+   */
+
+  @Test
+  public final void testFeedsIdentical()
+      throws Exception {
+    for (final String name : FEEDS) {
+      final OPDSAcquisitionFeed f_dom = parseWith(domParser(), name);
+      final OPDSAcquisitionFeed f_str = parseWith(streamingParser(), name);
+      Assert.assertEquals(name, f_dom, f_str);
+      Assert.assertEquals(name, f_dom.getLicensor(), f_str.getLicensor());
+      Assert.assertEquals(name, f_dom.getFeedLicenses(), f_str.getFeedLicenses());
+    }
+  }
+
+  /**
+   * Every entry fixture must parse to exactly the same entry with both the
+   * DOM and the streaming parser.
+   */
+
+  @Test
+  public final void testEntriesIdentical()
+      throws Exception {
+    for (final String name : ENTRIES) {
+      final OPDSAcquisitionFeed f_dom = parseWith(domParser(), name);
+      final OPDSAcquisitionFeed f_str = parseWith(streamingParser(), name);
+      Assert.assertEquals(name, f_dom.getFeedID(), f_str.getFeedID());
+      Assert.assertEquals(name, f_dom.getFeedTitle(), f_str.getFeedTitle());
+      Assert.assertEquals(name, 1, f_str.getFeedEntries().size());
+      Assert.assertEquals(name, f_dom.getFeedEntries(), f_str.getFeedEntries());
+    }
+  }
+
+  /**
+   * Documents that the DOM parser rejects must also be rejected by the
+   * streaming parser.
+   */
+
+  @Test
+  public final void testFailuresIdentical()
+      throws Exception {
+    for (final String name : FAILURES) {
+      try {
+        parseWith(domParser(), name);
+        Assert.fail("DOM parser must fail: " + name);
+      } catch (final OPDSParseException e) {
+        // Expected
+      }
+
+      try {
+        parseWith(streamingParser(), name);
+        Assert.fail("Streaming parser must fail: " + name);
+      } catch (final OPDSParseException e) {
+        // Expected
+      }
+    }
+  }
+
+  /**
+   * The header is delivered once, before any entry, and entries arrive in
+   * document order. Links that appear after the entries are present in the
+   * returned header.
+   */
+
+  @Test
+  public final void testStreamingOrder()
+      throws Exception {
+    final List<Object> received = new ArrayList<>();
+    final OPDSFeedParserListenerType listener = new OPDSFeedParserListenerType() {
+      @Override
+      public void onFeedHeader(final OPDSAcquisitionFeed header) {
+        received.add(header);
+      }
+
+      @Override
+      public void onFeedEntry(final OPDSAcquisitionFeedEntry entry) {
+        received.add(entry);
+      }
+    };
+
+    final URI uri = URI.create("http://example.com/loans/");
+    final OPDSAcquisitionFeed result;
+    try (InputStream s = getResource("acquisition-licensor-0.xml")) {
+      result = streamingParser().parseStreaming(uri, s, listener);
+    }
+
+    Assert.assertEquals(3, received.size());
+    Assert.assertTrue(received.get(0) instanceof OPDSAcquisitionFeed);
+    Assert.assertTrue(received.get(1) instanceof OPDSAcquisitionFeedEntry);
+    Assert.assertTrue(received.get(2) instanceof OPDSAcquisitionFeedEntry);
+
+    final OPDSAcquisitionFeed header = (OPDSAcquisitionFeed) received.get(0);
+    Assert.assertEquals("http://example.com/loans/", header.getFeedID());
+    Assert.assertTrue(header.getFeedEntries().isEmpty());
+    Assert.assertTrue(header.getFeedNext().isNone());
+
+    final DRMLicensor licensor =
+        ((Some<DRMLicensor>) header.getLicensor()).get();
+    Assert.assertEquals("NYPL", licensor.getVendor());
+    Assert.assertEquals(
+        "NYNYPL|1508854839|aaaa-bbbb-cccc|tokentoken",
+        licensor.getClientToken());
+    Assert.assertEquals(
+        "http://example.com/AdobeAuth/devices",
+        ((Some<String>) licensor.getDeviceManager()).get());
+
+    Assert.assertEquals(
+        "urn:example:0",
+        ((OPDSAcquisitionFeedEntry) received.get(1)).getID());
+    Assert.assertEquals(
+        "urn:example:1",
+        ((OPDSAcquisitionFeedEntry) received.get(2)).getID());
+
+    Assert.assertTrue(result.getFeedEntries().isEmpty());
+    Assert.assertEquals(
+        URI.create("http://example.com/loans/?after=2"),
+        ((Some<URI>) result.getFeedNext()).get());
+  }
+
+  @Test
+  public final void testStreamIOException()
+      throws Exception {
+    final URI uri = URI.create("http://example.com/feed");
+
+    expected.expect(OPDSParseException.class);
+
+    final InputStream d = new InputStream() {
+      @Override
+      public int read()
+          throws IOException {
+        throw new IOException();
+      }
+    };
+    streamingParser().parse(uri, d);
+  }
+
+  @Test
+  public final void testWrongRoot()
+      throws Exception {
+    final URI uri = URI.create("http://example.com/feed");
+
+    expected.expect(OPDSParseException.class);
+
+    final InputStream d =
+        new ByteArrayInputStream("<x xmlns='urn:x'/>".getBytes("UTF-8"));
+    streamingParser().parse(uri, d);
+  }
+}
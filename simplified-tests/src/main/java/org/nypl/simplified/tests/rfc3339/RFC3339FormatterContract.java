@@ -6,7 +6,16 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.nypl.simplified.rfc3339.core.RFC3339Formatter;
 
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public abstract class RFC3339FormatterContract
 {
@@ -121,4 +130,209 @@ public abstract class RFC3339FormatterContract
       throw new AssertionError("Failed to raise exception");
     }
   }
+
+  private static long parseMillis(
+    final String text)
+    throws Exception
+  {
+    return RFC3339Formatter.parseRFC3339Date(text).getTimeInMillis();
+  }
+
+  @Test
+  public final void testOffsetPositive()
+    throws Exception
+  {
+    Assert.assertEquals(
+      RFC3339FormatterContract.parseMillis("2015-05-01T18:11:15Z"),
+      RFC3339FormatterContract.parseMillis("2015-05-01T23:41:15+05:30"));
+  }
+
+  @Test
+  public final void testOffsetNegative()
+    throws Exception
+  {
+    Assert.assertEquals(
+      RFC3339FormatterContract.parseMillis("2015-05-02T04:11:15Z"),
+      RFC3339FormatterContract.parseMillis("2015-05-01T23:11:15-05:00"));
+  }
+
+  @Test
+  public final void testOffsetWithoutColon()
+    throws Exception
+  {
+    Assert.assertEquals(
+      RFC3339FormatterContract.parseMillis("2015-05-01T23:11:15-05:00"),
+      RFC3339FormatterContract.parseMillis("2015-05-01T23:11:15-0500"));
+  }
+
+  @Test
+  public final void testFractionDigits()
+    throws Exception
+  {
+    final long base = RFC3339FormatterContract.parseMillis("2015-05-01T23:11:15Z");
+    Assert.assertEquals(
+      base + 500L, RFC3339FormatterContract.parseMillis("2015-05-01T23:11:15.5Z"));
+    Assert.assertEquals(
+      base + 230L, RFC3339FormatterContract.parseMillis("2015-05-01T23:11:15.23Z"));
+    Assert.assertEquals(
+      base + 237L, RFC3339FormatterContract.parseMillis("2015-05-01T23:11:15.237Z"));
+    Assert.assertEquals(
+      base + 237L, RFC3339FormatterContract.parseMillis("2015-05-01T23:11:15.237000Z"));
+    Assert.assertEquals(
+      base + 237L,
+      RFC3339FormatterContract.parseMillis("2015-05-01T23:11:15.237999999999-00:00"));
+  }
+
+  @Test
+  public final void testLowercase()
+    throws Exception
+  {
+    Assert.assertEquals(
+      RFC3339FormatterContract.parseMillis("2015-05-01T23:11:15Z"),
+      RFC3339FormatterContract.parseMillis("2015-05-01t23:11:15z"));
+  }
+
+  @Test
+  public final void testLeapDay()
+    throws Exception
+  {
+    final Calendar c = RFC3339Formatter.parseRFC3339Date("2016-02-29T00:00:00Z");
+    Assert.assertEquals(2016, c.get(Calendar.YEAR));
+    Assert.assertEquals(1, c.get(Calendar.MONTH));
+    Assert.assertEquals(29, c.get(Calendar.DAY_OF_MONTH));
+  }
+
+  @Test
+  public final void testMatchesSimpleDateFormat()
+    throws Exception
+  {
+    final SimpleDateFormat f = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX");
+    f.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+    final String[] texts = {
+      "1900-01-01T00:00:00Z",
+      "1969-12-31T23:59:59Z",
+      "1970-01-01T00:00:00Z",
+      "2000-02-29T12:00:00+01:00",
+      "2015-05-01T23:11:15-00:00",
+      "2038-01-19T03:14:08-08:00",
+      "2100-03-01T00:00:00Z",
+      "9999-12-31T23:59:59Z",
+    };
+
+    for (final String text : texts) {
+      Assert.assertEquals(
+        text,
+        f.parse(text).getTime(),
+        RFC3339FormatterContract.parseMillis(text));
+    }
+  }
+
+  @Test
+  public final void testInvalid()
+    throws Exception
+  {
+    final String[] texts = {
+      "",
+      "2015",
+      "2015-05-01",
+      "2015-05-01T23:11",
+      "2015-05-01T23:11:15",
+      "2015-05-01T23:11:15.Z",
+      "2015-05-01T23:11:15+05",
+      "2015-05-01T23:11:15+05:3",
+      "2015-05-01T23:11:15ZZ",
+      "2015-05-01T23:11:15 Z",
+      "2015-13-01T23:11:15Z",
+      "2015-00-01T23:11:15Z",
+      "2015-02-29T23:11:15Z",
+      "2015-04-31T23:11:15Z",
+      "2015-05-01T24:11:15Z",
+      "2015-05-01T23:60:15Z",
+      "2015-05-01T23:11:61Z",
+      "2015-05-01X23:11:15Z",
+      "2015/05/01T23:11:15Z",
+      "2015-05-01T23:11:15+24:00",
+      "2O15-05-01T23:11:15Z",
+    };
+
+    for (final String text : texts) {
+      try {
+        RFC3339Formatter.parseRFC3339Date(text);
+        Assert.fail("Parsing must fail: " + text);
+      } catch (final ParseException e) {
+        // Expected
+      }
+    }
+  }
+
+  @Test
+  public final void testFormat()
+    throws Exception
+  {
+    Assert.assertEquals(
+      "2015-05-01T23:11:15Z",
+      RFC3339Formatter.formatRFC3339Date(
+        RFC3339Formatter.parseRFC3339Date("2015-05-01T23:11:15.237Z")));
+    Assert.assertEquals(
+      "2015-05-02T04:11:15Z",
+      RFC3339Formatter.formatRFC3339Date(
+        RFC3339Formatter.parseRFC3339Date("2015-05-01T23:11:15-05:00")));
+    Assert.assertEquals(
+      "1970-01-01T00:00:00Z",
+      RFC3339Formatter.formatRFC3339Date(new Date(0L)));
+    Assert.assertEquals(
+      "1969-12-31T23:59:59Z",
+      RFC3339Formatter.formatRFC3339Date(new Date(-1L)));
+  }
+
+  @Test
+  public final void testFormatNonUTCCalendar()
+    throws Exception
+  {
+    final Calendar c = Calendar.getInstance(TimeZone.getTimeZone("America/New_York"));
+    c.setTimeInMillis(RFC3339FormatterContract.parseMillis("2015-05-01T23:11:15Z"));
+    Assert.assertEquals("2015-05-01T23:11:15Z", RFC3339Formatter.formatRFC3339Date(c));
+  }
+
+  @Test
+  public final void testFormatRoundTrip()
+    throws Exception
+  {
+    final SimpleDateFormat f = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+    f.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+    for (long time = -5000000000000L; time < 5000000000000L; time += 7777777777L) {
+      final long seconds = time - (((time % 1000L) + 1000L) % 1000L);
+      final String text = RFC3339Formatter.formatRFC3339Date(new Date(time));
+      Assert.assertEquals(f.format(new Date(time)), text);
+      Assert.assertEquals(text, seconds, RFC3339FormatterContract.parseMillis(text));
+    }
+  }
+
+  @Test
+  public final void testConcurrent()
+    throws Exception
+  {
+    final ExecutorService exec = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 4; ++thread) {
+        final int offset = thread;
+        futures.add(exec.submit(() -> {
+          for (int index = 0; index < 10000; ++index) {
+            final long time = ((index * 4L) + offset) * 86400000L;
+            final String text = RFC3339Formatter.formatRFC3339Date(new Date(time));
+            Assert.assertEquals(time, RFC3339FormatterContract.parseMillis(text));
+          }
+          return null;
+        }));
+      }
+      for (final Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      exec.shutdown();
+    }
+  }
 }
@@ -0,0 +1,7 @@
+package org.nypl.simplified.tests.local.books.analytics;
+
+import org.nypl.simplified.tests.books.analytics.AnalyticsLoggerContract;
+
+public final class AnalyticsLoggerTest extends AnalyticsLoggerContract {
+
+}
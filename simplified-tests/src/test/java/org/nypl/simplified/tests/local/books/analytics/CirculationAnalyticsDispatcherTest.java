@@ -0,0 +1,8 @@
+package org.nypl.simplified.tests.local.books.analytics;
+
+import org.nypl.simplified.tests.books.analytics.CirculationAnalyticsDispatcherContract;
+
+public final class CirculationAnalyticsDispatcherTest
+    extends CirculationAnalyticsDispatcherContract {
+
+}
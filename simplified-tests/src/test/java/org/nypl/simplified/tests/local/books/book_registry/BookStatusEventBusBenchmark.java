@@ -0,0 +1,152 @@
+package org.nypl.simplified.tests.local.books.book_registry;
+
+import org.nypl.simplified.books.book_database.BookID;
+import org.nypl.simplified.books.book_registry.BookStatusEvent;
+import org.nypl.simplified.books.book_registry.BookStatusEventBus;
+import org.nypl.simplified.books.book_registry.BookStatusEventBusType;
+import org.nypl.simplified.observable.Observable;
+import org.nypl.simplified.observable.ObservableType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.nypl.simplified.books.book_registry.BookStatusEvent.Type.BOOK_CHANGED;
+
+/**
+ * <p>A benchmark comparing the cost of one display frame's worth of book status events for a
+ * catalog feed that subscribes to every book, with 1, 4 and 16 concurrent downloads that each
+ * publish 16 progress events per frame (one per millisecond, as the downloader does when the
+ * network is fast). The work a subscriber does for each delivered event (redrawing the grid) is
+ * simulated with {@link Blackhole#consumeCPU(long)}.</p>
+ *
+ * <ul>
+ * <li>{@code direct} subscribes to the source of events itself, so every event is delivered.</li>
+ * <li>{@code coalesced} subscribes through a {@link BookStatusEventBus}, so one event per book is
+ * delivered at the end of the frame.</li>
+ * <li>{@code coalescedBatched} additionally redraws once for all of the books delivered in the
+ * frame, as the catalog feed does.</li>
+ * </ul>
+ *
+ * <p>So that the end of a frame is deterministic, the bus is created with a window that never
+ * elapses, and the deliveries scheduled during a frame are run explicitly at its end.</p>
+ *
+ * <p>Run with: {@code java BookStatusEventBusBenchmark}</p>
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class BookStatusEventBusBenchmark {
+
+  private static final int EVENTS_PER_FRAME = 16;
+
+  private static final long REDRAW_TOKENS = 1000L;
+
+  @Param({"1", "4", "16"})
+  public int downloads;
+
+  private BookStatusEvent[] events;
+  private ObservableType<BookStatusEvent> direct_source;
+  private ObservableType<BookStatusEvent> coalesced_source;
+  private ObservableType<BookStatusEvent> batched_source;
+  private ScheduledThreadPoolExecutor exec;
+  private AtomicBoolean redraw_pending;
+
+  @Setup
+  public void setup() {
+    this.events = new BookStatusEvent[this.downloads];
+    for (int index = 0; index < this.downloads; ++index) {
+      this.events[index] = BookStatusEvent.create(BookID.create("book-" + index), BOOK_CHANGED);
+    }
+
+    this.exec = new ScheduledThreadPoolExecutor(1);
+
+    this.direct_source = Observable.create();
+    this.direct_source.subscribe(e -> Blackhole.consumeCPU(REDRAW_TOKENS));
+
+    this.coalesced_source = Observable.create();
+    final BookStatusEventBusType coalesced =
+        BookStatusEventBus.create(this.coalesced_source, this.exec, 1L, TimeUnit.HOURS);
+    coalesced.subscribeAll(e -> Blackhole.consumeCPU(REDRAW_TOKENS));
+
+    this.redraw_pending = new AtomicBoolean(false);
+    this.batched_source = Observable.create();
+    final BookStatusEventBusType batched =
+        BookStatusEventBus.create(this.batched_source, this.exec, 1L, TimeUnit.HOURS);
+    batched.subscribeAll(e -> this.redraw_pending.set(true));
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.exec.shutdownNow();
+  }
+
+  private void publishFrame(final ObservableType<BookStatusEvent> source) {
+    for (int tick = 0; tick < EVENTS_PER_FRAME; ++tick) {
+      for (final BookStatusEvent event : this.events) {
+        source.send(event);
+      }
+    }
+  }
+
+  /**
+   * End the current frame by running the deliveries that the bus scheduled during it. The
+   * deliveries have not expired, so they are copied out of the queue rather than drained.
+   */
+
+  private void endFrame() {
+    final Runnable[] deliveries = this.exec.getQueue().toArray(new Runnable[0]);
+    this.exec.getQueue().clear();
+    for (final Runnable delivery : deliveries) {
+      delivery.run();
+    }
+  }
+
+  @Benchmark
+  public void direct() {
+    this.publishFrame(this.direct_source);
+  }
+
+  @Benchmark
+  public void coalesced() {
+    this.publishFrame(this.coalesced_source);
+    this.endFrame();
+  }
+
+  @Benchmark
+  public void coalescedBatched() {
+    this.publishFrame(this.batched_source);
+    this.endFrame();
+    if (this.redraw_pending.getAndSet(false)) {
+      Blackhole.consumeCPU(REDRAW_TOKENS);
+    }
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder()
+            .include(BookStatusEventBusBenchmark.class.getSimpleName())
+            .build())
+        .run();
+  }
+}
@@ -0,0 +1,7 @@
+package org.nypl.simplified.tests.local.books.book_registry;
+
+import org.nypl.simplified.tests.books.book_registry.BookStatusEventBusContract;
+
+public final class BookStatusEventBusTest extends BookStatusEventBusContract {
+
+}
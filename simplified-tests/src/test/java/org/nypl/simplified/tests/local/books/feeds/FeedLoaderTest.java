@@ -0,0 +1,7 @@
+package org.nypl.simplified.tests.local.books.feeds;
+
+import org.nypl.simplified.tests.books.feeds.FeedLoaderContract;
+
+public final class FeedLoaderTest extends FeedLoaderContract {
+
+}
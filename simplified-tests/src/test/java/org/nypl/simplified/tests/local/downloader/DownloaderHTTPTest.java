@@ -0,0 +1,7 @@
+package org.nypl.simplified.tests.local.downloader;
+
+import org.nypl.simplified.tests.downloader.DownloaderHTTPContract;
+
+public final class DownloaderHTTPTest extends DownloaderHTTPContract {
+
+}
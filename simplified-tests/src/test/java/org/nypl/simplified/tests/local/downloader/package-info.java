@@ -0,0 +1,5 @@
+/**
+ * Downloader local test frontend.
+ */
+
+package org.nypl.simplified.tests.local.downloader;
@@ -0,0 +1,7 @@
+package org.nypl.simplified.tests.local.http;
+
+import org.nypl.simplified.tests.http.HTTPCacheContract;
+
+public final class HTTPCacheTest extends HTTPCacheContract {
+
+}
@@ -0,0 +1,7 @@
+package org.nypl.simplified.tests.local.http;
+
+import org.nypl.simplified.tests.http.HTTPPooledContract;
+
+public final class HTTPPooledTest extends HTTPPooledContract {
+
+}
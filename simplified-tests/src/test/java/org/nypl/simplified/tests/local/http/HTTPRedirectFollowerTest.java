@@ -0,0 +1,7 @@
+package org.nypl.simplified.tests.local.http;
+
+import org.nypl.simplified.tests.http.HTTPRedirectFollowerContract;
+
+public final class HTTPRedirectFollowerTest extends HTTPRedirectFollowerContract {
+
+}
@@ -0,0 +1,147 @@
+package org.nypl.simplified.tests.local.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.io7m.jfunctional.Option;
+
+import org.joda.time.LocalDate;
+import org.nypl.simplified.books.accounts.AccountAuthenticationCredentials;
+import org.nypl.simplified.books.accounts.AccountAuthenticationCredentialsJSON;
+import org.nypl.simplified.books.accounts.AccountBarcode;
+import org.nypl.simplified.books.accounts.AccountPIN;
+import org.nypl.simplified.books.profiles.ProfileDescription;
+import org.nypl.simplified.books.profiles.ProfileDescriptionJSON;
+import org.nypl.simplified.books.profiles.ProfilePreferences;
+import org.nypl.simplified.books.reader.ReaderPreferences;
+import org.nypl.simplified.json.core.JSONMappers;
+import org.nypl.simplified.json.core.JSONParserUtilities;
+import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntry;
+import org.nypl.simplified.opds.core.OPDSAvailabilityOpenAccess;
+import org.nypl.simplified.opds.core.OPDSJSONParser;
+import org.nypl.simplified.opds.core.OPDSJSONParserType;
+import org.nypl.simplified.opds.core.OPDSJSONSerializer;
+import org.nypl.simplified.opds.core.OPDSJSONSerializerType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>A benchmark comparing JSON round trips of the profile, account, and book documents through
+ * the shared {@link JSONMappers} instances with round trips that create a new
+ * {@link ObjectMapper} for each step, as the serializers did previously.</p>
+ *
+ * <p>Run with: {@code java JSONMappersBenchmark}</p>
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class JSONMappersBenchmark {
+
+  private ProfileDescription profile;
+  private AccountAuthenticationCredentials credentials;
+  private OPDSAcquisitionFeedEntry entry;
+  private OPDSJSONParserType parser;
+  private OPDSJSONSerializerType serializer;
+
+  @Setup
+  public void setup() {
+    this.profile =
+        ProfileDescription.builder(
+            "Kermit",
+            ProfilePreferences.builder()
+                .setDateOfBirth(new LocalDate(1985, 1, 1))
+                .setReaderPreferences(ReaderPreferences.builder().build())
+                .build()).build();
+
+    this.credentials =
+        AccountAuthenticationCredentials.builder(
+            AccountPIN.create("1234"), AccountBarcode.create("5678"))
+            .build();
+
+    this.entry =
+        OPDSAcquisitionFeedEntry.newBuilder(
+            "a",
+            "Title",
+            Calendar.getInstance(),
+            OPDSAvailabilityOpenAccess.get(Option.none()))
+            .build();
+
+    this.parser = OPDSJSONParser.newParser();
+    this.serializer = OPDSJSONSerializer.newSerializer();
+  }
+
+  @Benchmark
+  public ProfileDescription profileShared() throws IOException {
+    final ObjectMapper jom = JSONMappers.mapper();
+    return ProfileDescriptionJSON.deserializeFromText(
+        jom, ProfileDescriptionJSON.serializeToString(jom, this.profile));
+  }
+
+  @Benchmark
+  public ProfileDescription profileFresh() throws IOException {
+    final String text =
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(
+            ProfileDescriptionJSON.serializeToJSON(new ObjectMapper(), this.profile));
+    return ProfileDescriptionJSON.deserializeFromText(new ObjectMapper(), text);
+  }
+
+  @Benchmark
+  public AccountAuthenticationCredentials accountShared() throws IOException {
+    return AccountAuthenticationCredentialsJSON.deserializeFromText(
+        AccountAuthenticationCredentialsJSON.serializeToText(this.credentials));
+  }
+
+  @Benchmark
+  public AccountAuthenticationCredentials accountFresh() throws IOException {
+    final String text =
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(
+            AccountAuthenticationCredentialsJSON.serializeToJSON(this.credentials));
+    return AccountAuthenticationCredentialsJSON.deserializeFromJSON(
+        new ObjectMapper().readTree(text));
+  }
+
+  @Benchmark
+  public OPDSAcquisitionFeedEntry bookShared() throws Exception {
+    final ByteArrayOutputStream bao = new ByteArrayOutputStream(1024);
+    this.serializer.serializeToStream(this.serializer.serializeFeedEntry(this.entry), bao);
+    return this.parser.parseAcquisitionFeedEntryFromStream(
+        new ByteArrayInputStream(bao.toByteArray()));
+  }
+
+  @Benchmark
+  public OPDSAcquisitionFeedEntry bookFresh() throws Exception {
+    final byte[] data =
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsBytes(
+            this.serializer.serializeFeedEntry(this.entry));
+    return this.parser.parseAcquisitionFeedEntry(
+        JSONParserUtilities.checkObject(
+            null, new ObjectMapper().readTree(new ByteArrayInputStream(data))));
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder()
+            .include(JSONMappersBenchmark.class.getSimpleName())
+            .build())
+        .run();
+  }
+}
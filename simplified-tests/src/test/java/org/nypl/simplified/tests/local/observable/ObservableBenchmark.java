@@ -0,0 +1,108 @@
+package org.nypl.simplified.tests.local.observable;
+
+import org.nypl.simplified.observable.Observable;
+import org.nypl.simplified.observable.ObservableType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>A benchmark comparing the send throughput of {@link Observable} with that of the
+ * {@link java.util.Observable} wrapper it replaced, with 1, 10 and 100 subscribers and
+ * four threads sending at once.</p>
+ *
+ * <p>Run with: {@code java ObservableBenchmark}</p>
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ObservableBenchmark {
+
+  /**
+   * An observable shared by all of the sending threads.
+   */
+
+  @State(Scope.Benchmark)
+  public static class CopyOnWriteState {
+
+    @Param({"1", "10", "100"})
+    public int subscribers;
+
+    ObservableType<Integer> observable;
+
+    @Setup
+    public void setup() {
+      this.observable = Observable.create();
+      for (int index = 0; index < this.subscribers; ++index) {
+        this.observable.subscribe(x -> { });
+      }
+    }
+  }
+
+  /**
+   * The previous implementation, shared by all of the sending threads.
+   */
+
+  @State(Scope.Benchmark)
+  public static class JavaUtilState {
+
+    @Param({"1", "10", "100"})
+    public int subscribers;
+
+    JavaUtilObservable observable;
+
+    @Setup
+    public void setup() {
+      this.observable = new JavaUtilObservable();
+      for (int index = 0; index < this.subscribers; ++index) {
+        this.observable.addObserver((o, x) -> { });
+      }
+    }
+  }
+
+  static final class JavaUtilObservable extends java.util.Observable {
+
+    void send(final Object value) {
+      this.setChanged();
+      this.notifyObservers(value);
+    }
+  }
+
+  private static final Integer VALUE = 23;
+
+  @Benchmark
+  public void sendCopyOnWrite(final CopyOnWriteState state) {
+    state.observable.send(VALUE);
+  }
+
+  @Benchmark
+  public void sendJavaUtil(final JavaUtilState state) {
+    state.observable.send(VALUE);
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder()
+            .include(ObservableBenchmark.class.getSimpleName())
+            .build())
+        .run();
+  }
+}
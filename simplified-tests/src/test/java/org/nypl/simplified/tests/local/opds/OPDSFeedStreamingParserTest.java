@@ -0,0 +1,7 @@
+package org.nypl.simplified.tests.local.opds;
+
+import org.nypl.simplified.tests.opds.OPDSFeedStreamingParserContract;
+
+public final class OPDSFeedStreamingParserTest extends OPDSFeedStreamingParserContract {
+
+}
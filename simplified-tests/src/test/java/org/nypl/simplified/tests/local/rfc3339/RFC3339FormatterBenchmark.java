@@ -0,0 +1,144 @@
+package org.nypl.simplified.tests.local.rfc3339;
+
+import org.nypl.simplified.rfc3339.core.RFC3339Formatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>A benchmark comparing {@link RFC3339Formatter} with the
+ * {@link SimpleDateFormat} based implementation it replaced, for each of the
+ * timestamp forms found in OPDS feeds.</p>
+ *
+ * <p>Run with: {@code java RFC3339FormatterBenchmark}</p>
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class RFC3339FormatterBenchmark
+{
+  @Param({
+    "2015-05-01T23:11:15Z",
+    "2015-05-01T23:11:15.237Z",
+    "2015-05-01T23:11:15-05:00",
+    "2015-05-01T23:11:15.237-05:00",
+  })
+  public String text;
+
+  private Calendar date;
+
+  @Setup
+  public void setup()
+    throws ParseException
+  {
+    this.date = RFC3339Formatter.parseRFC3339Date(this.text);
+  }
+
+  @Benchmark
+  public Calendar parse()
+    throws ParseException
+  {
+    return RFC3339Formatter.parseRFC3339Date(this.text);
+  }
+
+  @Benchmark
+  public Calendar parseLegacy()
+    throws ParseException
+  {
+    return RFC3339FormatterBenchmark.parseLegacyRFC3339Date(this.text);
+  }
+
+  @Benchmark
+  public String format()
+  {
+    return RFC3339Formatter.formatRFC3339Date(this.date);
+  }
+
+  @Benchmark
+  public String formatLegacy()
+  {
+    final SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+    return fmt.format(this.date.getTime());
+  }
+
+  /**
+   * The previous implementation of {@link RFC3339Formatter#parseRFC3339Date(String)}.
+   */
+
+  private static Calendar parseLegacyRFC3339Date(
+    final String text)
+    throws ParseException
+  {
+    Date d;
+
+    final TimeZone utc = TimeZone.getTimeZone("UTC");
+    if (text.endsWith("Z")) {
+      final SimpleDateFormat df0 =
+        new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+      df0.setTimeZone(utc);
+      try {
+        d = df0.parse(text);
+      } catch (final ParseException pe) {
+        final SimpleDateFormat df1 =
+          new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'");
+        df1.setTimeZone(utc);
+        df1.setLenient(true);
+        d = df1.parse(text);
+      }
+    } else {
+      final String pre = text.substring(0, text.lastIndexOf('-'));
+      String post = text.substring(text.lastIndexOf('-'));
+      post = post.substring(0, post.indexOf(':')) + post.substring(
+        post.indexOf(':') + 1);
+
+      final String new_date = pre + post;
+      final SimpleDateFormat df0 = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
+      df0.setTimeZone(utc);
+      try {
+        d = df0.parse(new_date);
+      } catch (final ParseException pe) {
+        final SimpleDateFormat df1 =
+          new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSSZ");
+        df1.setTimeZone(utc);
+        df1.setLenient(true);
+        d = df1.parse(new_date);
+      }
+    }
+
+    final Calendar cal = Calendar.getInstance(utc);
+    cal.setTime(d);
+    return cal;
+  }
+
+  public static void main(final String[] args)
+    throws RunnerException
+  {
+    new Runner(
+      new OptionsBuilder()
+        .include(RFC3339FormatterBenchmark.class.getSimpleName())
+        .build())
+      .run();
+  }
+}